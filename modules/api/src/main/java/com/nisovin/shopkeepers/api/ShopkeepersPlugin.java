@@ -17,6 +17,7 @@ import com.nisovin.shopkeepers.api.shopkeeper.offers.TradeOffer;
 import com.nisovin.shopkeepers.api.shopobjects.DefaultShopObjectTypes;
 import com.nisovin.shopkeepers.api.shopobjects.ShopObjectTypesRegistry;
 import com.nisovin.shopkeepers.api.storage.ShopkeeperStorage;
+import com.nisovin.shopkeepers.api.tradelog.TradeHistory;
 import com.nisovin.shopkeepers.api.ui.DefaultUITypes;
 import com.nisovin.shopkeepers.api.ui.UIRegistry;
 import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
@@ -180,6 +181,10 @@ public interface ShopkeepersPlugin extends Plugin {
 	 * The <code>shopkeeper.snapshot</code> permission.
 	 */
 	public static final String SNAPSHOT_PERMISSION = "shopkeeper.snapshot";
+	/**
+	 * The <code>shopkeeper.trade-history</code> permission.
+	 */
+	public static final String TRADE_HISTORY_PERMISSION = "shopkeeper.trade-history";
 	/**
 	 * The <code>shopkeeper.edit-villagers</code> permission.
 	 */
@@ -303,6 +308,15 @@ public interface ShopkeepersPlugin extends Plugin {
 	 */
 	public ShopkeeperStorage getShopkeeperStorage();
 
+	// TRADE HISTORY
+
+	/**
+	 * Gets the {@link TradeHistory}.
+	 * 
+	 * @return the trade history
+	 */
+	public TradeHistory getTradeHistory();
+
 	// ITEM UPDATES
 
 	/**
@@ -35,6 +35,11 @@ import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
  * for each of these trades. Canceling a trade will also cancel all successive trades that might
  * otherwise have been triggered by the same click event.
  * <p>
+ * Depending on the configuration, successive trades that use the same trading recipe can also be
+ * aggregated into a single trade that applies the trading recipe multiple times at once. The
+ * {@link #getTradeCount() trade count} indicates how often the trading recipe is applied by the
+ * trade. The items of this event always refer to a single application of the trading recipe.
+ * <p>
  * This event cannot be used to determine whether the trade will actually take place. For example,
  * the shopkeeper might abort the trade if the player does not have the necessary inventory space
  * available to receive the result items. Use {@link #getTradeEffects()} to register effects that
@@ -54,6 +59,7 @@ public class ShopkeeperTradeEvent extends ShopkeeperEvent implements Cancellable
 	private final UnmodifiableItemStack offeredItem1;
 	private final @Nullable UnmodifiableItemStack offeredItem2;
 	private final boolean swappedItemOrder;
+	private final int tradeCount;
 
 	private @Nullable UnmodifiableItemStack receivedItem1;
 	private @Nullable UnmodifiableItemStack receivedItem2;
@@ -96,18 +102,68 @@ public class ShopkeeperTradeEvent extends ShopkeeperEvent implements Cancellable
 			UnmodifiableItemStack offeredItem1,
 			@Nullable UnmodifiableItemStack offeredItem2,
 			boolean swappedItemOrder
+	) {
+		this(
+				shopkeeper,
+				player,
+				clickEvent,
+				tradingRecipe,
+				offeredItem1,
+				offeredItem2,
+				swappedItemOrder,
+				1
+		);
+	}
+
+	/**
+	 * Creates a new {@link ShopkeeperTradeEvent}.
+	 * <p>
+	 * The offered items are expected to be immutable and their stack sizes match the trading recipe
+	 * items.
+	 * 
+	 * @param shopkeeper
+	 *            the involved shopkeeper, not <code>null</code>
+	 * @param player
+	 *            the trading player, not <code>null</code>
+	 * @param clickEvent
+	 *            the click event that triggered the trade, not <code>null</code>
+	 * @param tradingRecipe
+	 *            the trading recipe, not <code>null</code>
+	 * @param offeredItem1
+	 *            the offered item that matches the first required item of the trading recipe, not
+	 *            <code>null</code> or empty
+	 * @param offeredItem2
+	 *            the offered item that matches the second required item of the trading recipe, can
+	 *            be <code>null</code>
+	 * @param swappedItemOrder
+	 *            <code>true</code> if the player provided the offered items in reverse order
+	 * @param tradeCount
+	 *            the number of times the trading recipe is applied by this trade, has to be
+	 *            positive
+	 */
+	public ShopkeeperTradeEvent(
+			Shopkeeper shopkeeper,
+			Player player,
+			InventoryClickEvent clickEvent,
+			TradingRecipe tradingRecipe,
+			UnmodifiableItemStack offeredItem1,
+			@Nullable UnmodifiableItemStack offeredItem2,
+			boolean swappedItemOrder,
+			int tradeCount
 	) {
 		super(shopkeeper);
 		Preconditions.checkNotNull(player, "player is null");
 		Preconditions.checkNotNull(clickEvent, "clickEvent is null");
 		Preconditions.checkNotNull(tradingRecipe, "tradingRecipe is null");
 		Preconditions.checkNotNull(offeredItem1, "offeredItem1 is null");
+		Preconditions.checkArgument(tradeCount > 0, "tradeCount has to be positive");
 		this.player = player;
 		this.clickEvent = clickEvent;
 		this.tradingRecipe = tradingRecipe;
 		this.offeredItem1 = offeredItem1;
 		this.offeredItem2 = offeredItem2; // Can be null
 		this.swappedItemOrder = swappedItemOrder;
+		this.tradeCount = tradeCount;
 
 		this.receivedItem1 = offeredItem1;
 		this.receivedItem2 = offeredItem2;
@@ -206,6 +262,22 @@ public class ShopkeeperTradeEvent extends ShopkeeperEvent implements Cancellable
 		return swappedItemOrder;
 	}
 
+	/**
+	 * Gets the number of times the {@link #getTradingRecipe() trading recipe} is applied by this
+	 * trade.
+	 * <p>
+	 * This is usually {@code 1}. However, if several successive trades using the same trading
+	 * recipe are aggregated into a single trade, this returns the number of aggregated trades. The
+	 * offered, received, and result items of this event always refer to a single application of
+	 * the trading recipe. Any modifications to these items apply to each of the aggregated trades.
+	 * Registered {@link TradeEffect}s are applied once for each aggregated trade.
+	 * 
+	 * @return the trade count, at least {@code 1}
+	 */
+	public int getTradeCount() {
+		return tradeCount;
+	}
+
 	/**
 	 * Gets an unmodifiable view on the first item that the shopkeeper will receive, or
 	 * <code>null</code> or empty if the shopkeeper will not receive any item.
@@ -408,6 +408,13 @@ public interface Shopkeeper {
 	 */
 	public List<? extends TradingRecipe> getTradingRecipes(@Nullable Player player);
 
+	/**
+	 * Gets the {@link TradeStatistics} of this shopkeeper.
+	 * 
+	 * @return the trade statistics, not <code>null</code>
+	 */
+	public TradeStatistics getTradeStatistics();
+
 	// SHOPKEEPER UIs
 
 	/**
@@ -0,0 +1,42 @@
+package com.nisovin.shopkeepers.api.shopkeeper;
+
+/**
+ * Rolling in-memory statistics about the recent trades of a {@link Shopkeeper}.
+ * <p>
+ * The statistics count the trades within each {@link TradeStatisticsPeriod}, both in total and
+ * per offer. Offers are distinguished by the items of their {@link TradingRecipe}, i.e. by their
+ * types and item data, but not by their amounts. The counts are updated whenever a trade with the
+ * shopkeeper is completed, and are persisted with the shopkeeper's data. Querying them does not
+ * access any trade logs.
+ * <p>
+ * Since the statistics are updated with the resolution of their respective period, the counts
+ * are approximate: Trades drop out of a period in steps of its resolution.
+ */
+public interface TradeStatistics {
+
+	/**
+	 * Gets the total number of trades within the given period.
+	 * 
+	 * @param period
+	 *            the period, not <code>null</code>
+	 * @return the number of trades
+	 */
+	public int getTradeCount(TradeStatisticsPeriod period);
+
+	/**
+	 * Gets the number of trades of the offer that corresponds to the given {@link TradingRecipe}
+	 * within the given period.
+	 * 
+	 * @param tradingRecipe
+	 *            the trading recipe, not <code>null</code>
+	 * @param period
+	 *            the period, not <code>null</code>
+	 * @return the number of trades
+	 */
+	public int getTradeCount(TradingRecipe tradingRecipe, TradeStatisticsPeriod period);
+
+	/**
+	 * Resets all statistics.
+	 */
+	public void reset();
+}
@@ -0,0 +1,20 @@
+package com.nisovin.shopkeepers.api.shopkeeper;
+
+/**
+ * The rolling time periods that are covered by the {@link TradeStatistics} of a shopkeeper.
+ */
+public enum TradeStatisticsPeriod {
+
+	/**
+	 * The last hour, with a resolution of five minutes.
+	 */
+	HOUR,
+	/**
+	 * The last 24 hours, with a resolution of one hour.
+	 */
+	DAY,
+	/**
+	 * The last 7 days, with a resolution of one day.
+	 */
+	WEEK;
+}
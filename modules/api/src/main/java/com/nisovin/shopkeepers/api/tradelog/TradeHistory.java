@@ -0,0 +1,38 @@
+package com.nisovin.shopkeepers.api.tradelog;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provides read access to the trades logged by the Shopkeepers plugin.
+ * <p>
+ * Queries are executed asynchronously. To keep the impact on the server small, each query is
+ * subject to a row and a time limit, and only a single query is executed at a time.
+ * <p>
+ * The trades that the trade log maintenance has moved into the archive databases of the SQLite
+ * trade log are not included in the queried trades. Compressed CSV log files are included.
+ */
+public interface TradeHistory {
+
+	/**
+	 * Checks if the trade history can currently be queried.
+	 * <p>
+	 * This returns <code>false</code> if trade logging is disabled, or if the used trade log
+	 * storage does not support queries.
+	 * 
+	 * @return <code>true</code> if the trade history is available
+	 */
+	public boolean isAvailable();
+
+	/**
+	 * Queries the aggregated volume of the logged trades.
+	 * <p>
+	 * The returned future is completed on the server's main thread. It is completed exceptionally
+	 * with an {@link IllegalStateException} if the trade history is not
+	 * {@link #isAvailable() available} or if another query is still running.
+	 * 
+	 * @param query
+	 *            the query, not <code>null</code>
+	 * @return a future that provides the requested page of results
+	 */
+	public CompletableFuture<TradeVolumePage> queryVolume(TradeVolumeQuery query);
+}
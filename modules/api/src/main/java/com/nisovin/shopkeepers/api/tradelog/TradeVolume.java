@@ -0,0 +1,80 @@
+package com.nisovin.shopkeepers.api.tradelog;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The aggregated volume of the logged trades of a single group, as returned by a
+ * {@link TradeVolumeQuery}.
+ */
+public final class TradeVolume {
+
+	private final String key;
+	private final String label;
+	private final long tradeCount;
+	private final long resultItemAmount;
+
+	/**
+	 * Creates a new {@link TradeVolume}.
+	 * 
+	 * @param key
+	 *            the key that identifies the group, not <code>null</code>
+	 * @param label
+	 *            a human-readable label of the group, not <code>null</code>
+	 * @param tradeCount
+	 *            the number of trades
+	 * @param resultItemAmount
+	 *            the total amount of traded result items
+	 */
+	public TradeVolume(String key, String label, long tradeCount, long resultItemAmount) {
+		Preconditions.checkNotNull(key, "key is null");
+		Preconditions.checkNotNull(label, "label is null");
+		this.key = key;
+		this.label = label;
+		this.tradeCount = tradeCount;
+		this.resultItemAmount = resultItemAmount;
+	}
+
+	/**
+	 * Gets the key that identifies the group.
+	 * <p>
+	 * The format of the key depends on the {@link TradeVolumeGrouping}.
+	 * 
+	 * @return the key, not <code>null</code>
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Gets a human-readable label of the group, such as the name of the player.
+	 * 
+	 * @return the label, not <code>null</code>
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Gets the number of trades in this group.
+	 * 
+	 * @return the number of trades
+	 */
+	public long getTradeCount() {
+		return tradeCount;
+	}
+
+	/**
+	 * Gets the total amount of result items that were traded in this group.
+	 * 
+	 * @return the total amount of result items
+	 */
+	public long getResultItemAmount() {
+		return resultItemAmount;
+	}
+
+	@Override
+	public String toString() {
+		return "TradeVolume [key=" + key + ", label=" + label + ", tradeCount=" + tradeCount
+				+ ", resultItemAmount=" + resultItemAmount + "]";
+	}
+}
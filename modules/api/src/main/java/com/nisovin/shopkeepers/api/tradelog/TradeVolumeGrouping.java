@@ -0,0 +1,56 @@
+package com.nisovin.shopkeepers.api.tradelog;
+
+/**
+ * The criterion by which a {@link TradeVolumeQuery} groups the logged trades.
+ */
+public enum TradeVolumeGrouping {
+
+	/**
+	 * Groups the trades by shop.
+	 * <p>
+	 * The {@link TradeVolume#getKey() key} is the shop's unique id.
+	 */
+	SHOP,
+	/**
+	 * Groups the trades by trading player.
+	 * <p>
+	 * The {@link TradeVolume#getKey() key} is the player's unique id.
+	 */
+	PLAYER,
+	/**
+	 * Groups the trades by the type of the result item.
+	 * <p>
+	 * The {@link TradeVolume#getKey() key} is the name of the item type.
+	 */
+	ITEM,
+	/**
+	 * Groups the trades by hour (UTC).
+	 * <p>
+	 * The {@link TradeVolume#getKey() key} has the format <code>yyyy-MM-ddTHH</code>.
+	 */
+	HOUR,
+	/**
+	 * Groups the trades by day (UTC).
+	 * <p>
+	 * The {@link TradeVolume#getKey() key} has the format <code>yyyy-MM-dd</code>.
+	 */
+	DAY,
+	/**
+	 * Groups the trades by month (UTC).
+	 * <p>
+	 * The {@link TradeVolume#getKey() key} has the format <code>yyyy-MM</code>.
+	 */
+	MONTH;
+
+	/**
+	 * Checks if this grouping groups the trades by time.
+	 * <p>
+	 * Time buckets are ordered chronologically, whereas the other groups are ordered by descending
+	 * trade volume.
+	 * 
+	 * @return <code>true</code> if this is a time based grouping
+	 */
+	public boolean isTimeBucket() {
+		return this == HOUR || this == DAY || this == MONTH;
+	}
+}
@@ -0,0 +1,96 @@
+package com.nisovin.shopkeepers.api.tradelog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A page of the results of a {@link TradeVolumeQuery}.
+ */
+public final class TradeVolumePage {
+
+	private final List<? extends TradeVolume> entries;
+	private final int page;
+	private final boolean hasNextPage;
+	private final long scannedTrades;
+	private final boolean truncated;
+
+	/**
+	 * Creates a new {@link TradeVolumePage}.
+	 * 
+	 * @param entries
+	 *            the entries of this page, not <code>null</code>
+	 * @param page
+	 *            the page number, starting at <code>1</code>
+	 * @param hasNextPage
+	 *            <code>true</code> if there are more entries on subsequent pages
+	 * @param scannedTrades
+	 *            the number of logged trades that were aggregated
+	 * @param truncated
+	 *            <code>true</code> if the query stopped early due to its row or time limit
+	 */
+	public TradeVolumePage(
+			List<? extends TradeVolume> entries,
+			int page,
+			boolean hasNextPage,
+			long scannedTrades,
+			boolean truncated
+	) {
+		Preconditions.checkNotNull(entries, "entries is null");
+		Preconditions.checkArgument(page >= 1, "page has to be positive");
+		this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+		this.page = page;
+		this.hasNextPage = hasNextPage;
+		this.scannedTrades = scannedTrades;
+		this.truncated = truncated;
+	}
+
+	/**
+	 * Gets the entries of this page.
+	 * 
+	 * @return an unmodifiable view on the entries, not <code>null</code>
+	 */
+	public List<? extends TradeVolume> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Gets the page number.
+	 * 
+	 * @return the page number, starting at <code>1</code>
+	 */
+	public int getPage() {
+		return page;
+	}
+
+	/**
+	 * Checks if there are more entries on subsequent pages.
+	 * 
+	 * @return <code>true</code> if there is a next page
+	 */
+	public boolean hasNextPage() {
+		return hasNextPage;
+	}
+
+	/**
+	 * Gets the number of logged trades that were aggregated by the query.
+	 * 
+	 * @return the number of scanned trades
+	 */
+	public long getScannedTrades() {
+		return scannedTrades;
+	}
+
+	/**
+	 * Checks if the query stopped early because it reached its row or time limit.
+	 * <p>
+	 * If truncated, the aggregated volumes only account for a subset of the matching trades.
+	 * 
+	 * @return <code>true</code> if the results are incomplete
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+}
@@ -0,0 +1,191 @@
+package com.nisovin.shopkeepers.api.tradelog;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An immutable query for the aggregated volume of the logged trades.
+ * <p>
+ * The query groups the trades by the specified {@link TradeVolumeGrouping}, optionally restricted
+ * to a specific shop, a specific trading player, and a time range, and returns a single page of
+ * the resulting groups.
+ */
+public final class TradeVolumeQuery {
+
+	/**
+	 * The default number of entries per page.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 10;
+	/**
+	 * The maximum number of entries per page.
+	 */
+	public static final int MAX_PAGE_SIZE = 100;
+
+	/**
+	 * Creates a new {@link TradeVolumeQuery} that groups the trades by the given
+	 * {@link TradeVolumeGrouping} and requests the first page of results.
+	 * 
+	 * @param grouping
+	 *            the grouping, not <code>null</code>
+	 * @return the query
+	 */
+	public static TradeVolumeQuery groupedBy(TradeVolumeGrouping grouping) {
+		return new TradeVolumeQuery(grouping, null, null, null, null, 1, DEFAULT_PAGE_SIZE);
+	}
+
+	private final TradeVolumeGrouping grouping;
+	private final @Nullable UUID shopId;
+	private final @Nullable UUID playerId;
+	private final @Nullable Instant from;
+	private final @Nullable Instant to;
+	private final int page;
+	private final int pageSize;
+
+	private TradeVolumeQuery(
+			TradeVolumeGrouping grouping,
+			@Nullable UUID shopId,
+			@Nullable UUID playerId,
+			@Nullable Instant from,
+			@Nullable Instant to,
+			int page,
+			int pageSize
+	) {
+		Preconditions.checkNotNull(grouping, "grouping is null");
+		Preconditions.checkArgument(page >= 1, "page has to be positive");
+		Preconditions.checkArgument(pageSize >= 1 && pageSize <= MAX_PAGE_SIZE,
+				"pageSize has to be between 1 and " + MAX_PAGE_SIZE);
+		Preconditions.checkArgument(from == null || to == null || !to.isBefore(from),
+				"to is before from");
+		this.grouping = grouping;
+		this.shopId = shopId;
+		this.playerId = playerId;
+		this.from = from;
+		this.to = to;
+		this.page = page;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Gets the {@link TradeVolumeGrouping}.
+	 * 
+	 * @return the grouping, not <code>null</code>
+	 */
+	public TradeVolumeGrouping getGrouping() {
+		return grouping;
+	}
+
+	/**
+	 * Gets the unique id of the shop to which the query is restricted.
+	 * 
+	 * @return the shop's unique id, or <code>null</code> to not filter by shop
+	 */
+	public @Nullable UUID getShopId() {
+		return shopId;
+	}
+
+	/**
+	 * Gets the unique id of the trading player to which the query is restricted.
+	 * 
+	 * @return the player's unique id, or <code>null</code> to not filter by player
+	 */
+	public @Nullable UUID getPlayerId() {
+		return playerId;
+	}
+
+	/**
+	 * Gets the inclusive start of the queried time range.
+	 * 
+	 * @return the start of the time range, or <code>null</code> if unbounded
+	 */
+	public @Nullable Instant getFrom() {
+		return from;
+	}
+
+	/**
+	 * Gets the exclusive end of the queried time range.
+	 * 
+	 * @return the end of the time range, or <code>null</code> if unbounded
+	 */
+	public @Nullable Instant getTo() {
+		return to;
+	}
+
+	/**
+	 * Gets the requested page.
+	 * 
+	 * @return the page number, starting at <code>1</code>
+	 */
+	public int getPage() {
+		return page;
+	}
+
+	/**
+	 * Gets the number of entries per page.
+	 * 
+	 * @return the page size
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Creates a copy of this query that is restricted to the trades of the specified shop.
+	 * 
+	 * @param shopId
+	 *            the shop's unique id, or <code>null</code> to not filter by shop
+	 * @return the new query
+	 */
+	public TradeVolumeQuery withShop(@Nullable UUID shopId) {
+		return new TradeVolumeQuery(grouping, shopId, playerId, from, to, page, pageSize);
+	}
+
+	/**
+	 * Creates a copy of this query that is restricted to the trades of the specified player.
+	 * 
+	 * @param playerId
+	 *            the player's unique id, or <code>null</code> to not filter by player
+	 * @return the new query
+	 */
+	public TradeVolumeQuery withPlayer(@Nullable UUID playerId) {
+		return new TradeVolumeQuery(grouping, shopId, playerId, from, to, page, pageSize);
+	}
+
+	/**
+	 * Creates a copy of this query that is restricted to the trades within the specified time
+	 * range.
+	 * 
+	 * @param from
+	 *            the inclusive start of the time range, or <code>null</code> if unbounded
+	 * @param to
+	 *            the exclusive end of the time range, or <code>null</code> if unbounded
+	 * @return the new query
+	 */
+	public TradeVolumeQuery withTimeRange(@Nullable Instant from, @Nullable Instant to) {
+		return new TradeVolumeQuery(grouping, shopId, playerId, from, to, page, pageSize);
+	}
+
+	/**
+	 * Creates a copy of this query that requests the specified page.
+	 * 
+	 * @param page
+	 *            the page number, starting at <code>1</code>
+	 * @param pageSize
+	 *            the number of entries per page, between <code>1</code> and
+	 *            {@link #MAX_PAGE_SIZE}
+	 * @return the new query
+	 */
+	public TradeVolumeQuery withPage(int page, int pageSize) {
+		return new TradeVolumeQuery(grouping, shopId, playerId, from, to, page, pageSize);
+	}
+
+	@Override
+	public String toString() {
+		return "TradeVolumeQuery [grouping=" + grouping + ", shopId=" + shopId + ", playerId="
+				+ playerId + ", from=" + from + ", to=" + to + ", page=" + page + ", pageSize="
+				+ pageSize + "]";
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * Classes related to the querying of the logged trading history.
+ */
+@org.eclipse.jdt.annotation.NonNullByDefault
+package com.nisovin.shopkeepers.api.tradelog;
@@ -0,0 +1,97 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.util.Arrays;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.util.annotations.ReadOnly;
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Mocks an {@link Inventory} that stores its contents in an array.
+ * <p>
+ * Like the inventories of CraftBukkit, the inventory stores copies of the items that are set, and
+ * the returned content arrays are copies of the internal array.
+ * 
+ * @param <I>
+ *            the type of inventory
+ */
+class InventoryMock<@NonNull I extends Inventory> extends ProxyHandler<I> {
+
+	private final @Nullable ItemStack[] contents;
+	// The first slots that make up the storage contents:
+	private final int storageSize;
+
+	InventoryMock(Class<I> inventoryInterface, int size) {
+		this(inventoryInterface, size, size);
+	}
+
+	InventoryMock(Class<I> inventoryInterface, int size, int storageSize) {
+		super(inventoryInterface);
+		Validate.isTrue(size > 0, "size must be positive");
+		Validate.isTrue(storageSize > 0 && storageSize <= size, "storageSize is out of bounds");
+		this.contents = new @Nullable ItemStack[size];
+		this.storageSize = storageSize;
+	}
+
+	@Override
+	protected void setupMethodHandlers() throws Exception {
+		this.addHandler(Inventory.class.getMethod("getSize"), (proxy, args) -> {
+			return contents.length;
+		});
+		this.addHandler(Inventory.class.getMethod("getItem", int.class), (proxy, args) -> {
+			assert args != null;
+			return this.getItem((int) Unsafe.assertNonNull(args[0]));
+		});
+		this.addHandler(
+				Inventory.class.getMethod("setItem", int.class, ItemStack.class),
+				(proxy, args) -> {
+					assert args != null;
+					this.setItem((int) Unsafe.assertNonNull(args[0]), (ItemStack) args[1]);
+					return null;
+				}
+		);
+		this.addHandler(Inventory.class.getMethod("getContents"), (proxy, args) -> {
+			return Arrays.copyOf(contents, contents.length);
+		});
+		this.addHandler(
+				Inventory.class.getMethod("setContents", ItemStack[].class),
+				(proxy, args) -> {
+					assert args != null;
+					this.setContents(Unsafe.castNonNull(args[0]), contents.length);
+					return null;
+				}
+		);
+		this.addHandler(Inventory.class.getMethod("getStorageContents"), (proxy, args) -> {
+			return Arrays.copyOf(contents, storageSize);
+		});
+		this.addHandler(
+				Inventory.class.getMethod("setStorageContents", ItemStack[].class),
+				(proxy, args) -> {
+					assert args != null;
+					this.setContents(Unsafe.castNonNull(args[0]), storageSize);
+					return null;
+				}
+		);
+	}
+
+	protected @Nullable ItemStack getItem(int slot) {
+		return contents[slot];
+	}
+
+	protected void setItem(int slot, @ReadOnly @Nullable ItemStack item) {
+		contents[slot] = ItemUtils.cloneOrNullIfEmpty(item);
+	}
+
+	private void setContents(@ReadOnly @Nullable ItemStack @ReadOnly [] items, int maxSize) {
+		Validate.isTrue(items.length <= maxSize, "Too many items");
+		for (int slot = 0; slot < maxSize; slot++) {
+			this.setItem(slot, (slot < items.length) ? items[slot] : null);
+		}
+	}
+}
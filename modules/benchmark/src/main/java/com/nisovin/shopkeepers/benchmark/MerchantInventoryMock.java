@@ -0,0 +1,99 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.util.List;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.MerchantInventory;
+import org.bukkit.inventory.MerchantRecipe;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.compat.Compat;
+import com.nisovin.shopkeepers.util.annotations.ReadOnly;
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Mocks a {@link MerchantInventory} with a single trading recipe.
+ * <p>
+ * Like in Minecraft, the result slot is updated whenever the items in the input slots change: If
+ * the input items fulfill the trading recipe (in either order), the result slot contains the result
+ * item and the recipe is the {@link MerchantInventory#getSelectedRecipe() active recipe}.
+ */
+class MerchantInventoryMock extends InventoryMock<MerchantInventory> {
+
+	private static final int RESULT_SLOT = 2;
+
+	private @Nullable MerchantRecipe recipe = null;
+	private @Nullable ItemStack requiredItem1 = null;
+	private @Nullable ItemStack requiredItem2 = null;
+	// Null if the input items do not fulfill the recipe:
+	private @Nullable MerchantRecipe activeRecipe = null;
+
+	MerchantInventoryMock() {
+		super(MerchantInventory.class, 3);
+	}
+
+	@Override
+	protected void setupMethodHandlers() throws Exception {
+		super.setupMethodHandlers();
+
+		this.addHandler(MerchantInventory.class.getMethod("getSelectedRecipe"), (proxy, args) -> {
+			return activeRecipe;
+		});
+		this.addHandler(
+				MerchantInventory.class.getMethod("getSelectedRecipeIndex"),
+				(proxy, args) -> {
+					return 0;
+				}
+		);
+	}
+
+	void setRecipe(MerchantRecipe recipe) {
+		Validate.notNull(recipe, "recipe is null");
+		this.recipe = recipe;
+		// The returned ingredients are copies:
+		List<ItemStack> ingredients = recipe.getIngredients();
+		requiredItem1 = ingredients.get(0);
+		requiredItem2 = (ingredients.size() > 1) ? ingredients.get(1) : null;
+		this.updateResult();
+	}
+
+	@Override
+	protected void setItem(int slot, @ReadOnly @Nullable ItemStack item) {
+		super.setItem(slot, item);
+		if (slot != RESULT_SLOT) {
+			this.updateResult();
+		}
+	}
+
+	private void updateResult() {
+		MerchantRecipe recipe = this.recipe;
+		ItemStack item1 = this.getItem(0);
+		ItemStack item2 = this.getItem(1);
+		if (recipe != null && recipe.getUses() < recipe.getMaxUses()
+				&& (this.isFulfilledBy(item1, item2) || this.isFulfilledBy(item2, item1))) {
+			activeRecipe = recipe;
+			super.setItem(RESULT_SLOT, recipe.getResult());
+		} else {
+			activeRecipe = null;
+			super.setItem(RESULT_SLOT, null);
+		}
+	}
+
+	private boolean isFulfilledBy(
+			@ReadOnly @Nullable ItemStack offeredItem1,
+			@ReadOnly @Nullable ItemStack offeredItem2
+	) {
+		return matches(offeredItem1, requiredItem1) && matches(offeredItem2, requiredItem2);
+	}
+
+	private static boolean matches(
+			@ReadOnly @Nullable ItemStack offeredItem,
+			@ReadOnly @Nullable ItemStack requiredItem
+	) {
+		if (ItemUtils.isEmpty(requiredItem)) return ItemUtils.isEmpty(offeredItem);
+		int requiredAmount = ItemUtils.getItemStackAmount(requiredItem);
+		if (ItemUtils.getItemStackAmount(offeredItem) < requiredAmount) return false;
+		return Compat.getProvider().matches(offeredItem, requiredItem);
+	}
+}
@@ -0,0 +1,64 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.MerchantInventory;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Mocks the {@link InventoryView} of a trading player, with the {@link MerchantInventory} at the
+ * top and the player's inventory at the bottom.
+ */
+class MerchantViewMock extends InventoryView {
+
+	private static final String TITLE = "Shopkeeper";
+
+	private final Player player;
+	private final MerchantInventory merchantInventory;
+
+	MerchantViewMock(Player player, MerchantInventory merchantInventory) {
+		Validate.notNull(player, "player is null");
+		Validate.notNull(merchantInventory, "merchantInventory is null");
+		this.player = player;
+		this.merchantInventory = merchantInventory;
+	}
+
+	@Override
+	public Inventory getTopInventory() {
+		return merchantInventory;
+	}
+
+	@Override
+	public Inventory getBottomInventory() {
+		return player.getInventory();
+	}
+
+	@Override
+	public HumanEntity getPlayer() {
+		return player;
+	}
+
+	@Override
+	public InventoryType getType() {
+		return InventoryType.MERCHANT;
+	}
+
+	@Override
+	public String getTitle() {
+		return TITLE;
+	}
+
+	@Override
+	public String getOriginalTitle() {
+		return TITLE;
+	}
+
+	@Override
+	public void setTitle(String title) {
+		throw new UnsupportedOperationException("Not supported by this mock!");
+	}
+}
@@ -0,0 +1,88 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Sound;
+import org.bukkit.SoundCategory;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+
+/**
+ * Mocks the {@link Player} functionality that is used when a player trades with a shopkeeper.
+ */
+class PlayerMock extends ProxyHandler<Player> {
+
+	private static final int PLAYER_INVENTORY_SIZE = 41;
+	private static final int PLAYER_STORAGE_SIZE = 36;
+
+	private final String name;
+	private final UUID uniqueId;
+	private final PlayerInventory inventory;
+	private @Nullable ItemStack cursor = null;
+
+	PlayerMock(String name) {
+		super(Player.class);
+		this.name = name;
+		this.uniqueId = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+		this.inventory = new InventoryMock<>(
+				PlayerInventory.class,
+				PLAYER_INVENTORY_SIZE,
+				PLAYER_STORAGE_SIZE
+		).newProxy();
+	}
+
+	@Override
+	protected void setupMethodHandlers() throws Exception {
+		this.addHandler(Player.class.getMethod("getName"), (proxy, args) -> {
+			return name;
+		});
+		this.addHandler(Player.class.getMethod("getUniqueId"), (proxy, args) -> {
+			return uniqueId;
+		});
+		this.addHandler(Player.class.getMethod("getInventory"), (proxy, args) -> {
+			return inventory;
+		});
+		this.addHandler(Player.class.getMethod("getItemOnCursor"), (proxy, args) -> {
+			// Like CraftBukkit, this returns air instead of null:
+			ItemStack cursor = this.cursor;
+			return (cursor != null) ? cursor : new ItemStack(Material.AIR);
+		});
+		this.addHandler(
+				Player.class.getMethod("setItemOnCursor", ItemStack.class),
+				(proxy, args) -> {
+					assert args != null;
+					cursor = ItemUtils.cloneOrNullIfEmpty((ItemStack) args[0]);
+					return null;
+				}
+		);
+		this.addHandler(Player.class.getMethod("getLocation"), (proxy, args) -> {
+			return new Location(null, 0.0D, 0.0D, 0.0D);
+		});
+		this.addHandler(
+				Player.class.getMethod(
+						"playSound",
+						Location.class,
+						Sound.class,
+						SoundCategory.class,
+						float.class,
+						float.class
+				),
+				(proxy, args) -> {
+					return null;
+				}
+		);
+		this.addHandler(Player.class.getMethod("sendMessage", String.class), (proxy, args) -> {
+			return null;
+		});
+		this.addHandler(Player.class.getMethod("updateInventory"), (proxy, args) -> {
+			return null;
+		});
+	}
+}
@@ -0,0 +1,93 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+
+/**
+ * Base class for the mocks that are implemented as proxies.
+ * <p>
+ * Unlike the proxy handler of the test module, method handlers are matched by the method
+ * signature, so that methods that are declared by several interfaces (such as
+ * {@link org.bukkit.entity.Player#getName()}) are handled regardless of the interface that
+ * declares them. The methods of {@link Object} are implemented based on the identity of the proxy,
+ * unless handled explicitly.
+ * 
+ * @param <T>
+ *            the proxied type
+ */
+abstract class ProxyHandler<@NonNull T> implements InvocationHandler {
+
+	@FunctionalInterface
+	public interface MethodHandler<@NonNull T> {
+		@Nullable
+		Object handle(@NonNull T proxy, @Nullable Object @Nullable [] args);
+	}
+
+	// Method signature -> handler
+	private final Map<String, MethodHandler<@NonNull T>> methodHandlers = new HashMap<>();
+	private final Class<@NonNull T> proxiedInterface;
+
+	public ProxyHandler(Class<@NonNull T> proxiedInterface) {
+		assert proxiedInterface != null && proxiedInterface.isInterface();
+		this.proxiedInterface = proxiedInterface;
+		try {
+			Unsafe.initialized(this).setupMethodHandlers();
+		} catch (Exception e) {
+			throw new Error(e);
+		}
+	}
+
+	protected void setupMethodHandlers() throws Exception {
+	}
+
+	protected final void addHandler(Method method, MethodHandler<@NonNull T> handler) {
+		methodHandlers.put(getSignature(method), handler);
+	}
+
+	private static String getSignature(Method method) {
+		return method.getName() + Arrays.toString(method.getParameterTypes());
+	}
+
+	public final @NonNull T newProxy() {
+		return Unsafe.cast(Proxy.newProxyInstance(
+				proxiedInterface.getClassLoader(),
+				new Class<?>[] { proxiedInterface },
+				this
+		));
+	}
+
+	@Override
+	public final @Nullable Object invoke(
+			Object proxy,
+			Method method,
+			@Nullable Object @Nullable [] args
+	) {
+		MethodHandler<@NonNull T> handler = methodHandlers.get(getSignature(method));
+		if (handler != null) {
+			return handler.handle(Unsafe.castNonNull(proxy), args);
+		}
+		if (method.getDeclaringClass() == Object.class) {
+			switch (method.getName()) {
+			case "equals":
+				return (args != null && proxy == args[0]);
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return proxiedInterface.getSimpleName() + "Proxy@"
+						+ Integer.toHexString(System.identityHashCode(proxy));
+			default:
+				break;
+			}
+		}
+		throw new UnsupportedOperationException(String.valueOf(method));
+	}
+}
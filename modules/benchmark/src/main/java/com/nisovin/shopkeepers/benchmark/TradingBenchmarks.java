@@ -0,0 +1,444 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.craftbukkit.v1_20_R4.inventory.CraftItemStack;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType.SlotType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.MerchantInventory;
+import org.bukkit.inventory.meta.BookMeta;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.BookOffer;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.PriceOffer;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.TradeOffer;
+import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+import com.nisovin.shopkeepers.config.Settings;
+import com.nisovin.shopkeepers.currency.Currencies;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.admin.regular.SKRegularAdminShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.book.BookPlayerShopTradingView;
+import com.nisovin.shopkeepers.shopkeeper.player.book.BookPlayerShopTradingViewProvider;
+import com.nisovin.shopkeepers.shopkeeper.player.book.SKBookPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.buy.BuyingPlayerShopTradingView;
+import com.nisovin.shopkeepers.shopkeeper.player.buy.BuyingPlayerShopTradingViewProvider;
+import com.nisovin.shopkeepers.shopkeeper.player.buy.SKBuyingPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.sell.SKSellingPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.sell.SellingPlayerShopTradingView;
+import com.nisovin.shopkeepers.shopkeeper.player.sell.SellingPlayerShopTradingViewProvider;
+import com.nisovin.shopkeepers.shopkeeper.player.trade.SKTradingPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.trade.TradingPlayerShopTradingView;
+import com.nisovin.shopkeepers.shopkeeper.player.trade.TradingPlayerShopTradingViewProvider;
+import com.nisovin.shopkeepers.testutil.AbstractBukkitTest;
+import com.nisovin.shopkeepers.ui.lib.UISessionManager;
+import com.nisovin.shopkeepers.ui.lib.UISessionManager.SessionHandler;
+import com.nisovin.shopkeepers.ui.lib.UIState;
+import com.nisovin.shopkeepers.ui.trading.TradingUIType;
+import com.nisovin.shopkeepers.ui.trading.TradingView;
+import com.nisovin.shopkeepers.ui.trading.TradingViewProvider;
+import com.nisovin.shopkeepers.util.TestItemStacks;
+import com.nisovin.shopkeepers.util.bukkit.MerchantUtils;
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+
+/**
+ * Benchmarks the handling of a trade that is triggered by a click on the result slot of a trading
+ * view.
+ * <p>
+ * Each benchmark operation passes an {@link InventoryClickEvent} to the trading view of the
+ * shopkeeper, like the inventory listener of the plugin does. This runs the actual trade handling
+ * of the {@link TradingView} and of the player shop trading views: Matching the offered items
+ * against the active trading recipe (using either the strict or the lenient item comparison),
+ * preparing the trade, determining how often the trade can be applied for shift clicks, calling
+ * the trade events, and applying the trade to the merchant inventory, the shop container, and the
+ * inventory or cursor of the trading player.
+ * <p>
+ * The server, the trading player, and the involved inventories are mocked. The shopkeepers are not
+ * registered and the trading views are not opened, so there are no other trading views whose
+ * trades need to be updated after the trade.
+ * <p>
+ * Run via <code>./gradlew :shopkeepers-benchmark:jmh</code>. The reported results include the
+ * throughput (trades per second) and, via JMH's GC profiler, the allocation rate per trade
+ * (<code>gc.alloc.rate.norm</code>).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TradingBenchmarks extends AbstractBukkitTest {
+
+	public enum ShopType {
+		ADMIN,
+		SELLING,
+		BUYING,
+		TRADING,
+		BOOK;
+	}
+
+	public enum ItemComplexity {
+		BASIC,
+		DISPLAY_NAME,
+		COMPLETE;
+	}
+
+	private static final int PLAYER_STORAGE_SIZE = 36;
+	private static final int RESULT_SLOT = 2;
+	private static final int PRICE = 5;
+	private static final String BOOK_TITLE = "Book";
+
+	// Exposes the inventory click handling of the trading views:
+	private interface BenchmarkTradingView {
+
+		public AbstractShopkeeper getShopkeeperNonNull();
+
+		public void click(InventoryClickEvent clickEvent);
+	}
+
+	@Param({ "ADMIN", "SELLING", "BUYING", "TRADING", "BOOK" })
+	public ShopType shopType = ShopType.ADMIN;
+
+	// Single chest and double chest:
+	@Param({ "27", "54" })
+	public int containerSize = 27;
+
+	@Param({ "BASIC", "DISPLAY_NAME", "COMPLETE" })
+	public ItemComplexity itemComplexity = ItemComplexity.BASIC;
+
+	@Param({ "true", "false" })
+	public boolean strictItemComparison = false;
+
+	// Left click (trade once), or shift click (trade as often as possible):
+	@Param({ "PICKUP_ALL", "MOVE_TO_OTHER_INVENTORY" })
+	public InventoryAction action = InventoryAction.PICKUP_ALL;
+
+	private ItemStack currencyItem = Unsafe.uncheckedNull();
+	private ItemStack tradedItem = Unsafe.uncheckedNull();
+	private ItemStack writtenBook = Unsafe.uncheckedNull();
+
+	private Player player = Unsafe.uncheckedNull();
+	private Inventory containerInventory = Unsafe.uncheckedNull();
+	private MerchantInventoryMock merchantInventoryMock = Unsafe.uncheckedNull();
+	private MerchantInventory merchantInventory = Unsafe.uncheckedNull();
+	private InventoryView inventoryView = Unsafe.uncheckedNull();
+	private BenchmarkTradingView tradingView = Unsafe.uncheckedNull();
+
+	// The initial inventory contents, which are restored before each trade:
+	private @Nullable ItemStack[] containerContents = new @Nullable ItemStack[0];
+	private @Nullable ItemStack[] playerContents = new @Nullable ItemStack[0];
+	// The items offered by the trading player: Enough for two trades.
+	private ItemStack offeredItem1 = Unsafe.uncheckedNull();
+	private @Nullable ItemStack offeredItem2 = null;
+
+	private InventoryClickEvent clickEvent = Unsafe.uncheckedNull();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Settings.useStrictItemComparison = strictItemComparison;
+		// The trading views look up the views of the shopkeeper after trades have been applied:
+		UISessionManager.initialize(ShopkeepersPlugin.getInstance(), SessionHandler.DEFAULT);
+
+		currencyItem = CraftItemStack.asCraftCopy(
+				Currencies.getBase().getItemData().createItemStack(PRICE)
+		);
+		tradedItem = CraftItemStack.asCraftCopy(this.createTradedItem());
+		writtenBook = CraftItemStack.asCraftCopy(this.createWrittenBook());
+
+		player = new PlayerMock("Trader").newProxy();
+		containerInventory = new InventoryMock<>(Inventory.class, containerSize).newProxy();
+		merchantInventoryMock = new MerchantInventoryMock();
+		merchantInventory = merchantInventoryMock.newProxy();
+		inventoryView = new MerchantViewMock(player, merchantInventory);
+
+		containerContents = this.createContainerContents();
+		playerContents = this.createPlayerContents();
+		// The trading recipes of player shops depend on the container contents:
+		containerInventory.setContents(containerContents);
+
+		tradingView = this.createTradingView();
+		List<? extends TradingRecipe> recipes = tradingView.getShopkeeperNonNull()
+				.getTradingRecipes(player);
+		TradingRecipe recipe = recipes.get(0);
+		if (recipe.isOutOfStock()) {
+			throw new IllegalStateException("The trading recipe is out of stock!");
+		}
+		merchantInventoryMock.setRecipe(MerchantUtils.createMerchantRecipe(recipe));
+
+		UnmodifiableItemStack requiredItem1 = recipe.getItem1();
+		UnmodifiableItemStack requiredItem2 = recipe.getItem2();
+		offeredItem1 = ItemUtils.copyWithAmount(requiredItem1, requiredItem1.getAmount() * 2);
+		if (requiredItem2 != null) {
+			offeredItem2 = ItemUtils.copyWithAmount(requiredItem2, requiredItem2.getAmount() * 2);
+		}
+
+		// Check that the benchmarked trade is actually applied:
+		this.prepareTrade();
+		this.trade();
+		int remainingAmount = ItemUtils.getItemStackAmount(merchantInventory.getItem(0));
+		if (remainingAmount >= offeredItem1.getAmount()) {
+			throw new IllegalStateException("The trade was not applied!");
+		}
+	}
+
+	private ItemStack createTradedItem() {
+		switch (itemComplexity) {
+		case BASIC:
+			return TestItemStacks.createItemStackBasic();
+		case DISPLAY_NAME:
+			return TestItemStacks.createItemStackDisplayName();
+		case COMPLETE:
+			return TestItemStacks.createItemStackComplete();
+		default:
+			throw new IllegalStateException("Unexpected item complexity: " + itemComplexity);
+		}
+	}
+
+	private ItemStack createWrittenBook() {
+		ItemStack book = new ItemStack(Material.WRITTEN_BOOK);
+		BookMeta bookMeta = Unsafe.castNonNull(book.getItemMeta());
+		bookMeta.setTitle(BOOK_TITLE);
+		bookMeta.setAuthor("Author");
+		bookMeta.addPage("Page 1", "Page 2");
+		book.setItemMeta(bookMeta);
+		return book;
+	}
+
+	// A realistic, mostly filled shop container: The stock is spread across the container, with
+	// some unrelated items, the earnings, and a few empty slots at the end.
+	private @Nullable ItemStack[] createContainerContents() {
+		@Nullable ItemStack[] contents = new @Nullable ItemStack[containerSize];
+		ItemStack unrelatedItem = new ItemStack(Material.COBBLESTONE, 64);
+		int filledSlots = containerSize - 4;
+		for (int slot = 0; slot < filledSlots; slot++) {
+			ItemStack item;
+			switch (slot % 4) {
+			case 0:
+				item = unrelatedItem;
+				break;
+			case 1:
+				item = ItemUtils.copyWithAmount(currencyItem, 32);
+				break;
+			default:
+				if (shopType == ShopType.BOOK) {
+					item = (slot % 4 == 2) ? writtenBook : new ItemStack(Material.WRITABLE_BOOK);
+				} else {
+					item = ItemUtils.copyWithAmount(tradedItem, tradedItem.getMaxStackSize());
+				}
+				break;
+			}
+			contents[slot] = CraftItemStack.asCraftCopy(item);
+		}
+		return contents;
+	}
+
+	// A mostly filled player inventory:
+	private @Nullable ItemStack[] createPlayerContents() {
+		@Nullable ItemStack[] contents = new @Nullable ItemStack[PLAYER_STORAGE_SIZE];
+		ItemStack unrelatedItem = CraftItemStack.asCraftCopy(new ItemStack(Material.DIRT, 64));
+		for (int slot = 0; slot < PLAYER_STORAGE_SIZE - 3; slot++) {
+			contents[slot] = unrelatedItem;
+		}
+		return contents;
+	}
+
+	// The shopkeepers are created without the plugin: They are not initialized or registered, and
+	// the container of the player shops is replaced with the mocked container inventory. The view
+	// providers of the player shops are created via TradingViewProviders, since their constructors
+	// require the plugin.
+	private BenchmarkTradingView createTradingView() {
+		switch (shopType) {
+		case ADMIN: {
+			SKRegularAdminShopkeeper shopkeeper = new SKRegularAdminShopkeeper() {
+			};
+			shopkeeper.addOffer(TradeOffer.create(tradedItem, currencyItem, null));
+			return new AdminTradingView(
+					new TradingViewProvider(TradingUIType.INSTANCE, shopkeeper),
+					player
+			);
+		}
+		case SELLING: {
+			SKSellingPlayerShopkeeper shopkeeper = new SKSellingPlayerShopkeeper() {
+				@Override
+				public @Nullable Inventory getContainerInventory() {
+					return containerInventory;
+				}
+			};
+			shopkeeper.addOffer(PriceOffer.create(tradedItem, PRICE));
+			return new SellingTradingView(
+					TradingViewProviders.create(
+							SellingPlayerShopTradingViewProvider.class,
+							shopkeeper
+					),
+					player
+			);
+		}
+		case BUYING: {
+			SKBuyingPlayerShopkeeper shopkeeper = new SKBuyingPlayerShopkeeper() {
+				@Override
+				public @Nullable Inventory getContainerInventory() {
+					return containerInventory;
+				}
+			};
+			shopkeeper.addOffer(PriceOffer.create(tradedItem, PRICE));
+			return new BuyingTradingView(
+					TradingViewProviders.create(
+							BuyingPlayerShopTradingViewProvider.class,
+							shopkeeper
+					),
+					player
+			);
+		}
+		case TRADING: {
+			SKTradingPlayerShopkeeper shopkeeper = new SKTradingPlayerShopkeeper() {
+				@Override
+				public @Nullable Inventory getContainerInventory() {
+					return containerInventory;
+				}
+			};
+			ItemStack diamonds = CraftItemStack.asCraftCopy(new ItemStack(Material.DIAMOND, 2));
+			shopkeeper.addOffer(TradeOffer.create(tradedItem, diamonds, null));
+			return new TradingTradingView(
+					TradingViewProviders.create(
+							TradingPlayerShopTradingViewProvider.class,
+							shopkeeper
+					),
+					player
+			);
+		}
+		case BOOK: {
+			SKBookPlayerShopkeeper shopkeeper = new SKBookPlayerShopkeeper() {
+				@Override
+				public @Nullable Inventory getContainerInventory() {
+					return containerInventory;
+				}
+			};
+			shopkeeper.addOffer(BookOffer.create(BOOK_TITLE, PRICE));
+			return new BookTradingView(
+					TradingViewProviders.create(
+							BookPlayerShopTradingViewProvider.class,
+							shopkeeper
+					),
+					player
+			);
+		}
+		default:
+			throw new IllegalStateException("Unexpected shop type: " + shopType);
+		}
+	}
+
+	// Restores the initial state of the involved inventories, since each trade modifies them.
+	// Invocation level setup is fine here: A trade takes a lot longer than the timing overhead.
+	@Setup(Level.Invocation)
+	public void prepareTrade() {
+		containerInventory.setContents(containerContents);
+		player.getInventory().setStorageContents(playerContents);
+		player.setItemOnCursor(null);
+		merchantInventory.setItem(0, offeredItem1);
+		merchantInventory.setItem(1, offeredItem2);
+
+		ClickType clickType = (action == InventoryAction.MOVE_TO_OTHER_INVENTORY)
+				? ClickType.SHIFT_LEFT
+				: ClickType.LEFT;
+		clickEvent = new InventoryClickEvent(
+				inventoryView,
+				SlotType.RESULT,
+				RESULT_SLOT,
+				clickType,
+				action
+		);
+	}
+
+	@Benchmark
+	public InventoryClickEvent trade() {
+		tradingView.click(clickEvent);
+		return clickEvent;
+	}
+
+	private static final class AdminTradingView extends TradingView
+			implements BenchmarkTradingView {
+
+		AdminTradingView(TradingViewProvider provider, Player player) {
+			super(provider, player, UIState.EMPTY);
+		}
+
+		@Override
+		public void click(InventoryClickEvent clickEvent) {
+			this.onInventoryClickLate(clickEvent);
+		}
+	}
+
+	private static final class SellingTradingView extends SellingPlayerShopTradingView
+			implements BenchmarkTradingView {
+
+		SellingTradingView(SellingPlayerShopTradingViewProvider provider, Player player) {
+			super(provider, player, UIState.EMPTY);
+		}
+
+		@Override
+		public void click(InventoryClickEvent clickEvent) {
+			this.onInventoryClickLate(clickEvent);
+		}
+	}
+
+	private static final class BuyingTradingView extends BuyingPlayerShopTradingView
+			implements BenchmarkTradingView {
+
+		BuyingTradingView(BuyingPlayerShopTradingViewProvider provider, Player player) {
+			super(provider, player, UIState.EMPTY);
+		}
+
+		@Override
+		public void click(InventoryClickEvent clickEvent) {
+			this.onInventoryClickLate(clickEvent);
+		}
+	}
+
+	private static final class TradingTradingView extends TradingPlayerShopTradingView
+			implements BenchmarkTradingView {
+
+		TradingTradingView(TradingPlayerShopTradingViewProvider provider, Player player) {
+			super(provider, player, UIState.EMPTY);
+		}
+
+		@Override
+		public void click(InventoryClickEvent clickEvent) {
+			this.onInventoryClickLate(clickEvent);
+		}
+	}
+
+	private static final class BookTradingView extends BookPlayerShopTradingView
+			implements BenchmarkTradingView {
+
+		BookTradingView(BookPlayerShopTradingViewProvider provider, Player player) {
+			super(provider, player, UIState.EMPTY);
+		}
+
+		@Override
+		public void click(InventoryClickEvent clickEvent) {
+			this.onInventoryClickLate(clickEvent);
+		}
+	}
+}
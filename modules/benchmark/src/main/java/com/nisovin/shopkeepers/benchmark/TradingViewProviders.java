@@ -0,0 +1,73 @@
+package com.nisovin.shopkeepers.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.ui.ShopkeeperViewContext;
+import com.nisovin.shopkeepers.ui.lib.ViewProvider;
+import com.nisovin.shopkeepers.ui.trading.TradingUIType;
+import com.nisovin.shopkeepers.ui.trading.TradingViewProvider;
+
+/**
+ * Creates the trading view providers of player shopkeepers without the plugin.
+ * <p>
+ * The constructors of these view providers look up the trading UI type via the default UI types of
+ * the plugin, which is not available during the benchmarks. The view providers are therefore
+ * allocated without invoking their constructors, and their state is initialized reflectively.
+ */
+final class TradingViewProviders {
+
+	private static final sun.misc.Unsafe UNSAFE;
+	private static final Field UI_TYPE_FIELD;
+	private static final Field VIEW_CONTEXT_FIELD;
+	private static final Field TRADING_LISTENERS_FIELD;
+
+	static {
+		try {
+			Field unsafeField = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+			unsafeField.setAccessible(true);
+			UNSAFE = (sun.misc.Unsafe) unsafeField.get(null);
+
+			UI_TYPE_FIELD = ViewProvider.class.getDeclaredField("uiType");
+			UI_TYPE_FIELD.setAccessible(true);
+			VIEW_CONTEXT_FIELD = ViewProvider.class.getDeclaredField("viewContext");
+			VIEW_CONTEXT_FIELD.setAccessible(true);
+			TRADING_LISTENERS_FIELD = TradingViewProvider.class
+					.getDeclaredField("tradingListeners");
+			TRADING_LISTENERS_FIELD.setAccessible(true);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Creates a trading view provider of the given type for the given shopkeeper.
+	 * 
+	 * @param <P>
+	 *            the type of view provider
+	 * @param providerType
+	 *            the type of view provider, not <code>null</code>
+	 * @param shopkeeper
+	 *            the shopkeeper, not <code>null</code>
+	 * @return the view provider, not <code>null</code>
+	 */
+	static <P extends TradingViewProvider> P create(
+			Class<P> providerType,
+			AbstractShopkeeper shopkeeper
+	) {
+		try {
+			P provider = providerType.cast(UNSAFE.allocateInstance(providerType));
+			UI_TYPE_FIELD.set(provider, TradingUIType.INSTANCE);
+			VIEW_CONTEXT_FIELD.set(provider, new ShopkeeperViewContext(shopkeeper));
+			TRADING_LISTENERS_FIELD.set(provider, new ArrayList<>());
+			return provider;
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not create view provider of type "
+					+ providerType.getName(), e);
+		}
+	}
+
+	private TradingViewProviders() {
+	}
+}
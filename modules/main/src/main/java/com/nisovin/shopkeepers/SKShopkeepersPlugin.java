@@ -40,6 +40,7 @@ import com.nisovin.shopkeepers.input.chat.ChatInput;
 import com.nisovin.shopkeepers.input.interaction.InteractionInput;
 import com.nisovin.shopkeepers.internals.SKApiInternals;
 import com.nisovin.shopkeepers.itemconversion.ItemConversions;
+import com.nisovin.shopkeepers.items.ItemUpdateListener;
 import com.nisovin.shopkeepers.lang.Messages;
 import com.nisovin.shopkeepers.metrics.PluginMetrics;
 import com.nisovin.shopkeepers.moving.ShopkeeperMoving;
@@ -52,6 +53,7 @@ import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.SKShopTypesRegistry;
 import com.nisovin.shopkeepers.shopkeeper.migration.ShopkeeperDataMigrator;
 import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
+import com.nisovin.shopkeepers.shopkeeper.statistics.TradeStatisticsListener;
 import com.nisovin.shopkeepers.shopobjects.SKDefaultShopObjectTypes;
 import com.nisovin.shopkeepers.shopobjects.SKShopObjectTypesRegistry;
 import com.nisovin.shopkeepers.shopobjects.block.base.BaseBlockShops;
@@ -59,6 +61,7 @@ import com.nisovin.shopkeepers.shopobjects.citizens.CitizensShops;
 import com.nisovin.shopkeepers.shopobjects.living.LivingShops;
 import com.nisovin.shopkeepers.spigot.SpigotFeatures;
 import com.nisovin.shopkeepers.storage.SKShopkeeperStorage;
+import com.nisovin.shopkeepers.tradelog.SKTradeHistory;
 import com.nisovin.shopkeepers.tradelog.TradeLoggers;
 import com.nisovin.shopkeepers.tradenotifications.TradeNotifications;
 import com.nisovin.shopkeepers.trading.commandtrading.CommandTrading;
@@ -69,6 +72,7 @@ import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
 import com.nisovin.shopkeepers.util.java.ClassUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.logging.Log;
+import com.nisovin.shopkeepers.util.taskqueue.TimeSlicedJobRunner;
 import com.nisovin.shopkeepers.villagers.RegularVillagers;
 import com.nisovin.shopkeepers.world.ForcingCreatureSpawner;
 import com.nisovin.shopkeepers.world.ForcingEntityTeleporter;
@@ -132,6 +136,18 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 	);
 	private final EventDebugger eventDebugger = new EventDebugger(Unsafe.initialized(this));
 
+	// Bulk operations:
+	private final TimeSlicedJobRunner timeSlicedJobRunner = new TimeSlicedJobRunner(
+			Unsafe.initialized(this),
+			() -> Settings.bulkOperationTimeBudgetMillis
+	);
+	// The number of running updates of all items:
+	private int runningItemUpdates = 0;
+
+	private final TradeStatisticsListener tradeStatisticsListener = new TradeStatisticsListener(
+			Unsafe.initialized(this)
+	);
+
 	private final PlayerShops playerShops = new PlayerShops(Unsafe.initialized(this));
 
 	private final ProtectedContainers protectedContainers = new ProtectedContainers(
@@ -172,6 +188,8 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 	private boolean outdatedServer = false;
 	private boolean incompatibleServer = false;
 	private @Nullable ConfigLoadException configLoadError = null; // Null on success
+	// Also true while the plugin is disabled during a reload:
+	private boolean disabling = false;
 
 	private void loadAllPluginClasses() {
 		File pluginJarFile = this.getFile();
@@ -370,6 +388,8 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 		// Register events:
 		PluginManager pm = Bukkit.getPluginManager();
 		pm.registerEvents(new PlayerJoinQuitListener(this), this);
+		tradeStatisticsListener.onEnable();
+		pm.registerEvents(new ItemUpdateListener(this), this);
 		new TradingCountListener(this).onEnable();
 
 		// DEFAULT SHOP OBJECT TYPES
@@ -433,6 +453,9 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 		// Activate (spawn) shopkeepers in loaded chunks of all loaded worlds:
 		shopkeeperRegistry.getChunkActivator().activateShopkeepersInAllWorlds();
 
+		// Bulk operations:
+		timeSlicedJobRunner.start();
+
 		// Player shops:
 		playerShops.onEnable();
 
@@ -456,6 +479,8 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 
 	@Override
 	public void onDisable() {
+		disabling = true;
+
 		// Wait for async tasks to complete:
 		SchedulerUtils.awaitAsyncTasksCompletion(
 				this,
@@ -463,6 +488,14 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 				this.getLogger()
 		);
 
+		// Cancel any pending bulk operations (prior to disabling the shopkeeper registry and
+		// storage, so that the jobs can still save their changes):
+		timeSlicedJobRunner.shutdown();
+
+		// Mark the shopkeepers with changed trade statistics as dirty (prior to saving and
+		// unloading the shopkeepers):
+		tradeStatisticsListener.onDisable();
+
 		// Disable UI system:
 		uiSystem.onDisable();
 
@@ -545,6 +578,7 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 
 		InternalShopkeepersAPI.disable();
 		plugin = null;
+		disabling = false;
 	}
 
 	/**
@@ -555,6 +589,18 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 		this.onEnable();
 	}
 
+	/**
+	 * Checks if the plugin is currently being disabled.
+	 * <p>
+	 * Unlike {@link #isEnabled()}, this also returns <code>true</code> while the plugin is being
+	 * disabled as part of a {@link #reload()}.
+	 * 
+	 * @return <code>true</code> if the plugin is being disabled
+	 */
+	public boolean isDisabling() {
+		return disabling;
+	}
+
 	// PLAYER JOINING AND QUITTING
 
 	void onPlayerJoin(Player player) {
@@ -598,27 +644,76 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 		return shopkeeperStorage;
 	}
 
+	// TRADE LOGGING
+
+	public TradeLoggers getTradeLoggers() {
+		return tradeLoggers;
+	}
+
+	// TRADE HISTORY
+
+	@Override
+	public SKTradeHistory getTradeHistory() {
+		return tradeLoggers.getTradeHistory();
+	}
+
 	// ITEM UPDATES
 
 	@Override
 	public int updateItems() {
-		Log.debug(DebugOptions.itemUpdates, "Updating all items.");
+		int updatedItems = this.startItemUpdates();
+		try {
+			int shopkeeperUpdatedItems = 0;
+			for (AbstractShopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
+				shopkeeperUpdatedItems += shopkeeper.updateItems();
+			}
+			if (shopkeeperUpdatedItems > 0) {
+				updatedItems += shopkeeperUpdatedItems;
+				shopkeeperStorage.save();
+			}
+		} finally {
+			this.endItemUpdates();
+		}
+
+		return updatedItems;
+	}
 
-		// Note: Not safe to be called from inside inventory events!
+	/**
+	 * Starts an update of all items.
+	 * <p>
+	 * This aborts all UI sessions and updates the items of the settings. The caller is then
+	 * expected to {@link AbstractShopkeeper#updateItems() update the items} of all shopkeepers,
+	 * possibly over the course of several ticks, and to invoke {@link #endItemUpdates()}
+	 * afterwards. Until then, players cannot open the UIs of shopkeepers.
+	 * <p>
+	 * Note: Not safe to be called from inside inventory events!
+	 * 
+	 * @return the number of updated items of the settings
+	 */
+	public int startItemUpdates() {
+		Log.debug(DebugOptions.itemUpdates, "Updating all items.");
 		uiRegistry.abortUISessions();
 
 		int updatedItems = Settings.getInstance().updateItems();
+		runningItemUpdates++;
+		return updatedItems;
+	}
 
-		int shopkeeperUpdatedItems = 0;
-		for (AbstractShopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-			shopkeeperUpdatedItems += shopkeeper.updateItems();
-		}
-		if (shopkeeperUpdatedItems > 0) {
-			updatedItems += shopkeeperUpdatedItems;
-			shopkeeperStorage.save();
-		}
+	/**
+	 * Ends an update of all items that was started via {@link #startItemUpdates()}.
+	 */
+	public void endItemUpdates() {
+		Validate.State.isTrue(runningItemUpdates > 0, "No item updates are running!");
+		runningItemUpdates--;
+	}
 
-		return updatedItems;
+	/**
+	 * Checks if an update of all items is currently in progress.
+	 * 
+	 * @return <code>true</code> if items are being updated
+	 */
+	public boolean isUpdatingItems() {
+		return runningItemUpdates > 0;
 	}
 
 	// COMMANDS
@@ -627,6 +722,12 @@ public class SKShopkeepersPlugin extends JavaPlugin implements InternalShopkeepe
 		return commands;
 	}
 
+	// BULK OPERATIONS
+
+	public TimeSlicedJobRunner getTimeSlicedJobRunner() {
+		return timeSlicedJobRunner;
+	}
+
 	// INPUT
 
 	public ChatInput getChatInput() {
@@ -6,7 +6,7 @@ import java.util.stream.Stream;
 
 import org.bukkit.command.CommandSender;
 
-import com.nisovin.shopkeepers.api.ShopkeepersAPI;
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
@@ -95,26 +95,27 @@ public class ShopkeeperIdArgument extends ObjectIdArgument<Integer> {
 				TargetShopkeeperFilter.ANY
 		);
 
+		// Note: No normalization required.
+		// TODO CheckerFramework complains when using a wildcard Stream here.
+		Stream<Shopkeeper> shopkeepersStream = Unsafe.castNonNull(targetedShopkeepers.stream()
+				.filter(shopkeeper -> String.valueOf(shopkeeper.getId()).startsWith(idPrefix)));
+
 		// Only provide other suggestions if there is a minimum length input:
-		Stream<Shopkeeper> shopkeepersStream;
 		if (idPrefix.length() >= minimumCompletionInput) {
+			// The completion index only iterates the shopkeepers with matching ids, and suggests
+			// short ids first (e.g. input "2", suggest "2", "20", "21", "22",.. before "200",
+			// "201", "202",..):
 			shopkeepersStream = Stream.concat(
-					targetedShopkeepers.stream(),
-					ShopkeepersAPI.getShopkeeperRegistry().getAllShopkeepers().stream()
+					shopkeepersStream,
+					SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().getCompletionIndex()
+							.getShopkeepersByIdPrefix(idPrefix)
 							.filter(shopkeeper -> !targetedShopkeepers.contains(shopkeeper))
 			);
-		} else {
-			// TODO CheckerFramework complains when using a wildcard Stream here.
-			shopkeepersStream = Unsafe.castNonNull(targetedShopkeepers.stream());
 		}
 
-		// Note: No normalization required.
-		// TODO Prefer short ids (e.g. input "2", suggest "20", "21", "22",.. instead of "200",
-		// "201", "202",..)
 		return shopkeepersStream
 				.filter(shopkeeper -> filter.test(input, context, shopkeeper))
-				.mapToInt(Shopkeeper::getId)
-				.filter(id -> String.valueOf(id).startsWith(idPrefix))::iterator;
+				.mapToInt(Shopkeeper::getId)::iterator;
 	}
 
 	@Override
@@ -1,20 +1,14 @@
 package com.nisovin.shopkeepers.commands.arguments;
 
 import java.util.Collections;
-import java.util.Locale;
-import java.util.Objects;
-import java.util.stream.Stream;
 
-import org.checkerframework.checker.nullness.qual.Nullable;
-
-import com.nisovin.shopkeepers.api.ShopkeepersAPI;
-import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
-import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
 import com.nisovin.shopkeepers.commands.lib.argument.filter.ArgumentFilter;
 import com.nisovin.shopkeepers.commands.lib.arguments.ObjectNameArgument;
 import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
+import com.nisovin.shopkeepers.shopkeeper.registry.ShopkeeperCompletionIndex;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.java.StringUtils;
 
@@ -78,24 +72,18 @@ public class ShopkeeperNameArgument extends ObjectNameArgument {
 		}
 
 		// Strips color, normalizes whitespace, converts to lowercase:
-		String normalizedNamePrefix = StringUtils.normalize(TextUtils.stripColor(namePrefix));
-		// TODO Improve by using a TreeMap for the prefix matching?
-		ShopkeeperRegistry shopkeeperRegistry = ShopkeepersAPI.getShopkeeperRegistry();
-		// TODO CheckerFramework complains when using a wildcard Stream here.
-		Stream<Shopkeeper> shopkeepers = Unsafe.castNonNull(shopkeeperRegistry.getAllShopkeepers().stream());
-		Iterable<String> suggestions = shopkeepers
+		String normalizedNamePrefix = ShopkeeperCompletionIndex.normalizeName(namePrefix);
+		// The completion index only iterates the shopkeepers with matching names:
+		ShopkeeperCompletionIndex<?> completionIndex = SKShopkeepersPlugin.getInstance()
+				.getShopkeeperRegistry()
+				.getCompletionIndex();
+		Iterable<String> suggestions = completionIndex
+				.getShopkeepersByNamePrefix(normalizedNamePrefix)
 				.filter(shopkeeper -> shopkeeperFilter.test(input, context, shopkeeper))
-				.<@Nullable String>map(shopkeeper -> {
+				.map(shopkeeper -> {
 					String name = TextUtils.stripColor(shopkeeper.getName());
-					if (name.isEmpty()) return null;
-					String normalizedWithCase = StringUtils.normalizeKeepCase(name);
-					String normalized = normalizedWithCase.toLowerCase(Locale.ROOT);
-					if (normalized.startsWith(normalizedNamePrefix)) {
-						return normalizedWithCase;
-					}
-					return null; // No match
-				}).filter(Objects::nonNull)
-				.map(Unsafe::assertNonNull)::iterator;
+					return StringUtils.normalizeKeepCase(name);
+				})::iterator;
 		return suggestions;
 	}
 
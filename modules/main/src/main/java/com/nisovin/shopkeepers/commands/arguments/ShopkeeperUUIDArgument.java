@@ -7,7 +7,7 @@ import java.util.stream.Stream;
 
 import org.bukkit.command.CommandSender;
 
-import com.nisovin.shopkeepers.api.ShopkeepersAPI;
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
@@ -84,27 +84,28 @@ public class ShopkeeperUUIDArgument extends ObjectUUIDArgument {
 				TargetShopkeeperFilter.ANY
 		);
 
+		// TODO CheckerFramework complains when using a wildcard Stream here.
+		Stream<Shopkeeper> shopkeepersStream = Unsafe.castNonNull(targetedShopkeepers.stream()
+				.filter(shopkeeper -> {
+					// Assumption: UUID#toString is already lowercase (normalized)
+					String uuidString = shopkeeper.getUniqueId().toString();
+					return uuidString.startsWith(normalizedUUIDPrefix);
+				}));
+
 		// Only provide other suggestions if there is a minimum length input:
-		Stream<Shopkeeper> shopkeepersStream;
 		if (uuidPrefix.length() >= minimumCompletionInput) {
-			// TODO Improve by using a TreeMap for the prefix matching?
+			// The completion index only iterates the shopkeepers with matching uuids:
 			shopkeepersStream = Stream.concat(
-					targetedShopkeepers.stream(),
-					ShopkeepersAPI.getShopkeeperRegistry().getAllShopkeepers().stream()
+					shopkeepersStream,
+					SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().getCompletionIndex()
+							.getShopkeepersByUUIDPrefix(normalizedUUIDPrefix)
 							.filter(shopkeeper -> !targetedShopkeepers.contains(shopkeeper))
 			);
-		} else {
-			// TODO CheckerFramework complains when using a wildcard Stream here.
-			shopkeepersStream = Unsafe.castNonNull(targetedShopkeepers.stream());
 		}
 
 		return shopkeepersStream
 				.filter(shopkeeper -> filter.test(input, context, shopkeeper))
-				.map(Shopkeeper::getUniqueId)
-				.filter(uuid -> {
-					// Assumption: UUID#toString is already lowercase (normalized)
-					return uuid.toString().startsWith(normalizedUUIDPrefix);
-				})::iterator;
+				.map(Shopkeeper::getUniqueId)::iterator;
 	}
 
 	@Override
@@ -0,0 +1,46 @@
+package com.nisovin.shopkeepers.commands.shopkeepers;
+
+import org.bukkit.command.CommandSender;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+import com.nisovin.shopkeepers.commands.lib.Command;
+import com.nisovin.shopkeepers.commands.lib.CommandException;
+import com.nisovin.shopkeepers.commands.lib.CommandInput;
+import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
+import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.taskqueue.TimeSlicedJobRunner;
+
+class CommandCancelJobs extends Command {
+
+	private final SKShopkeepersPlugin plugin;
+
+	CommandCancelJobs(SKShopkeepersPlugin plugin) {
+		super("cancelJobs");
+		this.plugin = plugin;
+
+		// Set permission:
+		// A reload of the plugin also cancels all pending jobs.
+		this.setPermission(ShopkeepersPlugin.RELOAD_PERMISSION);
+
+		// Set description:
+		this.setDescription(Messages.commandDescriptionCancelJobs);
+	}
+
+	@Override
+	protected void execute(CommandInput input, CommandContextView context) throws CommandException {
+		CommandSender sender = input.getSender();
+
+		TimeSlicedJobRunner jobRunner = plugin.getTimeSlicedJobRunner();
+		int jobCount = jobRunner.getJobs().size();
+		if (jobCount == 0) {
+			TextUtils.sendMessage(sender, Messages.noPendingBulkOperations);
+			return;
+		}
+
+		// The jobs inform their senders about the cancellation and save their changes:
+		jobRunner.cancelAll();
+		TextUtils.sendMessage(sender, Messages.bulkOperationsCancelled, "count", jobCount);
+	}
+}
@@ -1,5 +1,7 @@
 package com.nisovin.shopkeepers.commands.shopkeepers;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -33,9 +35,13 @@ import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.shopkeeper.spawning.ShopkeeperSpawner;
 import com.nisovin.shopkeepers.shopobjects.living.LivingEntityAI;
 import com.nisovin.shopkeepers.text.Text;
+import com.nisovin.shopkeepers.tradelog.TradeLoggers;
+import com.nisovin.shopkeepers.tradelog.sink.TradeSink;
+import com.nisovin.shopkeepers.tradelog.sink.TradeSinkDispatcher;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.taskqueue.TaskQueueStatistics;
 import com.nisovin.shopkeepers.util.timer.Timings;
+import com.nisovin.shopkeepers.util.trading.TradeMerger;
 
 class CommandCheck extends Command {
 
@@ -141,6 +147,8 @@ class CommandCheck extends Command {
 				+ TextUtils.format(avgAITimings) + " ms"
 				+ " | " + TextUtils.format(maxAITiming) + " ms");
 
+		this.sendTradeSinkInfo(sender);
+
 		for (World world : Bukkit.getWorlds()) {
 			String worldName = world.getName();
 			Chunk[] worldLoadedChunks = world.getLoadedChunks();
@@ -240,4 +248,39 @@ class CommandCheck extends Command {
 			sender.sendMessage("More information is printed when the command is run from console.");
 		}
 	}
+
+	private void sendTradeSinkInfo(CommandSender sender) {
+		TradeLoggers tradeLoggers = plugin.getTradeLoggers();
+		TradeMerger tradeMerger = tradeLoggers.getTradeMerger();
+		if (tradeMerger != null) {
+			sender.sendMessage("Trade merging (trade events | merged trades | ratio): "
+					+ tradeMerger.getMergedTradeEvents()
+					+ " | " + tradeMerger.getProcessedMergedTrades()
+					+ " | " + TextUtils.format(tradeMerger.getMergeRatio()));
+		}
+
+		TradeSinkDispatcher sinkDispatcher = tradeLoggers.getSinkDispatcher();
+		List<TradeSink> sinks = sinkDispatcher.getSinks();
+		if (sinks.isEmpty()) return;
+
+		sender.sendMessage(ChatColor.YELLOW + "Trade log sinks:");
+		Instant now = Instant.now();
+		for (TradeSink sink : sinks) {
+			Instant oldestPending = sinkDispatcher.getOldestPendingTradeTimestamp(sink);
+			String lag = "-";
+			if (oldestPending != null) {
+				lag = TextUtils.format(Duration.between(oldestPending, now).toMillis() / 1000.0D)
+						+ " s";
+			}
+			sender.sendMessage("  " + sink.getName() + ":");
+			sender.sendMessage("    Pending | spilled | lag: "
+					+ sinkDispatcher.getPendingTradeCount(sink)
+					+ " | " + sinkDispatcher.getSpilledTradeCount(sink)
+					+ " | " + lag);
+			sender.sendMessage("    Written | total spilled | dropped: "
+					+ sinkDispatcher.getWrittenTradeCount(sink)
+					+ " | " + sinkDispatcher.getTotalSpilledTradeCount(sink)
+					+ " | " + sinkDispatcher.getDroppedTradeCount(sink));
+		}
+	}
 }
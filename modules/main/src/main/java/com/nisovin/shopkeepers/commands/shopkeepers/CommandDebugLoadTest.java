@@ -0,0 +1,160 @@
+package com.nisovin.shopkeepers.commands.shopkeepers;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+import com.nisovin.shopkeepers.commands.Confirmations;
+import com.nisovin.shopkeepers.commands.lib.Command;
+import com.nisovin.shopkeepers.commands.lib.CommandException;
+import com.nisovin.shopkeepers.commands.lib.CommandInput;
+import com.nisovin.shopkeepers.commands.lib.arguments.FirstOfArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.IntegerArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.LiteralArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.PositiveIntegerArgument;
+import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
+import com.nisovin.shopkeepers.commands.util.ShopkeeperCommandJob;
+import com.nisovin.shopkeepers.debug.loadtest.LoadTest;
+import com.nisovin.shopkeepers.debug.loadtest.LoadTestProfile;
+import com.nisovin.shopkeepers.debug.loadtest.SyntheticShopkeeperGenerator;
+import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.registry.ShopkeeperCompletionIndex;
+import com.nisovin.shopkeepers.text.Text;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+
+class CommandDebugLoadTest extends Command {
+
+	private static final String ARGUMENT_SHOP_COUNT = "shopCount";
+	private static final String ARGUMENT_CLEANUP = "cleanup";
+	private static final String ARGUMENT_SEED = "seed";
+
+	private final SKShopkeepersPlugin plugin;
+	private final Confirmations confirmations;
+
+	private @Nullable LoadTest loadTest = null;
+
+	CommandDebugLoadTest(SKShopkeepersPlugin plugin, Confirmations confirmations) {
+		super("debugLoadTest");
+		this.plugin = plugin;
+		this.confirmations = confirmations;
+
+		// Set permission:
+		this.setPermission(ShopkeepersPlugin.DEBUG_PERMISSION);
+
+		// Set description:
+		this.setDescription(Text.of("Generates lots of shopkeepers and measures the load."));
+
+		// Hidden debugging command:
+		this.setHiddenInParentHelp(true);
+
+		// Arguments:
+		this.addArgument(new FirstOfArgument("loadTest", Arrays.asList(
+				new LiteralArgument(ARGUMENT_CLEANUP),
+				new PositiveIntegerArgument(ARGUMENT_SHOP_COUNT)
+		), true, true));
+		this.addArgument(new IntegerArgument(ARGUMENT_SEED).orDefaultValue(1));
+	}
+
+	@Override
+	protected void execute(CommandInput input, CommandContextView context) throws CommandException {
+		CommandSender sender = input.getSender();
+		LoadTest loadTest = this.loadTest;
+		if (loadTest != null && loadTest.isRunning()) {
+			sender.sendMessage(ChatColor.RED + "A load test is already running!");
+			return;
+		}
+
+		if (context.has(ARGUMENT_CLEANUP)) {
+			this.cleanup(sender);
+			return;
+		}
+
+		int shopCount = context.get(ARGUMENT_SHOP_COUNT);
+		if (shopCount > LoadTestProfile.MAX_SHOPKEEPER_COUNT) {
+			sender.sendMessage(ChatColor.RED + "Shopkeeper count to high, limiting to "
+					+ LoadTestProfile.MAX_SHOPKEEPER_COUNT + "!");
+			shopCount = LoadTestProfile.MAX_SHOPKEEPER_COUNT;
+		}
+		int seed = context.get(ARGUMENT_SEED);
+
+		LoadTestProfile profile;
+		try {
+			profile = LoadTest.loadProfile(plugin, shopCount, seed);
+		} catch (IOException | IllegalArgumentException e) {
+			sender.sendMessage(ChatColor.RED + "Failed to load the load test profile: "
+					+ e.getMessage());
+			return;
+		}
+
+		// This blocks the server during the save and reload, and replaces the save file: Let the
+		// sender first confirm this action.
+		confirmations.awaitConfirmation(sender, () -> {
+			LoadTest newLoadTest = new LoadTest(plugin, sender, profile);
+			this.loadTest = newLoadTest;
+			newLoadTest.start();
+		});
+
+		sender.sendMessage(ChatColor.YELLOW + "This generates and saves " + shopCount
+				+ " shopkeepers, and then reloads all shopkeepers. The server is blocked during the"
+				+ " save and reload. The save file is restored afterwards, discarding any other"
+				+ " shopkeeper changes in the meantime. Only run this on a test server! Use '"
+				+ ARGUMENT_CLEANUP + "' to remove any remaining generated shopkeepers.");
+		TextUtils.sendMessage(sender, Messages.confirmationRequired);
+	}
+
+	private void cleanup(CommandSender sender) {
+		String namePrefix = ShopkeeperCompletionIndex.normalizeName(
+				SyntheticShopkeeperGenerator.NAME_PREFIX
+		);
+		List<? extends AbstractShopkeeper> shopkeepers = plugin.getShopkeeperRegistry()
+				.getCompletionIndex()
+				.getShopkeepersByNamePrefix(namePrefix)
+				.collect(Collectors.toList());
+		if (shopkeepers.isEmpty()) {
+			TextUtils.sendMessage(sender, Messages.noShopsFound);
+			return;
+		}
+
+		confirmations.awaitConfirmation(sender, () -> {
+			// Remove the shops over the course of several ticks:
+			new CleanupJob(sender, shopkeepers).submit();
+		});
+
+		sender.sendMessage(ChatColor.YELLOW + "This deletes " + shopkeepers.size()
+				+ " shopkeepers whose names start with '" + SyntheticShopkeeperGenerator.NAME_PREFIX
+				+ "'.");
+		TextUtils.sendMessage(sender, Messages.confirmationRequired);
+	}
+
+	private final class CleanupJob extends ShopkeeperCommandJob<AbstractShopkeeper> {
+
+		private int deletedCount = 0;
+
+		CleanupJob(CommandSender sender, List<? extends AbstractShopkeeper> shopkeepers) {
+			super(plugin, "loadTestCleanup", sender, shopkeepers);
+		}
+
+		@Override
+		protected void process(AbstractShopkeeper shopkeeper) {
+			// Skip the shopkeeper if it no longer exists:
+			if (!shopkeeper.isValid()) return;
+
+			shopkeeper.delete();
+			deletedCount++;
+		}
+
+		@Override
+		protected void sendResult() {
+			sender.sendMessage(ChatColor.GREEN + "Deleted " + ChatColor.YELLOW + deletedCount
+					+ ChatColor.GREEN + " shopkeepers!");
+		}
+	}
+}
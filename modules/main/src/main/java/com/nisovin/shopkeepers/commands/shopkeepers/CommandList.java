@@ -1,6 +1,5 @@
 package com.nisovin.shopkeepers.commands.shopkeepers;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -13,8 +12,6 @@ import org.bukkit.entity.Player;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
-import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
-import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopkeeper;
 import com.nisovin.shopkeepers.commands.lib.Command;
 import com.nisovin.shopkeepers.commands.lib.CommandException;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
@@ -31,6 +28,7 @@ import com.nisovin.shopkeepers.commands.lib.util.PlayerArgumentUtils;
 import com.nisovin.shopkeepers.commands.util.ShopkeeperArgumentUtils;
 import com.nisovin.shopkeepers.commands.util.ShopkeeperArgumentUtils.OwnedPlayerShopsResult;
 import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.bukkit.PermissionUtils;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 
@@ -45,9 +43,9 @@ class CommandList extends Command {
 
 	private static final int ENTRIES_PER_PAGE = 8;
 
-	private final ShopkeeperRegistry shopkeeperRegistry;
+	private final SKShopkeeperRegistry shopkeeperRegistry;
 
-	CommandList(ShopkeeperRegistry shopkeeperRegistry) {
+	CommandList(SKShopkeeperRegistry shopkeeperRegistry) {
 		super("list");
 		this.shopkeeperRegistry = shopkeeperRegistry;
 
@@ -102,19 +100,12 @@ class CommandList extends Command {
 			this.checkPermission(sender, ShopkeepersPlugin.LIST_ADMIN_PERMISSION);
 			this.checkPermission(sender, ShopkeepersPlugin.LIST_OTHERS_PERMISSION);
 
-			shops = new ArrayList<>(shopkeeperRegistry.getAllShopkeepers());
+			shops = shopkeeperRegistry.getAllShopkeepersSortedById();
 		} else if (listAdminShops) {
 			// Permission check:
 			this.checkPermission(sender, ShopkeepersPlugin.LIST_ADMIN_PERMISSION);
 
-			// Searching admin shops:
-			List<Shopkeeper> adminShops = new ArrayList<>();
-			for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-				if (shopkeeper instanceof AdminShopkeeper) {
-					adminShops.add(shopkeeper);
-				}
-			}
-			shops = adminShops;
+			shops = shopkeeperRegistry.getAdminShopkeepers();
 		} else {
 			// Check if the target matches the sender player:
 			boolean targetOwnShops = false;
@@ -180,6 +171,8 @@ class CommandList extends Command {
 			shops = ownedPlayerShopsResult.getShops();
 		}
 		assert shops != null;
+		// The shops are sorted by their ids and provide constant time access by index, so we only
+		// need to look at the shops of the requested page.
 
 		int shopsCount = shops.size();
 		int maxPage = Math.max(1, (int) Math.ceil((double) shopsCount / ENTRIES_PER_PAGE));
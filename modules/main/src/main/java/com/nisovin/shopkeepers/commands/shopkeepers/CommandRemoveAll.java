@@ -9,7 +9,9 @@ import java.util.UUID;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.events.PlayerDeleteShopkeeperEvent;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
@@ -30,6 +32,7 @@ import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
 import com.nisovin.shopkeepers.commands.lib.util.PlayerArgumentUtils;
 import com.nisovin.shopkeepers.commands.util.ShopkeeperArgumentUtils;
 import com.nisovin.shopkeepers.commands.util.ShopkeeperArgumentUtils.OwnedPlayerShopsResult;
+import com.nisovin.shopkeepers.commands.util.ShopkeeperCommandJob;
 import com.nisovin.shopkeepers.event.ShopkeeperEventHelper;
 import com.nisovin.shopkeepers.lang.Messages;
 import com.nisovin.shopkeepers.util.bukkit.PermissionUtils;
@@ -46,12 +49,12 @@ class CommandRemoveAll extends Command {
 	private static final String ARGUMENT_ALL_ADMIN_SHOPS = "all-admin";
 	private static final String ARGUMENT_ALL_ADMIN_SHOPS_DISPLAY_NAME = "admin";
 
-	private final ShopkeepersPlugin plugin;
+	private final SKShopkeepersPlugin plugin;
 	private final ShopkeeperRegistry shopkeeperRegistry;
 	private final Confirmations confirmations;
 
 	CommandRemoveAll(
-			ShopkeepersPlugin plugin,
+			SKShopkeepersPlugin plugin,
 			ShopkeeperRegistry shopkeeperRegistry,
 			Confirmations confirmations
 	) {
@@ -198,7 +201,8 @@ class CommandRemoveAll extends Command {
 			targetPlayerName = ownedPlayerShopsResult.getPlayerName();
 
 			// Get the found shops:
-			affectedShops = ownedPlayerShopsResult.getShops();
+			// Copied, since the result can be a view on the registry's index of the owner's shops:
+			affectedShops = new ArrayList<>(ownedPlayerShopsResult.getShops());
 		}
 		assert affectedShops != null;
 
@@ -214,36 +218,101 @@ class CommandRemoveAll extends Command {
 		confirmations.awaitConfirmation(sender, () -> {
 			// Note: New shops might have been created in the meantime, but the command only affects
 			// the already determined affected shops.
-			// Remove shops:
-			int invalidShops = 0;
-			int cancelledDeletions = 0;
-			int actualShopCount = 0;
-			for (Shopkeeper shopkeeper : affectedShops) {
-				// Skip the shopkeeper if it no longer exists:
-				if (!shopkeeper.isValid()) {
-					invalidShops += 1;
-					continue;
-				}
+			// Remove the shops over the course of several ticks:
+			new RemoveShopsJob(
+					sender,
+					affectedShops,
+					allAdmin,
+					allPlayers,
+					finalTargetPlayerUUID,
+					finalTargetPlayerName
+			).submit();
+		});
 
-				if (senderPlayer != null) {
-					// Call event:
-					PlayerDeleteShopkeeperEvent deleteEvent = ShopkeeperEventHelper.callPlayerDeleteShopkeeperEvent(
-							shopkeeper,
-							senderPlayer
-					);
-					if (deleteEvent.isCancelled()) {
-						cancelledDeletions += 1;
-						continue;
-					}
-				}
+		// Inform the sender about required confirmation:
+		if (allAdmin) {
+			// Removing all admin shops:
+			TextUtils.sendMessage(sender, Messages.confirmRemoveAllAdminShops,
+					"shopsCount", shopsCount
+			);
+		} else if (allPlayers) {
+			// Removing all player shops:
+			TextUtils.sendMessage(sender, Messages.confirmRemoveAllPlayerShops,
+					"shopsCount", shopsCount
+			);
+		} else if (targetOwnShops) {
+			// Removing own shops:
+			TextUtils.sendMessage(sender, Messages.confirmRemoveAllOwnShops,
+					"shopsCount", shopsCount
+			);
+		} else {
+			// Removing shops of specific player:
+			TextUtils.sendMessage(sender, Messages.confirmRemoveAllShopsOfPlayer,
+					"player", TextUtils.getPlayerText(targetPlayerName, targetPlayerUUID),
+					"shopsCount", shopsCount
+			);
+		}
+
+		// Inform player on how to confirm the action:
+		// TODO Add clickable command suggestion?
+		TextUtils.sendMessage(sender, Messages.confirmationRequired);
+	}
+
+	private final class RemoveShopsJob extends ShopkeeperCommandJob<Shopkeeper> {
+
+		private final @Nullable Player senderPlayer;
+		private final boolean allAdmin;
+		private final boolean allPlayers;
+		private final @Nullable UUID targetPlayerUUID;
+		private final @Nullable String targetPlayerName;
+
+		private int invalidShops = 0;
+		private int cancelledDeletions = 0;
+		private int actualShopCount = 0;
+
+		RemoveShopsJob(
+				CommandSender sender,
+				List<? extends Shopkeeper> shopkeepers,
+				boolean allAdmin,
+				boolean allPlayers,
+				@Nullable UUID targetPlayerUUID,
+				@Nullable String targetPlayerName
+		) {
+			super(plugin, "removeAll", sender, shopkeepers);
+			this.senderPlayer = ObjectUtils.castOrNull(sender, Player.class);
+			this.allAdmin = allAdmin;
+			this.allPlayers = allPlayers;
+			this.targetPlayerUUID = targetPlayerUUID;
+			this.targetPlayerName = targetPlayerName;
+		}
 
-				shopkeeper.delete(senderPlayer);
-				actualShopCount += 1;
+		@Override
+		protected void process(Shopkeeper shopkeeper) {
+			// Skip the shopkeeper if it no longer exists:
+			if (!shopkeeper.isValid()) {
+				invalidShops += 1;
+				return;
 			}
 
-			// Trigger save:
-			plugin.getShopkeeperStorage().save();
+			Player senderPlayer = this.senderPlayer;
+			if (senderPlayer != null) {
+				// Call event:
+				PlayerDeleteShopkeeperEvent deleteEvent = ShopkeeperEventHelper.callPlayerDeleteShopkeeperEvent(
+						shopkeeper,
+						senderPlayer
+				);
+				if (deleteEvent.isCancelled()) {
+					cancelledDeletions += 1;
+					return;
+				}
+			}
 
+			shopkeeper.delete(senderPlayer);
+			actualShopCount += 1;
+		}
+
+		@Override
+		protected void sendResult() {
 			// Print the result messages:
 			if (invalidShops > 0) {
 				TextUtils.sendMessage(sender, Messages.shopsAlreadyRemoved,
@@ -268,41 +337,10 @@ class CommandRemoveAll extends Command {
 			} else {
 				// Removed all shops of the specified player:
 				TextUtils.sendMessage(sender, Messages.shopsOfPlayerRemoved,
-						"player", TextUtils.getPlayerText(
-								finalTargetPlayerName,
-								finalTargetPlayerUUID
-						),
+						"player", TextUtils.getPlayerText(targetPlayerName, targetPlayerUUID),
 						"shopsCount", actualShopCount
 				);
 			}
-		});
-
-		// Inform the sender about required confirmation:
-		if (allAdmin) {
-			// Removing all admin shops:
-			TextUtils.sendMessage(sender, Messages.confirmRemoveAllAdminShops,
-					"shopsCount", shopsCount
-			);
-		} else if (allPlayers) {
-			// Removing all player shops:
-			TextUtils.sendMessage(sender, Messages.confirmRemoveAllPlayerShops,
-					"shopsCount", shopsCount
-			);
-		} else if (targetOwnShops) {
-			// Removing own shops:
-			TextUtils.sendMessage(sender, Messages.confirmRemoveAllOwnShops,
-					"shopsCount", shopsCount
-			);
-		} else {
-			// Removing shops of specific player:
-			TextUtils.sendMessage(sender, Messages.confirmRemoveAllShopsOfPlayer,
-					"player", TextUtils.getPlayerText(targetPlayerName, targetPlayerUUID),
-					"shopsCount", shopsCount
-			);
 		}
-
-		// Inform player on how to confirm the action:
-		// TODO Add clickable command suggestion?
-		TextUtils.sendMessage(sender, Messages.confirmationRequired);
 	}
 }
@@ -1,6 +1,6 @@
 package com.nisovin.shopkeepers.commands.shopkeepers;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.bukkit.Location;
@@ -25,6 +25,7 @@ import com.nisovin.shopkeepers.commands.lib.Command;
 import com.nisovin.shopkeepers.commands.lib.CommandException;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
 import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
+import com.nisovin.shopkeepers.commands.util.ShopkeeperCommandJob;
 import com.nisovin.shopkeepers.compat.Compat;
 import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.lang.Messages;
@@ -94,34 +95,51 @@ class CommandReplaceAllWithVanillaVillagers extends Command {
 	}
 
 	private void replaceAllShopsWithVillagers(CommandSender sender) {
-		List<? extends AbstractShopkeeper> shopkeepers = new ArrayList<>(shopkeeperRegistry.getAllShopkeepers());
+		Collection<? extends AbstractShopkeeper> shopkeepers = shopkeeperRegistry
+				.getAllShopkeepers();
 		if (shopkeepers.isEmpty()) {
 			TextUtils.sendMessage(sender, Messages.noShopsFound);
 			return;
 		}
 
-		int invalidShops = 0;
-		int deletedAdminShopsCount = 0;
-		int deletedPlayerShopsCount = 0;
-		int skippedShopsCount = 0;
-		for (AbstractShopkeeper shopkeeper : shopkeepers) {
+		// Replace the shops over the course of several ticks:
+		// Note: The job copies the current shopkeepers.
+		new ReplaceShopsJob(sender, shopkeepers).submit();
+	}
+
+	private final class ReplaceShopsJob extends ShopkeeperCommandJob<AbstractShopkeeper> {
+
+		private int invalidShops = 0;
+		private int deletedAdminShopsCount = 0;
+		private int deletedPlayerShopsCount = 0;
+		private int skippedShopsCount = 0;
+
+		ReplaceShopsJob(
+				CommandSender sender,
+				Collection<? extends AbstractShopkeeper> shopkeepers
+		) {
+			super(plugin, "replaceAllWithVanillaVillagers", sender, shopkeepers);
+		}
+
+		@Override
+		protected void process(AbstractShopkeeper shopkeeper) {
 			// Skip the shopkeeper if it no longer exists:
 			if (!shopkeeper.isValid()) {
 				invalidShops++;
-				continue;
+				return;
 			}
 
 			// Note: No need to call a PlayerDeleteShopkeeperEvent here, or pass the sender player
 			// to shopkeeper.delete(): This action is run by an admin with the intention to
-			// delete/replace all shopkeepers. There is no need to perform additional deletion logic
-			// (e.g. returning shop creation items, etc.).
+			// delete/replace all shopkeepers. There is no need to perform additional deletion
+			// logic (e.g. returning shop creation items, etc.).
 
 			// Try to spawn a corresponding vanilla villager:
 			// A villager is spawned regardless of the object type (sign, NPC, other mob type,
 			// etc.).
-			if (!this.spawnVanillaVillager(sender, shopkeeper)) {
+			if (!spawnVanillaVillager(sender, shopkeeper)) {
 				skippedShopsCount++;
-				continue;
+				return;
 			}
 
 			// Delete the shopkeeper:
@@ -133,20 +151,20 @@ class CommandReplaceAllWithVanillaVillagers extends Command {
 			}
 		}
 
-		// Trigger save:
-		plugin.getShopkeeperStorage().save();
-
-		// Print the result messages:
-		if (invalidShops > 0) {
-			TextUtils.sendMessage(sender, Messages.shopsAlreadyRemoved,
-					"shopsCount", invalidShops
+		@Override
+		protected void sendResult() {
+			// Print the result messages:
+			if (invalidShops > 0) {
+				TextUtils.sendMessage(sender, Messages.shopsAlreadyRemoved,
+						"shopsCount", invalidShops
+				);
+			}
+			TextUtils.sendMessage(sender, Messages.allShopsReplacedWithVanillaVillagers,
+					"adminShopsCount", deletedAdminShopsCount,
+					"playerShopsCount", deletedPlayerShopsCount,
+					"skippedShopsCount", skippedShopsCount
 			);
 		}
-		TextUtils.sendMessage(sender, Messages.allShopsReplacedWithVanillaVillagers,
-				"adminShopsCount", deletedAdminShopsCount,
-				"playerShopsCount", deletedPlayerShopsCount,
-				"skippedShopsCount", skippedShopsCount
-		);
 	}
 
 	private boolean spawnVanillaVillager(CommandSender sender, AbstractShopkeeper shopkeeper) {
@@ -0,0 +1,176 @@
+package com.nisovin.shopkeepers.commands.shopkeepers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.tradelog.TradeHistory;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolume;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumeGrouping;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumePage;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumeQuery;
+import com.nisovin.shopkeepers.api.user.User;
+import com.nisovin.shopkeepers.commands.arguments.ShopkeeperArgument;
+import com.nisovin.shopkeepers.commands.arguments.ShopkeeperUUIDArgument;
+import com.nisovin.shopkeepers.commands.arguments.UserArgument;
+import com.nisovin.shopkeepers.commands.lib.Command;
+import com.nisovin.shopkeepers.commands.lib.CommandException;
+import com.nisovin.shopkeepers.commands.lib.CommandInput;
+import com.nisovin.shopkeepers.commands.lib.arguments.EnumArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.FirstOfArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.NamedArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.PlayerUUIDArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.PositiveIntegerArgument;
+import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
+import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.tradelog.TradeLogQueryTimeoutException;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+
+class CommandTrades extends Command {
+
+	private static final String ARGUMENT_GROUPING = "grouping";
+	private static final String ARGUMENT_SHOP = "shop";
+	private static final String ARGUMENT_SHOP_SHOPKEEPER = "shop:shopkeeper";
+	private static final String ARGUMENT_SHOP_UUID = "shop:uuid";
+	private static final String ARGUMENT_PLAYER = "player";
+	private static final String ARGUMENT_PLAYER_USER = "player:user";
+	private static final String ARGUMENT_PLAYER_UUID = "player:uuid";
+	private static final String ARGUMENT_DAYS = "days";
+	private static final String ARGUMENT_PAGE = "page";
+
+	private static final int ENTRIES_PER_PAGE = 8;
+
+	private final TradeHistory tradeHistory;
+
+	CommandTrades(TradeHistory tradeHistory) {
+		super("trades");
+		this.tradeHistory = tradeHistory;
+
+		// Set permission:
+		this.setPermission(ShopkeepersPlugin.TRADE_HISTORY_PERMISSION);
+
+		// Set description:
+		this.setDescription(Messages.commandDescriptionTrades);
+
+		// Arguments:
+		this.addArgument(new EnumArgument<>(ARGUMENT_GROUPING, TradeVolumeGrouping.class));
+		// The optional filters need to be specified by name (e.g. "shop=<shop>"):
+		this.addArgument(new NamedArgument<>(new FirstOfArgument(ARGUMENT_SHOP, Arrays.asList(
+				new ShopkeeperArgument(ARGUMENT_SHOP_SHOPKEEPER),
+				// Accepts any uuid, e.g. of shops that have been removed in the meantime:
+				new ShopkeeperUUIDArgument(ARGUMENT_SHOP_UUID)
+		), false)).optional()); // Don't join formats
+		this.addArgument(new NamedArgument<>(new FirstOfArgument(ARGUMENT_PLAYER, Arrays.asList(
+				// Known users, i.e. online players and shop owners:
+				new UserArgument(ARGUMENT_PLAYER_USER),
+				new PlayerUUIDArgument(ARGUMENT_PLAYER_UUID) // Accepts any uuid
+		), false)).optional()); // Don't join formats
+		// Only includes the trades of the last n days:
+		this.addArgument(new NamedArgument<>(
+				new PositiveIntegerArgument(ARGUMENT_DAYS)
+		).optional());
+		this.addArgument(new PositiveIntegerArgument(ARGUMENT_PAGE).orDefaultValue(1));
+	}
+
+	@Override
+	protected void execute(CommandInput input, CommandContextView context) throws CommandException {
+		CommandSender sender = input.getSender();
+		TradeVolumeGrouping grouping = context.get(ARGUMENT_GROUPING);
+		Shopkeeper shopkeeper = context.getOrNull(ARGUMENT_SHOP_SHOPKEEPER); // Can be null
+		UUID shopUUID = (shopkeeper != null)
+				? shopkeeper.getUniqueId()
+				: context.getOrNull(ARGUMENT_SHOP_UUID); // Can be null
+		User user = context.getOrNull(ARGUMENT_PLAYER_USER); // Can be null
+		UUID playerUUID = (user != null)
+				? user.getUniqueId()
+				: context.getOrNull(ARGUMENT_PLAYER_UUID); // Can be null
+		Integer days = context.getOrNull(ARGUMENT_DAYS); // Can be null
+		int page = context.get(ARGUMENT_PAGE);
+
+		if (!tradeHistory.isAvailable()) {
+			TextUtils.sendMessage(sender, Messages.tradeHistoryUnavailable);
+			return;
+		}
+
+		// The query is executed asynchronously, and its result is provided on the main thread:
+		// Note: The query does not include the trades that have been moved into the archive
+		// databases of the SQLite trade log (see setting 'trade-log-archive-after-days').
+		Instant from = (days != null) ? Instant.now().minus(Duration.ofDays(days)) : null;
+		TradeVolumeQuery query = TradeVolumeQuery.groupedBy(grouping)
+				.withShop(shopUUID)
+				.withPlayer(playerUUID)
+				.withTimeRange(from, null)
+				.withPage(page, ENTRIES_PER_PAGE);
+		tradeHistory.queryVolume(query).whenComplete((result, error) -> {
+			if (sender instanceof Player && !((Player) sender).isOnline()) return;
+
+			if (error != null) {
+				this.sendQueryError(sender, error);
+			} else {
+				this.sendResult(sender, grouping, result);
+			}
+		});
+	}
+
+	private void sendQueryError(CommandSender sender, Throwable error) {
+		if (error instanceof TradeLogQueryTimeoutException) {
+			TextUtils.sendMessage(sender, Messages.tradeHistoryQueryTimedOut);
+		} else if (error instanceof IllegalStateException) {
+			// Another query is still running, or the trade history is no longer available:
+			TextUtils.sendMessage(sender, Messages.tradeHistoryQueryRunning);
+		} else {
+			TextUtils.sendMessage(sender, Messages.tradeHistoryQueryFailed);
+		}
+	}
+
+	private void sendResult(
+			CommandSender sender,
+			TradeVolumeGrouping grouping,
+			@Nullable TradeVolumePage result
+	) {
+		if (result == null) return;
+
+		List<? extends TradeVolume> entries = result.getEntries();
+		if (entries.isEmpty()) {
+			TextUtils.sendMessage(sender, Messages.tradeHistoryNoEntries,
+					"page", result.getPage()
+			);
+		} else {
+			TextUtils.sendMessage(sender, Messages.tradeHistoryHeader,
+					"grouping", grouping.name().toLowerCase(Locale.ROOT),
+					"page", result.getPage()
+			);
+			int rank = (result.getPage() - 1) * ENTRIES_PER_PAGE;
+			for (TradeVolume entry : entries) {
+				rank++;
+				TextUtils.sendMessage(sender, Messages.tradeHistoryEntry,
+						"rank", rank,
+						"key", entry.getKey(),
+						"label", entry.getLabel(),
+						"trades", entry.getTradeCount(),
+						"items", entry.getResultItemAmount()
+				);
+			}
+			if (result.hasNextPage()) {
+				TextUtils.sendMessage(sender, Messages.tradeHistoryNextPage,
+						"nextPage", result.getPage() + 1
+				);
+			}
+		}
+
+		if (result.isTruncated()) {
+			TextUtils.sendMessage(sender, Messages.tradeHistoryTruncated,
+					"scannedTrades", result.getScannedTrades()
+			);
+		}
+	}
+}
@@ -1,24 +1,30 @@
 package com.nisovin.shopkeepers.commands.shopkeepers;
 
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 
 import org.bukkit.command.CommandSender;
 
-import com.nisovin.shopkeepers.api.ShopkeepersAPI;
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.commands.lib.Command;
 import com.nisovin.shopkeepers.commands.lib.CommandException;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
 import com.nisovin.shopkeepers.commands.lib.context.CommandContextView;
+import com.nisovin.shopkeepers.commands.util.ShopkeeperCommandJob;
 import com.nisovin.shopkeepers.debug.DebugOptions;
 import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.logging.Log;
 
 class CommandUpdateItems extends Command {
 
-	CommandUpdateItems() {
+	private final SKShopkeepersPlugin plugin;
+
+	CommandUpdateItems(SKShopkeepersPlugin plugin) {
 		super("updateItems");
+		this.plugin = plugin;
 
 		this.setPermission(ShopkeepersPlugin.UPDATE_ITEMS_PERMISSION);
 
@@ -30,13 +36,62 @@ class CommandUpdateItems extends Command {
 	protected void execute(CommandInput input, CommandContextView context) throws CommandException {
 		CommandSender sender = input.getSender();
 
-		long startNanos = System.nanoTime();
-		int updatedItems = ShopkeepersAPI.updateItems();
-		long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		// Note: Not safe to be called from inside inventory events!
+		// Players cannot open the UIs of shopkeepers until the job has ended.
+		int updatedSettingsItems = plugin.startItemUpdates();
+
+		// Update the items of the shopkeepers over the course of several ticks:
+		new UpdateItemsJob(
+				sender,
+				plugin.getShopkeeperRegistry().getAllShopkeepers(),
+				updatedSettingsItems
+		).submit();
+	}
+
+	private final class UpdateItemsJob extends ShopkeeperCommandJob<AbstractShopkeeper> {
+
+		private final long startNanos = System.nanoTime();
+		private final int updatedSettingsItems;
+		private int updatedShopkeeperItems = 0;
+
+		UpdateItemsJob(
+				CommandSender sender,
+				Collection<? extends AbstractShopkeeper> shopkeepers,
+				int updatedSettingsItems
+		) {
+			super(plugin, "updateItems", sender, shopkeepers);
+			this.updatedSettingsItems = updatedSettingsItems;
+		}
+
+		@Override
+		protected void process(AbstractShopkeeper shopkeeper) {
+			// Skip the shopkeeper if it no longer exists:
+			if (!shopkeeper.isValid()) return;
+
+			updatedShopkeeperItems += shopkeeper.updateItems();
+		}
+
+		@Override
+		protected void onEnded() {
+			plugin.endItemUpdates();
+		}
+
+		@Override
+		protected void save() {
+			if (updatedShopkeeperItems > 0) {
+				super.save();
+			}
+		}
+
+		@Override
+		protected void sendResult() {
+			int updatedItems = updatedSettingsItems + updatedShopkeeperItems;
+			long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
 
-		Log.debug(DebugOptions.itemUpdates, "Updated " + updatedItems + " items (" + durationMillis
-				+ " ms).");
+			Log.debug(DebugOptions.itemUpdates, "Updated " + updatedItems + " items ("
+					+ durationMillis + " ms).");
 
-		TextUtils.sendMessage(sender, Messages.itemsUpdated, "count", updatedItems);
+			TextUtils.sendMessage(sender, Messages.itemsUpdated, "count", updatedItems);
+		}
 	}
 }
@@ -82,7 +82,8 @@ public class ShopkeepersCommand extends BaseCommand {
 		childCommands.register(new CommandGiveCurrency());
 		childCommands.register(new CommandSetCurrency());
 		childCommands.register(new CommandConvertItems());
-		childCommands.register(new CommandUpdateItems());
+		childCommands.register(new CommandUpdateItems(plugin));
+		childCommands.register(new CommandCancelJobs(plugin));
 		childCommands.register(new CommandRemote());
 		childCommands.register(new CommandEdit());
 		childCommands.register(new CommandTeleport());
@@ -91,6 +92,7 @@ public class ShopkeepersCommand extends BaseCommand {
 		childCommands.register(new CommandSetTradedCommand());
 		childCommands.register(new CommandSetForHire());
 		childCommands.register(new CommandSnapshot(confirmations));
+		childCommands.register(new CommandTrades(plugin.getTradeHistory()));
 		childCommands.register(new CommandEditVillager());
 		childCommands.register(new CommandEggEdit());
 		// Hidden commands:
@@ -103,6 +105,7 @@ public class ShopkeepersCommand extends BaseCommand {
 		childCommands.register(new CommandCheckItem());
 		childCommands.register(new CommandYaml());
 		childCommands.register(new CommandDebugCreateShops(plugin));
+		childCommands.register(new CommandDebugLoadTest(plugin, confirmations));
 		childCommands.register(new CommandTestDamage(plugin));
 		childCommands.register(new CommandTestSpawn(plugin));
 	}
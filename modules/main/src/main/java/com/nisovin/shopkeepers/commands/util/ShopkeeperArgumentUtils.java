@@ -30,6 +30,7 @@ import com.nisovin.shopkeepers.commands.lib.util.ObjectMatcher;
 import com.nisovin.shopkeepers.container.ShopContainers;
 import com.nisovin.shopkeepers.container.protection.ProtectedContainers;
 import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.text.Text;
 import com.nisovin.shopkeepers.util.java.StringUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
@@ -318,6 +319,9 @@ public final class ShopkeeperArgumentUtils {
 	// which stores the player uuids and names of all shop owners found that match the given target
 	// player name. If this contains more than one entry then the target player name is ambiguous.
 	// The result contains the shops of all those matching players then.
+	// The found shops are sorted by their ids. If the shops of a single owner are found, the result
+	// is an unmodifiable view on the registry's index of that owner's shops: Callers that modify
+	// the shops, or that use the result at a later time, need to copy it first.
 	public static OwnedPlayerShopsResult getOwnedPlayerShops(
 			@Nullable UUID targetPlayerUUID,
 			@Nullable String targetPlayerName
@@ -325,37 +329,35 @@ public final class ShopkeeperArgumentUtils {
 		Validate.isTrue(targetPlayerUUID != null || targetPlayerName != null,
 				"targetPlayerUUID and targetPlayerName are both null");
 
+		SKShopkeeperRegistry shopkeeperRegistry = SKShopkeepersPlugin.getInstance()
+				.getShopkeeperRegistry();
 		String actualTargetPlayerName = targetPlayerName;
 
 		// Keep track if there are multiple shop owners with matching name:
 		Map<UUID, String> matchingShopOwners = new LinkedHashMap<>();
 
 		// Search for shops owned by the specified player:
-		List<PlayerShopkeeper> shops = new ArrayList<>();
-		for (Shopkeeper shopkeeper : ShopkeepersAPI.getShopkeeperRegistry().getAllShopkeepers()) {
-			if (!(shopkeeper instanceof PlayerShopkeeper)) {
-				continue;
+		List<? extends PlayerShopkeeper> shops;
+		if (targetPlayerUUID != null) {
+			// We search for shops with matching owner uuid:
+			shops = shopkeeperRegistry.getPlayerShopkeepersByOwner(targetPlayerUUID);
+			if (!shops.isEmpty()) {
+				// The input target player name may be missing or differ in case.
+				// Keep track of the owner's actual name:
+				actualTargetPlayerName = shops.get(shops.size() - 1).getOwnerName();
 			}
-
-			PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
-			UUID shopOwnerUUID = playerShop.getOwnerUUID(); // Not null
-			String shopOwnerName = playerShop.getOwnerName(); // Not null
-			if (targetPlayerUUID != null) {
-				// We search for shops with matching owner uuid:
-				if (targetPlayerUUID.equals(shopOwnerUUID)) {
-					shops.add(playerShop);
-
-					// The input target player name may be missing or differ in case.
-					// Keep track of the owner's actual name:
-					actualTargetPlayerName = shopOwnerName;
-				}
-			} else {
-				assert targetPlayerName != null;
+		} else {
+			assert targetPlayerName != null;
+			// The owner names are not indexed: Check all player shops for a matching owner name.
+			List<PlayerShopkeeper> matchingShops = new ArrayList<>();
+			for (PlayerShopkeeper playerShop : shopkeeperRegistry.getAllPlayerShopkeepers()) {
+				UUID shopOwnerUUID = playerShop.getOwnerUUID(); // Not null
+				String shopOwnerName = playerShop.getOwnerName(); // Not null
 				// Check for matching name:
 				if (shopOwnerName.equalsIgnoreCase(targetPlayerName)) {
 					// Note: If there exist multiple players which match the given name, the result
 					// will include the shops of all of them.
-					shops.add(playerShop);
+					matchingShops.add(playerShop);
 
 					// The input target player name may differ in case.
 					// Keep track of the owner's actual name:
@@ -365,6 +367,7 @@ public final class ShopkeeperArgumentUtils {
 					matchingShopOwners.putIfAbsent(shopOwnerUUID, shopOwnerName);
 				}
 			}
+			shops = matchingShops;
 		}
 		return new OwnedPlayerShopsResult(
 				targetPlayerUUID,
@@ -0,0 +1,112 @@
+package com.nisovin.shopkeepers.commands.util;
+
+import java.util.Collection;
+
+import org.bukkit.command.CommandSender;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.taskqueue.TimeSlicedJob;
+
+/**
+ * A {@link TimeSlicedJob} that processes shopkeepers on behalf of a command sender.
+ * <p>
+ * The sender is periodically informed about the progress of the job. Once the job ends, either
+ * because all shopkeepers have been processed or because the job has been cancelled (e.g. due to a
+ * reload of the plugin), the shopkeepers are saved once and the sender is informed about the
+ * result.
+ * 
+ * @param <T>
+ *            the shopkeeper type
+ */
+public abstract class ShopkeeperCommandJob<T extends Shopkeeper> extends TimeSlicedJob<T> {
+
+	protected final SKShopkeepersPlugin plugin;
+	protected final CommandSender sender;
+
+	/**
+	 * Creates a new {@link ShopkeeperCommandJob}.
+	 * 
+	 * @param plugin
+	 *            the plugin, not <code>null</code>
+	 * @param name
+	 *            the name of the job, used for logging, not <code>null</code>
+	 * @param sender
+	 *            the command sender, not <code>null</code>
+	 * @param shopkeepers
+	 *            the shopkeepers to process, not <code>null</code>, copied
+	 */
+	protected ShopkeeperCommandJob(
+			SKShopkeepersPlugin plugin,
+			String name,
+			CommandSender sender,
+			Collection<? extends T> shopkeepers
+	) {
+		super(name, shopkeepers);
+		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(sender, "sender is null");
+		this.plugin = plugin;
+		this.sender = sender;
+	}
+
+	/**
+	 * Submits this job to the {@link SKShopkeepersPlugin#getTimeSlicedJobRunner() job runner} of
+	 * the plugin.
+	 */
+	public final void submit() {
+		plugin.getTimeSlicedJobRunner().submit(this);
+	}
+
+	@Override
+	protected void onProgress() {
+		TextUtils.sendMessage(sender, Messages.bulkOperationProgress,
+				"processed", this.getProcessedCount(),
+				"total", this.getTotalCount()
+		);
+	}
+
+	@Override
+	protected final void onCompleted() {
+		this.onEnded();
+		this.save();
+		this.sendResult();
+	}
+
+	@Override
+	protected final void onCancelled() {
+		this.onEnded();
+		this.save();
+		TextUtils.sendMessage(sender, Messages.bulkOperationCancelled,
+				"processed", this.getProcessedCount(),
+				"total", this.getTotalCount()
+		);
+		this.sendResult();
+	}
+
+	/**
+	 * This is invoked once when the job ends, even if it has been cancelled, before the changes of
+	 * this job are {@link #save() saved}.
+	 */
+	protected void onEnded() {
+	}
+
+	/**
+	 * Saves the changes of this job.
+	 * <p>
+	 * This is invoked once when the job ends. By default, this triggers a save of the shopkeepers.
+	 */
+	protected void save() {
+		plugin.getShopkeeperStorage().save();
+	}
+
+	/**
+	 * Informs the sender about the result of this job.
+	 * <p>
+	 * This is invoked once when the job ends, even if it has been cancelled. In that case, the
+	 * result only covers the shopkeepers that have been processed until then.
+	 */
+	protected abstract void sendResult();
+}
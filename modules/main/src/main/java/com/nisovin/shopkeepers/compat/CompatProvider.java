@@ -1,5 +1,7 @@
 package com.nisovin.shopkeepers.compat;
 
+import java.util.function.Predicate;
+
 import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Chicken;
 import org.bukkit.entity.Cow;
@@ -114,6 +116,26 @@ public interface CompatProvider {
 			@ReadOnly @Nullable ItemStack required
 	);
 
+	/**
+	 * Creates a reusable matcher that checks if provided item stacks
+	 * {@link #matches(ItemStack, ItemStack) match} the given <code>required</code> item stack.
+	 * <p>
+	 * Implementations can use this to prepare the data of the required item stack once, instead of
+	 * for every comparison.
+	 * <p>
+	 * The given item stack is expected to not be modified while the returned matcher is in use.
+	 * 
+	 * @param required
+	 *            the required item stack, not <code>null</code>
+	 * @return the matcher, not <code>null</code>
+	 */
+	public default Predicate<@ReadOnly @Nullable ItemStack> createItemMatcher(
+			@ReadOnly ItemStack required
+	) {
+		Validate.notNull(required, "required is null!");
+		return provided -> this.matches(provided, required);
+	}
+
 	// Note: It is not safe to reduce the number of trading recipes! Reducing the size below the
 	// selected index can crash the client. It's left to the caller to ensure that the number of
 	// recipes does not get reduced, for example by inserting dummy entries.
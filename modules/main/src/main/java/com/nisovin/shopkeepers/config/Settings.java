@@ -43,6 +43,8 @@ import com.nisovin.shopkeepers.shopkeeper.TradingRecipeDraft;
 import com.nisovin.shopkeepers.shopobjects.living.types.MagmaCubeShop;
 import com.nisovin.shopkeepers.shopobjects.living.types.SlimeShop;
 import com.nisovin.shopkeepers.tradelog.TradeLogStorageType;
+import com.nisovin.shopkeepers.tradelog.csv.CsvDurability;
+import com.nisovin.shopkeepers.tradelog.sqlite.SQLiteSynchronousMode;
 import com.nisovin.shopkeepers.util.bukkit.ConfigUtils;
 import com.nisovin.shopkeepers.util.bukkit.EntityUtils;
 import com.nisovin.shopkeepers.util.bukkit.SoundEffect;
@@ -73,6 +75,8 @@ public class Settings extends Config {
 	 * Shopkeeper Data
 	 */
 	public static boolean saveInstantly = true;
+	// Time budget per tick of bulk operations, such as '/shopkeeper removeAll':
+	public static int bulkOperationTimeBudgetMillis = 10;
 
 	public static boolean convertPlayerItems = false;
 	public static boolean convertAllPlayerItems = true;
@@ -121,6 +125,7 @@ public class Settings extends Config {
 
 	public static boolean protectContainers = true;
 	public static boolean preventItemMovement = true;
+	public static int preventItemMovementCacheSize = 0;
 	public static boolean deleteShopkeeperOnBreakContainer = false;
 
 	public static int playerShopkeeperInactiveDays = 0;
@@ -304,6 +309,9 @@ public class Settings extends Config {
 	public static boolean enableContainerOptionOnPlayerShop = true;
 	public static ItemData containerItem = new ItemData(Material.CHEST);
 
+	public static boolean enableTradeStatisticsButton = true;
+	public static ItemData tradeStatisticsItem = new ItemData(Material.CLOCK);
+
 	public static ItemData tradeNotificationsItem = new ItemData(Material.BELL);
 	public static ItemData deleteItem = new ItemData(Material.BONE);
 
@@ -335,6 +343,7 @@ public class Settings extends Config {
 	public static boolean preventTradingWithOwnShop = true;
 	public static boolean preventTradingWhileOwnerIsOnline = false;
 	public static boolean useStrictItemComparison = false;
+	public static boolean aggregateShiftClickTrades = true;
 
 	public static boolean incrementVillagerStatistics = false;
 	public static boolean simulateVillagerTradingSounds = true;
@@ -362,6 +371,7 @@ public class Settings extends Config {
 	public static boolean notifyShopOwnersAboutTrades = true;
 	public static SoundEffect shopOwnerTradeNotificationSound = new SoundEffect(Sound.ENTITY_EXPERIENCE_ORB_PICKUP)
 			.withVolume(0.25f);
+	public static int shopOwnerTradeNotificationDigestMinutes = 0;
 
 	/*
 	 * Trade Log
@@ -370,6 +380,17 @@ public class Settings extends Config {
 
 	public static int tradeLogMergeDurationTicks = 300; // 15 seconds
 	public static int tradeLogNextMergeTimeoutTicks = 100; // 5 seconds
+	public static int tradeLogMaxPendingTrades = 10000;
+	public static boolean tradeLogJsonLines = false;
+	public static int tradeLogSinkBufferSize = 10000;
+
+	public static SQLiteSynchronousMode tradeLogSqliteSynchronous = SQLiteSynchronousMode.NORMAL;
+	public static CsvDurability tradeLogCsvDurability = CsvDurability.BATCH;
+	public static int tradeLogCsvSyncIntervalSeconds = 60;
+	public static int tradeLogCompressAfterDays = 0;
+	public static int tradeLogArchiveAfterDays = 0;
+	public static int tradeLogQueryMaxRows = 1000000;
+	public static int tradeLogQueryTimeoutSeconds = 10;
 
 	public static boolean logItemMetadata = false;
 
@@ -907,6 +928,16 @@ public class Settings extends Config {
 					+ "but 'add-shop-creation-item-tag' is disabled! Intended?");
 		}
 
+		if (bulkOperationTimeBudgetMillis <= 0) {
+			Log.warning(this.getLogPrefix()
+					+ "'bulk-operation-time-budget-millis' has to be positive.");
+			bulkOperationTimeBudgetMillis = 1;
+		}
+		if (preventItemMovementCacheSize < 0) {
+			Log.warning(this.getLogPrefix()
+					+ "'prevent-item-movement-cache-size' cannot be negative.");
+			preventItemMovementCacheSize = 0;
+		}
 		if (maxTradesPages < 1) {
 			Log.warning(this.getLogPrefix() + "'max-trades-pages' can not be less than 1!");
 			maxTradesPages = 1;
@@ -922,6 +953,11 @@ public class Settings extends Config {
 			taxRate = 100;
 		}
 
+		if (shopOwnerTradeNotificationDigestMinutes < 0) {
+			Log.warning(this.getLogPrefix()
+					+ "'shop-owner-trade-notification-digest-minutes' cannot be negative.");
+			shopOwnerTradeNotificationDigestMinutes = 0;
+		}
 		if (tradeLogMergeDurationTicks < 0) {
 			Log.warning(this.getLogPrefix() + "'trade-log-merge-duration-ticks' cannot be negative.");
 			tradeLogMergeDurationTicks = 0;
@@ -930,6 +966,38 @@ public class Settings extends Config {
 			Log.warning(this.getLogPrefix() + "'trade-log-next-merge-timeout-ticks' cannot be negative.");
 			tradeLogNextMergeTimeoutTicks = 0;
 		}
+		if (tradeLogCsvSyncIntervalSeconds < 0) {
+			Log.warning(this.getLogPrefix()
+					+ "'trade-log-csv-sync-interval-seconds' cannot be negative.");
+			tradeLogCsvSyncIntervalSeconds = 0;
+		}
+		if (tradeLogCompressAfterDays < 0) {
+			Log.warning(this.getLogPrefix()
+					+ "'trade-log-compress-after-days' cannot be negative.");
+			tradeLogCompressAfterDays = 0;
+		}
+		if (tradeLogArchiveAfterDays < 0) {
+			Log.warning(this.getLogPrefix()
+					+ "'trade-log-archive-after-days' cannot be negative.");
+			tradeLogArchiveAfterDays = 0;
+		}
+		if (tradeLogMaxPendingTrades <= 0) {
+			Log.warning(this.getLogPrefix() + "'trade-log-max-pending-trades' has to be positive.");
+			tradeLogMaxPendingTrades = 1;
+		}
+		if (tradeLogSinkBufferSize <= 0) {
+			Log.warning(this.getLogPrefix() + "'trade-log-sink-buffer-size' has to be positive.");
+			tradeLogSinkBufferSize = 1;
+		}
+		if (tradeLogQueryMaxRows <= 0) {
+			Log.warning(this.getLogPrefix() + "'trade-log-query-max-rows' has to be positive.");
+			tradeLogQueryMaxRows = 1;
+		}
+		if (tradeLogQueryTimeoutSeconds <= 0) {
+			Log.warning(this.getLogPrefix()
+					+ "'trade-log-query-timeout-seconds' has to be positive.");
+			tradeLogQueryTimeoutSeconds = 1;
+		}
 		// Note: If tradeLogNextMergeTimeoutTicks is greater than or equal to
 		// tradeLogMergeDurationTicks, it has no effect. However, we do not print a warning in this
 		// case to allow tradeLogMergeDurationTicks to be easily adjusted inside the config without
@@ -125,6 +125,6 @@ class ContainerProtectionListener implements Listener {
 
 	// Block list has to be modifiable.
 	private void removeProtectedChests(List<? extends Block> blockList) {
-		blockList.removeIf(protectedContainers::isProtectedContainer);
+		protectedContainers.removeProtectedContainers(blockList);
 	}
 }
@@ -1,26 +1,76 @@
 package com.nisovin.shopkeepers.container.protection;
 
+import java.util.Map;
+
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.inventory.InventoryMoveItemEvent;
 import org.bukkit.inventory.Inventory;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.container.ShopContainers;
+import com.nisovin.shopkeepers.util.bukkit.BlockLocation;
+import com.nisovin.shopkeepers.util.bukkit.MutableBlockLocation;
+import com.nisovin.shopkeepers.util.java.LRUCache;
 
 /**
  * Prevents item movement from/to protected containers. Can be disabled via a config setting.
+ * <p>
+ * This is invoked for every item transfer of every hopper, dropper, etc. Inventories that are not
+ * located inside a chunk that contains protected containers are therefore rejected early, based on
+ * their coordinates alone and without accessing their blocks.
+ * <p>
+ * Optionally, the protection state of the remaining inventory locations is cached, keyed by their
+ * block location and validated by their block type. The cache is cleared whenever a container is
+ * added or removed, and cached entries are removed when a block is placed or broken at their
+ * location.
  */
 class InventoryMoveItemListener implements Listener {
 
+	private static class CachedProtection {
+
+		private final Material blockType;
+		private final boolean isProtected;
+
+		CachedProtection(Material blockType, boolean isProtected) {
+			this.blockType = blockType;
+			this.isProtected = isProtected;
+		}
+	}
+
 	private final ProtectedContainers protectedContainers;
+	// Does not need to be reset after every use.
+	private final MutableBlockLocation sharedBlockLocation = new MutableBlockLocation();
+	// Null if the cache is disabled:
+	private @Nullable Map<BlockLocation, CachedProtection> cache = null;
 
 	InventoryMoveItemListener(ProtectedContainers protectedContainers) {
 		this.protectedContainers = protectedContainers;
 	}
 
+	void onEnable() {
+		int cacheSize = Settings.preventItemMovementCacheSize;
+		cache = (cacheSize > 0) ? new LRUCache<>(cacheSize) : null;
+	}
+
+	void onDisable() {
+		cache = null;
+	}
+
+	void invalidateCache() {
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
 	@EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
 	void onInventoryMoveItem(InventoryMoveItemEvent event) {
 		assert event.getSource() != null && event.getDestination() != null;
@@ -36,9 +86,76 @@ class InventoryMoveItemListener implements Listener {
 		// inventories this creates a snapshot of the block's BlockState.
 		Location inventoryLocation = inventory.getLocation(); // can be null
 		if (inventoryLocation == null) return false;
+		World world = inventoryLocation.getWorld();
+		if (world == null) return false;
+
+		// Fast reject based on the chunk, without accessing the block:
+		String worldName = world.getName();
+		int blockX = inventoryLocation.getBlockX();
+		int blockZ = inventoryLocation.getBlockZ();
+		if (!protectedContainers.mightBeProtected(worldName, blockX, blockZ)) return false;
+
 		Block block = inventoryLocation.getBlock(); // not null
-		if (!ShopContainers.isSupportedContainer(block.getType())) return false;
+		Material blockType = block.getType();
+		Map<BlockLocation, CachedProtection> cache = this.cache;
+		if (cache == null) {
+			return this.isProtectedContainer(block, blockType);
+		}
+
+		sharedBlockLocation.set(worldName, blockX, inventoryLocation.getBlockY(), blockZ);
+		CachedProtection cached = cache.get(sharedBlockLocation);
+		if (cached != null && cached.blockType == blockType) {
+			return cached.isProtected;
+		}
+
+		boolean isProtected = this.isProtectedContainer(block, blockType);
+		cache.put(sharedBlockLocation.immutable(), new CachedProtection(blockType, isProtected));
+		return isProtected;
+	}
+
+	private boolean isProtectedContainer(Block block, Material blockType) {
+		if (!ShopContainers.isSupportedContainer(blockType)) return false;
 		// Also checks for protected connected chests (double chests):
 		return protectedContainers.isContainerProtected(block, null);
 	}
+
+	// Placed or broken chests can affect the protection of connected chests:
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockPlace(BlockPlaceEvent event) {
+		this.invalidateCachedBlock(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockBreak(BlockBreakEvent event) {
+		this.invalidateCachedBlock(event.getBlock());
+	}
+
+	private void invalidateCachedBlock(Block block) {
+		Map<BlockLocation, CachedProtection> cache = this.cache;
+		if (cache == null || cache.isEmpty()) return;
+
+		String worldName = block.getWorld().getName();
+		int x = block.getX();
+		int y = block.getY();
+		int z = block.getZ();
+		// The block itself and the horizontally adjacent blocks, which may have been connected to
+		// the block:
+		this.invalidateCachedBlock(cache, worldName, x, y, z);
+		this.invalidateCachedBlock(cache, worldName, x + 1, y, z);
+		this.invalidateCachedBlock(cache, worldName, x - 1, y, z);
+		this.invalidateCachedBlock(cache, worldName, x, y, z + 1);
+		this.invalidateCachedBlock(cache, worldName, x, y, z - 1);
+	}
+
+	private void invalidateCachedBlock(
+			Map<BlockLocation, CachedProtection> cache,
+			String worldName,
+			int x,
+			int y,
+			int z
+	) {
+		sharedBlockLocation.set(worldName, x, y, z);
+		cache.remove(sharedBlockLocation);
+	}
 }
@@ -0,0 +1,97 @@
+package com.nisovin.shopkeepers.container.protection;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.util.bukkit.BlockLocation;
+import com.nisovin.shopkeepers.util.java.LongHashMap;
+
+/**
+ * Keeps track of the chunks that contain protected containers, or blocks that may be protected by
+ * being connected to a protected container.
+ * <p>
+ * This allows to quickly rule out that a block is protected, based on its coordinates alone and
+ * without accessing the block. Since chests can form double chests with adjacent chests, the chunks
+ * of the horizontally adjacent blocks of a protected container are tracked as well.
+ * <p>
+ * The chunks are stored per world, keyed by their packed chunk coordinates, together with the
+ * number of containers that they are tracked for. The chunk keys are not boxed, neither when
+ * updating the chunks nor when checking blocks.
+ */
+final class ProtectedChunks {
+
+	private static long getChunkKey(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	// World name -> chunk key -> number of protected containers
+	private final Map<String, LongHashMap<Integer>> protectedChunks = new HashMap<>();
+
+	ProtectedChunks() {
+	}
+
+	void clear() {
+		protectedChunks.clear();
+	}
+
+	void add(BlockLocation containerLocation) {
+		this.update(containerLocation, 1);
+	}
+
+	void remove(BlockLocation containerLocation) {
+		this.update(containerLocation, -1);
+	}
+
+	private void update(BlockLocation containerLocation, int delta) {
+		String worldName = Unsafe.assertNonNull(containerLocation.getWorldName());
+		LongHashMap<Integer> worldChunks = protectedChunks.computeIfAbsent(
+				worldName,
+				key -> new LongHashMap<>()
+		);
+		assert worldChunks != null;
+
+		int x = containerLocation.getX();
+		int z = containerLocation.getZ();
+		int minChunkX = ChunkCoords.fromBlock(x - 1);
+		int maxChunkX = ChunkCoords.fromBlock(x + 1);
+		int minChunkZ = ChunkCoords.fromBlock(z - 1);
+		int maxChunkZ = ChunkCoords.fromBlock(z + 1);
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+				long chunkKey = getChunkKey(chunkX, chunkZ);
+				Integer count = worldChunks.get(chunkKey);
+				int newCount = (count != null ? count : 0) + delta;
+				if (newCount <= 0) {
+					worldChunks.remove(chunkKey);
+				} else {
+					worldChunks.put(chunkKey, newCount);
+				}
+			}
+		}
+
+		if (worldChunks.isEmpty()) {
+			protectedChunks.remove(worldName);
+		}
+	}
+
+	/**
+	 * Checks if the chunk of the specified block might contain protected blocks.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param blockX
+	 *            the block's x coordinate
+	 * @param blockZ
+	 *            the block's z coordinate
+	 * @return <code>false</code> if the block is definitely not protected
+	 */
+	boolean mightBeProtected(String worldName, int blockX, int blockZ) {
+		LongHashMap<Integer> worldChunks = protectedChunks.get(worldName);
+		if (worldChunks == null) return false;
+
+		long chunkKey = getChunkKey(ChunkCoords.fromBlock(blockX), ChunkCoords.fromBlock(blockZ));
+		return worldChunks.containsKey(chunkKey);
+	}
+}
@@ -2,9 +2,7 @@ package com.nisovin.shopkeepers.container.protection;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -23,7 +21,7 @@ import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.container.ShopContainers;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
 import com.nisovin.shopkeepers.util.bukkit.BlockLocation;
-import com.nisovin.shopkeepers.util.bukkit.MutableBlockLocation;
+import com.nisovin.shopkeepers.util.bukkit.WorldBlockMap;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 
@@ -64,13 +62,11 @@ import com.nisovin.shopkeepers.util.java.Validate;
  */
 public class ProtectedContainers {
 
-	// Does not need to be reset after every use.
-	private static final MutableBlockLocation sharedBlockLocation = new MutableBlockLocation();
-
 	private final SKShopkeepersPlugin plugin;
 	private final ContainerProtectionListener containerProtectionListener = new ContainerProtectionListener(Unsafe.initialized(this));
 	private final InventoryMoveItemListener inventoryMoveItemListener = new InventoryMoveItemListener(Unsafe.initialized(this));
-	private final Map<BlockLocation, List<AbstractPlayerShopkeeper>> protectedContainers = new HashMap<>();
+	private final WorldBlockMap<List<AbstractPlayerShopkeeper>> protectedContainers = new WorldBlockMap<>();
+	private final ProtectedChunks protectedChunks = new ProtectedChunks();
 
 	public ProtectedContainers(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
@@ -80,6 +76,7 @@ public class ProtectedContainers {
 		if (Settings.protectContainers) {
 			Bukkit.getPluginManager().registerEvents(containerProtectionListener, plugin);
 			if (Settings.preventItemMovement) {
+				inventoryMoveItemListener.onEnable();
 				Bukkit.getPluginManager().registerEvents(inventoryMoveItemListener, plugin);
 			}
 		}
@@ -89,40 +86,55 @@ public class ProtectedContainers {
 		// Cleanup:
 		HandlerList.unregisterAll(containerProtectionListener);
 		HandlerList.unregisterAll(inventoryMoveItemListener);
+		inventoryMoveItemListener.onDisable();
 		protectedContainers.clear();
-	}
-
-	private BlockLocation getSharedKey(String worldName, int x, int y, int z) {
-		sharedBlockLocation.set(worldName, x, y, z);
-		return sharedBlockLocation;
+		protectedChunks.clear();
 	}
 
 	public void addContainer(BlockLocation location, AbstractPlayerShopkeeper shopkeeper) {
 		Validate.notNull(location, "location is null");
 		Validate.notNull(shopkeeper, "shopkeeper is null");
-		List<AbstractPlayerShopkeeper> shopkeepers = protectedContainers.computeIfAbsent(
-				location.immutable(),
-				key -> new ArrayList<>(1)
-		);
-		assert shopkeepers != null;
+		List<AbstractPlayerShopkeeper> shopkeepers = protectedContainers.get(location);
+		if (shopkeepers == null) {
+			shopkeepers = new ArrayList<>(1);
+			protectedContainers.put(location, shopkeepers);
+		}
 		shopkeepers.add(shopkeeper);
+		protectedChunks.add(location);
+		inventoryMoveItemListener.invalidateCache();
 	}
 
 	public void removeContainer(BlockLocation location, AbstractPlayerShopkeeper shopkeeper) {
 		Validate.notNull(location, "location is null");
 		Validate.notNull(shopkeeper, "shopkeeper is null");
-		// This operation either updates the value inside the Map, or removes it. It does not insert
-		// a new entry for the passed key. We can therefore safely use the given location, without
-		// first creating an immutable copy of it.
-		protectedContainers.computeIfPresent(location, (key, shopkeepers) -> {
-			shopkeepers.remove(shopkeeper);
-			if (shopkeepers.isEmpty()) {
-				// TODO Requires uncheckedNull due to Checker Framework limitation
-				return Unsafe.uncheckedNull(); // Removes the mapping
-			} else {
-				return shopkeepers; // Keeps the updated mapping
-			}
-		});
+		List<AbstractPlayerShopkeeper> shopkeepers = protectedContainers.get(location);
+		if (shopkeepers == null) return;
+
+		if (shopkeepers.remove(shopkeeper)) {
+			protectedChunks.remove(location);
+			inventoryMoveItemListener.invalidateCache();
+		}
+		if (shopkeepers.isEmpty()) {
+			protectedContainers.remove(location);
+		}
+	}
+
+	/**
+	 * Quickly checks if the specified block might be protected, based on its coordinates alone.
+	 * <p>
+	 * This only checks whether the block is located in or near a chunk that contains protected
+	 * containers, and does not access the block.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param blockX
+	 *            the block's x coordinate
+	 * @param blockZ
+	 *            the block's z coordinate
+	 * @return <code>false</code> if the block is definitely not protected
+	 */
+	public boolean mightBeProtected(String worldName, int blockX, int blockZ) {
+		return protectedChunks.mightBeProtected(worldName, blockX, blockZ);
 	}
 
 	// Gets the shopkeepers that are directly using the container at the specified location:
@@ -132,8 +144,7 @@ public class ProtectedContainers {
 			int y,
 			int z
 	) {
-		BlockLocation key = this.getSharedKey(worldName, x, y, z);
-		return protectedContainers.get(key);
+		return protectedContainers.get(worldName, x, y, z);
 	}
 
 	// Gets the shopkeepers that are directly using the specified container block:
@@ -295,6 +306,30 @@ public class ProtectedContainers {
 		return this.isContainerProtected(block, player);
 	}
 
+	/**
+	 * Removes all protected shop containers from the given list of blocks.
+	 * <p>
+	 * This is meant for the block lists of explosions, which can contain a large number of blocks.
+	 * The blocks are expected to all be located in the same world. Blocks that are not located in a
+	 * chunk that contains protected containers are ruled out based on their coordinates alone,
+	 * without accessing the block.
+	 * 
+	 * @param blocks
+	 *            the blocks, has to be modifiable
+	 */
+	public void removeProtectedContainers(List<? extends Block> blocks) {
+		Validate.notNull(blocks, "blocks is null");
+		if (blocks.isEmpty() || protectedContainers.isEmpty()) return;
+
+		String worldName = blocks.get(0).getWorld().getName();
+		blocks.removeIf(block -> {
+			if (!protectedChunks.mightBeProtected(worldName, block.getX(), block.getZ())) {
+				return false;
+			}
+			return this.isProtectedContainer(block);
+		});
+	}
+
 	// Gets the shopkeepers which use the container at the given location (directly or by a
 	// connected chest):
 	public List<? extends PlayerShopkeeper> getShopkeepersUsingContainer(Block containerBlock) {
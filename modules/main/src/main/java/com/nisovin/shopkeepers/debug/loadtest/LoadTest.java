@@ -0,0 +1,523 @@
+package com.nisovin.shopkeepers.debug.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.scheduler.BukkitTask;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.shopkeeper.activation.ShopkeeperChunkActivator;
+import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
+import com.nisovin.shopkeepers.shopobjects.living.LivingEntityAI;
+import com.nisovin.shopkeepers.storage.SKShopkeeperStorage;
+import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.data.persistence.DataStore;
+import com.nisovin.shopkeepers.util.data.persistence.InvalidDataFormatException;
+import com.nisovin.shopkeepers.util.data.persistence.bukkit.BukkitConfigDataStore;
+import com.nisovin.shopkeepers.util.java.FileUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.json.JsonUtils;
+import com.nisovin.shopkeepers.util.logging.Log;
+import com.nisovin.shopkeepers.util.taskqueue.TimeSlicedJob;
+import com.nisovin.shopkeepers.util.timer.Timings;
+
+/**
+ * Measures how the plugin scales with large numbers of shopkeepers.
+ * <p>
+ * The load test generates the data of synthetic shopkeepers according to a
+ * {@link LoadTestProfile}, and writes it directly into the {@link SKShopkeeperStorage}, bypassing
+ * the regular shopkeeper creation. It then measures:
+ * <ul>
+ * <li>The time to save all shopkeepers, and the size of the save file.
+ * <li>The time to reload all shopkeepers from the save file.
+ * <li>The memory usage before the generation and after the reload.
+ * <li>The time to activate the shopkeepers in all loaded chunks.
+ * <li>The chunk activation and living entity AI timings over a number of ticks afterwards.
+ * </ul>
+ * The results are written as a JSON report into the {@value #REPORTS_FOLDER} folder inside the
+ * plugin folder.
+ * <p>
+ * The generation is distributed over several ticks via the plugin's
+ * {@link SKShopkeepersPlugin#getTimeSlicedJobRunner() job runner}. The save, the reload, and the
+ * activation each run in a separate tick, and block the server for their duration. Saving remains
+ * enabled during the generation: The generation pauses while a save is in progress.
+ * <p>
+ * The save file is backed up before the generation, and restored and reloaded once the load test
+ * has ended or has been cancelled. Any other changes to the shopkeepers in the meantime are lost.
+ * This is therefore only meant to be run on dedicated test servers. If the plugin is disabled or
+ * reloaded during the load test, the save file is not restored, but the backup is kept.
+ */
+public final class LoadTest {
+
+	public static final String REPORTS_FOLDER = "load-test";
+	private static final String SAVE_FILE_BACKUP_SUFFIX = ".load-test-backup";
+
+	/**
+	 * Loads the {@link LoadTestProfile}, using the {@value LoadTestProfile#FILE_NAME} file inside
+	 * the plugin folder if it exists.
+	 * 
+	 * @param plugin
+	 *            the plugin, not <code>null</code>
+	 * @param shopkeeperCount
+	 *            the number of shopkeepers to generate
+	 * @param seed
+	 *            the seed of the random generator
+	 * @return the profile
+	 * @throws IOException
+	 *             if the profile file cannot be read
+	 * @throws IllegalArgumentException
+	 *             if the profile is invalid
+	 */
+	public static LoadTestProfile loadProfile(
+			SKShopkeepersPlugin plugin,
+			int shopkeeperCount,
+			long seed
+	) throws IOException {
+		Path profileFile = plugin.getDataFolder().toPath().resolve(LoadTestProfile.FILE_NAME);
+		if (!Files.exists(profileFile)) {
+			return LoadTestProfile.defaults(shopkeeperCount, seed);
+		}
+
+		DataStore config = BukkitConfigDataStore.ofNewYamlConfig();
+		try {
+			config.load(profileFile);
+		} catch (InvalidDataFormatException e) {
+			throw new IOException("Invalid profile file: " + e.getMessage(), e);
+		}
+		return LoadTestProfile.load(config, shopkeeperCount, seed);
+	}
+
+	private final SKShopkeepersPlugin plugin;
+	private final CommandSender sender;
+	private final LoadTestProfile profile;
+	private final Path saveFile;
+	private final Path saveFileBackup;
+	private final Map<String, Object> report = new LinkedHashMap<>();
+
+	private boolean started = false;
+	private boolean ended = false;
+	// Whether the save file existed prior to the load test:
+	private boolean hadSaveFile = false;
+	private long usedMemoryBefore = 0L;
+	private @Nullable GenerationJob generationJob = null;
+	private @Nullable BukkitTask phaseTask = null;
+
+	/**
+	 * Creates a new {@link LoadTest}.
+	 * 
+	 * @param plugin
+	 *            the plugin, not <code>null</code>
+	 * @param sender
+	 *            the command sender that is informed about the progress, not <code>null</code>
+	 * @param profile
+	 *            the profile, not <code>null</code>
+	 */
+	public LoadTest(SKShopkeepersPlugin plugin, CommandSender sender, LoadTestProfile profile) {
+		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(sender, "sender is null");
+		Validate.notNull(profile, "profile is null");
+		this.plugin = plugin;
+		this.sender = sender;
+		this.profile = profile;
+		this.saveFile = plugin.getShopkeeperStorage().getSaveFile();
+		this.saveFileBackup = saveFile.resolveSibling(
+				saveFile.getFileName() + SAVE_FILE_BACKUP_SUFFIX
+		);
+	}
+
+	/**
+	 * Checks if this load test has been started and has not yet ended.
+	 * 
+	 * @return <code>true</code> if this load test is running
+	 */
+	public boolean isRunning() {
+		return started && !ended;
+	}
+
+	/**
+	 * Starts this load test.
+	 * <p>
+	 * This backs up the save file and then starts the generation of the shopkeepers. The save,
+	 * reload, and activation follow in subsequent ticks, and the timings are then measured over the
+	 * {@link LoadTestProfile#getMeasurementTicks() measurement period}.
+	 */
+	public void start() {
+		Validate.State.isTrue(!started, "Already started!");
+		started = true;
+
+		World world = this.getWorld();
+		if (world == null) {
+			this.sendMessage(ChatColor.RED + "World not found: " + profile.getWorldName());
+			ended = true;
+			return;
+		}
+
+		SyntheticShopkeeperGenerator generator;
+		try {
+			generator = new SyntheticShopkeeperGenerator(plugin, profile, world.getName());
+		} catch (IllegalArgumentException e) {
+			this.sendMessage(ChatColor.RED + e.getMessage());
+			ended = true;
+			return;
+		}
+
+		// A remaining backup indicates that the save file of a previous load test could not be
+		// restored. We do not want to replace it with a save file that contains generated
+		// shopkeepers.
+		if (Files.exists(saveFileBackup)) {
+			this.sendMessage(ChatColor.RED + "There is a save file backup of a previous load test: "
+					+ ChatColor.YELLOW + plugin.getDataFolder().toPath().relativize(saveFileBackup)
+					+ ChatColor.RED + ". Restore or remove it first.");
+			ended = true;
+			return;
+		}
+
+		SKShopkeeperStorage storage = plugin.getShopkeeperStorage();
+		SKShopkeeperRegistry shopkeeperRegistry = plugin.getShopkeeperRegistry();
+
+		report.put("profile", profile.toReport());
+		report.put("world", world.getName());
+		report.put("server-version", Bukkit.getVersion());
+		report.put("plugin-version", plugin.getDescription().getVersion());
+		report.put("existing-shopkeepers", shopkeeperRegistry.getAllShopkeepers().size());
+
+		// Back up the save file, including any unsaved changes:
+		storage.saveIfDirtyAndAwaitCompletion();
+		hadSaveFile = Files.exists(saveFile);
+		if (hadSaveFile) {
+			try {
+				FileUtils.copy(saveFile, saveFileBackup);
+			} catch (IOException e) {
+				Log.severe("Load test: Failed to back up the save file!", e);
+				this.sendMessage(ChatColor.RED + "Failed to back up the save file! Check the log.");
+				ended = true;
+				return;
+			}
+		}
+
+		usedMemoryBefore = getUsedMemoryAfterGC();
+
+		this.sendMessage(ChatColor.GREEN + "Generating " + profile.getShopkeeperCount()
+				+ " shopkeepers ...");
+		GenerationJob generationJob = new GenerationJob(generator);
+		this.generationJob = generationJob;
+		plugin.getTimeSlicedJobRunner().submit(generationJob);
+	}
+
+	private final class GenerationJob extends TimeSlicedJob<Integer> {
+
+		private final SyntheticShopkeeperGenerator generator;
+		// Excludes the time between the ticks:
+		private long generationNanos = 0L;
+
+		GenerationJob(SyntheticShopkeeperGenerator generator) {
+			super("loadTestGeneration", IntStream.range(0, profile.getShopkeeperCount())
+					.boxed()
+					.collect(Collectors.toList())
+			);
+			this.generator = generator;
+		}
+
+		@Override
+		protected boolean isReady() {
+			// The save data cannot be modified during a save:
+			return !plugin.getShopkeeperStorage().isSaving();
+		}
+
+		@Override
+		protected void process(Integer index) {
+			SKShopkeeperStorage storage = plugin.getShopkeeperStorage();
+			long startNanos = System.nanoTime();
+			int id = storage.getNextShopkeeperId();
+			generator.generate(id, storage.createUnloadedShopkeeperData(id));
+			generationNanos += System.nanoTime() - startNanos;
+		}
+
+		@Override
+		protected void onProgress() {
+			LoadTest.this.sendMessage(ChatColor.GREEN + "Generated " + ChatColor.YELLOW
+					+ this.getProcessedCount() + ChatColor.GREEN + " of " + this.getTotalCount()
+					+ " shopkeepers ...");
+		}
+
+		@Override
+		protected void onCompleted() {
+			generationJob = null;
+			report.put("generation-ms", TimeUnit.NANOSECONDS.toMillis(generationNanos));
+			report.put("generated", generator.toReport());
+			LoadTest.this.runNextPhase(LoadTest.this::save);
+		}
+
+		@Override
+		protected void onCancelled() {
+			generationJob = null;
+			LoadTest.this.cancel();
+		}
+	}
+
+	// Runs the given phase in the next tick.
+	private void runNextPhase(Runnable phase) {
+		phaseTask = SchedulerUtils.runTaskOrOmit(plugin, phase);
+		if (phaseTask == null) {
+			// The plugin is being disabled:
+			this.cancel();
+		}
+	}
+
+	private void save() {
+		phaseTask = null;
+		SKShopkeeperStorage storage = plugin.getShopkeeperStorage();
+
+		this.sendMessage(ChatColor.GREEN + "Saving ...");
+		long startNanos = System.nanoTime();
+		storage.saveImmediate();
+		report.put("save-ms", getMillisSince(startNanos));
+		report.put("save-file-bytes", getFileSize(saveFile));
+
+		this.runNextPhase(this::reload);
+	}
+
+	private void reload() {
+		phaseTask = null;
+		SKShopkeeperStorage storage = plugin.getShopkeeperStorage();
+		SKShopkeeperRegistry shopkeeperRegistry = plugin.getShopkeeperRegistry();
+
+		this.sendMessage(ChatColor.GREEN + "Reloading ...");
+		plugin.getUIRegistry().abortUISessions();
+		shopkeeperRegistry.getChunkActivator().deactivateShopkeepersInAllWorlds();
+		long startNanos = System.nanoTime();
+		boolean loadingSuccessful = storage.reload();
+		report.put("load-ms", getMillisSince(startNanos));
+		report.put("load-successful", loadingSuccessful);
+		report.put("loaded-shopkeepers", shopkeeperRegistry.getAllShopkeepers().size());
+		if (!loadingSuccessful) {
+			Log.severe("Load test: The loading of the shopkeepers failed!");
+		}
+
+		long usedMemoryAfter = getUsedMemoryAfterGC();
+		Map<String, Object> memoryReport = new LinkedHashMap<>();
+		memoryReport.put("used-before-bytes", usedMemoryBefore);
+		memoryReport.put("used-after-load-bytes", usedMemoryAfter);
+		memoryReport.put(
+				"per-generated-shopkeeper-bytes",
+				(usedMemoryAfter - usedMemoryBefore) / profile.getShopkeeperCount()
+		);
+		report.put("memory", memoryReport);
+
+		this.runNextPhase(this::activate);
+	}
+
+	private void activate() {
+		phaseTask = null;
+		SKShopkeeperRegistry shopkeeperRegistry = plugin.getShopkeeperRegistry();
+
+		this.resetTimings();
+		long startNanos = System.nanoTime();
+		shopkeeperRegistry.getChunkActivator().activateShopkeepersInAllWorlds();
+		report.put("activation-ms", getMillisSince(startNanos));
+		report.put("active-shopkeepers", shopkeeperRegistry.getActiveShopkeepers().size());
+
+		// Measure the timings while the server is running:
+		this.resetTimings();
+		this.sendMessage(ChatColor.GREEN + "Measuring the timings for "
+				+ profile.getMeasurementTicks() + " ticks ...");
+		phaseTask = SchedulerUtils.runTaskLaterOrOmit(
+				plugin,
+				this::end,
+				profile.getMeasurementTicks()
+		);
+		if (phaseTask == null) {
+			this.end();
+		}
+	}
+
+	/**
+	 * Cancels this load test, if it is still running.
+	 * <p>
+	 * No report is written. The backed up save file is restored, unless the plugin is being
+	 * disabled.
+	 */
+	public void cancel() {
+		if (!this.isRunning()) return;
+		ended = true;
+
+		GenerationJob generationJob = this.generationJob;
+		if (generationJob != null) {
+			this.generationJob = null;
+			generationJob.cancel();
+		}
+		BukkitTask phaseTask = this.phaseTask;
+		if (phaseTask != null) {
+			phaseTask.cancel();
+			this.phaseTask = null;
+		}
+
+		this.sendMessage(ChatColor.YELLOW + "Cancelled.");
+		this.restoreSaveFile();
+	}
+
+	private void end() {
+		if (ended) return;
+		ended = true;
+		phaseTask = null;
+
+		this.writeReport();
+		this.restoreSaveFile();
+	}
+
+	private void writeReport() {
+		SKShopkeeperRegistry shopkeeperRegistry = plugin.getShopkeeperRegistry();
+		LivingEntityAI livingEntityAI = plugin.getLivingShops().getLivingEntityAI();
+
+		Map<String, Object> runtimeReport = new LinkedHashMap<>();
+		runtimeReport.put("active-shopkeepers", shopkeeperRegistry.getActiveShopkeepers().size());
+		runtimeReport.put("ai-entities", livingEntityAI.getEntityCount());
+		runtimeReport.put("active-ai-chunks", livingEntityAI.getActiveAIChunksCount());
+		runtimeReport.put("active-ai-entities", livingEntityAI.getActiveAIEntityCount());
+		runtimeReport.put("chunk-activation", toReport(
+				shopkeeperRegistry.getChunkActivator().getChunkActivationTimings()
+		));
+		runtimeReport.put("ai-total", toReport(livingEntityAI.getTotalTimings()));
+		runtimeReport.put("ai-activation", toReport(livingEntityAI.getActivationTimings()));
+		runtimeReport.put("ai-gravity", toReport(livingEntityAI.getGravityTimings()));
+		runtimeReport.put("ai-behavior", toReport(livingEntityAI.getAITimings()));
+		report.put("runtime", runtimeReport);
+
+		Path reportFile = plugin.getDataFolder().toPath()
+				.resolve(REPORTS_FOLDER)
+				.resolve("report_" + LocalDateTime.now().format(FileUtils.DATE_TIME_FORMATTER)
+						+ ".json");
+		try {
+			FileUtils.writeSafely(
+					reportFile,
+					JsonUtils.toPrettyJson(report),
+					StandardCharsets.UTF_8,
+					Log.getLogger(),
+					plugin.getDataFolder().toPath()
+			);
+		} catch (IOException e) {
+			Log.severe("Load test: Failed to write the report!", e);
+			this.sendMessage(ChatColor.RED + "Failed to write the report! Check the log.");
+			return;
+		}
+
+		this.sendMessage(ChatColor.GREEN + "Done! Save: " + ChatColor.YELLOW
+				+ report.get("save-ms") + " ms" + ChatColor.GREEN + ", load: " + ChatColor.YELLOW
+				+ report.get("load-ms") + " ms" + ChatColor.GREEN + ", activation: "
+				+ ChatColor.YELLOW + report.get("activation-ms") + " ms");
+		this.sendMessage(ChatColor.GREEN + "Report: " + ChatColor.YELLOW
+				+ plugin.getDataFolder().toPath().relativize(reportFile));
+	}
+
+	// Replaces the generated shopkeepers with the shopkeepers of the backed up save file.
+	private void restoreSaveFile() {
+		if (!plugin.isEnabled() || plugin.isDisabling()) {
+			// Reloading the restored save file during the plugin disable or reload would delay the
+			// shutdown and reactivate the shopkeepers halfway through it. The storage saves and
+			// unloads the generated shopkeepers instead, and we keep the backup:
+			if (hadSaveFile) {
+				Log.warning("Load test: Could not restore the save file during plugin disable."
+						+ " The previous save file is kept at: " + saveFileBackup);
+			} else {
+				Log.warning("Load test: Could not restore the save file during plugin disable."
+						+ " There was no previous save file. Remove the generated shopkeepers.");
+			}
+			return;
+		}
+
+		SKShopkeeperStorage storage = plugin.getShopkeeperStorage();
+		ShopkeeperChunkActivator chunkActivator = plugin.getShopkeeperRegistry()
+				.getChunkActivator();
+
+		this.sendMessage(ChatColor.GREEN + "Restoring the previous save file ...");
+		plugin.getUIRegistry().abortUISessions();
+		chunkActivator.deactivateShopkeepersInAllWorlds();
+		// The reload would otherwise save the generated shopkeepers to the restored save file:
+		storage.saveIfDirtyAndAwaitCompletion();
+
+		try {
+			if (hadSaveFile) {
+				FileUtils.moveFile(saveFileBackup, saveFile, Log.getLogger());
+			} else {
+				FileUtils.deleteIfExists(saveFile);
+			}
+		} catch (IOException e) {
+			Log.severe("Load test: Failed to restore the save file! The previous save file is kept"
+					+ " at: " + saveFileBackup, e);
+			this.sendMessage(ChatColor.RED + "Failed to restore the save file! Check the log.");
+			chunkActivator.activateShopkeepersInAllWorlds();
+			return;
+		}
+
+		if (!storage.reload()) {
+			// Prevent the loss of shopkeeper data, like during the plugin enable:
+			Log.severe("Load test: The loading of the restored save file failed! Disabling saving."
+					+ " Restart the server.");
+			storage.disableSaving();
+		}
+		chunkActivator.activateShopkeepersInAllWorlds();
+	}
+
+	private @Nullable World getWorld() {
+		String worldName = profile.getWorldName();
+		if (worldName == null) {
+			return Bukkit.getWorlds().get(0);
+		} else {
+			return Bukkit.getWorld(worldName);
+		}
+	}
+
+	private void resetTimings() {
+		plugin.getShopkeeperRegistry().getChunkActivator().getChunkActivationTimings().reset();
+		LivingEntityAI livingEntityAI = plugin.getLivingShops().getLivingEntityAI();
+		livingEntityAI.getTotalTimings().reset();
+		livingEntityAI.getActivationTimings().reset();
+		livingEntityAI.getGravityTimings().reset();
+		livingEntityAI.getAITimings().reset();
+	}
+
+	private void sendMessage(String message) {
+		TextUtils.sendMessage(sender, "[Load test] " + message);
+	}
+
+	private static Map<String, Object> toReport(Timings timings) {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("avg-ms", timings.getAverageTimeMillis());
+		report.put("max-ms", timings.getMaxTimeMillis());
+		report.put("count", timings.getCounter());
+		return report;
+	}
+
+	private static long getMillisSince(long startNanos) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
+	private static long getFileSize(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			return -1L;
+		}
+	}
+
+	// Only an approximation: The garbage collection is only requested.
+	private static long getUsedMemoryAfterGC() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
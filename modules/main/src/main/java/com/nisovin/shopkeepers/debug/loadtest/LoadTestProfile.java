@@ -0,0 +1,280 @@
+package com.nisovin.shopkeepers.debug.loadtest;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.data.container.DataContainer;
+import com.nisovin.shopkeepers.util.java.MathUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * The parameters of a {@link LoadTest}: How many shopkeepers are generated, how they are
+ * distributed among the shop and shop object types, how many and how complex their offers are, and
+ * where they are placed.
+ * <p>
+ * The defaults can be overridden by a {@value #FILE_NAME} file inside the plugin folder. The
+ * shopkeeper count and the seed are specified when the load test is started.
+ */
+public final class LoadTestProfile {
+
+	public static final String FILE_NAME = "load-test.yml";
+	public static final int MAX_SHOPKEEPER_COUNT = 500000;
+	public static final int MAX_ITEM_COMPLEXITY = 3;
+
+	private static final Map<String, Integer> DEFAULT_SHOP_TYPE_WEIGHTS;
+	private static final Map<String, Integer> DEFAULT_OBJECT_TYPE_WEIGHTS;
+
+	static {
+		Map<String, Integer> shopTypeWeights = new LinkedHashMap<>();
+		shopTypeWeights.put("admin", 40);
+		shopTypeWeights.put("sell", 30);
+		shopTypeWeights.put("buy", 15);
+		shopTypeWeights.put("trade", 15);
+		DEFAULT_SHOP_TYPE_WEIGHTS = Collections.unmodifiableMap(shopTypeWeights);
+
+		Map<String, Integer> objectTypeWeights = new LinkedHashMap<>();
+		objectTypeWeights.put("villager", 60);
+		objectTypeWeights.put("sign", 25);
+		objectTypeWeights.put("hanging-sign", 10);
+		objectTypeWeights.put("citizen", 5);
+		DEFAULT_OBJECT_TYPE_WEIGHTS = Collections.unmodifiableMap(objectTypeWeights);
+	}
+
+	/**
+	 * Creates a {@link LoadTestProfile} with the default parameters.
+	 * 
+	 * @param shopkeeperCount
+	 *            the number of shopkeepers to generate
+	 * @param seed
+	 *            the seed of the random generator
+	 * @return the profile
+	 */
+	public static LoadTestProfile defaults(int shopkeeperCount, long seed) {
+		return load(DataContainer.EMPTY, shopkeeperCount, seed);
+	}
+
+	/**
+	 * Creates a {@link LoadTestProfile} based on the given config.
+	 * <p>
+	 * Missing values are replaced with the defaults.
+	 * 
+	 * @param config
+	 *            the config, not <code>null</code>
+	 * @param shopkeeperCount
+	 *            the number of shopkeepers to generate
+	 * @param seed
+	 *            the seed of the random generator
+	 * @return the profile
+	 */
+	public static LoadTestProfile load(DataContainer config, int shopkeeperCount, long seed) {
+		Validate.notNull(config, "config is null");
+		return new LoadTestProfile(config, shopkeeperCount, seed);
+	}
+
+	private static Map<String, Integer> loadWeights(
+			@Nullable DataContainer config,
+			Map<String, Integer> defaultWeights
+	) {
+		if (config == null) return defaultWeights;
+
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		config.getKeys().forEach(key -> {
+			int weight = config.getIntOrDefault(key, 0);
+			if (weight > 0) {
+				weights.put(key, weight);
+			}
+		});
+		Validate.isTrue(!weights.isEmpty(), "No positive weights specified!");
+		return Collections.unmodifiableMap(weights);
+	}
+
+	private final int shopkeeperCount;
+	private final long seed;
+	private final @Nullable String worldName;
+	private final int centerX;
+	private final int centerZ;
+	private final int radius;
+	private final int y;
+	private final int shopkeepersPerChunk;
+	private final Map<String, Integer> shopTypeWeights;
+	private final Map<String, Integer> objectTypeWeights;
+	private final int minOffers;
+	private final int maxOffers;
+	private final int itemComplexity;
+	private final int ownerCount;
+	private final int measurementTicks;
+
+	private LoadTestProfile(DataContainer config, int shopkeeperCount, long seed) {
+		Validate.isTrue(shopkeeperCount > 0, "shopkeeperCount has to be positive");
+		Validate.isTrue(shopkeeperCount <= MAX_SHOPKEEPER_COUNT,
+				() -> "shopkeeperCount cannot be greater than " + MAX_SHOPKEEPER_COUNT);
+		this.shopkeeperCount = shopkeeperCount;
+		this.seed = seed;
+		this.worldName = config.getString("world");
+		this.centerX = config.getIntOrDefault("center-x", 0);
+		this.centerZ = config.getIntOrDefault("center-z", 0);
+		this.radius = Math.max(0, config.getIntOrDefault("radius", 2000));
+		this.y = config.getIntOrDefault("y", 64);
+		this.shopkeepersPerChunk = Math.max(1, config.getIntOrDefault("shopkeepers-per-chunk", 4));
+		this.shopTypeWeights = loadWeights(
+				config.getContainer("shop-types"),
+				DEFAULT_SHOP_TYPE_WEIGHTS
+		);
+		this.objectTypeWeights = loadWeights(
+				config.getContainer("object-types"),
+				DEFAULT_OBJECT_TYPE_WEIGHTS
+		);
+		this.minOffers = Math.max(0, config.getIntOrDefault("min-offers", 1));
+		this.maxOffers = Math.max(minOffers, config.getIntOrDefault("max-offers", 9));
+		this.itemComplexity = MathUtils.clamp(
+				config.getIntOrDefault("item-complexity", 1),
+				0,
+				MAX_ITEM_COMPLEXITY
+		);
+		// By default, each owner owns about 5 player shops:
+		this.ownerCount = Math.max(1, config.getIntOrDefault(
+				"owners",
+				Math.max(1, shopkeeperCount / 5)
+		));
+		this.measurementTicks = Math.max(20, config.getIntOrDefault("measurement-ticks", 600));
+	}
+
+	public int getShopkeeperCount() {
+		return shopkeeperCount;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Gets the name of the world in which the shopkeepers are placed.
+	 * 
+	 * @return the world name, or <code>null</code> to use the first world of the server
+	 */
+	public @Nullable String getWorldName() {
+		return worldName;
+	}
+
+	public int getCenterX() {
+		return centerX;
+	}
+
+	public int getCenterZ() {
+		return centerZ;
+	}
+
+	/**
+	 * Gets the radius, in blocks, of the square around the center in which the shopkeepers are
+	 * placed.
+	 * 
+	 * @return the radius
+	 */
+	public int getRadius() {
+		return radius;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the number of shopkeepers that are placed inside the same chunk before the next chunk
+	 * is randomly chosen.
+	 * <p>
+	 * Higher values result in fewer chunks with more shopkeepers each.
+	 * 
+	 * @return the number of shopkeepers per chunk, at least <code>1</code>
+	 */
+	public int getShopkeepersPerChunk() {
+		return shopkeepersPerChunk;
+	}
+
+	/**
+	 * Gets the relative weights of the shop types, by shop type identifier.
+	 * 
+	 * @return an unmodifiable view on the shop type weights
+	 */
+	public Map<String, Integer> getShopTypeWeights() {
+		return shopTypeWeights;
+	}
+
+	/**
+	 * Gets the relative weights of the shop object types, by shop object type identifier.
+	 * 
+	 * @return an unmodifiable view on the shop object type weights
+	 */
+	public Map<String, Integer> getObjectTypeWeights() {
+		return objectTypeWeights;
+	}
+
+	public int getMinOffers() {
+		return minOffers;
+	}
+
+	public int getMaxOffers() {
+		return maxOffers;
+	}
+
+	/**
+	 * Gets the complexity of the generated items.
+	 * <ul>
+	 * <li>0: Plain items.
+	 * <li>1: Items with a display name.
+	 * <li>2: Items with a display name, lore, and an enchantment.
+	 * <li>3: Items with a display name, longer lore, several enchantments, and item flags.
+	 * </ul>
+	 * 
+	 * @return the item complexity, between <code>0</code> and {@link #MAX_ITEM_COMPLEXITY}
+	 */
+	public int getItemComplexity() {
+		return itemComplexity;
+	}
+
+	/**
+	 * Gets the number of distinct owners among which the player shops are distributed.
+	 * 
+	 * @return the number of owners
+	 */
+	public int getOwnerCount() {
+		return ownerCount;
+	}
+
+	/**
+	 * Gets the number of ticks during which the chunk activation and AI timings are measured once
+	 * the shopkeepers have been loaded and activated.
+	 * 
+	 * @return the number of ticks
+	 */
+	public int getMeasurementTicks() {
+		return measurementTicks;
+	}
+
+	/**
+	 * Gets the parameters of this profile, for the load test report.
+	 * 
+	 * @return the parameters
+	 */
+	Map<String, Object> toReport() {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("shopkeeper-count", shopkeeperCount);
+		report.put("seed", seed);
+		report.put("world", worldName);
+		report.put("center-x", centerX);
+		report.put("center-z", centerZ);
+		report.put("radius", radius);
+		report.put("y", y);
+		report.put("shopkeepers-per-chunk", shopkeepersPerChunk);
+		report.put("shop-types", shopTypeWeights);
+		report.put("object-types", objectTypeWeights);
+		report.put("min-offers", minOffers);
+		report.put("max-offers", maxOffers);
+		report.put("item-complexity", itemComplexity);
+		report.put("owners", ownerCount);
+		report.put("measurement-ticks", measurementTicks);
+		return report;
+	}
+}
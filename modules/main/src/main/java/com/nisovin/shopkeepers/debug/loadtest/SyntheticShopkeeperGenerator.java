@@ -0,0 +1,425 @@
+package com.nisovin.shopkeepers.debug.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.shopkeeper.DefaultShopTypes;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.PriceOffer;
+import com.nisovin.shopkeepers.api.shopkeeper.offers.TradeOffer;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopType;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.ShopkeeperData;
+import com.nisovin.shopkeepers.shopkeeper.admin.regular.SKRegularAdminShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopType;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.buy.SKBuyingPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.sell.SKSellingPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.trade.SKTradingPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObject;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
+import com.nisovin.shopkeepers.shopobjects.ShopObjectData;
+import com.nisovin.shopkeepers.shopobjects.sign.SKHangingSignShopObject;
+import com.nisovin.shopkeepers.shopobjects.sign.SKSignShopObject;
+import com.nisovin.shopkeepers.util.bukkit.BlockLocation;
+import com.nisovin.shopkeepers.util.data.container.DataContainer;
+import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * Generates the data of synthetic shopkeepers according to a {@link LoadTestProfile}.
+ * <p>
+ * The generated data is complete, i.e. it matches the data that the shopkeepers would save
+ * themselves: For each combination of shop type and shop object type, a template shopkeeper is
+ * loaded once from minimal data, and its saved data is then used as the basis for all generated
+ * shopkeepers of this combination. Only the unique id, location, name, owner, and offers are
+ * generated for each shopkeeper.
+ * <p>
+ * The generation is deterministic for a given profile, including its seed.
+ */
+public final class SyntheticShopkeeperGenerator {
+
+	/**
+	 * The name prefix of all generated shopkeepers.
+	 */
+	public static final String NAME_PREFIX = "LoadTest";
+
+	private static final Material[] ITEM_TYPES = {
+			Material.DIAMOND, Material.IRON_INGOT, Material.GOLD_INGOT, Material.COAL,
+			Material.REDSTONE, Material.LAPIS_LAZULI, Material.BREAD, Material.APPLE,
+			Material.COOKED_BEEF, Material.WHEAT, Material.OAK_LOG, Material.OAK_PLANKS,
+			Material.STONE, Material.COBBLESTONE, Material.GLASS, Material.BRICKS, Material.SAND,
+			Material.TORCH, Material.ARROW, Material.BOW, Material.DIAMOND_SWORD,
+			Material.IRON_PICKAXE, Material.BOOK, Material.STRING, Material.FEATHER,
+			Material.LEATHER
+	};
+	private static final Material CURRENCY_TYPE = Material.EMERALD;
+
+	private final LoadTestProfile profile;
+	private final String worldName;
+	private final Random random;
+	private final WeightedTypes<AbstractShopType<?>> shopTypes;
+	private final WeightedTypes<AbstractShopObjectType<?>> objectTypes;
+	// "shopType:objectType" -> template data
+	private final Map<String, Map<String, Object>> templates = new HashMap<>();
+
+	private int chunkX;
+	private int chunkZ;
+	private int chunkSlotOffset;
+	private int shopkeepersInChunk;
+
+	// Shopkeeper counts, for the report:
+	private final Map<String, Integer> shopTypeCounts = new LinkedHashMap<>();
+	private final Map<String, Integer> objectTypeCounts = new LinkedHashMap<>();
+	private int offerCount = 0;
+
+	/**
+	 * Creates a new {@link SyntheticShopkeeperGenerator}.
+	 * <p>
+	 * Shop types and shop object types that are unknown, disabled, or not supported by the
+	 * generator are skipped.
+	 * 
+	 * @param plugin
+	 *            the plugin, not <code>null</code>
+	 * @param profile
+	 *            the profile, not <code>null</code>
+	 * @param worldName
+	 *            the name of the world in which the shopkeepers are placed, not <code>null</code>
+	 */
+	public SyntheticShopkeeperGenerator(
+			SKShopkeepersPlugin plugin,
+			LoadTestProfile profile,
+			String worldName
+	) {
+		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(profile, "profile is null");
+		Validate.notEmpty(worldName, "worldName is null or empty");
+		this.profile = profile;
+		this.worldName = worldName;
+		this.random = new Random(profile.getSeed());
+		this.shopTypes = new WeightedTypes<>(
+				"shop",
+				profile.getShopTypeWeights(),
+				identifier -> {
+					AbstractShopType<?> shopType = plugin.getShopTypeRegistry().get(identifier);
+					if (shopType == null || !shopType.isEnabled()) return null;
+					if (getOffersGenerator(shopType) == null) return null;
+					return shopType;
+				}
+		);
+		this.objectTypes = new WeightedTypes<>(
+				"shop object",
+				profile.getObjectTypeWeights(),
+				identifier -> {
+					var objectType = plugin.getShopObjectTypeRegistry().get(identifier);
+					if (objectType == null || !objectType.isEnabled()) return null;
+					return objectType;
+				}
+		);
+		this.shopkeepersInChunk = profile.getShopkeepersPerChunk(); // Pick a chunk first
+	}
+
+	/**
+	 * Generates the data of a shopkeeper.
+	 * 
+	 * @param id
+	 *            the id of the shopkeeper
+	 * @param shopkeeperData
+	 *            the shopkeeper data to fill in, not <code>null</code>
+	 */
+	public void generate(int id, ShopkeeperData shopkeeperData) {
+		Validate.notNull(shopkeeperData, "shopkeeperData is null");
+		AbstractShopType<?> shopType = shopTypes.next(random);
+		AbstractShopObjectType<?> objectType = objectTypes.next(random);
+		shopTypeCounts.merge(shopType.getIdentifier(), 1, Integer::sum);
+		objectTypeCounts.merge(objectType.getIdentifier(), 1, Integer::sum);
+
+		shopkeeperData.setAll(this.getTemplate(shopType, objectType));
+		UUID uniqueId = new UUID(random.nextLong(), random.nextLong());
+		shopkeeperData.set(AbstractShopkeeper.UNIQUE_ID, uniqueId);
+		BlockLocation location = this.nextLocation();
+		shopkeeperData.set(AbstractShopkeeper.LOCATION, location);
+		shopkeeperData.set(AbstractShopkeeper.YAW, random.nextInt(4) * 90.0F - 180.0F);
+		shopkeeperData.set(AbstractShopkeeper.NAME, NAME_PREFIX + id);
+
+		if (shopType instanceof AbstractPlayerShopType) {
+			int owner = random.nextInt(profile.getOwnerCount());
+			String ownerName = NAME_PREFIX + owner;
+			// Offline mode unique id:
+			UUID ownerUniqueId = UUID.nameUUIDFromBytes(
+					("OfflinePlayer:" + ownerName).getBytes(StandardCharsets.UTF_8)
+			);
+			shopkeeperData.set(AbstractPlayerShopkeeper.OWNER_UNIQUE_ID, ownerUniqueId);
+			shopkeeperData.set(AbstractPlayerShopkeeper.OWNER_NAME, ownerName);
+			shopkeeperData.set(AbstractPlayerShopkeeper.CONTAINER, new BlockLocation(
+					location.getX(),
+					location.getY() - 1,
+					location.getZ()
+			));
+		}
+
+		OffersGenerator offersGenerator = Validate.State.notNull(getOffersGenerator(shopType));
+		int offers = profile.getMinOffers()
+				+ random.nextInt(profile.getMaxOffers() - profile.getMinOffers() + 1);
+		offersGenerator.generate(this, shopkeeperData, offers);
+		offerCount += offers;
+	}
+
+	/**
+	 * Gets statistics about the generated shopkeepers, for the load test report.
+	 * 
+	 * @return the statistics
+	 */
+	Map<String, Object> toReport() {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("shop-types", shopTypeCounts);
+		report.put("object-types", objectTypeCounts);
+		report.put("offers", offerCount);
+		return report;
+	}
+
+	// TEMPLATES
+
+	private Map<String, Object> getTemplate(
+			AbstractShopType<?> shopType,
+			AbstractShopObjectType<?> objectType
+	) {
+		String key = shopType.getIdentifier() + ":" + objectType.getIdentifier();
+		return templates.computeIfAbsent(key, k -> this.createTemplate(shopType, objectType));
+	}
+
+	private Map<String, Object> createTemplate(
+			AbstractShopType<?> shopType,
+			AbstractShopObjectType<?> objectType
+	) {
+		ShopkeeperData minimalData = ShopkeeperData.ofNonNull(DataContainer.create());
+		minimalData.set(AbstractShopkeeper.ID, 1);
+		minimalData.set(AbstractShopkeeper.UNIQUE_ID, new UUID(0L, 0L));
+		minimalData.set(AbstractShopkeeper.SHOP_TYPE_ID, shopType.getIdentifier());
+		minimalData.set(AbstractShopkeeper.LOCATION, new BlockLocation(
+				worldName,
+				0,
+				profile.getY(),
+				0
+		));
+
+		ShopObjectData objectData = ShopObjectData.ofNonNull(DataContainer.create());
+		objectData.set(AbstractShopObject.SHOP_OBJECT_TYPE_ID, objectType.getIdentifier());
+		// Free-standing signs, so that they don't depend on the surrounding blocks:
+		objectData.set(SKSignShopObject.WALL_SIGN, false);
+		objectData.set(SKHangingSignShopObject.WALL_SIGN, false);
+		minimalData.set(AbstractShopkeeper.SHOP_OBJECT_DATA, objectData);
+
+		if (shopType instanceof AbstractPlayerShopType) {
+			minimalData.set(AbstractPlayerShopkeeper.OWNER_UNIQUE_ID, new UUID(0L, 0L));
+			minimalData.set(AbstractPlayerShopkeeper.OWNER_NAME, NAME_PREFIX);
+			minimalData.set(AbstractPlayerShopkeeper.CONTAINER, new BlockLocation(0, 0, 0));
+		}
+
+		// Any data that is not specified above is filled in with default values by the template
+		// shopkeeper. This may log a warning once per template.
+		AbstractShopkeeper template;
+		try {
+			template = shopType.loadShopkeeper(minimalData);
+		} catch (InvalidDataException e) {
+			throw new IllegalStateException("Failed to create the template shopkeeper for"
+					+ " shop type '" + shopType.getIdentifier() + "' and shop object type '"
+					+ objectType.getIdentifier() + "'!", e);
+		}
+
+		ShopkeeperData templateData = ShopkeeperData.ofNonNull(DataContainer.create());
+		template.save(templateData, true);
+		// The shopkeeper id is not stored inside the shopkeeper data:
+		templateData.set(AbstractShopkeeper.ID.getUnvalidatedSaver(), null);
+		Log.debug(() -> "Load test: Created shopkeeper template for '" + shopType.getIdentifier()
+				+ "' and '" + objectType.getIdentifier() + "'.");
+		return templateData.getValuesCopy();
+	}
+
+	// LOCATIONS
+
+	// The shopkeepers are placed in randomly chosen chunks. Within a chunk, the shopkeepers are
+	// placed on distinct blocks (for up to 256 shopkeepers per chunk).
+	private BlockLocation nextLocation() {
+		if (shopkeepersInChunk >= profile.getShopkeepersPerChunk()) {
+			int radius = profile.getRadius();
+			int minChunkX = (profile.getCenterX() - radius) >> 4;
+			int maxChunkX = (profile.getCenterX() + radius) >> 4;
+			int minChunkZ = (profile.getCenterZ() - radius) >> 4;
+			int maxChunkZ = (profile.getCenterZ() + radius) >> 4;
+			chunkX = minChunkX + random.nextInt(maxChunkX - minChunkX + 1);
+			chunkZ = minChunkZ + random.nextInt(maxChunkZ - minChunkZ + 1);
+			chunkSlotOffset = random.nextInt(256);
+			shopkeepersInChunk = 0;
+		}
+
+		// 7 is coprime to 256, so the first 256 slots are distinct:
+		int slot = (chunkSlotOffset + shopkeepersInChunk * 7) & 0xFF;
+		shopkeepersInChunk++;
+		int x = (chunkX << 4) + (slot & 0xF);
+		int z = (chunkZ << 4) + (slot >> 4);
+		return new BlockLocation(worldName, x, profile.getY(), z);
+	}
+
+	// OFFERS
+
+	@FunctionalInterface
+	private interface OffersGenerator {
+		void generate(
+				SyntheticShopkeeperGenerator generator,
+				ShopkeeperData shopkeeperData,
+				int offerCount
+		);
+	}
+
+	private static @Nullable OffersGenerator getOffersGenerator(AbstractShopType<?> shopType) {
+		if (shopType == DefaultShopTypes.ADMIN_REGULAR()) {
+			return (generator, shopkeeperData, offerCount) -> {
+				shopkeeperData.set(
+						SKRegularAdminShopkeeper.OFFERS,
+						generator.createTradeOffers(offerCount)
+				);
+			};
+		} else if (shopType == DefaultShopTypes.PLAYER_TRADING()) {
+			return (generator, shopkeeperData, offerCount) -> {
+				shopkeeperData.set(
+						SKTradingPlayerShopkeeper.OFFERS,
+						generator.createTradeOffers(offerCount)
+				);
+			};
+		} else if (shopType == DefaultShopTypes.PLAYER_SELLING()) {
+			return (generator, shopkeeperData, offerCount) -> {
+				shopkeeperData.set(
+						SKSellingPlayerShopkeeper.OFFERS,
+						generator.createPriceOffers(offerCount)
+				);
+			};
+		} else if (shopType == DefaultShopTypes.PLAYER_BUYING()) {
+			return (generator, shopkeeperData, offerCount) -> {
+				shopkeeperData.set(
+						SKBuyingPlayerShopkeeper.OFFERS,
+						generator.createPriceOffers(offerCount)
+				);
+			};
+		} else {
+			// Not supported: E.g. book shops, whose offers depend on the books in their container.
+			return null;
+		}
+	}
+
+	private List<TradeOffer> createTradeOffers(int count) {
+		List<TradeOffer> offers = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			offers.add(TradeOffer.create(
+					this.createItem(),
+					this.createCurrencyItem(),
+					random.nextInt(4) == 0 ? this.createItem() : null
+			));
+		}
+		return offers;
+	}
+
+	private List<PriceOffer> createPriceOffers(int count) {
+		List<PriceOffer> offers = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			offers.add(PriceOffer.create(this.createItem(), 1 + random.nextInt(64)));
+		}
+		return offers;
+	}
+
+	// ITEMS
+
+	private ItemStack createCurrencyItem() {
+		return new ItemStack(CURRENCY_TYPE, 1 + random.nextInt(CURRENCY_TYPE.getMaxStackSize()));
+	}
+
+	private ItemStack createItem() {
+		Material type = ITEM_TYPES[random.nextInt(ITEM_TYPES.length)];
+		ItemStack item = new ItemStack(type, 1 + random.nextInt(type.getMaxStackSize()));
+		int complexity = profile.getItemComplexity();
+		if (complexity == 0) return item;
+
+		String displayName = ChatColor.GOLD + "Load test item " + random.nextInt(1000);
+		List<String> lore = null;
+		if (complexity >= 2) {
+			int loreLines = (complexity >= 3) ? 6 : 2;
+			lore = new ArrayList<>(loreLines);
+			for (int i = 0; i < loreLines; i++) {
+				lore.add(ChatColor.GRAY + "Lore line " + i + ": " + random.nextInt(100000));
+			}
+		}
+		ItemUtils.setDisplayNameAndLore(item, displayName, lore);
+
+		if (complexity >= 2) {
+			item.addUnsafeEnchantment(Enchantment.UNBREAKING, 1 + random.nextInt(3));
+		}
+		if (complexity >= 3) {
+			item.addUnsafeEnchantment(Enchantment.SHARPNESS, 1 + random.nextInt(5));
+			item.addUnsafeEnchantment(Enchantment.MENDING, 1);
+			ItemMeta itemMeta = item.getItemMeta();
+			if (itemMeta != null) {
+				itemMeta.addItemFlags(ItemFlag.HIDE_ENCHANTS, ItemFlag.HIDE_ATTRIBUTES);
+				item.setItemMeta(itemMeta);
+			}
+		}
+		return item;
+	}
+
+	// WEIGHTED TYPES
+
+	private static final class WeightedTypes<T> {
+
+		private final List<T> types = new ArrayList<>();
+		private int[] cumulativeWeights = new int[0];
+		private int totalWeight = 0;
+
+		WeightedTypes(
+				String typeName,
+				Map<String, Integer> weights,
+				Function<String, @Nullable T> typeResolver
+		) {
+			weights.forEach((identifier, weight) -> {
+				T type = typeResolver.apply(identifier);
+				if (type == null) {
+					Log.warning("Load test: Skipping unknown, disabled, or unsupported " + typeName
+							+ " type: " + identifier);
+					return;
+				}
+				types.add(type);
+				totalWeight += weight;
+				cumulativeWeights = Arrays.copyOf(cumulativeWeights, types.size());
+				cumulativeWeights[types.size() - 1] = totalWeight;
+			});
+			if (types.isEmpty()) {
+				throw new IllegalArgumentException("No usable " + typeName + " types specified!");
+			}
+		}
+
+		T next(Random random) {
+			int value = random.nextInt(totalWeight);
+			int index = Arrays.binarySearch(cumulativeWeights, value + 1);
+			if (index < 0) {
+				index = -(index + 1);
+			}
+			return types.get(index);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.nisovin.shopkeepers.items;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.events.ShopkeeperOpenUIEvent;
+import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Prevents players from opening the UIs of shopkeepers while an update of all items is in
+ * progress, so that they cannot interact with shopkeepers whose items have not been updated yet.
+ * 
+ * @see SKShopkeepersPlugin#startItemUpdates()
+ */
+public class ItemUpdateListener implements Listener {
+
+	private final SKShopkeepersPlugin plugin;
+
+	public ItemUpdateListener(SKShopkeepersPlugin plugin) {
+		Validate.notNull(plugin, "plugin is null");
+		this.plugin = plugin;
+	}
+
+	@EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+	void onShopkeeperOpenUI(ShopkeeperOpenUIEvent event) {
+		if (!plugin.isUpdatingItems()) return;
+
+		event.setCancelled(true);
+		if (!event.isSilentRequest()) {
+			TextUtils.sendMessage(event.getPlayer(), Messages.itemsUpdating);
+		}
+	}
+}
@@ -96,6 +96,12 @@ public class Messages extends Config {
 			"&fd'échange pour ce marchand.",
 			"&fActuellement : &6{state}"
 	));
+	public static String buttonTradeStatistics = c("&aTrade Statistics");
+	public static List<String> buttonTradeStatisticsLore = c(Arrays.asList(
+			"Trades in the last hour: {trades_hour}",
+			"Trades in the last 24 hours: {trades_day}",
+			"Trades in the last 7 days: {trades_week}"
+	));
 	public static String buttonDelete = c("&4Supprimer");
 	public static List<String> buttonDeleteLore = c(Arrays.asList(
 			"&fFerme et &csupprime",
@@ -416,6 +422,7 @@ public class Messages extends Config {
 	public static Text currencyItemSetToMainHandItem = Text.parse("&aThe currency item '&e{currencyId}&a' has been set to the &eitem in your main hand&a!");
 	public static Text itemsConverted = Text.parse("&aConverted &e{count}&a item stack(s)!");
 	public static Text itemsUpdated = Text.parse("&aUpdated &e{count}&a item(s)!");
+	public static Text itemsUpdating = Text.parse("&7The items are currently being updated. Please try again in a moment.");
 	public static String unknownBookAuthor = c("Unknown");
 
 	public static Text tradePermSet = Text.parse("&aThe shop's trading permission has been set to '&e{perm}&a'!");
@@ -478,6 +485,7 @@ public class Messages extends Config {
 	public static Text ownerBuyNotificationShop = Text.parse("one of your shops");
 	public static Text ownerBuyNotificationNamedShop = Text.parse("your shop &e\"{shop_name}\"");
 	public static Text ownerTradeNotificationTradeCount = Text.parse("&7 (&6{count}x&7)");
+	public static Text ownerTradeNotificationDigest = Text.parse("&7In the last &e{minutes} minutes&7, &6{trade_count}&7 trades took place at &e{shop_count}&7 of your shops.");
 
 	public static Text disableTradeNotificationsHint = Text.parse("&7You can disable these trade notifications with the command &e{command}");
 	public static Text disableTradeNotificationsHintCommand = Text.parse("/shopkeeper notify trades");
@@ -719,6 +727,10 @@ public class Messages extends Config {
 	public static Text adminShopsRemoved = Text.parse("&e{shopsCount} &aadmin shops have been removed.");
 	public static Text shopsOfPlayerRemoved = Text.parse("&e{shopsCount} &ashops of player '&e{player}&a' have been removed.");
 	public static Text playerShopsRemoved = Text.parse("&e{shopsCount} &aplayer shops have been removed.");
+	public static Text bulkOperationProgress = Text.parse("&7Processed &e{processed}&7 of &e{total}&7 shopkeepers...");
+	public static Text bulkOperationCancelled = Text.parse("&cThe operation has been cancelled after &e{processed}&c of &e{total}&c shopkeepers.");
+	public static Text bulkOperationsCancelled = Text.parse("&aCancelled &e{count}&a pending operations.");
+	public static Text noPendingBulkOperations = Text.parse("&7There are no pending operations.");
 
 	public static Text confirmRemoveShop = Text.parse("&cYou are about to irrevocably remove the specified shopkeeper!");
 	public static Text confirmRemoveAllAdminShops = Text.parse("&cYou are about to irrevocably remove all admin shops (&6{shopsCount}&c)!");
@@ -781,6 +793,16 @@ public class Messages extends Config {
 	public static Text snapshotRestoreFailed = Text.parse("&cFailed to restore snapshot: &e({id}) &2{name} &8(&7{timestamp}&8)");
 	public static Text snapshotRestored = Text.parse("&aSnapshot restored: &e({id}) &2{name} &8(&7{timestamp}&8)");
 
+	public static Text tradeHistoryUnavailable = Text.parse("&cThe trade history is not available. Trade logging to CSV or SQLite has to be enabled.");
+	public static Text tradeHistoryQueryRunning = Text.parse("&cAnother trade history query is still running. Try again later.");
+	public static Text tradeHistoryQueryTimedOut = Text.parse("&cThe trade history query took too long and has been aborted.");
+	public static Text tradeHistoryQueryFailed = Text.parse("&cThe trade history query failed. Check the server log for details.");
+	public static Text tradeHistoryHeader = Text.parse("&9Trade volume per &e{grouping}&9: &e(Page {page})");
+	public static Text tradeHistoryEntry = Text.parse("  &e{rank}) &2{label}&8: &7{trades} trades, {items} items");
+	public static Text tradeHistoryNextPage = Text.parse("&7Use page &e{nextPage} &7to see more entries.");
+	public static Text tradeHistoryNoEntries = Text.parse("&7No trades found. &e(Page {page})");
+	public static Text tradeHistoryTruncated = Text.parse("&7The results only include the most recent &e{scannedTrades} &7trades due to the query limits.");
+
 	public static Text noPermission = Text.parse("&cVous n'avez pas la permission de faire cela.");
 
 	public static Text commandUnknown = Text.parse("&cCommande inconnue '&e{command}&c' !");
@@ -827,6 +849,7 @@ public class Messages extends Config {
 	public static Text commandDescriptionSetCurrency = Text.parse("Changes the currency item to the item held in hand.");
 	public static Text commandDescriptionConvertItems = Text.parse("Converts the held (or all) items to conform to Spigot's data format.");
 	public static Text commandDescriptionUpdateItems = Text.parse("Updates third-party items (if they support it).");
+	public static Text commandDescriptionCancelJobs = Text.parse("Cancels all pending bulk operations, such as the removal of many shops.");
 	public static Text commandDescriptionRemote = Text.parse("Remotely opens a shop (Optionally: For another player).");
 	public static Text commandDescriptionRemoteEdit = Text.parse("Remotely edits a shop.");
 	public static Text commandDescriptionTransfer = Text.parse("Transfers the ownership of a shop.");
@@ -838,6 +861,7 @@ public class Messages extends Config {
 	public static Text commandDescriptionSnapshotCreate = Text.parse("Creates a new shop snapshot.");
 	public static Text commandDescriptionSnapshotRemove = Text.parse("Removes a specific or all snapshots of a shop.");
 	public static Text commandDescriptionSnapshotRestore = Text.parse("Restores a specific shop snapshot.");
+	public static Text commandDescriptionTrades = Text.parse("Shows the trade volume per shop, player, item, or time period.");
 	public static Text commandDescriptionEditVillager = Text.parse("Opens the editor for the target villager.");
 	public static Text commandDescriptionEggEdit = Text.parse("Ouvre l'éditeur d'œuf de shopkeeper pour configurer le type et les options.");
 	public static Text commandDescriptionReplaceAllWithVanillaVillagers = Text.parse("Replaces all shopkeepers with vanilla villagers without AI.");
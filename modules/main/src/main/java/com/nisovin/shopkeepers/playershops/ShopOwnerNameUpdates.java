@@ -12,10 +12,10 @@ import org.bukkit.event.player.PlayerJoinEvent;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
-import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.debug.DebugOptions;
 import com.nisovin.shopkeepers.dependencies.citizens.CitizensUtils;
+import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.logging.Log;
@@ -64,30 +64,33 @@ public class ShopOwnerNameUpdates implements Listener {
 		Log.debug(DebugOptions.ownerNameUpdates, () -> "Updating shopkeeper owner names for: "
 				+ TextUtils.getPlayerString(playerName, playerId));
 
-		boolean dirty = false;
-		ShopkeeperRegistry shopkeeperRegistry = plugin.getShopkeeperRegistry();
+		// The registry keeps track of the owner name that is stored by all shops of the player.
+		// If it matches the player's current name, all stored owner names are up-to-date:
+		SKShopkeeperRegistry shopkeeperRegistry = plugin.getShopkeeperRegistry();
+		String storedOwnerName = shopkeeperRegistry.getPlayerShopOwnerName(playerId);
+		if (playerName.equals(storedOwnerName)) {
+			Log.debug(DebugOptions.ownerNameUpdates, () -> "Owner name '" + storedOwnerName
+					+ "' is up-to-date for all shopkeepers.");
+			return;
+		}
+
+		// The player does not own any shops, or has changed their name, or the stored owner names
+		// are inconsistent: Only update the shops whose stored owner name differs.
+		// Note: Updating the owner name does not modify the owner's list of shops.
+		int updatedCount = 0;
 		for (PlayerShopkeeper playerShop : shopkeeperRegistry.getPlayerShopkeepersByOwner(playerId)) {
 			String ownerName = playerShop.getOwnerName();
-			if (!ownerName.equals(playerName)) {
-				// Update the stored name, because the player must have changed it:
-				Log.debug(DebugOptions.ownerNameUpdates, () -> playerShop.getLogPrefix()
-						+ "Updating owner name '" + ownerName + "' to '" + playerName + "'.");
-				playerShop.setOwner(playerId, playerName);
-				dirty = true;
-			} else if (!dirty) { // Dirty if we already found a shop with mismatching name
-				// The stored owner name matches the player's current name.
-				// Since we assume that the stored owner names among all shopkeepers are consistent,
-				// we can abort checking the remaining shops of this player.
-				Log.debug(DebugOptions.ownerNameUpdates, () -> playerShop.getLogPrefix()
-						+ "Owner name '" + ownerName + "' is up-to-date. "
-						+ "Assuming the owner names of all shopkeepers are consistent, "
-						+ "we skip checking all other shopkeepers.");
-				return;
-			}
+			if (ownerName.equals(playerName)) continue;
+
+			// Update the stored name, because the player must have changed it:
+			Log.debug(DebugOptions.ownerNameUpdates, () -> playerShop.getLogPrefix()
+					+ "Updating owner name '" + ownerName + "' to '" + playerName + "'.");
+			playerShop.setOwner(playerId, playerName); // Marks the shopkeeper as dirty
+			updatedCount++;
 		}
 
-		// Save:
-		if (dirty) {
+		// Save all updated shopkeepers at once:
+		if (updatedCount > 0) {
 			plugin.getShopkeeperStorage().save();
 		}
 	}
@@ -2,29 +2,28 @@ package com.nisovin.shopkeepers.playershops.inactivity;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.scheduler.BukkitRunnable;
-import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.events.PlayerInactiveEvent;
-import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.api.user.User;
 import com.nisovin.shopkeepers.config.Settings;
+import com.nisovin.shopkeepers.playershops.inactivity.ShopOwnerLastSeenIndex.ShopOwnerLastSeen;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
-import com.nisovin.shopkeepers.util.java.CollectionUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.logging.Log;
+import com.nisovin.shopkeepers.util.taskqueue.TimeSlicedJob;
 
 /**
  * Identifies and deletes the shops that are owned by inactive players.
@@ -33,13 +32,19 @@ class DeleteShopsOfInactivePlayersProcedure {
 
 	private static class InactivePlayerData {
 
+		private final User user;
 		private final int lastSeenDaysAgo;
 		private final List<PlayerShopkeeper> shopkeepers = new ArrayList<>();
 
-		InactivePlayerData(int lastSeenDaysAgo) {
+		InactivePlayerData(User user, int lastSeenDaysAgo) {
+			this.user = user;
 			this.lastSeenDaysAgo = lastSeenDaysAgo;
 		}
 
+		User getUser() {
+			return user;
+		}
+
 		int getLastSeenDaysAgo() {
 			return lastSeenDaysAgo;
 		}
@@ -51,17 +56,26 @@ class DeleteShopsOfInactivePlayersProcedure {
 
 	private final SKShopkeepersPlugin plugin;
 	private final SKShopkeeperRegistry shopkeeperRegistry;
+	private final ShopOwnerLastSeenIndex lastSeenIndex;
 	private final int playerInactivityDays;
 
 	private boolean started = false;
 	// Retrieved once and then reused for all inactivity checks of this procedure:
 	private final long currentTimeMillis = System.currentTimeMillis();
-	private final Map<User, @Nullable InactivePlayerData> inactivePlayers = new HashMap<>();
-
-	public DeleteShopsOfInactivePlayersProcedure(SKShopkeepersPlugin plugin) {
+	// The shop owners whose last seen times are not yet indexed:
+	private final List<User> unindexedShopOwners = new ArrayList<>();
+	// Owner uuid -> last seen time, or ShopOwnerLastSeenIndex.NEVER_INACTIVE if unknown:
+	private final Map<UUID, Long> lastSeenTimes = new HashMap<>();
+
+	public DeleteShopsOfInactivePlayersProcedure(
+			SKShopkeepersPlugin plugin,
+			ShopOwnerLastSeenIndex lastSeenIndex
+	) {
 		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(lastSeenIndex, "lastSeenIndex is null");
 		this.plugin = plugin;
 		this.shopkeeperRegistry = plugin.getShopkeeperRegistry();
+		this.lastSeenIndex = lastSeenIndex;
 		// Local copy, because this setting might change while we use it, and we might access it
 		// asynchronously:
 		this.playerInactivityDays = Settings.playerShopkeeperInactiveDays;
@@ -80,116 +94,138 @@ class DeleteShopsOfInactivePlayersProcedure {
 
 		Log.info("Checking for shopkeepers of inactive players.");
 
-		this.collectShopOwners();
-		if (inactivePlayers.isEmpty()) {
-			return; // There are no player shops
+		this.collectUnindexedShopOwners();
+		if (unindexedShopOwners.isEmpty()) {
+			// The last seen times of all shop owners are already known:
+			this.deleteShopsOfInactivePlayers();
+			return;
 		}
 
-		this.asyncCheckInactivityOfAllShopOwnersAndContinue();
+		this.asyncLookUpLastSeenTimesAndContinue();
 	}
 
-	// This initially collects all shop owners into the inactivePlayers Map, which is subsequently
-	// pruned from shop owners that are not actually inactive.
-	private void collectShopOwners() {
-		shopkeeperRegistry.getAllPlayerShopkeepers().forEach(playerShop -> {
-			// In this first step, we only collect the existing shop owners, and don't store their
-			// shopkeepers yet. Later, we collect the shopkeepers of only the inactive shop owners.
-			inactivePlayers.put(playerShop.getOwnerUser(), null);
-		});
+	// Only the shop owners that are not yet indexed need to be looked up. This includes all shop
+	// owners during the first run, as well as owners whose shops were created since the last run,
+	// or who were found to be inactive during the last run but whose shops were not deleted.
+	private void collectUnindexedShopOwners() {
+		for (UUID ownerId : shopkeeperRegistry.getPlayerShopOwners()) {
+			if (lastSeenIndex.isIndexed(ownerId)) continue;
+
+			if (Bukkit.getPlayer(ownerId) != null) {
+				// The owner is currently online:
+				lastSeenIndex.update(ownerId, ShopOwnerLastSeenIndex.NEVER_INACTIVE);
+				continue;
+			}
+
+			// Not empty, since the owner is indexed by the registry:
+			AbstractPlayerShopkeeper playerShop = shopkeeperRegistry
+					.getPlayerShopkeepersByOwner(ownerId)
+					.get(0);
+			unindexedShopOwners.add(playerShop.getOwnerUser());
+		}
 	}
 
-	private void asyncCheckInactivityOfAllShopOwnersAndContinue() {
+	private void asyncLookUpLastSeenTimesAndContinue() {
 		// We retrieve the OfflinePlayers and their 'last played' times asynchronously:
 		new BukkitRunnable() {
 			@Override
 			public void run() {
-				// Set up the data for all inactive shop owners, and remove all shop owners that are
-				// not inactive:
-				setUpInactiveShopOwners();
-
-				// Abort if no inactive players were found:
-				if (inactivePlayers.isEmpty()) return;
+				lookUpLastSeenTimes();
 
 				// Abort if the task has been cancelled in the meantime (e.g. if the plugin has been
 				// disabled or reloaded):
 				if (this.isCancelled()) return;
 
-				SchedulerUtils.runTaskOrOmit(plugin, () -> continueWithInactiveShopOwners());
+				SchedulerUtils.runTaskOrOmit(plugin, () -> indexLastSeenTimesAndContinue());
 			}
 		}.runTaskAsynchronously(plugin);
 	}
 
 	// This may be called asynchronously.
-	// Sets up the data for all inactive shop owners, and removes all shop owners that are not
-	// inactive.
-	private void setUpInactiveShopOwners() {
-		Iterator<Entry<User, @Nullable InactivePlayerData>> iterator = inactivePlayers.entrySet().iterator();
-		while (iterator.hasNext()) {
-			Entry<User, @Nullable InactivePlayerData> entry = iterator.next();
-			User user = entry.getKey();
-			InactivePlayerData data = this.setUpIfInactive(user);
-			if (data == null) {
-				// The user is not inactive:
-				iterator.remove();
-			} else {
-				entry.setValue(data);
-			}
-		}
-		assert !CollectionUtils.containsNull(inactivePlayers.values());
+	private void lookUpLastSeenTimes() {
+		unindexedShopOwners.forEach(user -> {
+			lastSeenTimes.put(user.getUniqueId(), this.getLastSeenTime(user));
+		});
 	}
 
 	// This may be called asynchronously.
-	// Returns null if the given user is not inactive.
-	private @Nullable InactivePlayerData setUpIfInactive(User user) {
+	// Returns ShopOwnerLastSeenIndex.NEVER_INACTIVE if the last seen time is unknown.
+	private long getLastSeenTime(User user) {
 		assert user != null;
 		OfflinePlayer offlinePlayer = user.getOfflinePlayer();
 		// Some servers may delete player data files, either regularly for all players (which breaks
 		// this feature), or for particular players (for example to reset or fix some issue with
 		// their data). If this is the case, we cannot reliably determine when the player was last
 		// seen on the server, and therefore do not delete their shopkeepers.
-		if (!offlinePlayer.hasPlayedBefore()) return null;
+		if (!offlinePlayer.hasPlayedBefore()) return ShopOwnerLastSeenIndex.NEVER_INACTIVE;
 
 		long lastPlayedMillis = offlinePlayer.getLastPlayed();
-		if (lastPlayedMillis == 0) return null; // 0 if unknown (see reasoning above)
-
-		long millisSinceLastPlayed = currentTimeMillis - lastPlayedMillis;
-		int daysSinceLastPlayed = (int) TimeUnit.MILLISECONDS.toDays(millisSinceLastPlayed);
-		if (daysSinceLastPlayed < playerInactivityDays) return null;
-
-		return new InactivePlayerData(daysSinceLastPlayed);
+		if (lastPlayedMillis == 0) {
+			// 0 if unknown (see reasoning above)
+			return ShopOwnerLastSeenIndex.NEVER_INACTIVE;
+		}
+		return lastPlayedMillis;
 	}
 
-	private void continueWithInactiveShopOwners() {
+	private void indexLastSeenTimesAndContinue() {
 		assert Bukkit.isPrimaryThread();
-		assert !inactivePlayers.isEmpty();
-		assert !CollectionUtils.containsNull(inactivePlayers.values());
-		this.collectShopsOfInactivePlayers();
-		this.deleteShopsOfInactivePlayers();
-	}
+		lastSeenTimes.forEach((ownerId, lastSeenMillis) -> {
+			// Skip owners that joined or quit in the meantime, since their index entry is more
+			// recent:
+			if (lastSeenIndex.isIndexed(ownerId)) return;
 
-	private void collectShopsOfInactivePlayers() {
-		shopkeeperRegistry.getAllPlayerShopkeepers().forEach(playerShop -> {
-			// If the shop is owned by an inactive player, remember it for removal:
-			User shopOwner = playerShop.getOwnerUser();
-			InactivePlayerData inactivePlayerData = inactivePlayers.get(shopOwner);
-			if (inactivePlayerData != null) {
-				inactivePlayerData.getShopkeepers().add(playerShop);
-			}
+			lastSeenIndex.update(ownerId, lastSeenMillis);
 		});
-		// Note: For some inactive shop owners we might no longer find any shopkeepers. Their
-		// entries will then not contain any shopkeepers.
+		this.deleteShopsOfInactivePlayers();
 	}
 
 	private void deleteShopsOfInactivePlayers() {
-		inactivePlayers.forEach((user, nullableInactivePlayerData) -> {
-			InactivePlayerData inactivePlayerData = Unsafe.assertNonNull(nullableInactivePlayerData);
-			List<? extends PlayerShopkeeper> shopkeepers = inactivePlayerData.getShopkeepers();
+		assert Bukkit.isPrimaryThread();
+		long inactiveThresholdMillis = currentTimeMillis
+				- TimeUnit.DAYS.toMillis(playerInactivityDays);
+
+		// Only the shop owners whose inactivity threshold has been crossed are inspected:
+		List<InactivePlayerData> inactivePlayerDataList = new ArrayList<>();
+		while (true) {
+			ShopOwnerLastSeen inactiveOwner = lastSeenIndex.pollLastSeenBefore(
+					inactiveThresholdMillis
+			);
+			if (inactiveOwner == null) break; // No more inactive shop owners
+
+			List<? extends AbstractPlayerShopkeeper> shopkeepers = shopkeeperRegistry
+					.getPlayerShopkeepersByOwner(inactiveOwner.getOwnerId());
 			if (shopkeepers.isEmpty()) {
-				// We initially found this shop owner and identified them as inactive, but were then
-				// subsequently no longer able to find any shopkeepers that are still owned by them.
-				return;
+				// The owner no longer owns any shops, and is no longer indexed now.
+				continue;
 			}
 
+			long millisSinceLastSeen = currentTimeMillis - inactiveOwner.getLastSeenMillis();
+			int daysSinceLastSeen = (int) TimeUnit.MILLISECONDS.toDays(millisSinceLastSeen);
+			InactivePlayerData inactivePlayerData = new InactivePlayerData(
+					shopkeepers.get(0).getOwnerUser(),
+					daysSinceLastSeen
+			);
+			// Copied, since the shops are deleted over the course of several ticks:
+			inactivePlayerData.getShopkeepers().addAll(shopkeepers);
+			inactivePlayerDataList.add(inactivePlayerData);
+		}
+		if (inactivePlayerDataList.isEmpty()) return; // No inactive players found
+
+		// Delete the shops over the course of several ticks, since there might be many inactive
+		// players:
+		plugin.getTimeSlicedJobRunner().submit(new DeleteShopsJob(inactivePlayerDataList));
+	}
+
+	private final class DeleteShopsJob extends TimeSlicedJob<InactivePlayerData> {
+
+		DeleteShopsJob(List<? extends InactivePlayerData> inactivePlayerDataList) {
+			super("deleteShopsOfInactivePlayers", inactivePlayerDataList);
+		}
+
+		@Override
+		protected void process(InactivePlayerData inactivePlayerData) {
+			User user = inactivePlayerData.getUser();
+			List<? extends PlayerShopkeeper> shopkeepers = inactivePlayerData.getShopkeepers();
 			int originalShopkeepersCount = shopkeepers.size();
 
 			// Call event:
@@ -222,9 +258,18 @@ class DeleteShopsOfInactivePlayersProcedure {
 						+ inactivePlayerData.getLastSeenDaysAgo() + " days ago).");
 				playerShop.delete();
 			});
-		});
+		}
+
+		@Override
+		protected void onCompleted() {
+			// Save if necessary:
+			plugin.getShopkeeperStorage().saveIfDirty();
+		}
 
-		// Save if necessary:
-		plugin.getShopkeeperStorage().saveIfDirty();
+		@Override
+		protected void onCancelled() {
+			// Save the deletions so far, if necessary:
+			plugin.getShopkeeperStorage().saveIfDirty();
+		}
 	}
 }
@@ -16,23 +16,28 @@ import com.nisovin.shopkeepers.util.java.Validate;
 public class PlayerInactivity {
 
 	private final SKShopkeepersPlugin plugin;
+	private final ShopOwnerLastSeenIndex lastSeenIndex;
 	private final DeleteInactivePlayerShopsTask task;
 
 	public PlayerInactivity(SKShopkeepersPlugin plugin) {
 		Validate.notNull(plugin, "plugin is null");
 		this.plugin = plugin;
+		this.lastSeenIndex = new ShopOwnerLastSeenIndex(plugin);
 		this.task = new DeleteInactivePlayerShopsTask(plugin);
 	}
 
 	public void onEnable() {
 		if (Settings.playerShopkeeperInactiveDays <= 0) return; // Feature is disabled
 
+		lastSeenIndex.onEnable();
+
 		// Delete inactive player shops, once shortly after plugin startup, and then periodically:
 		task.start();
 	}
 
 	public void onDisable() {
 		task.stop();
+		lastSeenIndex.onDisable();
 	}
 
 	/**
@@ -41,8 +46,10 @@ public class PlayerInactivity {
 	 * <p>
 	 * The task is also run shortly after being started.
 	 * <p>
-	 * Since we measure player inactivity in granularity of days, and since the checking for
-	 * inactive players is relatively performance-intensive, we run this task very infrequently. It
+	 * Since we measure player inactivity in granularity of days, we run this task very
+	 * infrequently. The first run looks up the last seen times of all shop owners, which is
+	 * relatively performance-intensive. Subsequent runs only look up the last seen times of new
+	 * shop owners, and only inspect the shop owners whose inactivity threshold has been crossed. It
 	 * is also not required that this task runs exactly in the specified interval, which is
 	 * unlikely, because server lag can noticeably influence the exact interval duration. The
 	 * primary purpose of this task is to account for servers that keep running for very long
@@ -84,6 +91,6 @@ public class PlayerInactivity {
 	// TODO Also add a command to manually detect and then optionally delete inactive player shops?
 	public void deleteShopsOfInactivePlayers() {
 		if (Settings.playerShopkeeperInactiveDays <= 0) return; // Feature is disabled
-		new DeleteShopsOfInactivePlayersProcedure(plugin).start();
+		new DeleteShopsOfInactivePlayersProcedure(plugin, lastSeenIndex).start();
 	}
 }
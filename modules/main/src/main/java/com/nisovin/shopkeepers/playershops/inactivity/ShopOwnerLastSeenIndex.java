@@ -0,0 +1,181 @@
+package com.nisovin.shopkeepers.playershops.inactivity;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.dependencies.citizens.CitizensUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Keeps track of when the owners of player shops were last seen on the server, ordered by their
+ * last seen times.
+ * <p>
+ * The last seen time of each shop owner is looked up once via
+ * {@link org.bukkit.OfflinePlayer#getLastPlayed()}. Afterwards, it is updated whenever the owner
+ * joins or quits the server. Owners that are currently online, or whose last seen time is unknown,
+ * are {@link #NEVER_INACTIVE never inactive}.
+ * <p>
+ * This allows the inactivity check to only inspect the shop owners whose inactivity threshold has
+ * been crossed, instead of all shop owners.
+ */
+final class ShopOwnerLastSeenIndex implements Listener {
+
+	/**
+	 * The last seen time of shop owners that are currently online, or whose last seen time is
+	 * unknown.
+	 */
+	static final long NEVER_INACTIVE = Long.MAX_VALUE;
+
+	static final class ShopOwnerLastSeen {
+
+		private static final Comparator<ShopOwnerLastSeen> ORDER = Comparator
+				.comparingLong(ShopOwnerLastSeen::getLastSeenMillis)
+				.thenComparing(ShopOwnerLastSeen::getOwnerId);
+
+		private final UUID ownerId;
+		private final long lastSeenMillis;
+
+		private ShopOwnerLastSeen(UUID ownerId, long lastSeenMillis) {
+			this.ownerId = ownerId;
+			this.lastSeenMillis = lastSeenMillis;
+		}
+
+		UUID getOwnerId() {
+			return ownerId;
+		}
+
+		long getLastSeenMillis() {
+			return lastSeenMillis;
+		}
+	}
+
+	private final SKShopkeepersPlugin plugin;
+
+	private final Map<UUID, ShopOwnerLastSeen> byOwner = new HashMap<>();
+	// Ordered by last seen time, oldest first. Owners that are never inactive are omitted.
+	// Unlike a PriorityQueue, this allows to update the entries of owners in logarithmic time when
+	// they join or quit.
+	private final NavigableSet<ShopOwnerLastSeen> byLastSeen = new TreeSet<>(
+			ShopOwnerLastSeen.ORDER
+	);
+
+	ShopOwnerLastSeenIndex(SKShopkeepersPlugin plugin) {
+		Validate.notNull(plugin, "plugin is null");
+		this.plugin = plugin;
+	}
+
+	void onEnable() {
+		Bukkit.getPluginManager().registerEvents(this, plugin);
+	}
+
+	void onDisable() {
+		HandlerList.unregisterAll(this);
+		byOwner.clear();
+		byLastSeen.clear();
+	}
+
+	/**
+	 * Checks if the last seen time of the specified player is already known.
+	 * 
+	 * @param ownerId
+	 *            the player's unique id
+	 * @return <code>true</code> if the player is indexed
+	 */
+	boolean isIndexed(UUID ownerId) {
+		return byOwner.containsKey(ownerId);
+	}
+
+	/**
+	 * Sets the last seen time of the specified shop owner.
+	 * 
+	 * @param ownerId
+	 *            the shop owner's unique id
+	 * @param lastSeenMillis
+	 *            the last seen time in milliseconds, or {@link #NEVER_INACTIVE}
+	 */
+	void update(UUID ownerId, long lastSeenMillis) {
+		Validate.notNull(ownerId, "ownerId is null");
+		ShopOwnerLastSeen entry = new ShopOwnerLastSeen(ownerId, lastSeenMillis);
+		ShopOwnerLastSeen previousEntry = byOwner.put(ownerId, entry);
+		if (previousEntry != null) {
+			byLastSeen.remove(previousEntry);
+		}
+		if (lastSeenMillis != NEVER_INACTIVE) {
+			byLastSeen.add(entry);
+		}
+	}
+
+	void remove(UUID ownerId) {
+		ShopOwnerLastSeen previousEntry = byOwner.remove(ownerId);
+		if (previousEntry != null) {
+			byLastSeen.remove(previousEntry);
+		}
+	}
+
+	/**
+	 * Removes and returns the shop owner that was last seen the longest time ago, if they were last
+	 * seen at or before the given time.
+	 * <p>
+	 * Since the removed owner is no longer indexed, their last seen time is looked up again the
+	 * next time the inactivity check runs, if they still own shops by then.
+	 * 
+	 * @param thresholdMillis
+	 *            the time in milliseconds
+	 * @return the shop owner, or <code>null</code> if there is no shop owner that was last seen at
+	 *         or before the given time
+	 */
+	@Nullable ShopOwnerLastSeen pollLastSeenBefore(long thresholdMillis) {
+		if (byLastSeen.isEmpty()) return null;
+		ShopOwnerLastSeen entry = byLastSeen.first();
+		if (entry.getLastSeenMillis() > thresholdMillis) return null;
+
+		byLastSeen.pollFirst();
+		byOwner.remove(entry.getOwnerId());
+		return entry;
+	}
+
+	private boolean isShopOwner(UUID playerId) {
+		return !plugin.getShopkeeperRegistry().getPlayerShopkeepersByOwner(playerId).isEmpty();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onPlayerJoin(PlayerJoinEvent event) {
+		Player player = event.getPlayer();
+		if (CitizensUtils.isNPC(player)) return;
+
+		UUID playerId = player.getUniqueId();
+		if (!this.isShopOwner(playerId)) {
+			this.remove(playerId);
+			return;
+		}
+		this.update(playerId, NEVER_INACTIVE);
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerQuit(PlayerQuitEvent event) {
+		Player player = event.getPlayer();
+		if (CitizensUtils.isNPC(player)) return;
+
+		UUID playerId = player.getUniqueId();
+		if (!this.isShopOwner(playerId)) {
+			this.remove(playerId);
+			return;
+		}
+		this.update(playerId, System.currentTimeMillis());
+	}
+}
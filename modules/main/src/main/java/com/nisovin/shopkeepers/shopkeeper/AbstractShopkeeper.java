@@ -34,6 +34,7 @@ import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperLoadException;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperSnapshot;
+import com.nisovin.shopkeepers.api.shopkeeper.TradeStatisticsPeriod;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopobjects.ShopObjectType;
 import com.nisovin.shopkeepers.api.shopobjects.virtual.VirtualShopObject;
@@ -49,6 +50,7 @@ import com.nisovin.shopkeepers.debug.DebugOptions;
 import com.nisovin.shopkeepers.shopkeeper.migration.Migration;
 import com.nisovin.shopkeepers.shopkeeper.migration.MigrationPhase;
 import com.nisovin.shopkeepers.shopkeeper.migration.ShopkeeperDataMigrator;
+import com.nisovin.shopkeepers.shopkeeper.statistics.SKTradeStatistics;
 import com.nisovin.shopkeepers.shopkeeper.ticking.ShopkeeperTicker;
 import com.nisovin.shopkeepers.shopobjects.AbstractShopObject;
 import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
@@ -396,6 +398,7 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		this.shopObject = this.createShopObject(objectType, null);
 
 		this.loadSnapshots(shopkeeperData);
+		this.loadTradeStatistics(shopkeeperData);
 
 		// Load the dynamic shopkeeper and shop object state:
 		this.loadDynamicState(shopkeeperData);
@@ -513,6 +516,9 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 
 		// Snapshots:
 		this.saveSnapshots(shopkeeperData);
+
+		// Trade statistics:
+		this.saveTradeStatistics(shopkeeperData);
 	}
 
 	/**
@@ -739,6 +745,54 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		return components;
 	}
 
+	// TRADE STATISTICS
+
+	// The trade statistics are saved alongside the snapshots instead of as part of the dynamic
+	// state, so that they are neither captured by snapshots nor reset when a snapshot is restored.
+
+	@Override
+	public final SKTradeStatistics getTradeStatistics() {
+		return components.getOrAdd(SKTradeStatistics.class);
+	}
+
+	/**
+	 * Gets the number of trades within the given period.
+	 * <p>
+	 * Unlike {@link #getTradeStatistics()}, this does not attach the statistics to shopkeepers that
+	 * have never been traded with.
+	 * 
+	 * @param period
+	 *            the period, not <code>null</code>
+	 * @return the number of trades
+	 */
+	public final int getTradeCount(TradeStatisticsPeriod period) {
+		SKTradeStatistics tradeStatistics = components.get(SKTradeStatistics.class);
+		if (tradeStatistics == null) return 0;
+
+		return tradeStatistics.getTradeCount(period);
+	}
+
+	private void loadTradeStatistics(ShopkeeperData shopkeeperData) throws InvalidDataException {
+		assert shopkeeperData != null;
+		DataContainer data = shopkeeperData.getOrNullIfMissing(SKTradeStatistics.DATA);
+		if (data == null) return;
+
+		try {
+			this.getTradeStatistics().load(data);
+		} catch (InvalidDataException e) {
+			throw new InvalidDataException("Invalid trade statistics: " + e.getMessage(), e);
+		}
+	}
+
+	private void saveTradeStatistics(ShopkeeperData shopkeeperData) {
+		assert shopkeeperData != null;
+		// Avoid attaching the statistics component to shopkeepers that have never been traded with:
+		SKTradeStatistics tradeStatistics = components.get(SKTradeStatistics.class);
+		if (tradeStatistics == null) return;
+
+		shopkeeperData.set(SKTradeStatistics.DATA, tradeStatistics.save());
+	}
+
 	// LIFE CYCLE
 
 	@Override
@@ -1262,6 +1316,9 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		messageArguments.put("location", this::getPositionString);
 		messageArguments.put("type", () -> this.getType().getIdentifier());
 		messageArguments.put("object_type", () -> this.getShopObject().getType().getIdentifier());
+		messageArguments.put("trades_hour", () -> this.getTradeCount(TradeStatisticsPeriod.HOUR));
+		messageArguments.put("trades_day", () -> this.getTradeCount(TradeStatisticsPeriod.DAY));
+		messageArguments.put("trades_week", () -> this.getTradeCount(TradeStatisticsPeriod.WEEK));
 	}
 
 	// NAMING
@@ -1290,6 +1347,11 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 
 		// Update the name of the shop object:
 		shopObject.setName(preparedName);
+
+		// Inform shopkeeper registry:
+		if (this.isValid()) {
+			SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().onShopkeeperNameChanged(this);
+		}
 	}
 
 	private String prepareName(@Nullable String name) {
@@ -1527,6 +1589,19 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 	@Override
 	public abstract List<? extends TradingRecipe> getTradingRecipes(@Nullable Player player);
 
+	/**
+	 * Checks if the {@link #getTradingRecipes(Player) trading recipes} of this shopkeeper can
+	 * differ between players.
+	 * <p>
+	 * If not, the trading recipes can be determined once and then shared between all players that
+	 * are currently trading with this shopkeeper.
+	 * 
+	 * @return <code>true</code> if this shopkeeper supports player-specific trading recipes
+	 */
+	public boolean hasPlayerSpecificTradingRecipes() {
+		return true;
+	}
+
 	// USER INTERFACES
 
 	@Override
@@ -1,6 +1,5 @@
 package com.nisovin.shopkeepers.shopkeeper.admin.regular;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.bukkit.entity.Player;
@@ -35,19 +34,21 @@ public class RegularAdminShopEditorViewProvider extends ShopkeeperEditorViewProv
 		@Override
 		public List<TradingRecipeDraft> getTradingRecipes() {
 			// Add the shopkeeper's offers:
-			List<? extends TradeOffer> offers = shopkeeper.getOffers();
-			// With heuristic initial capacity:
-			List<TradingRecipeDraft> recipes = new ArrayList<>(offers.size() + 8);
-			offers.forEach(offer -> {
-				// The offer returns immutable items, so there is no need to copy them.
-				TradingRecipeDraft recipe = new TradingRecipeDraft(
-						offer.getResultItem(),
-						offer.getItem1(),
-						offer.getItem2()
-				);
-				recipes.add(recipe);
-			});
-			return recipes;
+			// With heuristic additional capacity:
+			return this.getOfferTradingRecipes(
+					shopkeeper.getOffers(),
+					8,
+					this::createTradingRecipe
+			);
+		}
+
+		private TradingRecipeDraft createTradingRecipe(TradeOffer offer) {
+			// The offer returns immutable items, so there is no need to copy them.
+			return new TradingRecipeDraft(
+					offer.getResultItem(),
+					offer.getItem1(),
+					offer.getItem2()
+			);
 		}
 
 		@Override
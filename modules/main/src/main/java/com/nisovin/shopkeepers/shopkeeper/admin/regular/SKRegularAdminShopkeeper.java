@@ -33,6 +33,9 @@ public class SKRegularAdminShopkeeper
 	// There can be multiple different offers for the same kind of item:
 	private final List<SKTradeOffer> offers = new ArrayList<>();
 	private final List<? extends SKTradeOffer> offersView = Collections.unmodifiableList(offers);
+	// Immutable snapshot of the offers that is shared as trading recipes. Reset whenever the offers
+	// change, so that the trading views can detect the change:
+	private @Nullable List<? extends SKTradeOffer> tradingRecipes = null;
 
 	/**
 	 * Creates a not yet initialized {@link SKRegularAdminShopkeeper}.
@@ -102,7 +105,20 @@ public class SKRegularAdminShopkeeper
 		// SKTradeOffer extends SKTradingRecipe and reports to not be out-of-stock. Both
 		// SKTradeOffer and TradingRecipe are immutable. We can therefore reuse the offers as
 		// trading recipes, and don't have to create new trading recipes for them.
-		return offersView;
+		// However, we return an immutable snapshot of the offers instead of the live view, so
+		// that trading views can compare the recipes they currently display with the latest
+		// recipes.
+		List<? extends SKTradeOffer> tradingRecipes = this.tradingRecipes;
+		if (tradingRecipes == null) {
+			tradingRecipes = List.copyOf(offers);
+			this.tradingRecipes = tradingRecipes;
+		}
+		return tradingRecipes;
+	}
+
+	@Override
+	public boolean hasPlayerSpecificTradingRecipes() {
+		return false;
 	}
 
 	// OFFERS
@@ -156,6 +172,7 @@ public class SKRegularAdminShopkeeper
 
 	private void _clearOffers() {
 		offers.clear();
+		tradingRecipes = null;
 	}
 
 	@Override
@@ -186,6 +203,7 @@ public class SKRegularAdminShopkeeper
 
 		// Add the new offer:
 		offers.add(skOffer);
+		tradingRecipes = null;
 	}
 
 	@Override
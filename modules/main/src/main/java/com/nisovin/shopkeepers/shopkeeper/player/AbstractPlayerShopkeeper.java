@@ -345,6 +345,12 @@ public abstract class AbstractPlayerShopkeeper
 
 		// Inform the shop object:
 		this.getShopObject().onShopOwnerChanged();
+
+		// Inform shopkeeper registry:
+		if (this.isValid()) {
+			SKShopkeepersPlugin.getInstance().getShopkeeperRegistry()
+					.onPlayerShopOwnerChanged(this);
+		}
 	}
 
 	public User getOwnerUser() {
@@ -376,6 +382,14 @@ public abstract class AbstractPlayerShopkeeper
 		return Bukkit.getPlayer(this.getOwnerUUID());
 	}
 
+	// TRADING
+
+	@Override
+	public boolean hasPlayerSpecificTradingRecipes() {
+		// The trading recipes only depend on the offers and the container contents:
+		return false;
+	}
+
 	// TRADE NOTIFICATIONS
 
 	public static final Property<Boolean> NOTIFY_ON_TRADES = new BasicProperty<Boolean>()
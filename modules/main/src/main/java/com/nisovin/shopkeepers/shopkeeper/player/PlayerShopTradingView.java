@@ -2,25 +2,27 @@ package com.nisovin.shopkeepers.shopkeeper.player;
 
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.ItemStack;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.lang.Messages;
+import com.nisovin.shopkeepers.text.Text;
 import com.nisovin.shopkeepers.ui.lib.UIState;
 import com.nisovin.shopkeepers.ui.trading.Trade;
 import com.nisovin.shopkeepers.ui.trading.TradingContext;
 import com.nisovin.shopkeepers.ui.trading.TradingView;
 import com.nisovin.shopkeepers.util.bukkit.PermissionUtils;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.inventory.InventoryContentsDelta;
 
 public class PlayerShopTradingView extends TradingView {
 
 	// State related to the currently handled trade:
 	protected @Nullable Inventory containerInventory = null;
-	protected @Nullable ItemStack @Nullable [] newContainerContents = null;
+	// Only the slots that are changed during the trade are written back to the container:
+	protected @Nullable InventoryContentsDelta containerChanges = null;
 
 	protected PlayerShopTradingView(
 			PlayerShopTradingViewProvider provider,
@@ -75,18 +77,100 @@ public class PlayerShopTradingView extends TradingView {
 
 		// Setup common state information for handling this trade:
 		this.containerInventory = containerInventory;
-		this.newContainerContents = Unsafe.cast(containerInventory.getContents());
+		this.containerChanges = new InventoryContentsDelta(containerInventory);
 
 		return true;
 	}
 
+	@Override
+	protected int getMaxTradeCount(Trade trade, int maxTradeCount) {
+		int limit = super.getMaxTradeCount(trade, maxTradeCount);
+		InventoryContentsDelta containerChanges = Unsafe.assertNonNull(this.containerChanges);
+
+		// Simulate the container changes on a copy of the recorded changes:
+		InventoryContentsDelta contents = containerChanges.copy();
+		int tradeCount = 0;
+		while (tradeCount < limit && this.applyContainerChanges(trade, contents, true)) {
+			tradeCount++;
+		}
+		return tradeCount;
+	}
+
+	@Override
+	protected boolean finalTradePreparation(Trade trade) {
+		if (!super.finalTradePreparation(trade)) return false;
+
+		InventoryContentsDelta containerChanges = Unsafe.assertNonNull(this.containerChanges);
+		int tradeCount = trade.getTradeCount();
+		for (int i = 0; i < tradeCount; i++) {
+			if (!this.applyContainerChanges(trade, containerChanges, false)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records the container changes of a single application of the given trade in the given
+	 * container contents.
+	 * <p>
+	 * This is invoked during {@link #finalTradePreparation(Trade)} once for each of the
+	 * {@link Trade#getTradeCount() aggregated trades}, and during
+	 * {@link #getMaxTradeCount(Trade, int)} to determine how often the trade can be applied.
+	 * <p>
+	 * The given contents can be left partially modified if the container changes cannot be
+	 * applied. The container itself is only modified once the trade is applied.
+	 * 
+	 * @param trade
+	 *            the trade, not <code>null</code>
+	 * @param contents
+	 *            the container contents to record the changes in, not <code>null</code>
+	 * @param silent
+	 *            <code>true</code> to not send any feedback to the trading player if the container
+	 *            changes cannot be applied
+	 * @return <code>true</code> if the container changes were applied, <code>false</code> if the
+	 *         trade cannot be applied
+	 */
+	protected boolean applyContainerChanges(
+			Trade trade,
+			InventoryContentsDelta contents,
+			boolean silent
+	) {
+		return true;
+	}
+
+	/**
+	 * Sends the given feedback message to the trading player and logs the given debug reason, but
+	 * only if not {@code silent}.
+	 * 
+	 * @param trade
+	 *            the trade, not <code>null</code>
+	 * @param silent
+	 *            <code>true</code> to skip the feedback
+	 * @param message
+	 *            the message to send to the trading player
+	 * @param reason
+	 *            the reason to log as debug output
+	 */
+	protected final void preventContainerChanges(
+			Trade trade,
+			boolean silent,
+			Text message,
+			String reason
+	) {
+		if (silent) return;
+		TextUtils.sendMessage(trade.getTradingPlayer(), message);
+		this.debugPreventedTrade(reason);
+	}
+
 	@Override
 	protected void onTradeApplied(Trade trade) {
 		super.onTradeApplied(trade);
 
 		// Apply container content changes:
-		if (containerInventory != null && newContainerContents != null) {
-			containerInventory.setContents(Unsafe.castNonNull(newContainerContents));
+		InventoryContentsDelta containerChanges = this.containerChanges;
+		if (containerChanges != null) {
+			containerChanges.apply();
 		}
 	}
 
@@ -96,6 +180,6 @@ public class PlayerShopTradingView extends TradingView {
 
 		// Reset trade related state:
 		containerInventory = null;
-		newContainerContents = null;
+		containerChanges = null;
 	}
 }
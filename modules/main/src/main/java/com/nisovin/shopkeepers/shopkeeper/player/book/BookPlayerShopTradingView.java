@@ -20,6 +20,7 @@ import com.nisovin.shopkeepers.ui.trading.TradingContext;
 import com.nisovin.shopkeepers.util.annotations.ReadOnly;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.inventory.BookItems;
+import com.nisovin.shopkeepers.util.inventory.InventoryContentsDelta;
 import com.nisovin.shopkeepers.util.inventory.InventoryUtils;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 
@@ -89,17 +90,21 @@ public class BookPlayerShopTradingView extends PlayerShopTradingView {
 	}
 
 	@Override
-	protected boolean finalTradePreparation(Trade trade) {
-		if (!super.finalTradePreparation(trade)) return false;
+	protected boolean applyContainerChanges(
+			Trade trade,
+			InventoryContentsDelta contents,
+			boolean silent
+	) {
+		if (!super.applyContainerChanges(trade, contents, silent)) return false;
 
-		Player tradingPlayer = trade.getTradingPlayer();
 		BookOffer offer = Unsafe.assertNonNull(this.currentOffer);
-		@Nullable ItemStack[] newContainerContents = Unsafe.assertNonNull(this.newContainerContents);
 
 		// Remove a blank book from the container contents:
-		if (InventoryUtils.removeItems(newContainerContents, WRITABLE_BOOK_MATCHER, 1) != 0) {
-			TextUtils.sendMessage(tradingPlayer, Messages.cannotTradeInsufficientWritableBooks);
-			this.debugPreventedTrade(
+		if (InventoryUtils.removeItems(contents, WRITABLE_BOOK_MATCHER, 1) != 0) {
+			this.preventContainerChanges(
+					trade,
+					silent,
+					Messages.cannotTradeInsufficientWritableBooks,
 					"The shop's container does not contain any writable (book-and-quill) items."
 			);
 			return false;
@@ -109,9 +114,13 @@ public class BookPlayerShopTradingView extends PlayerShopTradingView {
 		// Note: We always use the configured currency items here, ignoring any modifications to the
 		// "received" items during the trade event.
 		int amountAfterTaxes = this.getAmountAfterTaxes(offer.getPrice());
-		if (this.addCurrencyItems(newContainerContents, amountAfterTaxes) != 0) {
-			TextUtils.sendMessage(tradingPlayer, Messages.cannotTradeInsufficientStorageSpace);
-			this.debugPreventedTrade("The shop's container cannot hold the traded items.");
+		if (this.addCurrencyItems(contents, amountAfterTaxes) != 0) {
+			this.preventContainerChanges(
+					trade,
+					silent,
+					Messages.cannotTradeInsufficientStorageSpace,
+					"The shop's container cannot hold the traded items."
+			);
 			return false;
 		}
 
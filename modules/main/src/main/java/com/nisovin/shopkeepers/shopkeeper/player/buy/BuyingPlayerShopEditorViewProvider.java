@@ -1,6 +1,5 @@
 package com.nisovin.shopkeepers.shopkeeper.player.buy;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.bukkit.entity.Player;
@@ -18,8 +17,8 @@ import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopEditorViewProvider;
 import com.nisovin.shopkeepers.ui.editor.DefaultTradingRecipesAdapter;
 import com.nisovin.shopkeepers.ui.lib.UIState;
 import com.nisovin.shopkeepers.ui.lib.View;
-import com.nisovin.shopkeepers.util.inventory.InventoryUtils;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.inventory.SimilarItemIndex;
 import com.nisovin.shopkeepers.util.logging.Log;
 
 public class BuyingPlayerShopEditorViewProvider extends PlayerShopEditorViewProvider {
@@ -36,20 +35,16 @@ public class BuyingPlayerShopEditorViewProvider extends PlayerShopEditorViewProv
 		@Override
 		public List<TradingRecipeDraft> getTradingRecipes() {
 			// Add the shopkeeper's offers:
-			List<? extends PriceOffer> offers = shopkeeper.getOffers();
-			// With heuristic initial capacity:
-			List<TradingRecipeDraft> recipes = new ArrayList<>(offers.size() + 8);
-			Currency baseCurrency = Currencies.getBase();
-			offers.forEach(offer -> {
-				UnmodifiableItemStack tradedItem = offer.getItem();
-				UnmodifiableItemStack currencyItem = baseCurrency.getItemData().createUnmodifiableItemStack(offer.getPrice());
-				TradingRecipeDraft recipe = new TradingRecipeDraft(currencyItem, tradedItem, null);
-				recipes.add(recipe);
-			});
+			// With heuristic additional capacity:
+			List<TradingRecipeDraft> recipes = this.getOfferTradingRecipes(
+					shopkeeper.getOffers(),
+					8,
+					this::createTradingRecipe
+			);
 
 			// Add new empty recipe drafts for items from the container without existing offer:
 			// We only add one recipe per similar item:
-			List<ItemStack> newRecipes = new ArrayList<>();
+			SimilarItemIndex<ItemStack> newRecipes = new SimilarItemIndex<>(item -> item);
 			// Empty if the container is not found:
 			@Nullable ItemStack[] containerContents = shopkeeper.getContainerContents();
 			for (ItemStack containerItem : containerContents) {
@@ -70,7 +65,7 @@ public class BuyingPlayerShopEditorViewProvider extends PlayerShopEditorViewProv
 					continue;
 				}
 
-				if (InventoryUtils.contains(newRecipes, containerItem)) {
+				if (newRecipes.contains(containerItem)) {
 					// We already added a new recipe for this item:
 					continue;
 				}
@@ -84,6 +79,14 @@ public class BuyingPlayerShopEditorViewProvider extends PlayerShopEditorViewProv
 			return recipes;
 		}
 
+		private TradingRecipeDraft createTradingRecipe(PriceOffer offer) {
+			Currency baseCurrency = Currencies.getBase();
+			UnmodifiableItemStack tradedItem = offer.getItem();
+			UnmodifiableItemStack currencyItem = baseCurrency.getItemData()
+					.createUnmodifiableItemStack(offer.getPrice());
+			return new TradingRecipeDraft(currencyItem, tradedItem, null);
+		}
+
 		@Override
 		protected List<? extends PriceOffer> getOffers() {
 			return shopkeeper.getOffers();
@@ -4,7 +4,6 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import com.nisovin.shopkeepers.api.events.ShopkeeperTradeEvent;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopkeeper.offers.PriceOffer;
@@ -16,8 +15,8 @@ import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopTradingView;
 import com.nisovin.shopkeepers.ui.lib.UIState;
 import com.nisovin.shopkeepers.ui.trading.Trade;
 import com.nisovin.shopkeepers.ui.trading.TradingContext;
-import com.nisovin.shopkeepers.util.annotations.ReadOnly;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.inventory.InventoryContentsDelta;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 
@@ -76,24 +75,32 @@ public class BuyingPlayerShopTradingView extends PlayerShopTradingView {
 	}
 
 	@Override
-	protected boolean finalTradePreparation(Trade trade) {
-		if (!super.finalTradePreparation(trade)) return false;
+	protected boolean applyContainerChanges(
+			Trade trade,
+			InventoryContentsDelta contents,
+			boolean silent
+	) {
+		if (!super.applyContainerChanges(trade, contents, silent)) return false;
 
-		Player tradingPlayer = trade.getTradingPlayer();
 		PriceOffer offer = Unsafe.assertNonNull(this.currentOffer);
-		@Nullable ItemStack[] newContainerContents = Unsafe.assertNonNull(this.newContainerContents);
 
 		// Remove the currency items from the container contents:
 		// Note: We always use the configured currency items here, ignoring any modifications to the
 		// "result" item during the trade event.
-		int remaining = this.removeCurrency(newContainerContents, offer.getPrice());
+		int remaining = this.removeCurrency(contents, offer.getPrice());
 		if (remaining > 0) {
-			TextUtils.sendMessage(tradingPlayer, Messages.cannotTradeInsufficientCurrency);
-			this.debugPreventedTrade("The shop's container does not contain enough currency.");
+			this.preventContainerChanges(
+					trade,
+					silent,
+					Messages.cannotTradeInsufficientCurrency,
+					"The shop's container does not contain enough currency."
+			);
 			return false;
 		} else if (remaining < 0) {
-			TextUtils.sendMessage(tradingPlayer, Messages.cannotTradeInsufficientStorageSpace);
-			this.debugPreventedTrade(
+			this.preventContainerChanges(
+					trade,
+					silent,
+					Messages.cannotTradeInsufficientStorageSpace,
 					"The shop's container does not have enough space to split large currency items."
 			);
 			return false;
@@ -106,14 +113,17 @@ public class BuyingPlayerShopTradingView extends PlayerShopTradingView {
 		// slightly differ the required items, but still be accepted.
 		// Note: Event handlers might set a second "received" item even if the original trade only
 		// involved a single item stack.
-		ShopkeeperTradeEvent tradeEvent = trade.getTradeEvent();
-		UnmodifiableItemStack receivedItem1 = tradeEvent.getReceivedItem1();
-		UnmodifiableItemStack receivedItem2 = tradeEvent.getReceivedItem2();
-
-		if (this.addReceivedItem(newContainerContents, receivedItem1) != 0
-				|| this.addReceivedItem(newContainerContents, receivedItem2) != 0) {
-			TextUtils.sendMessage(tradingPlayer, Messages.cannotTradeInsufficientStorageSpace);
-			this.debugPreventedTrade("The shop's container cannot hold the received items.");
+		UnmodifiableItemStack receivedItem1 = trade.getReceivedItem1();
+		UnmodifiableItemStack receivedItem2 = trade.getReceivedItem2();
+
+		if (this.addReceivedItem(contents, receivedItem1) != 0
+				|| this.addReceivedItem(contents, receivedItem2) != 0) {
+			this.preventContainerChanges(
+					trade,
+					silent,
+					Messages.cannotTradeInsufficientStorageSpace,
+					"The shop's container cannot hold the received items."
+			);
 			return false;
 		}
 
@@ -132,7 +142,7 @@ public class BuyingPlayerShopTradingView extends PlayerShopTradingView {
 	// TODO Support iterating in reverse order, for nicer looking container contents?
 	// Returns the amount of currency that couldn't be removed, 0 on full success, negative if too
 	// much was removed.
-	protected int removeCurrency(@ReadOnly @Nullable ItemStack[] contents, int amount) {
+	protected int removeCurrency(InventoryContentsDelta contents, int amount) {
 		Validate.notNull(contents, "contents is null");
 		Validate.isTrue(amount >= 0, "amount cannot be negative");
 		if (amount == 0) return 0;
@@ -142,8 +152,8 @@ public class BuyingPlayerShopTradingView extends PlayerShopTradingView {
 		// Second pass: Remove as much low currency as available from full stacks.
 		Currency baseCurrency = Currencies.getBase();
 		for (int k = 0; k < 2; k++) {
-			for (int slot = 0; slot < contents.length; slot++) {
-				ItemStack itemStack = contents[slot];
+			for (int slot = 0; slot < contents.getSize(); slot++) {
+				ItemStack itemStack = contents.getItem(slot);
 				if (!baseCurrency.getItemData().matches(itemStack)) continue;
 				assert itemStack != null;
 
@@ -154,12 +164,12 @@ public class BuyingPlayerShopTradingView extends PlayerShopTradingView {
 					if (newAmount > 0) {
 						// Copy the item before modifying it:
 						itemStack = itemStack.clone();
-						contents[slot] = itemStack;
+						contents.setItem(slot, itemStack);
 						itemStack.setAmount(newAmount);
 						remaining = 0;
 						break;
 					} else {
-						contents[slot] = null;
+						contents.setItem(slot, null);
 						remaining = -newAmount;
 						if (newAmount == 0) {
 							break;
@@ -186,8 +196,8 @@ public class BuyingPlayerShopTradingView extends PlayerShopTradingView {
 		// First pass: Remove high currency from partial stacks.
 		// Second pass: Remove high currency from full stacks.
 		for (int k = 0; k < 2; k++) {
-			for (int slot = 0; slot < contents.length; slot++) {
-				ItemStack itemStack = contents[slot];
+			for (int slot = 0; slot < contents.getSize(); slot++) {
+				ItemStack itemStack = contents.getItem(slot);
 				if (!highCurrency.getItemData().matches(itemStack)) continue;
 				assert itemStack != null;
 
@@ -198,12 +208,12 @@ public class BuyingPlayerShopTradingView extends PlayerShopTradingView {
 					if (newAmount > 0) {
 						// Copy the item before modifying it:
 						itemStack = itemStack.clone();
-						contents[slot] = itemStack;
+						contents.setItem(slot, itemStack);
 						itemStack.setAmount(newAmount);
 						remainingHigh = 0;
 						break;
 					} else {
-						contents[slot] = null;
+						contents.setItem(slot, null);
 						remainingHigh = -newAmount;
 						if (newAmount == 0) {
 							break;
@@ -225,12 +235,12 @@ public class BuyingPlayerShopTradingView extends PlayerShopTradingView {
 		// above):
 		// TODO This could probably be replaced with Utils.addItems
 		int maxStackSize = baseCurrency.getMaxStackSize();
-		for (int slot = 0; slot < contents.length; slot++) {
-			ItemStack itemStack = contents[slot];
+		for (int slot = 0; slot < contents.getSize(); slot++) {
+			ItemStack itemStack = contents.getItem(slot);
 			if (!ItemUtils.isEmpty(itemStack)) continue;
 
 			int stackSize = Math.min(remaining, maxStackSize);
-			contents[slot] = baseCurrency.getItemData().createItemStack(stackSize);
+			contents.setItem(slot, baseCurrency.getItemData().createItemStack(stackSize));
 			remaining -= stackSize;
 			if (remaining == 0) break;
 		}
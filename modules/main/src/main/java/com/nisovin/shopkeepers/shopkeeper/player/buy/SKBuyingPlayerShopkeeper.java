@@ -2,7 +2,6 @@ package com.nisovin.shopkeepers.shopkeeper.player.buy;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 import org.bukkit.entity.Player;
@@ -28,6 +27,7 @@ import com.nisovin.shopkeepers.util.data.property.BasicProperty;
 import com.nisovin.shopkeepers.util.data.property.Property;
 import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.inventory.SimilarItemIndex;
 import com.nisovin.shopkeepers.util.java.CollectionUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.logging.Log;
@@ -38,6 +38,10 @@ public class SKBuyingPlayerShopkeeper
 	// Contains only one offer for any specific type of item:
 	private final List<PriceOffer> offers = new ArrayList<>();
 	private final List<? extends PriceOffer> offersView = Collections.unmodifiableList(offers);
+	// Kept in sync with the offers:
+	private final SimilarItemIndex<PriceOffer> offersIndex = new SimilarItemIndex<>(
+			offer -> ItemUtils.asItemStack(offer.getItem())
+	);
 
 	/**
 	 * Creates a new and not yet initialized {@link SKBuyingPlayerShopkeeper}.
@@ -173,12 +177,7 @@ public class SKBuyingPlayerShopkeeper
 	@Override
 	public @Nullable PriceOffer getOffer(@ReadOnly ItemStack tradedItem) {
 		Validate.notNull(tradedItem, "tradedItem is null");
-		for (PriceOffer offer : this.getOffers()) {
-			if (offer.getItem().isSimilar(tradedItem)) {
-				return offer;
-			}
-		}
-		return null;
+		return offersIndex.get(tradedItem);
 	}
 
 	@Override
@@ -190,15 +189,12 @@ public class SKBuyingPlayerShopkeeper
 	@Override
 	public void removeOffer(@ReadOnly ItemStack tradedItem) {
 		Validate.notNull(tradedItem, "tradedItem is null");
-		Iterator<? extends PriceOffer> iterator = offers.iterator();
-		while (iterator.hasNext()) {
-			PriceOffer offer = iterator.next();
-			if (offer.getItem().isSimilar(tradedItem)) {
-				iterator.remove();
-				this.markDirty();
-				break;
-			}
-		}
+		PriceOffer offer = offersIndex.get(tradedItem);
+		if (offer == null) return;
+
+		offers.remove(offer);
+		offersIndex.remove(offer);
+		this.markDirty();
 	}
 
 	@Override
@@ -215,6 +211,7 @@ public class SKBuyingPlayerShopkeeper
 
 	private void _clearOffers() {
 		offers.clear();
+		offersIndex.clear();
 	}
 
 	@Override
@@ -248,6 +245,7 @@ public class SKBuyingPlayerShopkeeper
 
 		// Add the new offer:
 		offers.add(skOffer);
+		offersIndex.add(skOffer);
 	}
 
 	@Override
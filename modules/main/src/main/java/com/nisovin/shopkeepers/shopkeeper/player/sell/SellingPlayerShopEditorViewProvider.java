@@ -1,6 +1,5 @@
 package com.nisovin.shopkeepers.shopkeeper.player.sell;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.bukkit.entity.Player;
@@ -17,8 +16,8 @@ import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopEditorViewProvider;
 import com.nisovin.shopkeepers.ui.editor.DefaultTradingRecipesAdapter;
 import com.nisovin.shopkeepers.ui.lib.UIState;
 import com.nisovin.shopkeepers.ui.lib.View;
-import com.nisovin.shopkeepers.util.inventory.InventoryUtils;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.inventory.SimilarItemIndex;
 
 public class SellingPlayerShopEditorViewProvider extends PlayerShopEditorViewProvider {
 
@@ -34,18 +33,16 @@ public class SellingPlayerShopEditorViewProvider extends PlayerShopEditorViewPro
 		@Override
 		public List<TradingRecipeDraft> getTradingRecipes() {
 			// Add the shopkeeper's offers:
-			List<? extends PriceOffer> offers = shopkeeper.getOffers();
-			// With heuristic initial capacity:
-			List<TradingRecipeDraft> recipes = new ArrayList<>(offers.size() + 8);
-			offers.forEach(offer -> {
-				ItemStack tradedItem = ItemUtils.asItemStack(offer.getItem());
-				TradingRecipeDraft recipe = createTradingRecipeDraft(tradedItem, offer.getPrice());
-				recipes.add(recipe);
-			});
+			// With heuristic additional capacity:
+			List<TradingRecipeDraft> recipes = this.getOfferTradingRecipes(
+					shopkeeper.getOffers(),
+					8,
+					this::createTradingRecipe
+			);
 
 			// Add new empty recipe drafts for items from the container without existing offer:
 			// We only add one recipe per similar item:
-			List<ItemStack> newRecipes = new ArrayList<>();
+			SimilarItemIndex<ItemStack> newRecipes = new SimilarItemIndex<>(item -> item);
 			// Empty if the container is not found:
 			@Nullable ItemStack[] containerContents = shopkeeper.getContainerContents();
 			for (ItemStack containerItem : containerContents) {
@@ -66,7 +63,7 @@ public class SellingPlayerShopEditorViewProvider extends PlayerShopEditorViewPro
 					continue;
 				}
 
-				if (InventoryUtils.contains(newRecipes, containerItem)) {
+				if (newRecipes.contains(containerItem)) {
 					// We already added a new recipe for this item:
 					continue;
 				}
@@ -81,6 +78,11 @@ public class SellingPlayerShopEditorViewProvider extends PlayerShopEditorViewPro
 			return recipes;
 		}
 
+		private TradingRecipeDraft createTradingRecipe(PriceOffer offer) {
+			ItemStack tradedItem = ItemUtils.asItemStack(offer.getItem());
+			return createTradingRecipeDraft(tradedItem, offer.getPrice());
+		}
+
 		@Override
 		protected List<? extends PriceOffer> getOffers() {
 			return shopkeeper.getOffers();
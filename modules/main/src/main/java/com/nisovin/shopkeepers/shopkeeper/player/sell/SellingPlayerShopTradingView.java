@@ -1,7 +1,6 @@
 package com.nisovin.shopkeepers.shopkeeper.player.sell;
 
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
@@ -14,6 +13,7 @@ import com.nisovin.shopkeepers.ui.lib.UIState;
 import com.nisovin.shopkeepers.ui.trading.Trade;
 import com.nisovin.shopkeepers.ui.trading.TradingContext;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.inventory.InventoryContentsDelta;
 import com.nisovin.shopkeepers.util.inventory.InventoryUtils;
 
 public class SellingPlayerShopTradingView extends PlayerShopTradingView {
@@ -71,22 +71,28 @@ public class SellingPlayerShopTradingView extends PlayerShopTradingView {
 	}
 
 	@Override
-	protected boolean finalTradePreparation(Trade trade) {
-		if (!super.finalTradePreparation(trade)) return false;
+	protected boolean applyContainerChanges(
+			Trade trade,
+			InventoryContentsDelta contents,
+			boolean silent
+	) {
+		if (!super.applyContainerChanges(trade, contents, silent)) return false;
 
-		Player tradingPlayer = trade.getTradingPlayer();
 		TradingRecipe tradingRecipe = trade.getTradingRecipe();
 		PriceOffer offer = Unsafe.assertNonNull(this.currentOffer);
-		@Nullable ItemStack[] newContainerContents = Unsafe.assertNonNull(this.newContainerContents);
 
 		// Remove the result items from the container contents:
 		// Note: We always use the configured result item here, ignoring any modifications to the
 		// "result" item during the trade event. The trading player will still receive the modified
 		// result item.
 		UnmodifiableItemStack soldItem = tradingRecipe.getResultItem();
-		if (InventoryUtils.removeItems(newContainerContents, soldItem) != 0) {
-			TextUtils.sendMessage(tradingPlayer, Messages.cannotTradeInsufficientStock);
-			this.debugPreventedTrade("The shop's container does not contain the required items.");
+		if (InventoryUtils.removeItems(contents, soldItem) != 0) {
+			this.preventContainerChanges(
+					trade,
+					silent,
+					Messages.cannotTradeInsufficientStock,
+					"The shop's container does not contain the required items."
+			);
 			return false;
 		}
 
@@ -94,9 +100,13 @@ public class SellingPlayerShopTradingView extends PlayerShopTradingView {
 		// Note: We always use the configured currency items here, ignoring any modifications to the
 		// "received" items during the subsequent trade event.
 		int amountAfterTaxes = this.getAmountAfterTaxes(offer.getPrice());
-		if (this.addCurrencyItems(newContainerContents, amountAfterTaxes) != 0) {
-			TextUtils.sendMessage(tradingPlayer, Messages.cannotTradeInsufficientStorageSpace);
-			this.debugPreventedTrade("The shop's container cannot hold the traded items.");
+		if (this.addCurrencyItems(contents, amountAfterTaxes) != 0) {
+			this.preventContainerChanges(
+					trade,
+					silent,
+					Messages.cannotTradeInsufficientStorageSpace,
+					"The shop's container cannot hold the traded items."
+			);
 			return false;
 		}
 
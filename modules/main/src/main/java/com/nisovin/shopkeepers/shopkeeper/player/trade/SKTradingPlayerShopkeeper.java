@@ -26,6 +26,8 @@ import com.nisovin.shopkeepers.util.data.property.BasicProperty;
 import com.nisovin.shopkeepers.util.data.property.Property;
 import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
 import com.nisovin.shopkeepers.util.inventory.InventoryUtils;
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.inventory.SimilarItemIndex;
 import com.nisovin.shopkeepers.util.java.CollectionUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.logging.Log;
@@ -36,6 +38,10 @@ public class SKTradingPlayerShopkeeper
 	// There can be multiple different offers for the same kind of item:
 	private final List<TradeOffer> offers = new ArrayList<>();
 	private final List<? extends TradeOffer> offersView = Collections.unmodifiableList(offers);
+	// Indexed by their result items. Kept in sync with the offers:
+	private final SimilarItemIndex<TradeOffer> offersIndex = new SimilarItemIndex<>(
+			offer -> ItemUtils.asItemStack(offer.getResultItem())
+	);
 
 	/**
 	 * Creates a new and not yet initialized {@link SKTradingPlayerShopkeeper}.
@@ -167,16 +173,13 @@ public class SKTradingPlayerShopkeeper
 
 	public boolean hasOffer(ItemStack resultItem) {
 		Validate.notNull(resultItem, "resultItem is null");
-		for (TradeOffer offer : this.getOffers()) {
-			if (offer.getResultItem().isSimilar(resultItem)) {
-				return true;
-			}
-		}
-		return false;
+		return offersIndex.contains(resultItem);
 	}
 
 	public @Nullable TradeOffer getOffer(TradingRecipe tradingRecipe) {
-		for (TradeOffer offer : this.getOffers()) {
+		ItemStack resultItem = ItemUtils.asItemStack(tradingRecipe.getResultItem());
+		// Offers with equal items also have similar result items:
+		for (TradeOffer offer : offersIndex.getCandidates(resultItem)) {
 			if (offer.areItemsEqual(tradingRecipe)) {
 				return offer;
 			}
@@ -192,6 +195,7 @@ public class SKTradingPlayerShopkeeper
 
 	private void _clearOffers() {
 		offers.clear();
+		offersIndex.clear();
 	}
 
 	@Override
@@ -222,6 +226,7 @@ public class SKTradingPlayerShopkeeper
 
 		// Add the new offer:
 		offers.add(skOffer);
+		offersIndex.add(skOffer);
 	}
 
 	@Override
@@ -1,6 +1,5 @@
 package com.nisovin.shopkeepers.shopkeeper.player.trade;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.bukkit.entity.Player;
@@ -16,8 +15,8 @@ import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopEditorViewProvider;
 import com.nisovin.shopkeepers.ui.editor.DefaultTradingRecipesAdapter;
 import com.nisovin.shopkeepers.ui.lib.UIState;
 import com.nisovin.shopkeepers.ui.lib.View;
-import com.nisovin.shopkeepers.util.inventory.InventoryUtils;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.inventory.SimilarItemIndex;
 
 public class TradingPlayerShopEditorViewProvider extends PlayerShopEditorViewProvider {
 
@@ -33,22 +32,16 @@ public class TradingPlayerShopEditorViewProvider extends PlayerShopEditorViewPro
 		@Override
 		public List<TradingRecipeDraft> getTradingRecipes() {
 			// Add the shopkeeper's offers:
-			List<? extends TradeOffer> offers = shopkeeper.getOffers();
-			// With heuristic initial capacity:
-			List<TradingRecipeDraft> recipes = new ArrayList<>(offers.size() + 8);
-			offers.forEach(offer -> {
-				// The offer returns copies of its items:
-				TradingRecipeDraft recipe = new TradingRecipeDraft(
-						offer.getResultItem(),
-						offer.getItem1(),
-						offer.getItem2()
-				);
-				recipes.add(recipe);
-			});
+			// With heuristic additional capacity:
+			List<TradingRecipeDraft> recipes = this.getOfferTradingRecipes(
+					shopkeeper.getOffers(),
+					8,
+					this::createTradingRecipe
+			);
 
 			// Add new empty recipe drafts for items from the container without existing offer:
 			// We only add one recipe per similar item:
-			List<ItemStack> newRecipes = new ArrayList<>();
+			SimilarItemIndex<ItemStack> newRecipes = new SimilarItemIndex<>(item -> item);
 			// Empty if the container is not found:
 			@Nullable ItemStack[] containerContents = shopkeeper.getContainerContents();
 			for (ItemStack containerItem : containerContents) {
@@ -64,7 +57,7 @@ public class TradingPlayerShopEditorViewProvider extends PlayerShopEditorViewPro
 					continue;
 				}
 
-				if (InventoryUtils.contains(newRecipes, containerItem)) {
+				if (newRecipes.contains(containerItem)) {
 					// We already added a new recipe for this item:
 					continue;
 				}
@@ -79,6 +72,15 @@ public class TradingPlayerShopEditorViewProvider extends PlayerShopEditorViewPro
 			return recipes;
 		}
 
+		private TradingRecipeDraft createTradingRecipe(TradeOffer offer) {
+			// The offer returns immutable items, so there is no need to copy them.
+			return new TradingRecipeDraft(
+					offer.getResultItem(),
+					offer.getItem1(),
+					offer.getItem2()
+			);
+		}
+
 		@Override
 		protected List<? extends TradeOffer> getOffers() {
 			return shopkeeper.getOffers();
@@ -1,11 +1,7 @@
 package com.nisovin.shopkeepers.shopkeeper.player.trade;
 
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
-import org.checkerframework.checker.nullness.qual.Nullable;
 
-import com.nisovin.shopkeepers.api.events.ShopkeeperTradeEvent;
-import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopkeeper.offers.TradeOffer;
 import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
@@ -14,6 +10,7 @@ import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopTradingView;
 import com.nisovin.shopkeepers.ui.lib.UIState;
 import com.nisovin.shopkeepers.ui.trading.Trade;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.inventory.InventoryContentsDelta;
 import com.nisovin.shopkeepers.util.inventory.InventoryUtils;
 
 public class TradingPlayerShopTradingView extends PlayerShopTradingView {
@@ -52,12 +49,14 @@ public class TradingPlayerShopTradingView extends PlayerShopTradingView {
 	}
 
 	@Override
-	protected boolean finalTradePreparation(Trade trade) {
-		if (!super.finalTradePreparation(trade)) return false;
+	protected boolean applyContainerChanges(
+			Trade trade,
+			InventoryContentsDelta contents,
+			boolean silent
+	) {
+		if (!super.applyContainerChanges(trade, contents, silent)) return false;
 
-		Player tradingPlayer = trade.getTradingPlayer();
 		TradingRecipe tradingRecipe = trade.getTradingRecipe();
-		@Nullable ItemStack[] newContainerContents = Unsafe.assertNonNull(this.newContainerContents);
 
 		// Remove the result items from the container contents:
 		// Note: We always use the configured result item here, ignoring any modifications to the
@@ -65,9 +64,13 @@ public class TradingPlayerShopTradingView extends PlayerShopTradingView {
 		// result item.
 		UnmodifiableItemStack resultItem = tradingRecipe.getResultItem();
 		assert resultItem != null;
-		if (InventoryUtils.removeItems(newContainerContents, resultItem) != 0) {
-			TextUtils.sendMessage(tradingPlayer, Messages.cannotTradeInsufficientStock);
-			this.debugPreventedTrade("The shop's container does not contain the required items.");
+		if (InventoryUtils.removeItems(contents, resultItem) != 0) {
+			this.preventContainerChanges(
+					trade,
+					silent,
+					Messages.cannotTradeInsufficientStock,
+					"The shop's container does not contain the required items."
+			);
 			return false;
 		}
 
@@ -76,14 +79,17 @@ public class TradingPlayerShopTradingView extends PlayerShopTradingView {
 		// Note: Even if the received items were not altered by any plugins, depending on the used
 		// item comparison logic and settings, the items that the trading player offered might
 		// slightly differ the required items, but still be accepted.
-		ShopkeeperTradeEvent tradeEvent = Unsafe.assertNonNull(trade.getTradeEvent());
-		UnmodifiableItemStack receivedItem1 = tradeEvent.getReceivedItem1();
-		UnmodifiableItemStack receivedItem2 = tradeEvent.getReceivedItem2();
+		UnmodifiableItemStack receivedItem1 = trade.getReceivedItem1();
+		UnmodifiableItemStack receivedItem2 = trade.getReceivedItem2();
 
-		if (this.addReceivedItem(newContainerContents, receivedItem1) != 0
-				|| this.addReceivedItem(newContainerContents, receivedItem2) != 0) {
-			TextUtils.sendMessage(tradingPlayer, Messages.cannotTradeInsufficientStorageSpace);
-			this.debugPreventedTrade("The shop's container cannot hold the received items.");
+		if (this.addReceivedItem(contents, receivedItem1) != 0
+				|| this.addReceivedItem(contents, receivedItem2) != 0) {
+			this.preventContainerChanges(
+					trade,
+					silent,
+					Messages.cannotTradeInsufficientStorageSpace,
+					"The shop's container cannot hold the received items."
+			);
 			return false;
 		}
 
@@ -0,0 +1,78 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+
+/**
+ * The player shopkeepers of a single shop owner, sorted by id, and the owner names that are stored
+ * by these shopkeepers.
+ * <p>
+ * All shopkeepers of an owner usually store the same owner name, so that the owner's last known
+ * name can be looked up without checking all of the owner's shopkeepers.
+ */
+final class OwnedPlayerShopkeepers {
+
+	private final ShopkeeperIdList<AbstractPlayerShopkeeper> shopkeepers = new ShopkeeperIdList<>();
+	// Stored owner name -> number of shopkeepers that store this name.
+	// Usually only contains a single entry.
+	private final Map<String, Integer> ownerNameCounts = new HashMap<>(2);
+
+	OwnedPlayerShopkeepers() {
+	}
+
+	ShopkeeperIdList<AbstractPlayerShopkeeper> getShopkeepers() {
+		return shopkeepers;
+	}
+
+	boolean isEmpty() {
+		return shopkeepers.isEmpty();
+	}
+
+	/**
+	 * Gets the owner name that is stored by all of the owner's shopkeepers.
+	 * 
+	 * @return the owner name, or <code>null</code> if the shopkeepers store different names, or if
+	 *         there are no shopkeepers
+	 */
+	@Nullable String getOwnerName() {
+		if (ownerNameCounts.size() != 1) return null;
+		return ownerNameCounts.keySet().iterator().next();
+	}
+
+	void add(AbstractPlayerShopkeeper shopkeeper, String ownerName) {
+		assert shopkeeper != null && ownerName != null;
+		shopkeepers.addShopkeeper(shopkeeper);
+		this.addOwnerName(ownerName);
+	}
+
+	void remove(AbstractPlayerShopkeeper shopkeeper, String ownerName) {
+		assert shopkeeper != null && ownerName != null;
+		if (shopkeepers.removeShopkeeper(shopkeeper)) {
+			this.removeOwnerName(ownerName);
+		}
+	}
+
+	void onOwnerNameChanged(String oldOwnerName, String newOwnerName) {
+		assert oldOwnerName != null && newOwnerName != null;
+		this.removeOwnerName(oldOwnerName);
+		this.addOwnerName(newOwnerName);
+	}
+
+	private void addOwnerName(String ownerName) {
+		ownerNameCounts.merge(ownerName, 1, Integer::sum);
+	}
+
+	private void removeOwnerName(String ownerName) {
+		Integer count = ownerNameCounts.get(ownerName);
+		if (count == null) return;
+		if (count <= 1) {
+			ownerNameCounts.remove(ownerName);
+		} else {
+			ownerNameCounts.put(ownerName, count - 1);
+		}
+	}
+}
@@ -1,10 +1,11 @@
 package com.nisovin.shopkeepers.shopkeeper.registry;
 
-import java.util.AbstractSet;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -30,7 +31,8 @@ import com.nisovin.shopkeepers.api.shopkeeper.ShopType;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
-import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.admin.AdminShopkeeper;
+import com.nisovin.shopkeepers.api.user.User;
 import com.nisovin.shopkeepers.api.util.ChunkCoords;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopType;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
@@ -41,11 +43,9 @@ import com.nisovin.shopkeepers.shopkeeper.registry.ShopkeeperChunkMap.ChangeList
 import com.nisovin.shopkeepers.shopkeeper.spawning.ShopkeeperSpawner;
 import com.nisovin.shopkeepers.shopkeeper.ticking.ShopkeeperTicker;
 import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
-import com.nisovin.shopkeepers.shopobjects.block.BlockShopObjectIds;
 import com.nisovin.shopkeepers.shopobjects.entity.EntityShopObjectIds;
 import com.nisovin.shopkeepers.storage.SKShopkeeperStorage;
 import com.nisovin.shopkeepers.util.bukkit.LocationUtils;
-import com.nisovin.shopkeepers.util.bukkit.TextUtils;
 import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
 import com.nisovin.shopkeepers.util.java.StringUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
@@ -110,28 +110,31 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		}
 	};
 
-	// Player shopkeepers:
-	private int playerShopCount = 0;
+	// All shopkeepers, sorted by id:
 	// Note: Already unmodifiable.
-	private final Set<? extends AbstractPlayerShopkeeper> allPlayerShopkeepersView = new AbstractSet<AbstractPlayerShopkeeper>() {
-		@Override
-		public Iterator<AbstractPlayerShopkeeper> iterator() {
-			if (this.isEmpty()) {
-				return Collections.emptyIterator();
-			}
-			return Unsafe.initialized(SKShopkeeperRegistry.this).getAllShopkeepers().stream()
-					.filter(shopkeeper -> shopkeeper instanceof PlayerShopkeeper)
-					.<AbstractPlayerShopkeeper>map(shopkeeper -> (AbstractPlayerShopkeeper) shopkeeper)
-					.iterator();
-		}
+	private final ShopkeeperIdList<AbstractShopkeeper> shopkeepersSortedById
+			= new ShopkeeperIdList<>();
 
-		@Override
-		public int size() {
-			return playerShopCount;
-		}
-	};
+	// Admin shopkeepers, sorted by id:
+	// Note: Already unmodifiable.
+	private final ShopkeeperIdList<AbstractShopkeeper> adminShopkeepers = new ShopkeeperIdList<>();
+
+	// Player shopkeepers, sorted by id:
+	// Note: Already unmodifiable.
+	private final ShopkeeperIdList<AbstractPlayerShopkeeper> playerShopkeepers
+			= new ShopkeeperIdList<>();
+	// Owner uuid -> player shopkeepers, sorted by id, and their stored owner names:
+	// Owners without shops are removed.
+	private final Map<UUID, OwnedPlayerShopkeepers> playerShopkeepersByOwner = new HashMap<>();
+	private final Set<? extends UUID> playerShopOwnersView = Collections.unmodifiableSet(
+			playerShopkeepersByOwner.keySet()
+	);
+	// The owners under which the player shopkeepers are currently indexed:
+	private final Map<AbstractPlayerShopkeeper, User> indexedOwners = new IdentityHashMap<>();
 
 	private final ShopObjectRegistry shopObjectRegistry = new ShopObjectRegistry();
+	private final ShopkeeperCompletionIndex<AbstractShopkeeper> completionIndex
+			= new ShopkeeperCompletionIndex<>(shopkeepersSortedById);
 	private final ShopkeeperTicker shopkeeperTicker;
 	private final ShopkeeperSpawner shopkeeperSpawner;
 	private final ShopkeeperChunkActivator chunkActivator;
@@ -174,12 +177,16 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 
 	private void ensureEmpty() {
 		if (!shopkeepersByUUID.isEmpty() || !shopkeepersById.isEmpty()
-				|| !virtualShopkeepers.isEmpty() || playerShopCount != 0) {
+				|| !virtualShopkeepers.isEmpty() || !shopkeepersSortedById.isEmpty()) {
 			Log.warning("Some shopkeepers were not properly unregistered!");
 			shopkeepersByUUID.clear();
 			shopkeepersById.clear();
 			virtualShopkeepers.clear();
-			playerShopCount = 0;
+			shopkeepersSortedById.clearShopkeepers();
+			adminShopkeepers.clearShopkeepers();
+			playerShopkeepers.clearShopkeepers();
+			playerShopkeepersByOwner.clear();
+			indexedOwners.clear();
 		}
 		chunkMap.ensureEmpty();
 	}
@@ -288,6 +295,8 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		int shopkeeperId = shopkeeper.getId();
 		shopkeepersByUUID.put(shopkeeperUniqueId, shopkeeper);
 		shopkeepersById.put(shopkeeperId, shopkeeper);
+		shopkeepersSortedById.addShopkeeper(shopkeeper);
+		completionIndex.add(shopkeeper);
 
 		// Inform the storage about the used up id:
 		SKShopkeeperStorage shopkeeperStorage = this.getShopkeeperStorage();
@@ -300,9 +309,13 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			chunkMap.addShopkeeper(shopkeeper);
 		}
 
-		// Update player shop count:
-		if (shopkeeper instanceof PlayerShopkeeper) {
-			playerShopCount++;
+		// Add shopkeeper to the shop type indices:
+		if (shopkeeper instanceof AbstractPlayerShopkeeper) {
+			AbstractPlayerShopkeeper playerShop = (AbstractPlayerShopkeeper) shopkeeper;
+			playerShopkeepers.addShopkeeper(playerShop);
+			this.addOwner(playerShop);
+		} else if (shopkeeper instanceof AdminShopkeeper) {
+			adminShopkeepers.addShopkeeper(shopkeeper);
 		}
 
 		// Log a warning if either the shop type or the shop object type is disabled. The shopkeeper
@@ -375,6 +388,8 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		UUID shopkeeperUniqueId = shopkeeper.getUniqueId();
 		shopkeepersByUUID.remove(shopkeeperUniqueId);
 		shopkeepersById.remove(shopkeeper.getId());
+		shopkeepersSortedById.removeShopkeeper(shopkeeper);
+		completionIndex.remove(shopkeeper);
 
 		// Remove shopkeeper from chunk-based storage:
 		if (shopkeeper.isVirtual()) {
@@ -383,9 +398,13 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			chunkMap.removeShopkeeper(shopkeeper);
 		}
 
-		// Update player shop count:
-		if (shopkeeper instanceof PlayerShopkeeper) {
-			playerShopCount--;
+		// Remove shopkeeper from the shop type indices:
+		if (shopkeeper instanceof AbstractPlayerShopkeeper) {
+			AbstractPlayerShopkeeper playerShop = (AbstractPlayerShopkeeper) shopkeeper;
+			playerShopkeepers.removeShopkeeper(playerShop);
+			this.removeOwner(playerShop);
+		} else if (shopkeeper instanceof AdminShopkeeper) {
+			adminShopkeepers.removeShopkeeper(shopkeeper);
 		}
 
 		if (cause == ShopkeeperRemoveEvent.Cause.DELETE) {
@@ -460,82 +479,180 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		return shopkeepersById.get(shopkeeperId);
 	}
 
+	/**
+	 * Gets all shopkeepers, sorted by their ids.
+	 * 
+	 * @return an unmodifiable view on all shopkeepers, sorted by id
+	 */
+	public List<? extends AbstractShopkeeper> getAllShopkeepersSortedById() {
+		return shopkeepersSortedById;
+	}
+
+	// ADMIN SHOPS
+
+	/**
+	 * Gets all admin shopkeepers, sorted by their ids.
+	 * 
+	 * @return an unmodifiable view on the admin shopkeepers, sorted by id
+	 */
+	public List<? extends AbstractShopkeeper> getAdminShopkeepers() {
+		return adminShopkeepers;
+	}
+
 	// PLAYER SHOPS
 
+	private void addOwner(AbstractPlayerShopkeeper playerShop) {
+		User owner = playerShop.getOwnerUser();
+		playerShopkeepersByOwner.computeIfAbsent(
+				owner.getUniqueId(),
+				key -> new OwnedPlayerShopkeepers()
+		).add(playerShop, owner.getLastKnownName());
+		indexedOwners.put(playerShop, owner);
+	}
+
+	private void removeOwner(AbstractPlayerShopkeeper playerShop) {
+		User indexedOwner = indexedOwners.remove(playerShop);
+		if (indexedOwner == null) return;
+
+		UUID indexedOwnerUUID = indexedOwner.getUniqueId();
+		OwnedPlayerShopkeepers ownerShops = playerShopkeepersByOwner.get(indexedOwnerUUID);
+		if (ownerShops == null) return;
+
+		ownerShops.remove(playerShop, indexedOwner.getLastKnownName());
+		if (ownerShops.isEmpty()) {
+			playerShopkeepersByOwner.remove(indexedOwnerUUID);
+		}
+	}
+
+	// This is not expected to be called for invalid shopkeepers.
+	public void onPlayerShopOwnerChanged(AbstractPlayerShopkeeper playerShop) {
+		Validate.notNull(playerShop, "playerShop is null");
+		Validate.isTrue(playerShop.isValid(), "playerShop is not valid");
+		User indexedOwner = indexedOwners.get(playerShop);
+		User owner = playerShop.getOwnerUser();
+		if (indexedOwner == null || !owner.getUniqueId().equals(indexedOwner.getUniqueId())) {
+			this.removeOwner(playerShop);
+			this.addOwner(playerShop);
+			return;
+		}
+
+		// Only the owner name changed:
+		String indexedOwnerName = indexedOwner.getLastKnownName();
+		String ownerName = owner.getLastKnownName();
+		if (ownerName.equals(indexedOwnerName)) return; // The owner did not change
+
+		OwnedPlayerShopkeepers ownerShops = Unsafe.assertNonNull(
+				playerShopkeepersByOwner.get(owner.getUniqueId())
+		);
+		ownerShops.onOwnerNameChanged(indexedOwnerName, ownerName);
+		indexedOwners.put(playerShop, owner);
+	}
+
+	/**
+	 * Gets the unique ids of all players that own at least one player shopkeeper.
+	 * 
+	 * @return an unmodifiable view on the shop owner uuids
+	 */
+	public Set<? extends UUID> getPlayerShopOwners() {
+		return playerShopOwnersView;
+	}
+
 	@Override
-	public Collection<? extends AbstractPlayerShopkeeper> getAllPlayerShopkeepers() {
-		return allPlayerShopkeepersView;
+	public List<? extends AbstractPlayerShopkeeper> getAllPlayerShopkeepers() {
+		return playerShopkeepers;
 	}
 
+	/**
+	 * Gets the player shopkeepers owned by the specified player.
+	 * <p>
+	 * The player shopkeepers are sorted by their ids.
+	 * 
+	 * @param ownerUUID
+	 *            the owner uuid, not <code>null</code>
+	 * @return an unmodifiable view on the player shopkeepers
+	 */
 	@Override
-	public Collection<? extends AbstractPlayerShopkeeper> getPlayerShopkeepersByOwner(
-			UUID ownerUUID
-	) {
+	public List<? extends AbstractPlayerShopkeeper> getPlayerShopkeepersByOwner(UUID ownerUUID) {
 		Validate.notNull(ownerUUID, "ownerUUID is null");
-		// TODO Improve? Maybe keep an index of player shops? Or even index by owner?
-		// Note: Already unmodifiable.
-		return new AbstractSet<AbstractPlayerShopkeeper>() {
-			private Stream<? extends AbstractPlayerShopkeeper> createStream() {
-				return allPlayerShopkeepersView.stream()
-						.filter(shopkeeper -> shopkeeper.getOwnerUUID().equals(ownerUUID));
+		// Note: The owner's index is removed and recreated when the owner has no shops, so we
+		// look it up again on every access. Already unmodifiable.
+		return new AbstractList<AbstractPlayerShopkeeper>() {
+			private List<? extends AbstractPlayerShopkeeper> getOwnerShops() {
+				OwnedPlayerShopkeepers ownerShops = playerShopkeepersByOwner.get(ownerUUID);
+				if (ownerShops == null) return Collections.emptyList();
+				return ownerShops.getShopkeepers();
 			}
 
 			@Override
-			public Iterator<AbstractPlayerShopkeeper> iterator() {
-				if (allPlayerShopkeepersView.isEmpty()) {
-					// There are no player shops at all:
-					return Collections.emptyIterator();
-				}
-				return Unsafe.cast(this.createStream().iterator());
+			public AbstractPlayerShopkeeper get(int index) {
+				return this.getOwnerShops().get(index);
 			}
 
 			@Override
 			public int size() {
-				if (allPlayerShopkeepersView.isEmpty()) {
-					// There are no player shops at all:
-					return 0;
-				}
-				return this.createStream().mapToInt(shopkeeper -> 1).sum();
+				return this.getOwnerShops().size();
+			}
+
+			@Override
+			public Iterator<AbstractPlayerShopkeeper> iterator() {
+				return Unsafe.cast(this.getOwnerShops().iterator());
 			}
 		};
 	}
 
+	/**
+	 * Gets the owner name that is stored by all player shopkeepers of the specified owner.
+	 * <p>
+	 * This can be used to quickly check if the stored owner names of the player's shopkeepers are
+	 * up-to-date.
+	 * 
+	 * @param ownerUUID
+	 *            the owner uuid, not <code>null</code>
+	 * @return the owner name, or <code>null</code> if the owner's shopkeepers store different
+	 *         names, or if the owner has no shopkeepers
+	 */
+	public @Nullable String getPlayerShopOwnerName(UUID ownerUUID) {
+		Validate.notNull(ownerUUID, "ownerUUID is null");
+		OwnedPlayerShopkeepers ownerShops = playerShopkeepersByOwner.get(ownerUUID);
+		if (ownerShops == null) return null;
+		return ownerShops.getOwnerName();
+	}
+
 	// BY NAME
 
+	// This is not expected to be called for invalid shopkeepers.
+	public void onShopkeeperNameChanged(AbstractShopkeeper shopkeeper) {
+		Validate.notNull(shopkeeper, "shopkeeper is null");
+		Validate.isTrue(shopkeeper.isValid(), "shopkeeper is not valid");
+		completionIndex.onNameChanged(shopkeeper);
+	}
+
+	/**
+	 * Gets the index of the shopkeepers by their ids, unique ids, and names, which can be used for
+	 * fast prefix lookups, e.g. for command completions.
+	 * 
+	 * @return the shopkeeper completion index
+	 */
+	public ShopkeeperCompletionIndex<AbstractShopkeeper> getCompletionIndex() {
+		return completionIndex;
+	}
+
 	@Override
 	public Stream<? extends AbstractShopkeeper> getShopkeepersByName(String shopName) {
-		String normalizedShopName = StringUtils.normalize(TextUtils.stripColor(shopName));
+		String normalizedShopName = ShopkeeperCompletionIndex.normalizeName(shopName);
 		if (StringUtils.isEmpty(normalizedShopName)) return Stream.empty();
 
-		// TODO Improve via (Tree)Map?
-		return this.getAllShopkeepers().stream().filter(shopkeeper -> {
-			String shopkeeperName = shopkeeper.getName(); // Can be empty
-			if (shopkeeperName.isEmpty()) return false; // Has no name, filter
-
-			shopkeeperName = TextUtils.stripColor(shopkeeperName);
-			shopkeeperName = StringUtils.normalize(shopkeeperName);
-			// Include shopkeeper if name matches:
-			return (shopkeeperName.equals(normalizedShopName));
-		});
+		return completionIndex.getShopkeepersByName(normalizedShopName);
 	}
 
 	@Override
 	public Stream<? extends AbstractShopkeeper> getShopkeepersByNamePrefix(
 			String shopNamePrefix
 	) {
-		String normalizedShopNamePrefix = StringUtils.normalize(TextUtils.stripColor(shopNamePrefix));
+		String normalizedShopNamePrefix = ShopkeeperCompletionIndex.normalizeName(shopNamePrefix);
 		if (StringUtils.isEmpty(normalizedShopNamePrefix)) return Stream.empty();
 
-		// TODO Improve via TreeMap?
-		return this.getAllShopkeepers().stream().filter(shopkeeper -> {
-			String shopkeeperName = shopkeeper.getName(); // Can be empty
-			if (shopkeeperName.isEmpty()) return false; // Has no name, filter
-
-			shopkeeperName = TextUtils.stripColor(shopkeeperName);
-			shopkeeperName = StringUtils.normalize(shopkeeperName);
-			// Include shopkeeper if name matches:
-			return shopkeeperName.startsWith(normalizedShopNamePrefix);
-		});
+		return completionIndex.getShopkeepersByNamePrefix(normalizedShopNamePrefix);
 	}
 
 	// BY WORLD
@@ -660,8 +777,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 
 	@Override
 	public @Nullable AbstractShopkeeper getShopkeeperByBlock(String worldName, int x, int y, int z) {
-		Object objectId = BlockShopObjectIds.getSharedObjectId(worldName, x, y, z);
-		return shopObjectRegistry.getShopkeeperByObjectId(objectId);
+		return shopObjectRegistry.getShopkeeperByBlock(worldName, x, y, z);
 	}
 
 	@Override
@@ -10,6 +10,10 @@ import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.debug.DebugOptions;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopobjects.AbstractShopObject;
+import com.nisovin.shopkeepers.shopobjects.block.BlockShopObjectIds;
+import com.nisovin.shopkeepers.util.bukkit.BlockLocation;
+import com.nisovin.shopkeepers.util.bukkit.WorldBlockMap;
+import com.nisovin.shopkeepers.util.java.LongHashMap;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.logging.Log;
 
@@ -24,6 +28,10 @@ public class ShopObjectRegistry {
 	// Since some types of shop objects may handle their spawning themselves, shop objects might
 	// already be spawned before their chunk is activated.
 	private final Map<Object, AbstractShopkeeper> shopkeepersByObjectId = new HashMap<>();
+	// The block object ids (see BlockShopObjectIds) are stored separately, keyed by their packed
+	// block coordinates. This avoids having to construct or reuse a BlockLocation for lookups by
+	// block coordinates, such as during the high frequency BlockPhysicsEvent.
+	private final WorldBlockMap<AbstractShopkeeper> shopkeepersByBlock = new WorldBlockMap<>();
 
 	ShopObjectRegistry() {
 	}
@@ -36,9 +44,10 @@ public class ShopObjectRegistry {
 	}
 
 	private void ensureEmpty() {
-		if (!shopkeepersByObjectId.isEmpty()) {
+		if (!shopkeepersByObjectId.isEmpty() || !shopkeepersByBlock.isEmpty()) {
 			Log.warning("Some spawned shop objects were not properly unregistered!");
 			shopkeepersByObjectId.clear();
+			shopkeepersByBlock.clear();
 		}
 	}
 
@@ -50,9 +59,76 @@ public class ShopObjectRegistry {
 	}
 
 	public @Nullable AbstractShopkeeper getShopkeeperByObjectId(Object objectId) {
+		if (objectId instanceof BlockLocation) {
+			return shopkeepersByBlock.get((BlockLocation) objectId);
+		}
 		return shopkeepersByObjectId.get(objectId);
 	}
 
+	/**
+	 * Gets the shopkeeper whose shop object is represented by the block at the specified
+	 * coordinates.
+	 * <p>
+	 * This is equivalent to looking up the shopkeeper by the corresponding
+	 * {@link BlockShopObjectIds#getObjectId(String, int, int, int) block object id}, but avoids the
+	 * creation of the object id.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param x
+	 *            the block's x coordinate
+	 * @param y
+	 *            the block's y coordinate
+	 * @param z
+	 *            the block's z coordinate
+	 * @return the shopkeeper, or <code>null</code>
+	 */
+	public @Nullable AbstractShopkeeper getShopkeeperByBlock(
+			String worldName,
+			int x,
+			int y,
+			int z
+	) {
+		return shopkeepersByBlock.get(worldName, x, y, z);
+	}
+
+	/**
+	 * Gets the shopkeepers that are represented by blocks in the specified world, keyed by their
+	 * {@link WorldBlockMap#getBlockKey(int, int, int) block keys}.
+	 * <p>
+	 * This is meant for the batched lookup of many blocks of the same world. The returned map must
+	 * not be modified, and is only valid until the next shop object is registered or unregistered.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @return the shopkeepers, or <code>null</code> if there are no block shopkeepers in the world
+	 */
+	public @Nullable LongHashMap<AbstractShopkeeper> getShopkeepersByBlock(String worldName) {
+		return shopkeepersByBlock.getWorldMap(worldName);
+	}
+
+	private @Nullable AbstractShopkeeper putIfAbsent(
+			Object objectId,
+			AbstractShopkeeper shopkeeper
+	) {
+		if (objectId instanceof BlockLocation) {
+			BlockLocation blockLocation = (BlockLocation) objectId;
+			AbstractShopkeeper otherShopkeeper = shopkeepersByBlock.get(blockLocation);
+			if (otherShopkeeper != null) return otherShopkeeper;
+			shopkeepersByBlock.put(blockLocation, shopkeeper);
+			return null;
+		}
+		return shopkeepersByObjectId.putIfAbsent(objectId, shopkeeper);
+	}
+
+	private void remove(Object objectId) {
+		if (objectId instanceof BlockLocation) {
+			shopkeepersByBlock.remove((BlockLocation) objectId);
+		} else {
+			shopkeepersByObjectId.remove(objectId);
+		}
+	}
+
 	/**
 	 * Handles the registration and unregistration of spawned shop objects.
 	 * <p>
@@ -104,7 +180,7 @@ public class ShopObjectRegistry {
 		Log.debug(DebugOptions.shopkeeperActivation, () -> shopkeeper.getLogPrefix()
 				+ "Registering object with id '" + finalObjectId + "'.");
 
-		AbstractShopkeeper otherShopkeeper = shopkeepersByObjectId.putIfAbsent(objectId, shopkeeper);
+		AbstractShopkeeper otherShopkeeper = this.putIfAbsent(objectId, shopkeeper);
 		assert otherShopkeeper != shopkeeper; // We unregistered the shopkeeper above
 		if (otherShopkeeper != null) {
 			Log.warning(shopkeeper.getLogPrefix() + "Object registration failed! Object id '"
@@ -123,8 +199,8 @@ public class ShopObjectRegistry {
 
 		Log.debug(DebugOptions.shopkeeperActivation, () -> shopkeeper.getLogPrefix()
 				+ "Unregistering object with id '" + objectId + "'.");
-		assert shopkeepersByObjectId.get(objectId) == shopkeeper;
-		shopkeepersByObjectId.remove(objectId);
+		assert this.getShopkeeperByObjectId(objectId) == shopkeeper;
+		this.remove(objectId);
 		shopObject.setLastId(null);
 	}
 }
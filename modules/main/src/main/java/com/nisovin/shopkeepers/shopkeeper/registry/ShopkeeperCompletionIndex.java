@@ -0,0 +1,279 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.java.StringUtils;
+
+/**
+ * Indexes the shopkeepers by their ids, unique ids, and names, so that the shopkeepers whose
+ * identifiers start with a given prefix can be found without checking all shopkeepers.
+ * <p>
+ * This is primarily used for command completions, which are requested on every key stroke: The
+ * lookups only iterate the matching shopkeepers, and do so lazily, so that callers that only need
+ * the first few matches, or that filter the matches, only pay for the shopkeepers they actually
+ * inspect.
+ * <ul>
+ * <li>The ids are looked up in the registry's list of shopkeepers sorted by id. Ids that start
+ * with a certain prefix form contiguous ranges of numbers (e.g. '12', '120' to '129', '1200' to
+ * '1299', etc.), which can be found via binary search. Shorter ids are returned first.
+ * <li>The unique ids are indexed by their String representation in a sorted map.
+ * <li>The names are indexed by their {@link #normalizeName(String) normalized} form in a sorted
+ * map. Shopkeepers without name are not indexed.
+ * </ul>
+ * The returned streams must be consumed before the shopkeepers are modified.
+ * 
+ * @param <S>
+ *            the type of shopkeeper
+ */
+public final class ShopkeeperCompletionIndex<S extends Shopkeeper> {
+
+	/**
+	 * Normalizes the given shopkeeper name for the lookup by name.
+	 * <p>
+	 * This strips colors, normalizes whitespace, and converts the name to lower case.
+	 * 
+	 * @param name
+	 *            the name, not <code>null</code>
+	 * @return the normalized name
+	 */
+	public static String normalizeName(String name) {
+		return StringUtils.normalize(TextUtils.stripColor(name));
+	}
+
+	// All shopkeepers, sorted by id. This list is maintained by the registry:
+	private final ShopkeeperIdList<S> shopkeepersById;
+
+	// Unique id String -> shopkeeper:
+	private final NavigableMap<String, S> shopkeepersByUUID = new TreeMap<>();
+
+	// Normalized name -> shopkeepers, in the order in which they have been indexed:
+	private final NavigableMap<String, List<S>> shopkeepersByName
+			= new TreeMap<>();
+	// The normalized names under which the shopkeepers are currently indexed:
+	private final Map<S, String> indexedNames = new IdentityHashMap<>();
+
+	ShopkeeperCompletionIndex(ShopkeeperIdList<S> shopkeepersById) {
+		assert shopkeepersById != null;
+		this.shopkeepersById = shopkeepersById;
+	}
+
+	void add(S shopkeeper) {
+		assert shopkeeper != null;
+		shopkeepersByUUID.put(shopkeeper.getUniqueId().toString(), shopkeeper);
+		this.addName(shopkeeper);
+	}
+
+	void remove(S shopkeeper) {
+		assert shopkeeper != null;
+		shopkeepersByUUID.remove(shopkeeper.getUniqueId().toString());
+		this.removeName(shopkeeper);
+	}
+
+	void onNameChanged(S shopkeeper) {
+		assert shopkeeper != null;
+		String indexedName = indexedNames.get(shopkeeper);
+		if (indexedName != null && indexedName.equals(normalizeName(shopkeeper.getName()))) {
+			return; // The normalized name did not change
+		}
+		this.removeName(shopkeeper);
+		this.addName(shopkeeper);
+	}
+
+	// BY ID
+
+	/**
+	 * Gets the shopkeepers whose ids, in their decimal String representation, start with the given
+	 * prefix.
+	 * <p>
+	 * Shorter ids are returned first: For the prefix '12', this first returns the shopkeeper with
+	 * id 12, then the shopkeepers with ids 120 to 129, then 1200 to 1299, and so on. If the prefix
+	 * is empty, all shopkeepers are returned, ordered by their ids.
+	 * 
+	 * @param idPrefix
+	 *            the id prefix, not <code>null</code>
+	 * @return a stream over the matching shopkeepers
+	 */
+	public Stream<S> getShopkeepersByIdPrefix(String idPrefix) {
+		return toStream(this.getShopkeepersByIdPrefixIterator(idPrefix));
+	}
+
+	private Iterator<S> getShopkeepersByIdPrefixIterator(String idPrefix) {
+		int idCount = shopkeepersById.size();
+		if (idCount == 0) return Collections.emptyIterator();
+		if (idPrefix.isEmpty()) {
+			return new IdRangesIterator(
+					shopkeepersById.getId(0),
+					shopkeepersById.getId(idCount - 1),
+					false
+			);
+		}
+
+		// The decimal representation of positive ids only consists of digits and has no leading
+		// zeros:
+		int length = idPrefix.length();
+		if (length > 10) return Collections.emptyIterator();
+		for (int i = 0; i < length; i++) {
+			char c = idPrefix.charAt(i);
+			if (c < '0' || c > '9') return Collections.emptyIterator();
+		}
+		if (idPrefix.charAt(0) == '0') {
+			// Only the id 0 itself can start with '0':
+			return (length == 1) ? new IdRangesIterator(0, 0, false) : Collections.emptyIterator();
+		}
+		long prefix = Long.parseLong(idPrefix);
+		return new IdRangesIterator(prefix, prefix, true);
+	}
+
+	/**
+	 * Iterates the shopkeepers within one or more consecutive id ranges.
+	 * <p>
+	 * If prefix ranges are used, the range following the range [start, end] is
+	 * [start * 10, end * 10 + 9].
+	 */
+	private final class IdRangesIterator implements Iterator<S> {
+
+		private final boolean prefixRanges;
+		private long rangeStart;
+		private long rangeEnd;
+		private int index;
+		private @Nullable S next = null;
+
+		IdRangesIterator(long rangeStart, long rangeEnd, boolean prefixRanges) {
+			this.prefixRanges = prefixRanges;
+			this.rangeStart = rangeStart;
+			this.rangeEnd = rangeEnd;
+			this.index = shopkeepersById.lowerBound(rangeStart);
+			this.advance();
+		}
+
+		private void advance() {
+			next = null;
+			while (true) {
+				int idCount = shopkeepersById.size();
+				if (index < idCount && shopkeepersById.getId(index) <= rangeEnd) {
+					next = shopkeepersById.get(index);
+					index++;
+					return;
+				}
+
+				// Continue with the next range, if there is one:
+				if (!prefixRanges || idCount == 0) return;
+				rangeStart = rangeStart * 10;
+				rangeEnd = rangeEnd * 10 + 9;
+				if (rangeStart > shopkeepersById.getId(idCount - 1)) return; // No more matching ids
+				index = shopkeepersById.lowerBound(rangeStart);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return (next != null);
+		}
+
+		@Override
+		public S next() {
+			S current = next;
+			if (current == null) throw new NoSuchElementException();
+			this.advance();
+			return current;
+		}
+	}
+
+	// BY UNIQUE ID
+
+	/**
+	 * Gets the shopkeepers whose unique ids, in their String representation, start with the given
+	 * prefix.
+	 * <p>
+	 * The shopkeepers are ordered by the String representations of their unique ids.
+	 * 
+	 * @param uuidPrefix
+	 *            the unique id prefix, expected to be lower case, not <code>null</code>
+	 * @return a stream over the matching shopkeepers
+	 */
+	public Stream<S> getShopkeepersByUUIDPrefix(String uuidPrefix) {
+		return getPrefixRange(shopkeepersByUUID, uuidPrefix).values().stream();
+	}
+
+	// BY NAME
+
+	private void addName(S shopkeeper) {
+		String normalizedName = normalizeName(shopkeeper.getName());
+		if (normalizedName.isEmpty()) return; // Shopkeepers without name are not indexed
+
+		shopkeepersByName.computeIfAbsent(normalizedName, key -> new ArrayList<>(1))
+				.add(shopkeeper);
+		indexedNames.put(shopkeeper, normalizedName);
+	}
+
+	private void removeName(S shopkeeper) {
+		String indexedName = indexedNames.remove(shopkeeper);
+		if (indexedName == null) return;
+
+		List<S> shopkeepers = shopkeepersByName.get(indexedName);
+		if (shopkeepers == null) return;
+
+		shopkeepers.remove(shopkeeper);
+		if (shopkeepers.isEmpty()) {
+			shopkeepersByName.remove(indexedName);
+		}
+	}
+
+	/**
+	 * Gets the shopkeepers whose {@link #normalizeName(String) normalized} names match the given
+	 * normalized name.
+	 * 
+	 * @param normalizedName
+	 *            the normalized name, not <code>null</code>
+	 * @return a stream over the matching shopkeepers
+	 */
+	public Stream<S> getShopkeepersByName(String normalizedName) {
+		List<S> shopkeepers = shopkeepersByName.get(normalizedName);
+		if (shopkeepers == null) return Stream.empty();
+		return shopkeepers.stream();
+	}
+
+	/**
+	 * Gets the shopkeepers whose {@link #normalizeName(String) normalized} names start with the
+	 * given normalized prefix.
+	 * <p>
+	 * The shopkeepers are ordered by their normalized names.
+	 * 
+	 * @param normalizedNamePrefix
+	 *            the normalized name prefix, not <code>null</code>
+	 * @return a stream over the matching shopkeepers
+	 */
+	public Stream<S> getShopkeepersByNamePrefix(String normalizedNamePrefix) {
+		return getPrefixRange(shopkeepersByName, normalizedNamePrefix).values().stream()
+				.flatMap(List::stream);
+	}
+
+	private static <T> Stream<T> toStream(Iterator<T> iterator) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, 0), false);
+	}
+
+	private static <V> NavigableMap<String, V> getPrefixRange(
+			NavigableMap<String, V> map,
+			String prefix
+	) {
+		if (prefix.isEmpty()) return map;
+		// All Strings that start with the prefix are sorted between the prefix itself and the
+		// prefix followed by the largest character:
+		return map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+	}
+}
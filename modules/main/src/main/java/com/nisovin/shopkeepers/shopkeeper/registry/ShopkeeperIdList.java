@@ -0,0 +1,119 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+
+/**
+ * A list of shopkeepers that is sorted by their ids.
+ * <p>
+ * The shopkeepers can be accessed by their index in constant time, which allows to page through
+ * the shopkeepers without iterating the shopkeepers of the preceding pages. Since shopkeeper ids
+ * are usually assigned in increasing order, adding a shopkeeper is usually an append.
+ * <p>
+ * The list is only modified via {@link #addShopkeeper(Shopkeeper)} and
+ * {@link #removeShopkeeper(Shopkeeper)}, and is unmodifiable otherwise. Iterators fail
+ * fast if the list is modified during iteration.
+ * 
+ * @param <S>
+ *            the type of shopkeeper
+ */
+final class ShopkeeperIdList<S extends Shopkeeper>
+		extends AbstractList<S> implements RandomAccess {
+
+	private int[] ids = new int[4];
+	private @Nullable Shopkeeper[] shopkeepers = new @Nullable Shopkeeper[4];
+	private int size = 0;
+
+	ShopkeeperIdList() {
+	}
+
+	/**
+	 * Gets the index of the first shopkeeper whose id is greater than or equal to the given id.
+	 * 
+	 * @param id
+	 *            the id
+	 * @return the index, or the {@link #size()} if there is no such shopkeeper
+	 */
+	int lowerBound(long id) {
+		if (id > Integer.MAX_VALUE) return size;
+		int index = Arrays.binarySearch(ids, 0, size, (int) id);
+		return (index >= 0) ? index : -(index + 1);
+	}
+
+	/**
+	 * Gets the id of the shopkeeper at the specified index.
+	 * 
+	 * @param index
+	 *            the index
+	 * @return the shopkeeper id
+	 */
+	int getId(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+		return ids[index];
+	}
+
+	void addShopkeeper(S shopkeeper) {
+		assert shopkeeper != null;
+		int id = shopkeeper.getId();
+		int index = Arrays.binarySearch(ids, 0, size, id);
+		if (index >= 0) {
+			shopkeepers[index] = shopkeeper;
+			return;
+		}
+
+		index = -(index + 1);
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+			shopkeepers = Arrays.copyOf(shopkeepers, size * 2);
+		}
+		System.arraycopy(ids, index, ids, index + 1, size - index);
+		System.arraycopy(shopkeepers, index, shopkeepers, index + 1, size - index);
+		ids[index] = id;
+		shopkeepers[index] = shopkeeper;
+		size++;
+		modCount++;
+	}
+
+	boolean removeShopkeeper(S shopkeeper) {
+		assert shopkeeper != null;
+		int index = Arrays.binarySearch(ids, 0, size, shopkeeper.getId());
+		if (index < 0 || shopkeepers[index] != shopkeeper) return false;
+
+		System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+		System.arraycopy(shopkeepers, index + 1, shopkeepers, index, size - index - 1);
+		size--;
+		shopkeepers[size] = null;
+		modCount++;
+		return true;
+	}
+
+	void clearShopkeepers() {
+		Arrays.fill(shopkeepers, 0, size, null);
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public S get(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+		return Unsafe.cast(Unsafe.assertNonNull(shopkeepers[index]));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(@Nullable Object object) {
+		if (!(object instanceof Shopkeeper)) return false;
+		int index = Arrays.binarySearch(ids, 0, size, ((Shopkeeper) object).getId());
+		return index >= 0 && shopkeepers[index] == object;
+	}
+}
@@ -0,0 +1,206 @@
+package com.nisovin.shopkeepers.shopkeeper.statistics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.shopkeeper.TradeStatistics;
+import com.nisovin.shopkeepers.api.shopkeeper.TradeStatisticsPeriod;
+import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+import com.nisovin.shopkeepers.component.Component;
+import com.nisovin.shopkeepers.component.ComponentHolder;
+import com.nisovin.shopkeepers.shopkeeper.ShopkeeperComponentHolder;
+import com.nisovin.shopkeepers.util.data.container.DataContainer;
+import com.nisovin.shopkeepers.util.data.property.BasicProperty;
+import com.nisovin.shopkeepers.util.data.property.Property;
+import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
+import com.nisovin.shopkeepers.util.data.serialization.java.DataContainerSerializers;
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * The {@link TradeStatistics} of a shopkeeper.
+ * <p>
+ * The statistics keep a {@link TradeCounter} for the total trades, and one for each offer that has
+ * been traded within the longest {@link TradeStatisticsPeriod}. Offers are identified by the types
+ * and {@link ItemUtils#getSimilarityHash(ItemStack) similarity hashes} of their recipe items, so
+ * that offers with items of the same type but with different item data are counted separately.
+ * <p>
+ * The statistics are only attached to shopkeepers that are actually traded with, or whose saved
+ * data contains statistics.
+ */
+public final class SKTradeStatistics extends Component implements TradeStatistics {
+
+	/**
+	 * The saved trade statistics.
+	 * <p>
+	 * Maps the offer keys, and {@link #TOTAL_KEY} for the total trades, to their serialized
+	 * {@link TradeCounter}s.
+	 */
+	public static final Property<@Nullable DataContainer> DATA = new BasicProperty<@Nullable DataContainer>()
+			.dataKeyAccessor("tradeStatistics", DataContainerSerializers.DEFAULT)
+			.nullable()
+			.build();
+
+	private static final String TOTAL_KEY = "total";
+	private static final String OFFER_KEY_SEPARATOR = "/";
+	private static final String ITEM_HASH_SEPARATOR = "#";
+
+	private static String createOfferKey(TradingRecipe tradingRecipe) {
+		StringBuilder offerKey = new StringBuilder();
+		appendItemKey(offerKey, tradingRecipe.getResultItem());
+		offerKey.append(OFFER_KEY_SEPARATOR);
+		appendItemKey(offerKey, tradingRecipe.getItem1());
+		UnmodifiableItemStack item2 = tradingRecipe.getItem2();
+		if (item2 != null) {
+			offerKey.append(OFFER_KEY_SEPARATOR);
+			appendItemKey(offerKey, item2);
+		}
+		return offerKey.toString();
+	}
+
+	private static void appendItemKey(StringBuilder offerKey, UnmodifiableItemStack item) {
+		ItemStack itemStack = ItemUtils.asItemStack(item);
+		offerKey.append(itemStack.getType().name());
+		offerKey.append(ITEM_HASH_SEPARATOR);
+		offerKey.append(Integer.toHexString(ItemUtils.getSimilarityHash(itemStack)));
+	}
+
+	private TradeCounter total = new TradeCounter();
+	private final Map<String, TradeCounter> offers = new HashMap<>();
+	// The offer key of the last looked up trading recipe. The trading recipes are immutable and
+	// usually shared by the trades of the same offer, so this avoids hashing their items for every
+	// trade.
+	private @Nullable TradingRecipe lastTradingRecipe = null;
+	private String lastOfferKey = "";
+
+	public SKTradeStatistics() {
+	}
+
+	private long now() {
+		return System.currentTimeMillis();
+	}
+
+	private String getOfferKey(TradingRecipe tradingRecipe) {
+		if (tradingRecipe != lastTradingRecipe) {
+			lastOfferKey = createOfferKey(tradingRecipe);
+			lastTradingRecipe = tradingRecipe;
+		}
+		return lastOfferKey;
+	}
+
+	@Override
+	public int getTradeCount(TradeStatisticsPeriod period) {
+		Validate.notNull(period, "period is null");
+		total.advance(this.now());
+		return total.getCount(period);
+	}
+
+	@Override
+	public int getTradeCount(TradingRecipe tradingRecipe, TradeStatisticsPeriod period) {
+		Validate.notNull(tradingRecipe, "tradingRecipe is null");
+		Validate.notNull(period, "period is null");
+		TradeCounter offer = offers.get(this.getOfferKey(tradingRecipe));
+		if (offer == null) return 0;
+
+		offer.advance(this.now());
+		return offer.getCount(period);
+	}
+
+	/**
+	 * Records the given trades.
+	 * <p>
+	 * Unlike {@link #reset()}, this does not mark the shopkeeper as dirty. The caller is
+	 * responsible for marking the shopkeeper as dirty at some point, so that the recorded trades
+	 * are saved.
+	 * 
+	 * @param tradingRecipe
+	 *            the traded recipe, not <code>null</code>
+	 * @param tradeCount
+	 *            the number of trades, positive
+	 */
+	public void recordTrades(TradingRecipe tradingRecipe, int tradeCount) {
+		Validate.notNull(tradingRecipe, "tradingRecipe is null");
+		Validate.isTrue(tradeCount > 0, "tradeCount has to be positive");
+		long now = this.now();
+		total.add(now, tradeCount);
+		offers.computeIfAbsent(this.getOfferKey(tradingRecipe), key -> new TradeCounter())
+				.add(now, tradeCount);
+	}
+
+	@Override
+	public void reset() {
+		total = new TradeCounter();
+		offers.clear();
+		this.markShopkeeperDirty();
+	}
+
+	private void markShopkeeperDirty() {
+		ComponentHolder holder = this.getHolder();
+		if (holder instanceof ShopkeeperComponentHolder) {
+			((ShopkeeperComponentHolder) holder).getShopkeeper().markDirty();
+		}
+	}
+
+	/**
+	 * Loads the trade statistics from the given data.
+	 * 
+	 * @param data
+	 *            the data, not <code>null</code>
+	 * @throws InvalidDataException
+	 *             if the data is invalid
+	 */
+	public void load(DataContainer data) throws InvalidDataException {
+		Validate.notNull(data, "data is null");
+		TradeCounter loadedTotal = new TradeCounter();
+		Map<String, TradeCounter> loadedOffers = new HashMap<>();
+		for (String key : data.getKeys()) {
+			String serialized = data.getString(key);
+			if (serialized == null) {
+				throw new InvalidDataException("Invalid trade statistics of '" + key + "'!");
+			}
+			TradeCounter counter = TradeCounter.deserialize(serialized);
+			if (key.equals(TOTAL_KEY)) {
+				loadedTotal = counter;
+			} else {
+				loadedOffers.put(key, counter);
+			}
+		}
+
+		total = loadedTotal;
+		offers.clear();
+		offers.putAll(loadedOffers);
+	}
+
+	/**
+	 * Saves the trade statistics.
+	 * <p>
+	 * Offers that have not been traded within the longest {@link TradeStatisticsPeriod} are
+	 * omitted and removed.
+	 * 
+	 * @return the saved data, or <code>null</code> if there are no recent trades
+	 */
+	public @Nullable DataContainer save() {
+		long now = this.now();
+		total.advance(now);
+		if (total.isEmpty()) {
+			offers.clear();
+			return null;
+		}
+
+		DataContainer data = DataContainer.create();
+		data.set(TOTAL_KEY, total.serialize());
+		offers.entrySet().removeIf(entry -> {
+			TradeCounter offer = entry.getValue();
+			offer.advance(now);
+			if (offer.isEmpty()) return true;
+
+			data.set(entry.getKey(), offer.serialize());
+			return false;
+		});
+		return data;
+	}
+}
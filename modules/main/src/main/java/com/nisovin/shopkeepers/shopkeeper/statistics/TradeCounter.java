@@ -0,0 +1,200 @@
+package com.nisovin.shopkeepers.shopkeeper.statistics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.nisovin.shopkeepers.api.shopkeeper.TradeStatisticsPeriod;
+import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
+
+/**
+ * Counts trades within the rolling {@link TradeStatisticsPeriod}s.
+ * <p>
+ * Each period is split into a fixed number of time slots of the period's resolution, which are
+ * stored in a ring buffer. The ring buffer slots are addressed by the absolute index of their
+ * time slot (i.e. the time divided by the resolution), modulo the number of slots. When time
+ * advances, the slots of the time slots that have dropped out of the period are cleared and
+ * subtracted from the running total of the period. Reading the count of a period is therefore
+ * constant-time, and the amortized cost of advancing the time is constant as well.
+ * <p>
+ * Not thread-safe.
+ */
+final class TradeCounter {
+
+	private static final TradeStatisticsPeriod[] PERIODS = TradeStatisticsPeriod.values();
+
+	// Indexed by the period ordinal:
+	private static final long[] RESOLUTION_MILLIS = {
+			TimeUnit.MINUTES.toMillis(5), // HOUR
+			TimeUnit.HOURS.toMillis(1), // DAY
+			TimeUnit.DAYS.toMillis(1) // WEEK
+	};
+	private static final int[] SLOT_COUNTS = { 12, 24, 7 };
+
+	private static final String PERIOD_SEPARATOR = ";";
+	private static final String SLOT_SEPARATOR = ",";
+	private static final String COUNT_SEPARATOR = ":";
+
+	private final int[][] slots = new int[PERIODS.length][];
+	private final int[] totals = new int[PERIODS.length];
+	// The time of the most recent update. Time never moves backwards for the counter: If the clock
+	// is adjusted backwards, new trades are counted towards the most recent time slot.
+	private long lastUpdateMillis = 0L;
+
+	TradeCounter() {
+		for (int i = 0; i < PERIODS.length; i++) {
+			slots[i] = new int[SLOT_COUNTS[i]];
+		}
+	}
+
+	private static long getTimeSlot(int periodIndex, long timeMillis) {
+		return Math.floorDiv(timeMillis, RESOLUTION_MILLIS[periodIndex]);
+	}
+
+	private static int getSlotIndex(int periodIndex, long timeSlot) {
+		return (int) Math.floorMod(timeSlot, (long) SLOT_COUNTS[periodIndex]);
+	}
+
+	/**
+	 * Advances the time of this counter and clears the time slots that have dropped out of their
+	 * periods.
+	 * 
+	 * @param nowMillis
+	 *            the current time in milliseconds
+	 */
+	void advance(long nowMillis) {
+		if (nowMillis <= lastUpdateMillis) return;
+
+		for (int i = 0; i < PERIODS.length; i++) {
+			long lastTimeSlot = getTimeSlot(i, lastUpdateMillis);
+			long nowTimeSlot = getTimeSlot(i, nowMillis);
+			if (nowTimeSlot == lastTimeSlot) continue;
+
+			int[] periodSlots = slots[i];
+			if (nowTimeSlot - lastTimeSlot >= periodSlots.length) {
+				Arrays.fill(periodSlots, 0);
+				totals[i] = 0;
+			} else {
+				for (long timeSlot = lastTimeSlot + 1; timeSlot <= nowTimeSlot; timeSlot++) {
+					int slotIndex = getSlotIndex(i, timeSlot);
+					totals[i] -= periodSlots[slotIndex];
+					periodSlots[slotIndex] = 0;
+				}
+			}
+		}
+		lastUpdateMillis = nowMillis;
+	}
+
+	/**
+	 * Adds the given number of trades at the given time.
+	 * 
+	 * @param nowMillis
+	 *            the current time in milliseconds
+	 * @param tradeCount
+	 *            the number of trades, not negative
+	 */
+	void add(long nowMillis, int tradeCount) {
+		assert tradeCount >= 0;
+		this.advance(nowMillis);
+		for (int i = 0; i < PERIODS.length; i++) {
+			int slotIndex = getSlotIndex(i, getTimeSlot(i, lastUpdateMillis));
+			slots[i][slotIndex] += tradeCount;
+			totals[i] += tradeCount;
+		}
+	}
+
+	/**
+	 * Gets the number of trades within the given period.
+	 * <p>
+	 * The counter is expected to have been {@link #advance(long) advanced} to the current time.
+	 * 
+	 * @param period
+	 *            the period, not <code>null</code>
+	 * @return the number of trades
+	 */
+	int getCount(TradeStatisticsPeriod period) {
+		return totals[period.ordinal()];
+	}
+
+	/**
+	 * Checks if this counter has not counted any trades within the longest period.
+	 * <p>
+	 * The counter is expected to have been {@link #advance(long) advanced} to the current time.
+	 * 
+	 * @return <code>true</code> if empty
+	 */
+	boolean isEmpty() {
+		return totals[TradeStatisticsPeriod.WEEK.ordinal()] == 0;
+	}
+
+	/**
+	 * Serializes this counter to a compact String.
+	 * <p>
+	 * The String contains the time of the last update, followed by the non-empty slots of each
+	 * period in the format {@code slotIndex:count}.
+	 * 
+	 * @return the serialized counter
+	 */
+	String serialize() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(lastUpdateMillis);
+		for (int i = 0; i < PERIODS.length; i++) {
+			builder.append(PERIOD_SEPARATOR);
+			int[] periodSlots = slots[i];
+			boolean first = true;
+			for (int slotIndex = 0; slotIndex < periodSlots.length; slotIndex++) {
+				int count = periodSlots[slotIndex];
+				if (count == 0) continue;
+				if (!first) {
+					builder.append(SLOT_SEPARATOR);
+				}
+				first = false;
+				builder.append(slotIndex).append(COUNT_SEPARATOR).append(count);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Deserializes a counter from the given String.
+	 * 
+	 * @param serialized
+	 *            the serialized counter, as returned by {@link #serialize()}
+	 * @return the counter, not <code>null</code>
+	 * @throws InvalidDataException
+	 *             if the given String is not a valid serialized counter
+	 */
+	static TradeCounter deserialize(String serialized) throws InvalidDataException {
+		// The limit of -1 keeps trailing empty periods:
+		String[] parts = serialized.split(PERIOD_SEPARATOR, -1);
+		if (parts.length != PERIODS.length + 1) {
+			throw new InvalidDataException("Invalid trade counter: " + serialized);
+		}
+
+		TradeCounter counter = new TradeCounter();
+		try {
+			counter.lastUpdateMillis = Long.parseLong(parts[0]);
+			for (int i = 0; i < PERIODS.length; i++) {
+				String periodData = parts[i + 1];
+				if (periodData.isEmpty()) continue;
+
+				int[] periodSlots = counter.slots[i];
+				for (String slotData : periodData.split(SLOT_SEPARATOR)) {
+					int separatorIndex = slotData.indexOf(COUNT_SEPARATOR);
+					if (separatorIndex == -1) {
+						throw new InvalidDataException("Invalid trade counter slot: " + slotData);
+					}
+					int slotIndex = Integer.parseInt(slotData.substring(0, separatorIndex));
+					int count = Integer.parseInt(slotData.substring(separatorIndex + 1));
+					if (slotIndex < 0 || slotIndex >= periodSlots.length || count < 0) {
+						throw new InvalidDataException("Invalid trade counter slot: " + slotData);
+					}
+					periodSlots[slotIndex] = count;
+					counter.totals[i] += count;
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new InvalidDataException("Invalid trade counter: " + serialized, e);
+		}
+		return counter;
+	}
+}
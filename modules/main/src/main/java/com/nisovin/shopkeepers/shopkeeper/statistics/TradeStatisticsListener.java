@@ -0,0 +1,95 @@
+package com.nisovin.shopkeepers.shopkeeper.statistics;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.scheduler.BukkitTask;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.events.ShopkeeperTradeCompletedEvent;
+import com.nisovin.shopkeepers.api.events.ShopkeeperTradeEvent;
+import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Updates the {@link SKTradeStatistics} of shopkeepers when trades are completed.
+ * <p>
+ * Recording a trade does not mark the shopkeeper as dirty right away: This would trigger a save of
+ * the shopkeeper for every trade, including the trades with admin shops, whose data is otherwise
+ * not affected by trades. Instead, the shopkeepers with changed statistics are marked as dirty
+ * periodically, and during plugin disable.
+ */
+public class TradeStatisticsListener implements Listener {
+
+	private static final long SAVE_PERIOD_TICKS = 6000L; // 5 minutes
+
+	private final SKShopkeepersPlugin plugin;
+	// The shopkeepers whose statistics changed since they were last marked as dirty:
+	private final Set<AbstractShopkeeper> changedShopkeepers = new LinkedHashSet<>();
+	private @Nullable BukkitTask saveTask = null;
+
+	public TradeStatisticsListener(SKShopkeepersPlugin plugin) {
+		Validate.notNull(plugin, "plugin is null");
+		this.plugin = plugin;
+	}
+
+	public void onEnable() {
+		Bukkit.getPluginManager().registerEvents(this, plugin);
+		saveTask = Bukkit.getScheduler().runTaskTimer(
+				plugin,
+				this::saveChangedStatistics,
+				SAVE_PERIOD_TICKS,
+				SAVE_PERIOD_TICKS
+		);
+	}
+
+	// This needs to be called before the shopkeepers are saved and unloaded.
+	public void onDisable() {
+		HandlerList.unregisterAll(this);
+		if (saveTask != null) {
+			saveTask.cancel();
+			saveTask = null;
+		}
+		// The storage saves the dirty shopkeepers during plugin disable:
+		this.markChangedShopkeepersDirty();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onTradeCompleted(ShopkeeperTradeCompletedEvent event) {
+		ShopkeeperTradeEvent trade = event.getCompletedTrade();
+		AbstractShopkeeper shopkeeper = (AbstractShopkeeper) trade.getShopkeeper();
+		if (!shopkeeper.isValid()) return;
+
+		shopkeeper.getTradeStatistics().recordTrades(
+				trade.getTradingRecipe(),
+				trade.getTradeCount()
+		);
+		changedShopkeepers.add(shopkeeper);
+	}
+
+	private void saveChangedStatistics() {
+		if (this.markChangedShopkeepersDirty()) {
+			plugin.getShopkeeperStorage().saveDelayed();
+		}
+	}
+
+	// Returns true if any shopkeepers have been marked as dirty.
+	private boolean markChangedShopkeepersDirty() {
+		if (changedShopkeepers.isEmpty()) return false;
+
+		changedShopkeepers.forEach(shopkeeper -> {
+			// Shopkeepers that have been removed in the meantime are skipped:
+			if (shopkeeper.isValid()) {
+				shopkeeper.markDirty();
+			}
+		});
+		changedShopkeepers.clear();
+		return true;
+	}
+}
@@ -6,6 +6,7 @@ import org.bukkit.block.Block;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopobjects.block.BlockShopObjectType;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
@@ -38,8 +39,15 @@ public abstract class AbstractBlockShopObjectType<T extends AbstractBlockShopObj
 			int blockY,
 			int blockZ
 	) {
-		Object objectId = BlockShopObjectIds.getSharedObjectId(worldName, blockX, blockY, blockZ);
-		return this.getShopkeeperByObjectId(objectId);
+		AbstractShopkeeper shopkeeper = SKShopkeepersPlugin.getInstance()
+				.getShopkeeperRegistry()
+				.getShopObjectRegistry()
+				.getShopkeeperByBlock(worldName, blockX, blockY, blockZ);
+		if (shopkeeper != null && shopkeeper.getShopObject().getType() == this) {
+			return shopkeeper;
+		} else {
+			return null;
+		}
 	}
 
 	@Override
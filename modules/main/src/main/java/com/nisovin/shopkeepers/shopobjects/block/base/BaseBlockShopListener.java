@@ -1,8 +1,6 @@
 package com.nisovin.shopkeepers.shopobjects.block.base;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Stream;
 
 import org.bukkit.Bukkit;
@@ -24,20 +22,21 @@ import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
-import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.registry.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.bukkit.BlockFaceUtils;
 import com.nisovin.shopkeepers.util.bukkit.BlockLocation;
 import com.nisovin.shopkeepers.util.bukkit.EventUtils;
-import com.nisovin.shopkeepers.util.bukkit.MutableBlockLocation;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.bukkit.WorldBlockMap;
 import com.nisovin.shopkeepers.util.interaction.InteractionUtils;
 import com.nisovin.shopkeepers.util.interaction.TestPlayerInteractEvent;
+import com.nisovin.shopkeepers.util.java.LongHashMap;
 import com.nisovin.shopkeepers.util.logging.Log;
 
 class BaseBlockShopListener implements Listener {
@@ -56,8 +55,6 @@ class BaseBlockShopListener implements Listener {
 			= Stream.concat(Stream.of(BlockFace.SELF), BlockFaceUtils.getBlockSides().stream())
 					.toArray(length -> new @NonNull BlockFace[length]);
 
-	private static final MutableBlockLocation SHARED_BLOCK_LOCATION = new MutableBlockLocation();
-
 	private final SKShopkeepersPlugin plugin;
 	private final BaseBlockShops baseBlockShops;
 	private final SKShopkeeperRegistry shopkeeperRegistry;
@@ -72,7 +69,7 @@ class BaseBlockShopListener implements Listener {
 	// location. E.g. the number of block shopkeepers, but tickets can also be added for other
 	// purposes. When this number reaches zero, the map entry is removed and block physics are no
 	// longer cancelled for the location.
-	private final Map<BlockLocation, Integer> cancelledBlockPhysics = new HashMap<>();
+	private final WorldBlockMap<Integer> cancelledBlockPhysics = new WorldBlockMap<>();
 
 	BaseBlockShopListener(SKShopkeepersPlugin plugin, BaseBlockShops blockShops) {
 		this.plugin = plugin;
@@ -94,59 +91,64 @@ class BaseBlockShopListener implements Listener {
 	}
 
 	void addBlockPhysicsCancellation(Block block) {
-		var blockLocation = SHARED_BLOCK_LOCATION;
-		blockLocation.set(block);
-		this.addBlockPhysicsCancellation(blockLocation);
+		this.updateBlockPhysicsCancellation(
+				block.getWorld().getName(),
+				block.getX(),
+				block.getY(),
+				block.getZ(),
+				true
+		);
 	}
 
 	void removeBlockPhysicsCancellation(Block block) {
-		var blockLocation = SHARED_BLOCK_LOCATION;
-		blockLocation.set(block);
-		this.removeBlockPhysicsCancellation(blockLocation);
+		this.updateBlockPhysicsCancellation(
+				block.getWorld().getName(),
+				block.getX(),
+				block.getY(),
+				block.getZ(),
+				false
+		);
 	}
 
 	void addBlockPhysicsCancellation(BlockLocation blockLocation) {
-		for (BlockFace blockFace : PHYSICS_BLOCK_FACES) {
-			int adjacentX = blockLocation.getX() + blockFace.getModX();
-			int adjacentY = blockLocation.getY() + blockFace.getModY();
-			int adjacentZ = blockLocation.getZ() + blockFace.getModZ();
-			var adjacentBlockLocation = new BlockLocation(
-					Unsafe.assertNonNull(blockLocation.getWorldName()),
-					adjacentX,
-					adjacentY,
-					adjacentZ
-			);
-			this.addSpecificBlockPhysicsCancellation(adjacentBlockLocation);
-		}
+		this.updateBlockPhysicsCancellation(
+				Unsafe.assertNonNull(blockLocation.getWorldName()),
+				blockLocation.getX(),
+				blockLocation.getY(),
+				blockLocation.getZ(),
+				true
+		);
 	}
 
 	void removeBlockPhysicsCancellation(BlockLocation blockLocation) {
-		for (BlockFace blockFace : PHYSICS_BLOCK_FACES) {
-			int adjacentX = blockLocation.getX() + blockFace.getModX();
-			int adjacentY = blockLocation.getY() + blockFace.getModY();
-			int adjacentZ = blockLocation.getZ() + blockFace.getModZ();
-			var adjacentBlockLocation = new BlockLocation(
-					Unsafe.assertNonNull(blockLocation.getWorldName()),
-					adjacentX,
-					adjacentY,
-					adjacentZ
-			);
-			this.removeSpecificBlockPhysicsCancellation(adjacentBlockLocation);
-		}
-	}
-
-	private void addSpecificBlockPhysicsCancellation(BlockLocation blockLocation) {
-		cancelledBlockPhysics.compute(
-				blockLocation.immutable(),
-				(k, v) -> v == null ? 1 : (v + 1)
+		this.updateBlockPhysicsCancellation(
+				Unsafe.assertNonNull(blockLocation.getWorldName()),
+				blockLocation.getX(),
+				blockLocation.getY(),
+				blockLocation.getZ(),
+				false
 		);
 	}
 
-	private void removeSpecificBlockPhysicsCancellation(BlockLocation blockLocation) {
-		cancelledBlockPhysics.compute(
-				blockLocation.immutable(),
-				(k, v) -> (v == null || v <= 1) ? null : (v - 1)
-		);
+	private void updateBlockPhysicsCancellation(
+			String worldName,
+			int blockX,
+			int blockY,
+			int blockZ,
+			boolean add
+	) {
+		for (BlockFace blockFace : PHYSICS_BLOCK_FACES) {
+			int adjacentX = blockX + blockFace.getModX();
+			int adjacentY = blockY + blockFace.getModY();
+			int adjacentZ = blockZ + blockFace.getModZ();
+			Integer tickets = cancelledBlockPhysics.get(worldName, adjacentX, adjacentY, adjacentZ);
+			int newTickets = (tickets == null ? 0 : tickets) + (add ? 1 : -1);
+			if (newTickets <= 0) {
+				cancelledBlockPhysics.remove(worldName, adjacentX, adjacentY, adjacentZ);
+			} else {
+				cancelledBlockPhysics.put(worldName, adjacentX, adjacentY, adjacentZ, newTickets);
+			}
+		}
 	}
 
 	// See LivingEntityShopListener for the reasoning behind using event priority LOWEST and
@@ -217,26 +219,39 @@ class BaseBlockShopListener implements Listener {
 	// block locations affected by block physics? We would need to also take the attached block face
 	// into account.
 	private boolean isProtectedBlock(Block block) {
+		LongHashMap<AbstractShopkeeper> blockShopkeepers = shopkeeperRegistry
+				.getShopObjectRegistry()
+				.getShopkeepersByBlock(block.getWorld().getName());
+		return this.isProtectedBlock(blockShopkeepers, block);
+	}
+
+	// blockShopkeepers: The block shopkeepers of the block's world.
+	private boolean isProtectedBlock(
+			@Nullable LongHashMap<AbstractShopkeeper> blockShopkeepers,
+			Block block
+	) {
+		if (blockShopkeepers == null) return false; // No block shops in this world
+
+		int blockX = block.getX();
+		int blockY = block.getY();
+		int blockZ = block.getZ();
+
 		// Check if the block itself is a base block shop:
-		if (baseBlockShops.isBaseBlockShop(block)) {
+		AbstractShopkeeper shopkeeper = blockShopkeepers.get(
+				WorldBlockMap.getBlockKey(blockX, blockY, blockZ)
+		);
+		if (shopkeeper != null && baseBlockShops.isBaseBlockShop(shopkeeper)) {
 			return true;
 		}
 
 		// Check if there is a base block shop attached to this block:
-		String worldName = block.getWorld().getName();
-		int blockX = block.getX();
-		int blockY = block.getY();
-		int blockZ = block.getZ();
 		for (BlockFace blockFace : BLOCK_SIDES) {
 			// Note: Avoiding getting the adjacent block slightly improves the performance.
 			int adjacentX = blockX + blockFace.getModX();
 			int adjacentY = blockY + blockFace.getModY();
 			int adjacentZ = blockZ + blockFace.getModZ();
-			Shopkeeper shopkeeper = shopkeeperRegistry.getShopkeeperByBlock(
-					worldName,
-					adjacentX,
-					adjacentY,
-					adjacentZ
+			shopkeeper = blockShopkeepers.get(
+					WorldBlockMap.getBlockKey(adjacentX, adjacentY, adjacentZ)
 			);
 			if (shopkeeper == null || !baseBlockShops.isBaseBlockShop(shopkeeper)) continue;
 
@@ -277,10 +292,7 @@ class BaseBlockShopListener implements Listener {
 		int blockY = block.getY();
 		int blockZ = block.getZ();
 
-		var blockLocation = SHARED_BLOCK_LOCATION;
-		SHARED_BLOCK_LOCATION.set(worldName, blockX, blockY, blockZ);
-
-		if (cancelledBlockPhysics.containsKey(blockLocation)) {
+		if (cancelledBlockPhysics.containsKey(worldName, blockX, blockY, blockZ)) {
 			event.setCancelled(true);
 		}
 	}
@@ -297,8 +309,18 @@ class BaseBlockShopListener implements Listener {
 		this.removeProtectedBlocks(blockList);
 	}
 
+	// The blocks of an explosion are all located in the same world: We look up the block
+	// shopkeepers of the world only once.
 	private void removeProtectedBlocks(List<? extends Block> blockList) {
 		assert blockList != null;
-		blockList.removeIf(this::isProtectedBlock);
+		if (blockList.isEmpty()) return;
+
+		String worldName = blockList.get(0).getWorld().getName();
+		LongHashMap<AbstractShopkeeper> blockShopkeepers = shopkeeperRegistry
+				.getShopObjectRegistry()
+				.getShopkeepersByBlock(worldName);
+		if (blockShopkeepers == null) return; // No block shops in this world
+
+		blockList.removeIf(block -> this.isProtectedBlock(blockShopkeepers, block));
 	}
 }
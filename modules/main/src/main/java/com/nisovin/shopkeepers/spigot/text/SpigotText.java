@@ -1,5 +1,6 @@
 package com.nisovin.shopkeepers.spigot.text;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.bukkit.Bukkit;
@@ -51,6 +52,25 @@ public final class SpigotText {
 		}
 	}
 
+	// Note: This is not intended to be called directly, but only via TextUtils.
+	// Converts the message only once for all recipients.
+	public static void sendMessage(Collection<? extends CommandSender> recipients, Text message) {
+		Validate.notNull(recipients, "recipients is null");
+		Validate.notNull(message, "message is null");
+		if (recipients.isEmpty()) return;
+		// Skip sending if the (plain) message is empty: Allows disabling of messages.
+		if (message.isPlainTextEmpty()) return;
+
+		if (SpigotFeatures.isSpigotAvailable()) {
+			// Send message with additional text features:
+			Internal.sendMessage(recipients, message);
+		} else {
+			// Fallback: Send message as plain text.
+			String plainMessage = message.toPlainText();
+			recipients.forEach(recipient -> TextUtils.sendMessage(recipient, plainMessage));
+		}
+	}
+
 	// Separate class that gets only accessed if Spigot is present. Avoids class loading issues.
 	private static final class Internal {
 
@@ -69,6 +89,17 @@ public final class SpigotText {
 			recipient.spigot().sendMessage(component);
 		}
 
+		public static void sendMessage(
+				Collection<? extends CommandSender> recipients,
+				Text message
+		) {
+			assert recipients != null && message != null;
+			BaseComponent component = toSpigot(message);
+			for (CommandSender recipient : recipients) {
+				recipient.spigot().sendMessage(component);
+			}
+		}
+
 		// CONVERSION
 
 		private static final class TextStyle {
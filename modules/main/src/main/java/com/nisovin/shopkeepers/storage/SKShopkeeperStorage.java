@@ -154,6 +154,15 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		return this._getDataFolder().resolve(SAVE_FILE_NAME);
 	}
 
+	/**
+	 * Gets the path of the save file.
+	 * 
+	 * @return the path of the save file
+	 */
+	public Path getSaveFile() {
+		return saveFile;
+	}
+
 	public void onEnable() {
 		// Start periodic save task:
 		if (!Settings.saveInstantly) {
@@ -325,6 +334,35 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		}
 	}
 
+	// UNLOADED SHOPKEEPER DATA
+
+	/**
+	 * Creates the save data for a new shopkeeper that is not loaded.
+	 * <p>
+	 * This allows to insert large amounts of shopkeeper data, for example for load tests, without
+	 * the overhead of creating and spawning each shopkeeper. The caller is responsible for filling
+	 * in the complete data of the shopkeeper. The data is persisted with the next save, and the
+	 * shopkeeper is loaded with the next {@link #reload()}.
+	 * <p>
+	 * This must not be called while a save is in progress.
+	 * 
+	 * @param id
+	 *            the shopkeeper id, has to be {@link #getNextShopkeeperId() unused}
+	 * @return the shopkeeper data, not <code>null</code>
+	 */
+	public ShopkeeperData createUnloadedShopkeeperData(int id) {
+		Validate.isTrue(id > 0, "id has to be positive");
+		Validate.State.isTrue(!saveTask.isRunning(), "Cannot modify the save data during a save!");
+		Validate.isTrue(this.isUnusedId(id), () -> "id is already used: " + id);
+
+		ShopkeeperData shopkeeperData = ShopkeeperData.ofNonNull(
+				saveData.createContainer(String.valueOf(id))
+		);
+		this.onShopkeeperIdUsed(id);
+		this.requestSave();
+		return shopkeeperData;
+	}
+
 	// LOADING
 
 	/**
@@ -796,6 +834,17 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		this.savingDisabled = false;
 	}
 
+	/**
+	 * Checks if a save is currently in progress.
+	 * <p>
+	 * The save data cannot be {@link #createUnloadedShopkeeperData(int) modified} during a save.
+	 * 
+	 * @return <code>true</code> if a save is in progress
+	 */
+	public boolean isSaving() {
+		return saveTask.isRunning();
+	}
+
 	private void requestSave() {
 		pendingSaveRequest = true;
 	}
@@ -0,0 +1,36 @@
+package com.nisovin.shopkeepers.tradelog;
+
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumePage;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumeQuery;
+import com.nisovin.shopkeepers.tradelog.sink.TradeSink;
+
+/**
+ * A trade log storage {@link TradeSink} whose written trades can be queried.
+ */
+public interface QueryableTradeLogger extends TradeSink {
+
+	/**
+	 * Aggregates the logged trades according to the given {@link TradeVolumeQuery}.
+	 * <p>
+	 * This is invoked asynchronously by the {@link SKTradeHistory}, concurrently to the writing of
+	 * trades, and at most once at a time. The query only needs to consider trades that have
+	 * already been written to storage.
+	 * <p>
+	 * Implementations stop the query once the given row limit is reached, and return the
+	 * aggregated results up to that point as {@link TradeVolumePage#isTruncated() truncated}
+	 * results. If the deadline is exceeded, implementations either return truncated results as
+	 * well, or abort the query with a {@link TradeLogQueryTimeoutException}.
+	 * 
+	 * @param query
+	 *            the query, not <code>null</code>
+	 * @param maxRows
+	 *            the maximum number of logged trades to aggregate
+	 * @param deadlineNanos
+	 *            the {@link System#nanoTime()} by which the query has to complete
+	 * @return the requested page of results, not <code>null</code>
+	 * @throws Exception
+	 *             if the query fails
+	 */
+	public TradeVolumePage queryVolume(TradeVolumeQuery query, int maxRows, long deadlineNanos)
+			throws Exception;
+}
@@ -0,0 +1,132 @@
+package com.nisovin.shopkeepers.tradelog;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.api.tradelog.TradeHistory;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumePage;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumeQuery;
+import com.nisovin.shopkeepers.config.Settings;
+import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * Answers {@link TradeVolumeQuery trade history queries} from the active
+ * {@link QueryableTradeLogger}.
+ * <p>
+ * Queries are executed asynchronously, one at a time, and are subject to the configured row and
+ * time limits. The results are provided on the main thread.
+ */
+public class SKTradeHistory implements TradeHistory {
+
+	private final Plugin plugin;
+
+	private volatile @Nullable QueryableTradeLogger logger = null;
+	private int maxRows = 1;
+	private long timeoutNanos = 0L;
+
+	private final AtomicBoolean queryRunning = new AtomicBoolean(false);
+
+	public SKTradeHistory(Plugin plugin) {
+		Validate.notNull(plugin, "plugin is null");
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Enables the trade history.
+	 * 
+	 * @param logger
+	 *            the trade logger to query, or <code>null</code> if there is no queryable trade
+	 *            logger
+	 */
+	void onEnable(@Nullable QueryableTradeLogger logger) {
+		this.maxRows = Settings.tradeLogQueryMaxRows;
+		this.timeoutNanos = TimeUnit.SECONDS.toNanos(Settings.tradeLogQueryTimeoutSeconds);
+		this.logger = logger;
+	}
+
+	void onDisable() {
+		logger = null;
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return logger != null;
+	}
+
+	@Override
+	public CompletableFuture<TradeVolumePage> queryVolume(TradeVolumeQuery query) {
+		Validate.notNull(query, "query is null");
+		CompletableFuture<TradeVolumePage> future = new CompletableFuture<>();
+		QueryableTradeLogger logger = this.logger;
+		if (logger == null) {
+			future.completeExceptionally(
+					new IllegalStateException("The trade history is not available!")
+			);
+			return future;
+		}
+		if (!queryRunning.compareAndSet(false, true)) {
+			future.completeExceptionally(
+					new IllegalStateException("Another trade history query is still running!")
+			);
+			return future;
+		}
+
+		int maxRows = this.maxRows;
+		long timeoutNanos = this.timeoutNanos;
+		BukkitTask task = SchedulerUtils.runAsyncTaskOrOmit(plugin, () -> {
+			@Nullable TradeVolumePage page = null;
+			@Nullable Exception error = null;
+			try {
+				long startNanos = System.nanoTime();
+				page = logger.queryVolume(query, maxRows, startNanos + timeoutNanos);
+				Log.debug(() -> "Trade history query completed in "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms: "
+						+ query);
+			} catch (TradeLogQueryTimeoutException e) {
+				Log.debug(() -> "Trade history query timed out: " + query);
+				error = e;
+			} catch (Exception e) {
+				Log.severe("Trade history query failed: " + query, e);
+				error = e;
+			} finally {
+				queryRunning.set(false);
+			}
+
+			this.completeOnMainThread(future, page, error);
+		});
+		if (task == null) {
+			// The plugin is being disabled:
+			queryRunning.set(false);
+			future.completeExceptionally(
+					new IllegalStateException("The trade history is not available!")
+			);
+		}
+		return future;
+	}
+
+	private void completeOnMainThread(
+			CompletableFuture<TradeVolumePage> future,
+			@Nullable TradeVolumePage page,
+			@Nullable Exception error
+	) {
+		Runnable completion = () -> {
+			if (error != null) {
+				future.completeExceptionally(error);
+			} else {
+				future.complete(Unsafe.assertNonNull(page));
+			}
+		};
+		if (!SchedulerUtils.runOnMainThreadOrOmit(plugin, completion)) {
+			// The plugin is being disabled: Complete the future right away.
+			completion.run();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package com.nisovin.shopkeepers.tradelog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.tradelog.sink.TradeSink;
+import com.nisovin.shopkeepers.util.bukkit.SingletonTask;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * Periodically performs the {@link TradeSink#performMaintenance(BooleanSupplier) maintenance} of
+ * the trade sinks, such as the compression or archiving of old trade logs.
+ * <p>
+ * The maintenance runs asynchronously and independently of the writers of the trade sinks. It is
+ * triggered periodically from the server's main thread, and only one maintenance runs at the same
+ * time.
+ */
+public class TradeLogMaintenance {
+
+	private static final long INITIAL_DELAY_TICKS = 20L * 60L * 5L; // 5 minutes
+	private static final long PERIOD_TICKS = 20L * 60L * 60L * 24L; // 24 hours
+
+	private final Plugin plugin;
+	private final List<? extends TradeSink> sinks;
+
+	private final MaintenanceTask maintenanceTask;
+	private @Nullable BukkitTask task = null;
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Creates a new {@link TradeLogMaintenance}.
+	 * 
+	 * @param plugin
+	 *            the plugin, not <code>null</code>
+	 * @param sinks
+	 *            the trade sinks, not <code>null</code>
+	 */
+	public TradeLogMaintenance(Plugin plugin, List<? extends TradeSink> sinks) {
+		Validate.notNull(plugin, "plugin is null");
+		Validate.notNull(sinks, "sinks is null");
+		this.plugin = plugin;
+		this.sinks = new ArrayList<>(sinks);
+		this.maintenanceTask = new MaintenanceTask(plugin);
+	}
+
+	/**
+	 * Starts the periodic maintenance.
+	 */
+	public void start() {
+		Validate.State.isTrue(task == null, "Already started!");
+		if (sinks.isEmpty()) return; // Nothing to maintain
+
+		cancelled = false;
+		task = Bukkit.getScheduler().runTaskTimer(
+				plugin,
+				this::trigger,
+				INITIAL_DELAY_TICKS,
+				PERIOD_TICKS
+		);
+	}
+
+	/**
+	 * Stops the periodic maintenance.
+	 * <p>
+	 * A currently running maintenance is cancelled and stops at its next cancellation check. This
+	 * waits (blocking!) for the running maintenance to stop.
+	 */
+	public void stop() {
+		cancelled = true;
+		BukkitTask task = this.task;
+		if (task != null) {
+			task.cancel();
+			this.task = null;
+		}
+		maintenanceTask.shutdown();
+	}
+
+	private void trigger() {
+		// Skip this run if the previous run is still in progress:
+		if (maintenanceTask.isRunning()) return;
+		maintenanceTask.run();
+	}
+
+	private class MaintenanceTask extends SingletonTask {
+
+		private MaintenanceTask(Plugin plugin) {
+			super(plugin);
+		}
+
+		private class InternalAsyncTask extends SingletonTask.InternalAsyncTask {
+		}
+
+		private class InternalSyncCallbackTask extends SingletonTask.InternalSyncCallbackTask {
+		}
+
+		@Override
+		protected InternalAsyncTask createInternalAsyncTask() {
+			return new InternalAsyncTask();
+		}
+
+		@Override
+		protected InternalSyncCallbackTask createInternalSyncCallbackTask() {
+			return new InternalSyncCallbackTask();
+		}
+
+		@Override
+		protected void prepare() {
+		}
+
+		@Override
+		protected void execute() {
+			performMaintenance();
+		}
+
+		@Override
+		protected void syncCallback() {
+		}
+	}
+
+	// Usually invoked asynchronously.
+	private void performMaintenance() {
+		long startMillis = System.currentTimeMillis();
+		long reclaimedBytes = 0L;
+		for (TradeSink sink : sinks) {
+			if (cancelled) break;
+			try {
+				reclaimedBytes += sink.performMaintenance(() -> cancelled);
+			} catch (Exception e) {
+				Log.severe("Trade log maintenance failed!", e);
+			}
+		}
+
+		long durationMillis = System.currentTimeMillis() - startMillis;
+		long finalReclaimedBytes = reclaimedBytes;
+		if (reclaimedBytes > 0L) {
+			Log.info("Trade log maintenance: Reclaimed " + formatBytes(reclaimedBytes) + " ("
+					+ durationMillis + " ms).");
+		} else {
+			Log.debug(() -> "Trade log maintenance: Reclaimed "
+					+ formatBytes(finalReclaimedBytes) + " (" + durationMillis + " ms).");
+		}
+	}
+
+	private static String formatBytes(long bytes) {
+		if (bytes < 1024L) return bytes + " bytes";
+		if (bytes < 1024L * 1024L) return String.format("%.1f KiB", bytes / 1024.0D);
+		return String.format("%.1f MiB", bytes / (1024.0D * 1024.0D));
+	}
+}
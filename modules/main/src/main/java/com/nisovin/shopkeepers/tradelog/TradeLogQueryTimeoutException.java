@@ -0,0 +1,34 @@
+package com.nisovin.shopkeepers.tradelog;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * This exception is thrown when a query of the trade log is aborted because it exceeded its time
+ * limit.
+ */
+public class TradeLogQueryTimeoutException extends Exception {
+
+	private static final long serialVersionUID = 2964915325361380224L;
+
+	/**
+	 * Creates a new {@link TradeLogQueryTimeoutException}.
+	 * 
+	 * @param message
+	 *            the detail message
+	 */
+	public TradeLogQueryTimeoutException(@Nullable String message) {
+		super(message);
+	}
+
+	/**
+	 * Creates a new {@link TradeLogQueryTimeoutException}.
+	 * 
+	 * @param message
+	 *            the detail message
+	 * @param cause
+	 *            the cause
+	 */
+	public TradeLogQueryTimeoutException(@Nullable String message, @Nullable Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -1,5 +1,9 @@
 package com.nisovin.shopkeepers.tradelog;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Map;
 
 import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
@@ -43,6 +47,31 @@ public class TradeLogUtils {
 		return yaml;
 	}
 
+	/**
+	 * Gets a hash of the given item type and metadata that can be used to identify items with the
+	 * same logged data.
+	 * 
+	 * @param itemType
+	 *            the logged item type, not <code>null</code>
+	 * @param itemMetadata
+	 *            the logged item metadata, not <code>null</code>
+	 * @return the hex-encoded SHA-256 hash, not <code>null</code>
+	 */
+	public static String getItemContentHash(String itemType, String itemMetadata) {
+		assert itemType != null && itemMetadata != null;
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256:
+			throw new IllegalStateException("SHA-256 is not supported!", e);
+		}
+		digest.update(itemType.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) '\n');
+		digest.update(itemMetadata.getBytes(StandardCharsets.UTF_8));
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
 	private TradeLogUtils() {
 	}
 }
@@ -26,4 +26,13 @@ public interface TradeLogger {
 	 * any pending writes to complete.
 	 */
 	public void flush();
+
+	/**
+	 * Releases any resources held by this trade logger.
+	 * <p>
+	 * This is invoked after the final {@link #flush()} during shutdown. No more trades are logged
+	 * afterwards.
+	 */
+	public default void close() {
+	}
 }
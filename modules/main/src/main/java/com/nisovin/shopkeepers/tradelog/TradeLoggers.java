@@ -1,6 +1,8 @@
 package com.nisovin.shopkeepers.tradelog;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.bukkit.Bukkit;
@@ -14,8 +16,13 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import com.nisovin.shopkeepers.api.events.ShopkeeperTradeCompletedEvent;
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.config.Settings;
+import com.nisovin.shopkeepers.tradelog.base.AbstractFileTradeLogger;
+import com.nisovin.shopkeepers.tradelog.base.AbstractSingleWriterTradeLogger;
 import com.nisovin.shopkeepers.tradelog.csv.CsvTradeLogger;
 import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
+import com.nisovin.shopkeepers.tradelog.sink.JsonLinesTradeSink;
+import com.nisovin.shopkeepers.tradelog.sink.TradeSink;
+import com.nisovin.shopkeepers.tradelog.sink.TradeSinkDispatcher;
 import com.nisovin.shopkeepers.tradelog.sqlite.SQLiteTradeLogger;
 import com.nisovin.shopkeepers.util.java.Validate;
 import com.nisovin.shopkeepers.util.trading.MergedTrades;
@@ -25,7 +32,6 @@ import com.nisovin.shopkeepers.util.trading.TradeMerger.MergeMode;
 public class TradeLoggers implements Listener {
 
 	private final Plugin plugin;
-	private final List<TradeLogger> loggers = new ArrayList<>();
 	// In order to represent the logged trades more compactly, we merge equivalent trades that are
 	// triggered in quick succession over a certain period of time. The maximum merge duration is
 	// configurable, and the trade merging can also be disabled.
@@ -35,11 +41,93 @@ public class TradeLoggers implements Listener {
 	// for this to not be an issue. Also, the order in which the trades took place is still
 	// preserved.
 	private @Nullable TradeMerger tradeMerger;
+	private @Nullable TradeLogMaintenance maintenance;
+	private final SKTradeHistory tradeHistory;
+	// Additional trade sinks that are registered by other components. These are kept across
+	// reloads.
+	private final List<TradeSink> registeredSinks = new ArrayList<>();
+	// The configured trade log storage, if any:
+	private @Nullable AbstractSingleWriterTradeLogger storage;
+	// Feeds the logged trades to the trade log storage and all other trade sinks:
+	private final TradeSinkDispatcher sinkDispatcher;
 	private boolean enabled = false;
 
 	public TradeLoggers(Plugin plugin) {
 		Validate.notNull(plugin, "plugin is null");
 		this.plugin = plugin;
+		this.tradeHistory = new SKTradeHistory(plugin);
+		this.sinkDispatcher = new TradeSinkDispatcher(plugin);
+	}
+
+	public SKTradeHistory getTradeHistory() {
+		return tradeHistory;
+	}
+
+	/**
+	 * Gets the {@link TradeSinkDispatcher} that feeds the logged trades to the trade sinks.
+	 * <p>
+	 * This can for example be used to query the statistics of the individual trade sinks.
+	 * 
+	 * @return the trade sink dispatcher, not <code>null</code>
+	 */
+	public TradeSinkDispatcher getSinkDispatcher() {
+		return sinkDispatcher;
+	}
+
+	/**
+	 * Gets the {@link TradeMerger} that merges the trades before they are logged.
+	 * <p>
+	 * This can for example be used to query the trade merging statistics.
+	 * 
+	 * @return the trade merger, or <code>null</code> if the trade logging is currently not enabled
+	 */
+	public @Nullable TradeMerger getTradeMerger() {
+		return tradeMerger;
+	}
+
+	/**
+	 * Gets the configured trade log storage.
+	 * 
+	 * @return the trade log storage, or <code>null</code> if the trade log storage is disabled or
+	 *         the trade logging is currently not enabled
+	 */
+	public @Nullable TradeSink getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Registers an additional {@link TradeSink} that receives the logged trades, independently of
+	 * the configured trade log storage.
+	 * <p>
+	 * The sink is fed by its own buffer of {@link Settings#tradeLogSinkBufferSize} trades. If the
+	 * trade logging is currently enabled, the sink only receives the subsequently logged trades.
+	 * 
+	 * @param sink
+	 *            the sink, not <code>null</code>
+	 */
+	public void registerTradeSink(TradeSink sink) {
+		Validate.notNull(sink, "sink is null");
+		Validate.isTrue(!registeredSinks.contains(sink), "sink is already registered");
+		registeredSinks.add(sink);
+		if (enabled) {
+			sinkDispatcher.addSink(sink, Settings.tradeLogSinkBufferSize);
+		}
+	}
+
+	/**
+	 * Unregisters a previously {@link #registerTradeSink(TradeSink) registered} {@link TradeSink}.
+	 * <p>
+	 * If the trade logging is currently enabled, this writes any trades that are still pending for
+	 * the sink, waits (blocking!) for the writes to complete, and then closes the sink.
+	 * 
+	 * @param sink
+	 *            the sink
+	 */
+	public void unregisterTradeSink(TradeSink sink) {
+		if (!registeredSinks.remove(sink)) return;
+		if (enabled) {
+			sinkDispatcher.removeSink(sink);
+		}
 	}
 
 	public void onEnable() {
@@ -58,17 +146,49 @@ public class TradeLoggers implements Listener {
 
 		switch (Settings.tradeLogStorage) {
 		case CSV:
-			loggers.add(new CsvTradeLogger(plugin));
+			storage = new CsvTradeLogger(plugin);
 			break;
 		case SQLITE:
-			loggers.add(new SQLiteTradeLogger(plugin));
+			storage = new SQLiteTradeLogger(plugin);
 			break;
 		case DISABLED:
 		default:
 			break;
 		}
 
-		loggers.forEach(TradeLogger::setup);
+		// The trade log storage buffers a limited number of trades in memory, and spills any
+		// further trades to disk:
+		AbstractSingleWriterTradeLogger storage = this.storage;
+		if (storage != null) {
+			sinkDispatcher.addSink(storage, Settings.tradeLogMaxPendingTrades);
+		}
+
+		// Trade sinks that are fed independently of the trade log storage:
+		if (Settings.tradeLogJsonLines) {
+			Path tradeLogsFolder = plugin.getDataFolder().toPath()
+					.resolve(AbstractFileTradeLogger.TRADE_LOGS_FOLDER);
+			sinkDispatcher.addSink(
+					new JsonLinesTradeSink(tradeLogsFolder),
+					Settings.tradeLogSinkBufferSize
+			);
+		}
+		for (TradeSink sink : registeredSinks) {
+			sinkDispatcher.addSink(sink, Settings.tradeLogSinkBufferSize);
+		}
+
+		sinkDispatcher.setup();
+
+		maintenance = new TradeLogMaintenance(
+				plugin,
+				(storage != null) ? Collections.singletonList(storage) : Collections.emptyList()
+		);
+		maintenance.start();
+
+		// The trade history is answered from the trade log storage:
+		tradeHistory.onEnable((storage instanceof QueryableTradeLogger)
+				? (QueryableTradeLogger) storage
+				: null
+		);
 
 		Bukkit.getPluginManager().registerEvents(this, plugin);
 	}
@@ -80,23 +200,31 @@ public class TradeLoggers implements Listener {
 		// Stop reacting to new trades:
 		HandlerList.unregisterAll(this);
 
+		// Stop accepting new trade history queries:
+		tradeHistory.onDisable();
+
+		// Stop any running maintenance:
+		Unsafe.assertNonNull(maintenance).stop();
+		maintenance = null;
+
 		// Process any pending previous trades:
 		Unsafe.assertNonNull(tradeMerger).onDisable();
 
 		// Wait for any pending writes to complete:
-		loggers.forEach(TradeLogger::flush);
-		loggers.clear();
+		sinkDispatcher.flush();
+		sinkDispatcher.close();
+		storage = null;
 	}
 
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	void onTradeCompleted(ShopkeeperTradeCompletedEvent event) {
-		if (loggers.isEmpty()) return; // Nothing to log
+		if (sinkDispatcher.isEmpty()) return; // Nothing to log
 
 		Unsafe.assertNonNull(tradeMerger).mergeTrade(event.getCompletedTrade());
 	}
 
 	private void processTrades(MergedTrades trades) {
 		TradeRecord trade = TradeRecord.create(trades);
-		loggers.forEach(logger -> logger.logTrade(trade));
+		sinkDispatcher.logTrade(trade);
 	}
 }
@@ -5,10 +5,9 @@ import java.nio.file.Path;
 import org.bukkit.plugin.Plugin;
 
 import com.nisovin.shopkeepers.tradelog.TradeLogStorageType;
-import com.nisovin.shopkeepers.tradelog.TradeLogger;
 
 /**
- * Base class for file-based {@link TradeLogger}s with a single concurrent writer.
+ * Base class for file-based trade log storages with a single concurrent writer.
  */
 public abstract class AbstractFileTradeLogger extends AbstractSingleWriterTradeLogger {
 
@@ -1,29 +1,26 @@
 package com.nisovin.shopkeepers.tradelog.base;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Locale;
+import java.util.Map;
 
-import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
-import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitTask;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
-import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
 import com.nisovin.shopkeepers.config.Settings;
 import com.nisovin.shopkeepers.tradelog.TradeLogStorageType;
 import com.nisovin.shopkeepers.tradelog.TradeLogUtils;
-import com.nisovin.shopkeepers.tradelog.TradeLogger;
 import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
-import com.nisovin.shopkeepers.util.bukkit.PermissionUtils;
-import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
-import com.nisovin.shopkeepers.util.bukkit.SingletonTask;
+import com.nisovin.shopkeepers.tradelog.sink.SerializedTrade;
+import com.nisovin.shopkeepers.tradelog.sink.TradeSink;
+import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 import com.nisovin.shopkeepers.util.java.CollectionUtils;
+import com.nisovin.shopkeepers.util.java.LRUCache;
 import com.nisovin.shopkeepers.util.java.Retry;
 import com.nisovin.shopkeepers.util.java.ThrowableUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
@@ -31,338 +28,103 @@ import com.nisovin.shopkeepers.util.java.VoidCallable;
 import com.nisovin.shopkeepers.util.logging.Log;
 
 /**
- * Base class for {@link TradeLogger}s with a single concurrent writer. Trades are buffered and
- * periodically persisted in batches.
+ * Base class for the trade log storages, which are {@link TradeSink}s with a single concurrent
+ * writer. The trades are buffered by the sink dispatcher and persisted in batches.
  * <p>
- * If any initial setup is required, override {@link #preSetup()}, {@link #asyncSetup()} and
- * {@link #postSetup()} accordingly.
+ * The number of trades that are buffered in memory is limited by
+ * {@link Settings#tradeLogMaxPendingTrades}. If this limit is reached while a write is still in
+ * progress, e.g. because the storage is slow or temporarily unavailable, the buffered trades are
+ * spilled to a sequential overflow file on disk (see {@link #getSpillFile()}). The spilled trades
+ * are logged first, in the order in which they were spilled, once the storage has recovered.
+ * Trades that remain pending during shutdown are spilled as well, and logged after the next
+ * startup.
+ * <p>
+ * If any initial setup is required, override {@link #setup()} accordingly.
  */
-public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
-
-	private static final int DELAYED_SAVE_TICKS = 600; // 30 seconds
+public abstract class AbstractSingleWriterTradeLogger implements TradeSink {
 
 	private static final int SAVE_MAX_ATTEMPTS = 20;
 	private static final long SAVE_RETRY_DELAY_MILLIS = 25L;
-	private static final long SAVE_ERROR_MSG_THROTTLE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	private static final int ITEM_CACHE_SIZE = 512;
+	private static final String SPILL_FILE_FOLDER = "trade-logs";
+	private static final String SPILL_FILE_SUFFIX = "-pending-trades.spill";
 
 	protected final Plugin plugin;
 	protected final TradeLogStorageType storageType;
 	protected final String logPrefix;
+	private final Path spillFile;
 
-	private final SetupTask setupTask;
-	private boolean setupCompleted = false;
-
-	private boolean enabled = true;
-
-	private List<TradeRecord> pending = new ArrayList<>();
-	private final SaveTask saveTask;
-	private @Nullable BukkitTask delayedSaveTask = null;
-	// This is reset to the current configuration value prior to every save. This ensures that the
-	// value of this setting remains constant during the save and does not differ for the items of
-	// the trades that are being saved as part of the same batch.
+	// This is reset to the current configuration value prior to every write. This ensures that
+	// the value of this setting remains constant during the write and does not differ for the
+	// items of the trades that are being saved as part of the same batch.
 	private boolean logItemMetadata;
+	// Caches the logged data of recently logged items, keyed by single item copies of the items.
+	// Only accessed by the writer:
+	private final Map<ItemStack, LoggedItem> itemCache = new LRUCache<>(ITEM_CACHE_SIZE);
+	// The first trade of a batch that was partially saved before its write failed, and the number
+	// of trades of that batch that have already been saved. These are skipped when the batch is
+	// written again. Only accessed by the writer:
+	private @Nullable TradeRecord partiallySavedBatchStart = null;
+	private int partiallySavedTrades = 0;
 
 	public AbstractSingleWriterTradeLogger(Plugin plugin, TradeLogStorageType storageType) {
 		Validate.notNull(plugin, "plugin is null");
 		this.plugin = plugin;
 		this.storageType = storageType;
 		this.logPrefix = storageType.toString() + " trade log: ";
-		this.setupTask = new SetupTask(plugin);
-		this.saveTask = new SaveTask(plugin);
+		String spillFileName = storageType.name().toLowerCase(Locale.ROOT) + SPILL_FILE_SUFFIX;
+		this.spillFile = plugin.getDataFolder().toPath()
+				.resolve(SPILL_FILE_FOLDER)
+				.resolve(spillFileName);
 	}
 
 	@Override
-	public final void setup() {
-		if (setupCompleted) return;
-		if (setupTask.isRunning()) return;
-
-		setupTask.run();
-	}
-
-	/**
-	 * Override this to perform any setup that needs to happen on the server's main thread before
-	 * {@link #asyncSetup()} is invoked.
-	 */
-	protected void preSetup() {
-	}
-
-	/**
-	 * Override this to perform any asynchronous setup.
-	 * <p>
-	 * If the setup fails, consider calling {@link #disable(String)} during {@link #postSetup()}.
-	 * <p>
-	 * In certain circumstances, such as the plugin shutting down again before the setup has been
-	 * completed, this might also be called on the main thread.
-	 */
-	protected void asyncSetup() {
-	}
-
-	/**
-	 * Override this to perform any setup that needs to happen on the server's main thread after
-	 * {@link #asyncSetup()} completes.
-	 */
-	protected void postSetup() {
-	}
-
-	private class SetupTask extends SingletonTask {
-
-		private SetupTask(Plugin plugin) {
-			super(plugin);
-		}
-
-		private class InternalAsyncTask extends SingletonTask.InternalAsyncTask {
-		}
-
-		private class InternalSyncCallbackTask extends SingletonTask.InternalSyncCallbackTask {
-		}
-
-		@Override
-		protected InternalAsyncTask createInternalAsyncTask() {
-			return new InternalAsyncTask();
-		}
-
-		@Override
-		protected InternalSyncCallbackTask createInternalSyncCallbackTask() {
-			return new InternalSyncCallbackTask();
-		}
-
-		@Override
-		protected void prepare() {
-			preSetup();
-		}
-
-		@Override
-		protected void execute() {
-			asyncSetup();
-		}
-
-		@Override
-		protected void syncCallback() {
-			postSetup();
-			setupCompleted = true;
-
-			// Save any pending trades that were buffered while the setup was in progress:
-			savePending();
-		}
-	}
-
-	/**
-	 * Call this to disable this trade logger, e.g. if the setup has failed. Trades won't be logged.
-	 * 
-	 * @param reason
-	 *            the reason
-	 */
-	protected final void disable(String reason) {
-		if (!SchedulerUtils.isMainThread()) {
-			throw new IllegalStateException("This must be called from the server's main thread!");
-		}
-
-		Log.severe(logPrefix + "Disabled (trades won't be logged)! Reason: " + reason);
-		enabled = false;
-		this.cancelDelayedSave();
-		pending.clear();
+	public String getName() {
+		return storageType.toString();
 	}
 
 	@Override
-	public void logTrade(TradeRecord trade) {
-		if (!enabled) return;
-
-		pending.add(trade);
-
-		// It is likely for there to be additional trades to log in the immediate future. In order
-		// to reduce IO overhead, we do not trigger a save right away, but buffer the incoming trade
-		// records over a short period of time.
-		this.savePendingDelayed();
+	public Path getSpillFile() {
+		return spillFile;
 	}
 
 	@Override
-	public void flush() {
-		setupTask.awaitExecutions();
-		this.savePending();
-		saveTask.awaitExecutions();
-	}
-
-	private boolean hasPending() {
-		return !pending.isEmpty();
-	}
-
-	private void savePendingDelayed() {
-		if (!setupCompleted) {
-			// Any pending trades are saved once the setup completes.
-			return;
-		}
-
-		if (!this.hasPending()) {
-			// There are no pending trades to save:
-			return;
-		}
-
-		if (delayedSaveTask != null) {
-			// There is already a delayed save in progress:
-			return;
-		}
-
-		delayedSaveTask = SchedulerUtils.runTaskLaterOrOmit(
-				plugin,
-				new DelayedSaveTask(),
-				DELAYED_SAVE_TICKS
-		);
-	}
-
-	private class DelayedSaveTask implements Runnable {
-		@Override
-		public void run() {
-			delayedSaveTask = null;
-			savePending();
-		}
-	}
-
-	private void cancelDelayedSave() {
-		if (delayedSaveTask != null) {
-			delayedSaveTask.cancel();
-			delayedSaveTask = null;
-		}
-	}
-
-	private void savePending() {
-		assert setupCompleted;
-		if (!this.hasPending()) {
-			// There are no pending trades to save:
-			return;
-		}
-
-		saveTask.run(); // Usually async, but may be sync during plugin disable
-	}
-
-	private class SaveTask extends SingletonTask {
-
-		private List<TradeRecord> saving = new ArrayList<>();
-		private @Nullable SaveContext saveContext = null;
-		private boolean saveSucceeded = false;
-		private long lastSaveErrorMsgMillis = 0L;
-
-		private SaveTask(Plugin plugin) {
-			super(plugin);
-		}
-
-		private class InternalAsyncTask extends SingletonTask.InternalAsyncTask {
-		}
-
-		private class InternalSyncCallbackTask extends SingletonTask.InternalSyncCallbackTask {
-		}
-
-		@Override
-		protected InternalAsyncTask createInternalAsyncTask() {
-			return new InternalAsyncTask();
-		}
-
-		@Override
-		protected InternalSyncCallbackTask createInternalSyncCallbackTask() {
-			return new InternalSyncCallbackTask();
-		}
-
-		@Override
-		protected void prepare() {
-			// Stop any active delayed save task:
-			cancelDelayedSave();
-
-			// Reset local logItemMetadata setting:
+	public void write(List<? extends SerializedTrade> trades) throws Exception {
+		// Reset local logItemMetadata setting:
+		if (logItemMetadata != Settings.logItemMetadata) {
 			logItemMetadata = Settings.logItemMetadata;
-
-			// Swap the pending and saving lists of trades:
-			assert saving.isEmpty();
-			List<TradeRecord> temp = saving;
-			saving = pending;
-			pending = temp;
-
-			// Setup new SaveContext:
-			assert saveContext == null;
-			this.saveContext = new SaveContext(saving);
+			// The cached item data depends on this setting:
+			this.clearItemCache();
 		}
 
-		@Override
-		protected void execute() {
-			SaveContext saveContext = Unsafe.assertNonNull(this.saveContext);
-			saveSucceeded = writeTradesWithRetry(saveContext);
-			assert saveSucceeded ? !saveContext.hasUnsavedTrades() : saveContext.hasUnsavedTrades();
+		List<TradeRecord> records = new ArrayList<>(trades.size());
+		for (SerializedTrade trade : trades) {
+			records.add(trade.getTrade());
 		}
 
-		@Override
-		protected void syncCallback() {
-			SaveContext saveContext = Unsafe.assertNonNull(this.saveContext);
-
-			this.printDebugInfo();
-
-			if (!saveSucceeded) {
-				// Save failed:
-
-				// Add the unsaved trades to the front of the pending trades:
-				pending.addAll(0, saveContext.getUnsavedTrades());
-
-				// Attempt the save again after a short delay:
-				// However, during the final save attempt during plugin disable, this is skipped and
-				// data might be lost.
-				savePendingDelayed();
-
-				// Inform admins about the issue (throttled to once every x minutes):
-				long nowMillis = System.currentTimeMillis();
-				if (Math.abs(nowMillis - lastSaveErrorMsgMillis) > SAVE_ERROR_MSG_THROTTLE_MILLIS) {
-					lastSaveErrorMsgMillis = nowMillis;
-					String errorMsg = ChatColor.DARK_RED + "[Shopkeepers] " + ChatColor.RED
-							+ logPrefix + "Failed to log trades!"
-							+ " Please check the server logs and look into the issue!";
-					for (Player player : Bukkit.getOnlinePlayers()) {
-						assert player != null;
-						if (PermissionUtils.hasPermission(player, ShopkeepersPlugin.ADMIN_PERMISSION)) {
-							player.sendMessage(errorMsg);
-						}
-					}
-				}
-			}
-
-			// Reset:
-			this.saveContext = null;
-			saving.clear();
+		// Skip the trades that a previous failed write of the same batch has already saved:
+		int skipped = 0;
+		if (partiallySavedBatchStart != null && partiallySavedBatchStart.equals(records.get(0))) {
+			skipped = Math.min(partiallySavedTrades, records.size());
 		}
+		partiallySavedBatchStart = null;
+		partiallySavedTrades = 0;
 
-		private void printDebugInfo() {
-			Log.debug(() -> {
-				SaveContext saveContext = Unsafe.assertNonNull(this.saveContext);
-
-				StringBuilder sb = new StringBuilder();
-				sb.append("Logged trades to the ");
-				sb.append(storageType);
-				sb.append(" trade log (");
-
-				// Number of logged trade records:
-				sb.append(saving.size()).append(" records");
-
-				// Number of trade records that we failed to log:
-				if (saveContext.hasUnsavedTrades()) {
-					sb.append(", ")
-							.append(saveContext.getUnsavedTrades().size())
-							.append(" failed to log");
-				}
-
-				// Timing summary:
-				sb.append("): ");
-				sb.append(this.getExecutionTimingString());
-
-				// Failure indicator:
-				if (!saveSucceeded) {
-					if (saveContext.getUnsavedTrades().size() == saving.size()) {
-						sb.append(" -- Logging failed!");
-					} else {
-						sb.append(" -- Logging partially failed!");
-					}
-				}
-				return sb.toString();
-			});
+		SaveContext saveContext = new SaveContext(records.subList(skipped, records.size()));
+		try {
+			this.writeTradesWithRetry(saveContext);
+		} catch (Exception e) {
+			int savedTrades = skipped + saveContext.nextUnsaved;
+			if (savedTrades > 0) {
+				partiallySavedBatchStart = records.get(0);
+				partiallySavedTrades = savedTrades;
+			}
+			throw e;
 		}
 	}
 
 	/**
-	 * The context for a particular invocation of the save task to persist a batch of trade records.
+	 * The context for a particular write of a batch of trade records.
 	 */
 	protected static class SaveContext {
 
@@ -397,12 +159,20 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 			return trades.get(nextUnsaved);
 		}
 
-		// May return a sublist view:
-		private List<? extends TradeRecord> getUnsavedTrades() {
+		/**
+		 * Gets the remaining unsaved {@link TradeRecord}s of this batch.
+		 * <p>
+		 * This can be used to persist all remaining trades at once, for example within a single
+		 * transaction. Call {@link #onTradesSuccessfullySaved(int)} once the trade records have
+		 * been successfully persisted.
+		 * 
+		 * @return an unmodifiable view on the unsaved trade records, not <code>null</code>
+		 */
+		public List<? extends TradeRecord> getUnsavedTrades() {
 			if (!this.hasUnsavedTrades()) {
 				return Collections.emptyList();
 			} else {
-				return trades.subList(nextUnsaved, trades.size());
+				return Collections.unmodifiableList(trades.subList(nextUnsaved, trades.size()));
 			}
 		}
 
@@ -413,6 +183,53 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 		public void onTradeSuccessfullySaved() {
 			nextUnsaved++;
 		}
+
+		/**
+		 * This must be called after successfully persisting the given number of
+		 * {@link #getUnsavedTrades() unsaved trade records}.
+		 * 
+		 * @param count
+		 *            the number of saved trade records
+		 */
+		public void onTradesSuccessfullySaved(int count) {
+			Validate.isTrue(count >= 0, "count cannot be negative");
+			Validate.isTrue(nextUnsaved + count <= trades.size(),
+					"count exceeds the number of unsaved trades");
+			nextUnsaved += count;
+		}
+	}
+
+	/**
+	 * Gets the {@link LoggedItem} for the given item.
+	 * <p>
+	 * The logged data of recently logged items is cached, so that the metadata of frequently traded
+	 * items is not serialized again for every logged trade.
+	 * 
+	 * @param itemStack
+	 *            the item, not <code>null</code>
+	 * @return the logged item data, not <code>null</code>
+	 */
+	protected LoggedItem getLoggedItem(UnmodifiableItemStack itemStack) {
+		assert itemStack != null;
+		ItemStack key = ItemUtils.copyWithAmount(itemStack, 1);
+		LoggedItem loggedItem = itemCache.get(key);
+		if (loggedItem == null) {
+			// TODO Store the namespaced key instead
+			String type = itemStack.getType().name();
+			String metadata = logItemMetadata ? TradeLogUtils.getItemMetadata(itemStack) : "";
+			loggedItem = new LoggedItem(type, metadata);
+			itemCache.put(key, loggedItem);
+		}
+		return loggedItem;
+	}
+
+	/**
+	 * Clears the cache of {@link LoggedItem}s.
+	 * <p>
+	 * This can for example be used to discard any dictionary ids that are no longer valid.
+	 */
+	protected void clearItemCache() {
+		itemCache.clear();
 	}
 
 	/**
@@ -425,48 +242,39 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 	 */
 	protected String getItemMetadata(UnmodifiableItemStack itemStack) {
 		assert itemStack != null;
-		if (!logItemMetadata) return ""; // Disabled
-
-		return TradeLogUtils.getItemMetadata(itemStack);
+		return this.getLoggedItem(itemStack).getMetadata();
 	}
 
 	// May be invoked asynchronously.
-	// Returns true on success.
-	private boolean writeTradesWithRetry(SaveContext saveContext) {
-		try {
-			Retry.retry((VoidCallable) () -> {
-				this.writeTrades(saveContext);
-			}, SAVE_MAX_ATTEMPTS, (attemptNumber, exception, retry) -> {
-				// Trade logging failed:
-				assert exception != null;
-				// Don't spam with errors and stacktraces: Only print them once for the first failed
-				// saving attempt (and again for the last failed attempt), and otherwise log a
-				// compact description of the issue:
-				String errorMsg = logPrefix + "Failed to log trades (attempt " + attemptNumber + ")";
-				if (attemptNumber == 1) {
-					Log.severe(errorMsg, exception);
-				} else {
-					String issue = ThrowableUtils.getDescription(exception);
-					Log.severe(errorMsg + ": " + issue);
-				}
+	// Throws the exception of the last attempt if all attempts fail.
+	private void writeTradesWithRetry(SaveContext saveContext) throws Exception {
+		Retry.retry((VoidCallable) () -> {
+			this.writeTrades(saveContext);
+		}, SAVE_MAX_ATTEMPTS, (attemptNumber, exception, retry) -> {
+			// Trade logging failed:
+			assert exception != null;
+			// Don't spam with errors and stacktraces: Only print them once for the first failed
+			// saving attempt, and otherwise log a compact description of the issue. The final
+			// failure is logged by the sink dispatcher.
+			if (!retry) return;
+			String errorMsg = logPrefix + "Failed to log trades (attempt " + attemptNumber + ")";
+			if (attemptNumber == 1) {
+				Log.severe(errorMsg, exception);
+			} else {
+				String issue = ThrowableUtils.getDescription(exception);
+				Log.severe(errorMsg + ": " + issue);
+			}
 
-				// Try again after a small delay:
-				if (retry) {
-					try {
-						Thread.sleep(SAVE_RETRY_DELAY_MILLIS);
-					} catch (InterruptedException e) {
-						// Restore the interrupt status for anyone interested in it, but otherwise
-						// ignore the interrupt here, because we prefer to keep retrying to still
-						// save the data to disk after all:
-						Thread.currentThread().interrupt();
-					}
-				}
-			});
-			return true;
-		} catch (Exception e) {
-			Log.severe(logPrefix + "Failed to log trades! Data might have been lost! :(", e);
-			return false;
-		}
+			// Try again after a small delay:
+			try {
+				Thread.sleep(SAVE_RETRY_DELAY_MILLIS);
+			} catch (InterruptedException e) {
+				// Restore the interrupt status for anyone interested in it, but otherwise ignore
+				// the interrupt here, because we prefer to keep retrying to still save the data
+				// to disk after all:
+				Thread.currentThread().interrupt();
+			}
+		});
 	}
 
 	/**
@@ -485,10 +293,9 @@ public abstract class AbstractSingleWriterTradeLogger implements TradeLogger {
 	 * If the saving of a trade record fails, i.e. if this method throws an exception, this method
 	 * may be invoked again several times after short delays with the same {@link SaveContext} in
 	 * order to retry the saving of the remaining trade records of the batch. If the saving still
-	 * cannot be completed after several retries, the failed save attempt is logged and admins are
-	 * informed. If the plugin is currently shutting down, the data for any unsaved trades is lost.
-	 * Otherwise, if the plugin is not shutting down, we re-attempt the saving of the unsaved trade
-	 * records as part of the next batch.
+	 * cannot be completed after several retries, the failed write is logged and admins are
+	 * informed. The unsaved trade records are then written again after a delay, or spilled to
+	 * disk if the plugin is shutting down.
 	 * 
 	 * @param saveContext
 	 *            the save context
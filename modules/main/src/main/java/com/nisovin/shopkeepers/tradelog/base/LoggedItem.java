@@ -0,0 +1,86 @@
+package com.nisovin.shopkeepers.tradelog.base;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.tradelog.TradeLogUtils;
+
+/**
+ * The logged data of an item, independent of its stack size.
+ * <p>
+ * Instances are cached by the {@link AbstractSingleWriterTradeLogger} so that the data of
+ * frequently traded items only needs to be serialized once. Trade loggers that store items in a
+ * dictionary can additionally remember the {@link #getDictionaryId() dictionary id} of the item.
+ * <p>
+ * Instances are only accessed by the writer of the trade logger, and are therefore not
+ * thread-safe.
+ */
+public final class LoggedItem {
+
+	/**
+	 * The dictionary id of items that have not yet been assigned a dictionary id.
+	 */
+	public static final long NO_DICTIONARY_ID = -1L;
+
+	private final String type;
+	private final String metadata;
+	private @Nullable String contentHash = null; // Lazily computed
+	private long dictionaryId = NO_DICTIONARY_ID;
+
+	LoggedItem(String type, String metadata) {
+		assert type != null && metadata != null;
+		this.type = type;
+		this.metadata = metadata;
+	}
+
+	/**
+	 * Gets the logged item type.
+	 * 
+	 * @return the item type
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the logged item metadata.
+	 * 
+	 * @return the item metadata, or an empty string if the logging of item metadata is disabled
+	 */
+	public String getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * Gets the {@link TradeLogUtils#getItemContentHash(String, String) content hash} of the logged
+	 * item type and metadata.
+	 * 
+	 * @return the content hash
+	 */
+	public String getContentHash() {
+		String contentHash = this.contentHash;
+		if (contentHash == null) {
+			contentHash = TradeLogUtils.getItemContentHash(type, metadata);
+			this.contentHash = contentHash;
+		}
+		return contentHash;
+	}
+
+	/**
+	 * Gets the dictionary id of this item.
+	 * 
+	 * @return the dictionary id, or {@link #NO_DICTIONARY_ID}
+	 */
+	public long getDictionaryId() {
+		return dictionaryId;
+	}
+
+	/**
+	 * Sets the dictionary id of this item.
+	 * 
+	 * @param dictionaryId
+	 *            the dictionary id, or {@link #NO_DICTIONARY_ID}
+	 */
+	public void setDictionaryId(long dictionaryId) {
+		this.dictionaryId = dictionaryId;
+	}
+}
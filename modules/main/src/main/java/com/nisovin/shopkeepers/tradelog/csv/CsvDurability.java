@@ -0,0 +1,26 @@
+package com.nisovin.shopkeepers.tradelog.csv;
+
+/**
+ * Controls when the CSV trade logger syncs the written trade records to the storage device.
+ */
+public enum CsvDurability {
+
+	/**
+	 * Each trade record is synced individually before the next trade record is written.
+	 * <p>
+	 * This is the most durable, but also the slowest option.
+	 */
+	RECORD,
+	/**
+	 * The trade records of a batch are written together and then synced once.
+	 */
+	BATCH,
+	/**
+	 * The trade records of a batch are written together, but syncing them is left to the operating
+	 * system. Additionally, the log file is synced at most once per configured sync interval, and
+	 * when it is closed.
+	 * <p>
+	 * The most recently logged trades might be lost on a power failure or operating system crash.
+	 */
+	OS
+}
@@ -0,0 +1,212 @@
+package com.nisovin.shopkeepers.tradelog.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.nisovin.shopkeepers.util.java.FileUtils;
+
+/**
+ * An open CSV log file that trade records are appended to.
+ * <p>
+ * Each {@link #append(CharSequence, boolean) append} writes the given data at once. If the write
+ * or the subsequent sync fails, the file is truncated to its previous size again, so that retrying
+ * the append does not result in partially or repeatedly written trade records.
+ * <p>
+ * This is only used by a single thread at a time.
+ */
+final class CsvLogFileWriter implements Closeable {
+
+	/**
+	 * Opens the given log file for appending, and creates it if it does not exist yet.
+	 * <p>
+	 * If the file is new or empty, the given header is written and synced.
+	 * 
+	 * @param logFile
+	 *            the log file, not <code>null</code>
+	 * @param header
+	 *            the header to write if the file is empty, not <code>null</code>
+	 * @return the writer, not <code>null</code>
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	static CsvLogFileWriter open(Path logFile, String header) throws IOException {
+		// Create the parent directories if they are missing:
+		FileUtils.createParentDirectories(logFile);
+
+		// Check the write permission for the parent directory:
+		Path parent = logFile.getParent();
+		if (parent != null) {
+			FileUtils.checkIsDirectoryWritable(parent);
+		}
+
+		// Check if the file already exists:
+		boolean isNew = !Files.exists(logFile);
+
+		// Check the write permission for the log file, if it already exists:
+		if (!isNew) {
+			FileUtils.checkIsFileWritable(logFile);
+		}
+
+		OpenOption[] openOptions;
+		if (isNew) {
+			// Create the new file, but fail if the assumption that the file does not yet exist
+			// turns out to no longer hold when we actually attempt to create the file:
+			openOptions = new OpenOption[] {
+					StandardOpenOption.CREATE_NEW, // Create a new file, fail if it already exists
+					StandardOpenOption.WRITE, // Open for write access
+					StandardOpenOption.APPEND // Append to the end of the file
+			};
+		} else {
+			// Fails if the file no longer exists when the attempt to open it:
+			openOptions = new OpenOption[] {
+					StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND
+			};
+			// Note: Opening the file for writing will also fail if the file is actually a directory
+			// instead of a regular file.
+		}
+
+		FileChannel channel = FileChannel.open(logFile, openOptions);
+		CsvLogFileWriter writer = new CsvLogFileWriter(logFile, channel);
+		try {
+			if (isNew) {
+				// Fsync the parent directory to ensure that the newly created log file has been
+				// successfully persisted.
+				// We do this prior to writing to the new file, so that we can be sure that nothing
+				// has been written to the file yet if this operation fails for some reason.
+				FileUtils.fsyncParentDirectory(logFile);
+			}
+
+			// If the file is new or empty, write the CSV header: This may for example occur if we
+			// were able to create the file during a previous log attempt, but then failed to write
+			// to it.
+			if (writer.committedSize == 0L) {
+				// Note: A BOM should not be required for UTF-8, and it is actually recommended
+				// omitting it.
+				writer.append(header, true);
+			}
+		} catch (IOException e) {
+			writer.closeSilently(e);
+			throw e;
+		}
+		return writer;
+	}
+
+	private final Path logFile;
+	private final FileChannel channel;
+	// The size of the file after the last successful append:
+	private long committedSize;
+	private boolean synced = true;
+	private long lastSyncNanos = System.nanoTime();
+
+	private CsvLogFileWriter(Path logFile, FileChannel channel) throws IOException {
+		this.logFile = logFile;
+		this.channel = channel;
+		this.committedSize = channel.size();
+	}
+
+	/**
+	 * Gets the path of the log file.
+	 * 
+	 * @return the log file
+	 */
+	Path getLogFile() {
+		return logFile;
+	}
+
+	/**
+	 * Appends the given data to the log file.
+	 * <p>
+	 * If this throws an exception, the file has been truncated to its previous size again (if
+	 * possible), and the writer should be {@link #close() closed}.
+	 * 
+	 * @param data
+	 *            the data to append, not <code>null</code>
+	 * @param sync
+	 *            <code>true</code> to sync the file after the data has been written
+	 * @throws IOException
+	 *             if the data could not be written or synced
+	 */
+	void append(CharSequence data, boolean sync) throws IOException {
+		ByteBuffer buffer = StandardCharsets.UTF_8.encode(data.toString());
+		int length = buffer.remaining();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			if (sync) {
+				this.sync();
+			} else {
+				synced = false;
+			}
+		} catch (IOException e) {
+			// Remove any partially written or unsynced data:
+			try {
+				channel.truncate(committedSize);
+			} catch (IOException e2) {
+				e.addSuppressed(e2);
+			}
+			throw e;
+		}
+		committedSize += length;
+	}
+
+	/**
+	 * Syncs any written data to the storage device.
+	 * 
+	 * @throws IOException
+	 *             if the sync fails
+	 */
+	void sync() throws IOException {
+		channel.force(false);
+		synced = true;
+		lastSyncNanos = System.nanoTime();
+	}
+
+	/**
+	 * Gets the nanoseconds that have passed since the last sync.
+	 * 
+	 * @return the nanoseconds since the last sync
+	 */
+	long getNanosSinceLastSync() {
+		return System.nanoTime() - lastSyncNanos;
+	}
+
+	/**
+	 * Checks if there is any written data that has not yet been explicitly synced.
+	 * 
+	 * @return <code>true</code> if there is unsynced data
+	 */
+	boolean hasUnsyncedData() {
+		return !synced;
+	}
+
+	private void closeSilently(Exception exception) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			exception.addSuppressed(e);
+		}
+	}
+
+	/**
+	 * Syncs any unsynced data and then closes the log file.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (!synced) {
+				this.sync();
+			}
+		} finally {
+			channel.close();
+		}
+	}
+}
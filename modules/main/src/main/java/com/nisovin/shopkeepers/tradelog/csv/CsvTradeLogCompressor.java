@@ -0,0 +1,157 @@
+package com.nisovin.shopkeepers.tradelog.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.util.java.FileUtils;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * Compresses old CSV trade log files with gzip.
+ * <p>
+ * Only log files that are older than the configured number of days are compressed. Since these log
+ * files are no longer written to by the {@link CsvTradeLogger}, this does not interfere with the
+ * logging of new trades.
+ */
+final class CsvTradeLogCompressor {
+
+	static final String COMPRESSED_FILE_EXTENSION = ".gz";
+
+	/**
+	 * Compresses the CSV log files inside the given folder that are older than the given number of
+	 * days.
+	 * 
+	 * @param tradeLogsFolder
+	 *            the trade logs folder, not <code>null</code>
+	 * @param compressAfterDays
+	 *            the minimum age in days of the log files to compress, at least <code>1</code>
+	 * @param cancelled
+	 *            checked between the compression of individual log files
+	 * @param logPrefix
+	 *            the log prefix, not <code>null</code>
+	 * @return the number of reclaimed bytes
+	 * @throws IOException
+	 *             if the log files cannot be listed
+	 */
+	static long compressLogFiles(
+			Path tradeLogsFolder,
+			int compressAfterDays,
+			BooleanSupplier cancelled,
+			String logPrefix
+	) throws IOException {
+		assert compressAfterDays >= 1;
+		if (!Files.isDirectory(tradeLogsFolder)) return 0L;
+
+		ZoneId zone = Unsafe.assertNonNull(CsvTradeLogger.DATE_FORMAT.getZone());
+		LocalDate cutoffDate = LocalDate.now(zone).minusDays(compressAfterDays);
+		List<Path> logFiles = new ArrayList<>();
+		try (Stream<Path> files = Files.list(tradeLogsFolder)) {
+			files.forEach(file -> {
+				LocalDate logDate = getLogDate(file);
+				if (logDate != null && logDate.isBefore(cutoffDate)) {
+					logFiles.add(file);
+				}
+			});
+		}
+
+		long reclaimedBytes = 0L;
+		int compressedFiles = 0;
+		for (Path logFile : logFiles) {
+			if (cancelled.getAsBoolean()) break;
+			try {
+				reclaimedBytes += compress(logFile);
+				compressedFiles++;
+			} catch (IOException e) {
+				Log.warning(logPrefix + "Failed to compress log file '" + logFile.getFileName()
+						+ "'!", e);
+			}
+		}
+
+		if (compressedFiles > 0) {
+			Log.info(logPrefix + "Compressed " + compressedFiles + " old log files.");
+		}
+		return reclaimedBytes;
+	}
+
+	// Returns null if the given file is not an uncompressed CSV log file.
+	private static @Nullable LocalDate getLogDate(Path file) {
+		Path fileNamePath = file.getFileName();
+		if (fileNamePath == null) return null;
+		String fileName = fileNamePath.toString();
+		if (!fileName.startsWith(CsvTradeLogger.FILE_NAME_PREFIX)
+				|| !fileName.endsWith(CsvTradeLogger.FILE_EXTENSION)) {
+			return null;
+		}
+
+		String date = fileName.substring(
+				CsvTradeLogger.FILE_NAME_PREFIX.length(),
+				fileName.length() - CsvTradeLogger.FILE_EXTENSION.length()
+		);
+		try {
+			return LocalDate.parse(date, CsvTradeLogger.DATE_FORMAT);
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	// Returns the number of reclaimed bytes.
+	// If there already is a compressed log file for the same date, e.g. because the log file was
+	// recreated after it had already been compressed, the log file is appended to the compressed
+	// file as an additional gzip member. Concatenated gzip members are read as a single stream.
+	private static long compress(Path logFile) throws IOException {
+		Path compressedFile = logFile.resolveSibling(logFile.getFileName()
+				+ COMPRESSED_FILE_EXTENSION);
+		Path tempFile = FileUtils.getTempSibling(compressedFile);
+		long originalSize = Files.size(logFile);
+		long previousCompressedSize = 0L;
+
+		// Write the compressed data to a temporary file first: If the compression is interrupted,
+		// the original log file and any existing compressed file are retained, and we try again
+		// during the next maintenance.
+		if (Files.exists(compressedFile)) {
+			previousCompressedSize = Files.size(compressedFile);
+			Files.copy(compressedFile, tempFile, StandardCopyOption.REPLACE_EXISTING);
+		} else {
+			FileUtils.deleteIfExists(tempFile);
+		}
+		try (	InputStream in = Files.newInputStream(logFile);
+				OutputStream out = new GZIPOutputStream(Files.newOutputStream(
+						tempFile,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.APPEND
+				))) {
+			in.transferTo(out);
+		}
+		FileUtils.fsync(tempFile);
+
+		// Replace the compressed file with the temporary file, which contains all of its data:
+		FileUtils.moveFile(tempFile, compressedFile, Log.getLogger());
+		FileUtils.fsyncParentDirectory(compressedFile);
+
+		// Only delete the original log file once the compressed file has been persisted:
+		FileUtils.delete(logFile);
+		FileUtils.fsyncParentDirectory(logFile);
+
+		return originalSize - (Files.size(compressedFile) - previousCompressedSize);
+	}
+
+	private CsvTradeLogCompressor() {
+	}
+}
@@ -0,0 +1,354 @@
+package com.nisovin.shopkeepers.tradelog.csv;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolume;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumePage;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumeQuery;
+import com.nisovin.shopkeepers.util.csv.CsvParser;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * Answers trade history queries from the CSV log files.
+ * <p>
+ * The log files are partitioned by day, and their file names serve as time index: Only the log
+ * files whose day overlaps the queried time range are read, most recent day first. The records
+ * are streamed line by line and aggregated in memory, until the row limit or deadline is reached.
+ */
+final class CsvTradeLogQueries {
+
+	// The indices of the relevant fields of the CSV records:
+	private static final int FIELD_TIME = 0;
+	private static final int FIELD_PLAYER_UUID = 1;
+	private static final int FIELD_PLAYER_NAME = 2;
+	private static final int FIELD_SHOP_UUID = 3;
+	private static final int FIELD_SHOP_TYPE = 4;
+	private static final int FIELD_SHOP_WORLD = 5;
+	private static final int FIELD_SHOP_X = 6;
+	private static final int FIELD_SHOP_Y = 7;
+	private static final int FIELD_SHOP_Z = 8;
+	private static final int FIELD_RESULT_ITEM_TYPE = 17;
+	private static final int FIELD_RESULT_ITEM_AMOUNT = 18;
+	private static final int FIELD_TRADE_COUNT = 20;
+
+	// How often we check the deadline:
+	private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+	// Consistent with the time buckets of the SQLite trade log:
+	private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter
+			.ofPattern("yyyy-MM-dd'T'HH")
+			.withZone(ZoneOffset.UTC);
+	private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter
+			.ofPattern("yyyy-MM-dd")
+			.withZone(ZoneOffset.UTC);
+	private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter
+			.ofPattern("yyyy-MM")
+			.withZone(ZoneOffset.UTC);
+
+	private static final class Group {
+
+		private final String key;
+		private final String label;
+		private long tradeCount = 0L;
+		private long resultItemAmount = 0L;
+
+		Group(String key, String label) {
+			this.key = key;
+			this.label = label;
+		}
+
+		TradeVolume toTradeVolume() {
+			return new TradeVolume(key, label, tradeCount, resultItemAmount);
+		}
+	}
+
+	private static final class LogFile {
+
+		private final Path path;
+		private final LocalDate date;
+		private final boolean compressed;
+
+		LogFile(Path path, LocalDate date, boolean compressed) {
+			this.path = path;
+			this.date = date;
+			this.compressed = compressed;
+		}
+	}
+
+	/**
+	 * Aggregates the logged trades that match the given query.
+	 * 
+	 * @param logsFolder
+	 *            the folder that contains the log files, not <code>null</code>
+	 * @param query
+	 *            the query, not <code>null</code>
+	 * @param maxRows
+	 *            the maximum number of trade records to read
+	 * @param deadlineNanos
+	 *            the {@link System#nanoTime()} by which the query has to complete
+	 * @param logPrefix
+	 *            the log prefix, not <code>null</code>
+	 * @return the requested page of results
+	 * @throws IOException
+	 *             if the log files cannot be read
+	 */
+	static TradeVolumePage queryVolume(
+			Path logsFolder,
+			TradeVolumeQuery query,
+			int maxRows,
+			long deadlineNanos,
+			String logPrefix
+	) throws IOException {
+		ZoneId zone = Unsafe.assertNonNull(CsvTradeLogger.DATE_FORMAT.getZone());
+		List<LogFile> logFiles = getLogFiles(logsFolder, query, zone);
+
+		CsvParser csvParser = new CsvParser();
+		Map<String, Group> groups = new HashMap<>();
+		long readRows = 0L;
+		long scannedTrades = 0L;
+		long malformedRows = 0L;
+		boolean truncated = false;
+		files: for (LogFile logFile : logFiles) {
+			try (BufferedReader reader = newReader(logFile)) {
+				reader.readLine(); // Skip the header
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (readRows >= maxRows) {
+						truncated = true;
+						break files;
+					}
+					readRows++;
+					if (readRows % DEADLINE_CHECK_INTERVAL == 0
+							&& System.nanoTime() - deadlineNanos >= 0L) {
+						truncated = true;
+						break files;
+					}
+					if (line.isEmpty()) continue;
+
+					try {
+						List<String> fields = csvParser.parseRecord(line);
+						if (aggregate(query, logFile.date, zone, fields, groups)) {
+							scannedTrades++;
+						}
+					} catch (RuntimeException e) {
+						// The last record might be incomplete if it is concurrently written.
+						malformedRows++;
+					}
+				}
+			}
+		}
+
+		if (malformedRows > 0) {
+			long finalMalformedRows = malformedRows;
+			Log.debug(() -> logPrefix + "Skipped " + finalMalformedRows
+					+ " malformed trade records.");
+		}
+
+		List<Group> sortedGroups = new ArrayList<>(groups.values());
+		if (query.getGrouping().isTimeBucket()) {
+			sortedGroups.sort(Comparator.comparing((Group group) -> group.key));
+		} else {
+			sortedGroups.sort(Comparator.comparingLong((Group group) -> group.tradeCount)
+					.reversed()
+					.thenComparing(group -> group.key));
+		}
+
+		int fromIndex = (query.getPage() - 1) * query.getPageSize();
+		int toIndex = Math.min(fromIndex + query.getPageSize(), sortedGroups.size());
+		List<TradeVolume> entries = new ArrayList<>();
+		for (int i = fromIndex; i < toIndex; i++) {
+			entries.add(sortedGroups.get(i).toTradeVolume());
+		}
+		boolean hasNextPage = (toIndex < sortedGroups.size());
+		return new TradeVolumePage(
+				entries,
+				query.getPage(),
+				hasNextPage,
+				scannedTrades,
+				truncated
+		);
+	}
+
+	// Returns the log files whose day overlaps the queried time range, most recent day first.
+	private static List<LogFile> getLogFiles(Path logsFolder, TradeVolumeQuery query, ZoneId zone)
+			throws IOException {
+		if (!Files.isDirectory(logsFolder)) return new ArrayList<>();
+
+		@Nullable Instant from = query.getFrom();
+		@Nullable Instant to = query.getTo();
+		@Nullable LocalDate fromDate = (from != null) ? LocalDate.ofInstant(from, zone) : null;
+		@Nullable LocalDate toDate = (to != null) ? LocalDate.ofInstant(to, zone) : null;
+
+		// During the compression of a log file, both the log file and its compressed version can
+		// exist for a brief moment. The compressed file is only moved into place once it is
+		// complete, so we prefer it.
+		Map<LocalDate, LogFile> logFilesByDate = new HashMap<>();
+		try (Stream<Path> files = Files.list(logsFolder)) {
+			files.forEach(file -> {
+				LogFile logFile = toLogFile(file);
+				if (logFile == null) return;
+				if (fromDate != null && logFile.date.isBefore(fromDate)) return;
+				if (toDate != null && logFile.date.isAfter(toDate)) return;
+				if (logFile.compressed) {
+					logFilesByDate.put(logFile.date, logFile);
+				} else {
+					logFilesByDate.putIfAbsent(logFile.date, logFile);
+				}
+			});
+		}
+		List<LogFile> logFiles = new ArrayList<>(logFilesByDate.values());
+		logFiles.sort(Comparator.comparing((LogFile logFile) -> logFile.date).reversed());
+		return logFiles;
+	}
+
+	// Returns null if the given file is not a CSV log file.
+	private static @Nullable LogFile toLogFile(Path file) {
+		Path fileNamePath = file.getFileName();
+		if (fileNamePath == null) return null;
+		String fileName = fileNamePath.toString();
+		boolean compressed = fileName.endsWith(CsvTradeLogCompressor.COMPRESSED_FILE_EXTENSION);
+		if (compressed) {
+			fileName = fileName.substring(
+					0,
+					fileName.length() - CsvTradeLogCompressor.COMPRESSED_FILE_EXTENSION.length()
+			);
+		}
+		if (!fileName.startsWith(CsvTradeLogger.FILE_NAME_PREFIX)
+				|| !fileName.endsWith(CsvTradeLogger.FILE_EXTENSION)) {
+			return null;
+		}
+
+		String date = fileName.substring(
+				CsvTradeLogger.FILE_NAME_PREFIX.length(),
+				fileName.length() - CsvTradeLogger.FILE_EXTENSION.length()
+		);
+		try {
+			return new LogFile(file, LocalDate.parse(date, CsvTradeLogger.DATE_FORMAT), compressed);
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	private static BufferedReader newReader(LogFile logFile) throws IOException {
+		InputStream in;
+		boolean compressed = logFile.compressed;
+		try {
+			in = Files.newInputStream(logFile.path);
+		} catch (NoSuchFileException e) {
+			if (compressed) throw e;
+			// The log file has been compressed in the meantime:
+			Path compressedFile = logFile.path.resolveSibling(logFile.path.getFileName()
+					+ CsvTradeLogCompressor.COMPRESSED_FILE_EXTENSION);
+			in = Files.newInputStream(compressedFile);
+			compressed = true;
+		}
+		try {
+			if (compressed) {
+				in = new GZIPInputStream(in);
+			}
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+
+	// Returns true if the given trade record matches the query and has been aggregated.
+	private static boolean aggregate(
+			TradeVolumeQuery query,
+			LocalDate date,
+			ZoneId zone,
+			List<String> fields,
+			Map<String, Group> groups
+	) {
+		@Nullable UUID shopId = query.getShopId();
+		if (shopId != null && !shopId.toString().equals(fields.get(FIELD_SHOP_UUID))) {
+			return false;
+		}
+		@Nullable UUID playerId = query.getPlayerId();
+		if (playerId != null && !playerId.toString().equals(fields.get(FIELD_PLAYER_UUID))) {
+			return false;
+		}
+
+		Instant timestamp = date.atTime(LocalTime.parse(fields.get(FIELD_TIME)))
+				.atZone(zone)
+				.toInstant();
+		@Nullable Instant from = query.getFrom();
+		if (from != null && timestamp.isBefore(from)) return false;
+		@Nullable Instant to = query.getTo();
+		if (to != null && !timestamp.isBefore(to)) return false;
+
+		String key;
+		String label;
+		switch (query.getGrouping()) {
+		case SHOP:
+			key = fields.get(FIELD_SHOP_UUID);
+			String world = fields.get(FIELD_SHOP_WORLD);
+			label = fields.get(FIELD_SHOP_TYPE);
+			if (!world.isEmpty()) {
+				label += " " + world + " " + fields.get(FIELD_SHOP_X) + ","
+						+ fields.get(FIELD_SHOP_Y) + "," + fields.get(FIELD_SHOP_Z);
+			}
+			break;
+		case PLAYER:
+			key = fields.get(FIELD_PLAYER_UUID);
+			label = fields.get(FIELD_PLAYER_NAME);
+			break;
+		case ITEM:
+			key = fields.get(FIELD_RESULT_ITEM_TYPE);
+			label = key;
+			break;
+		case HOUR:
+			key = HOUR_FORMAT.format(timestamp);
+			label = key;
+			break;
+		case DAY:
+			key = DAY_FORMAT.format(timestamp);
+			label = key;
+			break;
+		case MONTH:
+			key = MONTH_FORMAT.format(timestamp);
+			label = key;
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported grouping: " + query.getGrouping());
+		}
+
+		int tradeCount = Integer.parseInt(fields.get(FIELD_TRADE_COUNT));
+		int resultItemAmount = Integer.parseInt(fields.get(FIELD_RESULT_ITEM_AMOUNT));
+		// The label is taken from the first aggregated record of the group:
+		String groupLabel = label;
+		Group group = groups.computeIfAbsent(key, k -> new Group(k, groupLabel));
+		group.tradeCount += tradeCount;
+		group.resultItemAmount += (long) resultItemAmount * tradeCount;
+		return true;
+	}
+
+	private CsvTradeLogQueries() {
+	}
+}
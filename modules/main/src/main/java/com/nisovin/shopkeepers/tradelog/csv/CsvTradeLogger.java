@@ -1,39 +1,44 @@
 package com.nisovin.shopkeepers.tradelog.csv;
 
 import java.io.IOException;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.OpenOption;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import org.bukkit.plugin.Plugin;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumePage;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumeQuery;
 import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+import com.nisovin.shopkeepers.config.Settings;
+import com.nisovin.shopkeepers.tradelog.QueryableTradeLogger;
 import com.nisovin.shopkeepers.tradelog.TradeLogStorageType;
 import com.nisovin.shopkeepers.tradelog.base.AbstractFileTradeLogger;
 import com.nisovin.shopkeepers.tradelog.data.PlayerRecord;
 import com.nisovin.shopkeepers.tradelog.data.ShopRecord;
 import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
 import com.nisovin.shopkeepers.util.csv.CsvFormatter;
-import com.nisovin.shopkeepers.util.java.FileUtils;
 import com.nisovin.shopkeepers.util.java.StringUtils;
 import com.nisovin.shopkeepers.util.logging.Log;
 
 /**
  * Logs trades to CSV files.
+ * <p>
+ * Trade history queries are answered by scanning the log files of the queried days (see
+ * {@link CsvTradeLogQueries}).
  */
-public class CsvTradeLogger extends AbstractFileTradeLogger {
+public class CsvTradeLogger extends AbstractFileTradeLogger implements QueryableTradeLogger {
 
-	private static final String FILE_NAME_PREFIX = "trades-";
+	static final String FILE_NAME_PREFIX = "trades-";
+	static final String FILE_EXTENSION = ".csv";
 	private static final List<? extends String> CSV_HEADER = Collections.unmodifiableList(Arrays.asList(
 			"time",
 			"player_uuid",
@@ -60,7 +65,7 @@ public class CsvTradeLogger extends AbstractFileTradeLogger {
 
 	// TODO This uses the system locale and timezone currently. Config option(s) to change the
 	// locale and timezone? Or always store in UTC?
-	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd")
+	static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd")
 			.withZone(Unsafe.assertNonNull(ZoneId.systemDefault()));
 	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss")
 			.withZone(Unsafe.assertNonNull(ZoneId.systemDefault()));
@@ -75,13 +80,25 @@ public class CsvTradeLogger extends AbstractFileTradeLogger {
 			.escapeNewlines(false)
 			.warnOnNewlines();
 
+	private final CsvDurability durability;
+	private final long syncIntervalNanos; // 0 to not sync periodically
+	private final int compressAfterDays; // 0 to not compress old log files
+
+	// The currently open log file. Only accessed by the writer, i.e. the currently running write
+	// task, and during shutdown:
+	private @Nullable CsvLogFileWriter writer = null;
+
 	public CsvTradeLogger(Plugin plugin) {
 		super(plugin, TradeLogStorageType.CSV);
+
+		this.durability = Settings.tradeLogCsvDurability;
+		this.syncIntervalNanos = TimeUnit.SECONDS.toNanos(Settings.tradeLogCsvSyncIntervalSeconds);
+		this.compressAfterDays = Settings.tradeLogCompressAfterDays;
 	}
 
 	private Path getLogFile(Instant timestamp) {
 		assert timestamp != null;
-		String fileName = FILE_NAME_PREFIX + DATE_FORMAT.format(timestamp) + ".csv";
+		String fileName = FILE_NAME_PREFIX + DATE_FORMAT.format(timestamp) + FILE_EXTENSION;
 		return tradeLogsFolder.resolve(fileName);
 	}
 
@@ -144,30 +161,24 @@ public class CsvTradeLogger extends AbstractFileTradeLogger {
 	 * <ul>
 	 * <li>We write to the log files via a single thread only, and assume that no other processes
 	 * write to them (concurrent reads should not be an issue).
-	 * <li>We use synchronous IO to ensure that each trade is actually persisted to the storage
-	 * before we assume it to have been successfully logged.
+	 * <li>We keep the current log file open across batches, and only reopen it when the trades
+	 * need to be logged to a different log file (e.g. after midnight), or after a failed log
+	 * attempt. The log file is closed when the trade logger is closed.
+	 * <li>Depending on the configured {@link CsvDurability}, we sync each trade record
+	 * individually, sync all trade records of a batch once, or leave syncing to the operating
+	 * system. Trades are only assumed to have been successfully logged once the corresponding
+	 * sync succeeded.
 	 * <li>If the logging of a trade fails for some reasons, we retry it until it succeeds. However,
 	 * for this to not result in trades being partially logged, or logged multiple times, the
-	 * logging has to be atomic. I.e. it has to either succeed completely, or fail completely. See
-	 * the notes on that below.
-	 * <li>We assume that appending to the log file is atomic, i.e. that each trade that is logged
-	 * via a single write is either successfully logged completely, or not at all. In practice,
-	 * depending on the OS and file system, this may only apply for writes that are smaller than a
-	 * certain threshold.
-	 * <li>In order to keep each write small, and therefore hopefully atomic, we use an unbuffered
-	 * writer and a single write call to log each trade. Also, using a buffer would incur the risk
-	 * of a write that is meant to be atomic (i.e. a trade that is being logged) to actually be
-	 * split across multiple writes to the underlying file, and then no longer be atomic.
-	 * </ul>
-	 * References regarding atomicity of file appends:
-	 * <ul>
-	 * <li>https://www.notthewizard.com/2014/06/17/are-files-appends-really-atomic/
-	 * <li>https://nblumhardt.com/2016/08/atomic-shared-log-file-writes/
+	 * logging has to be atomic. I.e. it has to either succeed completely, or fail completely.
+	 * <li>To achieve this, the trade records that are written together are encoded up front and
+	 * then written with a single write. If the write or the subsequent sync fails, the log file is
+	 * truncated to its previous size again before the trades are retried.
 	 * </ul>
 	 * <p>
 	 * Depending on their timestamps, the trades may need to be logged to different log files. This
-	 * writes all consecutive trades that need to be logged to the same log file, and then
-	 * recursively invokes itself to write the remaining trades to other log files.
+	 * writes all consecutive trades that need to be logged to the same log file together, and then
+	 * continues with the remaining trades and their log files.
 	 * 
 	 * @param saveContext
 	 *            the save context
@@ -176,118 +187,110 @@ public class CsvTradeLogger extends AbstractFileTradeLogger {
 	 */
 	@Override
 	protected void writeTrades(SaveContext saveContext) throws Exception {
-		TradeRecord trade = saveContext.getNextUnsavedTrade();
-		if (trade == null) return; // There are no unsaved trades
-
-		Path logFile = this.getLogFile(trade.getTimestamp());
+		List<? extends TradeRecord> trades = saveContext.getUnsavedTrades();
+		int index = 0;
+		try {
+			while (index < trades.size()) {
+				Path logFile = this.getLogFile(trades.get(index).getTimestamp());
+				CsvLogFileWriter writer = this.getWriter(logFile);
 
-		// Create the parent directories if they are missing:
-		FileUtils.createParentDirectories(logFile);
+				if (durability == CsvDurability.RECORD) {
+					do {
+						// Write and sync the trade record:
+						writer.append(this.toCSVRecord(trades.get(index)), true);
 
-		// Check the write permission for the parent directory:
-		Path parent = logFile.getParent();
-		if (parent != null) {
-			FileUtils.checkIsDirectoryWritable(parent);
-		}
+						// If we did not throw an IOException up until this point, we assume that
+						// the trade has been successfully written to the trade log.
+						saveContext.onTradeSuccessfullySaved();
+						index++;
+					} while (index < trades.size()
+							&& this.isSameLogFile(logFile, trades.get(index)));
+				} else {
+					// Write all consecutive trades that need to be logged to the same log file at
+					// once:
+					StringBuilder records = new StringBuilder();
+					int count = 0;
+					do {
+						records.append(this.toCSVRecord(trades.get(index)));
+						count++;
+						index++;
+					} while (index < trades.size()
+							&& this.isSameLogFile(logFile, trades.get(index)));
 
-		// Check if the file already exists:
-		boolean isNew = !Files.exists(logFile);
-		// Check if the file is empty: This may for example occur if we were able to create the file
-		// during a previous log attempt, but then failed to write to it.
-		boolean isEmpty = (isNew || Files.size(logFile) == 0L);
+					boolean sync = (durability == CsvDurability.BATCH)
+							|| (syncIntervalNanos > 0L
+									&& writer.getNanosSinceLastSync() >= syncIntervalNanos);
+					writer.append(records, sync);
 
-		// Check the write permission for the log file, if it already exists:
-		if (!isNew) {
-			FileUtils.checkIsFileWritable(logFile);
-		}
-
-		OpenOption[] openOptions;
-		if (isNew) {
-			// Create the new file, but fail if the assumption that the file does not yet exist
-			// turns out to no longer hold when we actually attempt to create the file:
-			openOptions = new OpenOption[] {
-					StandardOpenOption.CREATE_NEW, // Create a new file, fail if it already exists
-					StandardOpenOption.WRITE, // Open for write access
-					StandardOpenOption.APPEND, // Append to the end of the file
-					// Ensure that each write is persisted to storage before we continue:
-					StandardOpenOption.DSYNC
-			};
-		} else {
-			// Fails if the file no longer exists when the attempt to open it:
-			openOptions = new OpenOption[] {
-					StandardOpenOption.WRITE,
-					StandardOpenOption.APPEND,
-					StandardOpenOption.DSYNC
-			};
-			// Note: Opening the file for writing will also fail if the file is actually a directory
-			// instead of a regular file.
+					saveContext.onTradesSuccessfullySaved(count);
+				}
+			}
+		} catch (IOException e) {
+			// Reopen the log file during the next attempt:
+			this.closeWriter();
+			throw e;
 		}
+	}
 
-		boolean done = false;
-		try (Writer writer = FileUtils.newUnbufferedWriter(
-				logFile,
-				Unsafe.assertNonNull(StandardCharsets.UTF_8),
-				openOptions
-		)) {
-			// Even though we use an unbuffered writer, we flush after every write just in case, and
-			// to make our intent more clear.
-			// TODO What if we receive an IOException during a flush? Has the trade been logged or
-			// not at that point?
-
-			if (isNew) {
-				// Fsync the parent directory to ensure that the newly created log file has been
-				// successfully persisted.
-				// We do this prior to writing to the new file, so that we can be sure that nothing
-				// has been written to the file yet if this operation fails for some reason.
-				FileUtils.fsyncParentDirectory(logFile);
-			}
+	private boolean isSameLogFile(Path logFile, TradeRecord trade) {
+		return logFile.equals(this.getLogFile(trade.getTimestamp()));
+	}
 
-			// If the file is new or empty, write the CSV header:
-			if (isEmpty) {
-				// Note: A BOM should not be required for UTF-8, and it is actually recommended
-				// omitting it.
-				writer.write(csv.formatRecord(CSV_HEADER));
-				writer.flush();
+	// Returns the writer for the given log file, and closes the writer of any previous log file.
+	private CsvLogFileWriter getWriter(Path logFile) throws IOException {
+		CsvLogFileWriter writer = this.writer;
+		if (writer != null) {
+			if (writer.getLogFile().equals(logFile)) {
+				return writer;
 			}
+			// Day rollover: Close the previous log file.
+			this.closeWriter();
+		}
 
-			// Instead of closing and reopening the log file for each trade, we log all consecutive
-			// trades that need to be logged to the same log file before we close it again:
-			do {
-				// Write the new trade record:
-				writer.write(this.toCSVRecord(trade));
-				writer.flush();
+		writer = CsvLogFileWriter.open(logFile, csv.formatRecord(CSV_HEADER));
+		this.writer = writer;
+		return writer;
+	}
 
-				// If we did not throw an IOException up until this point, we assume that the trade
-				// has been successfully written to the trade log.
-				saveContext.onTradeSuccessfullySaved();
+	private void closeWriter() {
+		CsvLogFileWriter writer = this.writer;
+		if (writer == null) return;
+		this.writer = null;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			// The trades written to this log file have already been assumed to have been logged
+			// successfully. We therefore only log this exception, but do not retry.
+			Log.severe(logPrefix + "Failed to close the CSV trade log file!", e);
+		}
+	}
 
-				// Get the next trade to save:
-				trade = saveContext.getNextUnsavedTrade();
-				if (trade == null) break; // There are no more trades to save
+	@Override
+	public void close() {
+		this.closeWriter();
+	}
 
-				Path nextLogFile = this.getLogFile(trade.getTimestamp());
-				if (!logFile.equals(nextLogFile)) {
-					break;
-				} // Else: Continue.
-			} while (true);
+	@Override
+	public long performMaintenance(BooleanSupplier cancelled) throws Exception {
+		if (compressAfterDays <= 0) return 0L; // Disabled
 
-			// We are about to close the log file:
-			done = true;
-		} catch (IOException e) {
-			if (!done) {
-				throw e;
-			} else {
-				// Since the previous writes reported to have been successful, we assume that the
-				// trades have been successfully logged. We therefore ignore any exceptions raised
-				// during the closing of the writer: They are still logged, but they don't trigger a
-				// retry of the trade log attempt.
-				Log.severe("Failed to close the CSV trade log file!", e);
-			}
-		}
+		return CsvTradeLogCompressor.compressLogFiles(
+				tradeLogsFolder,
+				compressAfterDays,
+				cancelled,
+				logPrefix
+		);
+	}
 
-		// Recursively log the remaining trades to their target log files:
-		if (saveContext.hasUnsavedTrades()) {
-			this.writeTrades(saveContext);
-		}
+	@Override
+	public TradeVolumePage queryVolume(TradeVolumeQuery query, int maxRows, long deadlineNanos)
+			throws Exception {
+		return CsvTradeLogQueries.queryVolume(
+				tradeLogsFolder,
+				query,
+				maxRows,
+				deadlineNanos,
+				logPrefix
+		);
 	}
 }
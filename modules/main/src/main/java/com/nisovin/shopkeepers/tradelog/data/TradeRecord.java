@@ -64,7 +64,49 @@ public class TradeRecord {
 		UnmodifiableItemStack resultItem = tradeEvent.getTradingRecipe().getResultItem();
 		UnmodifiableItemStack item1 = tradeEvent.getOfferedItem1();
 		UnmodifiableItemStack item2 = tradeEvent.getOfferedItem2();
-		return new TradeRecord(timestamp, playerRecord, shopRecord, resultItem, item1, item2, 1);
+		int tradeCount = tradeEvent.getTradeCount();
+		return new TradeRecord(
+				timestamp,
+				playerRecord,
+				shopRecord,
+				resultItem,
+				item1,
+				item2,
+				tradeCount
+		);
+	}
+
+	/**
+	 * Creates a {@link TradeRecord} from the given data.
+	 * <p>
+	 * This can for example be used to restore a previously persisted trade record.
+	 * 
+	 * @param timestamp
+	 *            the timestamp of the trade, not <code>null</code>
+	 * @param player
+	 *            the trading player, not <code>null</code>
+	 * @param shop
+	 *            the shop, not <code>null</code>
+	 * @param resultItem
+	 *            the result item, not <code>null</code>
+	 * @param item1
+	 *            the first offered item, not <code>null</code>
+	 * @param item2
+	 *            the second offered item, can be <code>null</code>
+	 * @param tradeCount
+	 *            the trade count, positive
+	 * @return the trade record
+	 */
+	public static TradeRecord create(
+			Instant timestamp,
+			PlayerRecord player,
+			ShopRecord shop,
+			UnmodifiableItemStack resultItem,
+			UnmodifiableItemStack item1,
+			@Nullable UnmodifiableItemStack item2,
+			int tradeCount
+	) {
+		return new TradeRecord(timestamp, player, shop, resultItem, item1, item2, tradeCount);
 	}
 
 	private final Instant timestamp; // Not null
@@ -0,0 +1,100 @@
+package com.nisovin.shopkeepers.tradelog.sink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * A {@link TradeSink} that appends the trades as Json lines to daily files inside a directory.
+ * <p>
+ * This format is easy to consume by external analytics tools, e.g. by tailing the current file.
+ */
+public class JsonLinesTradeSink implements TradeSink {
+
+	private static final String FILE_NAME_PREFIX = "trades-";
+	private static final String FILE_EXTENSION = ".jsonl";
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd")
+			.withZone(Unsafe.assertNonNull(ZoneId.systemDefault()));
+
+	private final Path directory;
+
+	/**
+	 * Creates a new {@link JsonLinesTradeSink}.
+	 * 
+	 * @param directory
+	 *            the directory to store the files in, not <code>null</code>
+	 */
+	public JsonLinesTradeSink(Path directory) {
+		Validate.notNull(directory, "directory is null");
+		this.directory = directory;
+	}
+
+	@Override
+	public String getName() {
+		return "json-lines";
+	}
+
+	@Override
+	public void setup() throws Exception {
+		Files.createDirectories(directory);
+	}
+
+	private Path getFile(SerializedTrade trade) {
+		String date = DATE_FORMAT.format(trade.getTrade().getTimestamp());
+		return directory.resolve(FILE_NAME_PREFIX + date + FILE_EXTENSION);
+	}
+
+	@Override
+	public void write(List<? extends SerializedTrade> trades) throws Exception {
+		// The trades are ordered by time, so the trades of each file are consecutive:
+		int start = 0;
+		while (start < trades.size()) {
+			Path file = this.getFile(trades.get(start));
+			ByteArrayOutputStream data = new ByteArrayOutputStream();
+			int end = start;
+			while (end < trades.size() && this.getFile(trades.get(end)).equals(file)) {
+				data.write(trades.get(end).getJsonLine());
+				end++;
+			}
+			this.append(file, data.toByteArray());
+			start = end;
+		}
+	}
+
+	private void append(Path file, byte[] data) throws IOException {
+		try (FileChannel channel = FileChannel.open(
+				file,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND
+		)) {
+			long previousSize = channel.size();
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(data);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(false);
+			} catch (IOException e) {
+				// Remove any partially written lines, so that a retry does not produce duplicate
+				// or corrupted lines:
+				try {
+					channel.truncate(previousSize);
+				} catch (IOException e2) {
+					e.addSuppressed(e2);
+				}
+				throw e;
+			}
+		}
+	}
+}
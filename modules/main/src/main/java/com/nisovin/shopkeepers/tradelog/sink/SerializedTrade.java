@@ -0,0 +1,165 @@
+package com.nisovin.shopkeepers.tradelog.sink;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+import com.nisovin.shopkeepers.config.Settings;
+import com.nisovin.shopkeepers.tradelog.TradeLogUtils;
+import com.nisovin.shopkeepers.tradelog.data.PlayerRecord;
+import com.nisovin.shopkeepers.tradelog.data.ShopRecord;
+import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.json.JsonUtils;
+
+/**
+ * A {@link TradeRecord} together with its serialized Json representation.
+ * <p>
+ * The same instance is shared by all {@link TradeSink}s. The trade is serialized once, by the
+ * first sink that requests the serialized form, so that sinks that store the trade in a different
+ * format, such as the trade log storage, do not pay for the serialization. The serialized form is
+ * a single line of Json and is also provided in UTF-8 encoding, with a trailing line break, so
+ * that file based sinks can write it as is.
+ * <p>
+ * Thread-safe.
+ */
+public final class SerializedTrade {
+
+	/**
+	 * Creates a {@link SerializedTrade} for the given {@link TradeRecord}.
+	 * <p>
+	 * Item metadata is only included if {@link Settings#logItemMetadata} is enabled at the time
+	 * this is invoked.
+	 * 
+	 * @param trade
+	 *            the trade, not <code>null</code>
+	 * @return the serialized trade, not <code>null</code>
+	 */
+	public static SerializedTrade of(TradeRecord trade) {
+		Validate.notNull(trade, "trade is null");
+		return new SerializedTrade(trade, Settings.logItemMetadata);
+	}
+
+	private static String toJson(TradeRecord trade, boolean logItemMetadata) {
+		PlayerRecord player = trade.getPlayer();
+		ShopRecord shop = trade.getShop();
+		PlayerRecord shopOwner = shop.getOwner();
+
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("time", trade.getTimestamp().toString());
+		data.put("player_uuid", player.getUniqueId().toString());
+		data.put("player_name", player.getName());
+		data.put("shop_uuid", shop.getUniqueId().toString());
+		data.put("shop_type", shop.getTypeId());
+		data.put("shop_name", shop.getName());
+		String worldName = shop.getWorldName();
+		if (worldName != null) {
+			data.put("shop_world", worldName);
+			data.put("shop_x", shop.getX());
+			data.put("shop_y", shop.getY());
+			data.put("shop_z", shop.getZ());
+		}
+		if (shopOwner != null) {
+			data.put("shop_owner_uuid", shopOwner.getUniqueId().toString());
+			data.put("shop_owner_name", shopOwner.getName());
+		}
+		data.put("trade_count", trade.getTradeCount());
+		data.put("result_item", serializeItem(trade.getResultItem(), logItemMetadata));
+		data.put("item1", serializeItem(trade.getItem1(), logItemMetadata));
+		UnmodifiableItemStack item2 = trade.getItem2();
+		if (item2 != null) {
+			data.put("item2", serializeItem(item2, logItemMetadata));
+		}
+
+		return JsonUtils.toJson(data);
+	}
+
+	private static Map<String, Object> serializeItem(
+			UnmodifiableItemStack itemStack,
+			boolean logItemMetadata
+	) {
+		Map<String, Object> itemData = new LinkedHashMap<>();
+		// TODO Store the namespaced key instead
+		itemData.put("type", itemStack.getType().name());
+		itemData.put("amount", itemStack.getAmount());
+		if (logItemMetadata) {
+			String metadata = TradeLogUtils.getItemMetadata(itemStack);
+			if (!metadata.isEmpty()) {
+				itemData.put("metadata", metadata);
+			}
+		}
+		return itemData;
+	}
+
+	private final TradeRecord trade;
+	private final boolean logItemMetadata;
+	// Lazily serialized. Concurrent sinks might serialize the trade redundantly, but end up with
+	// equal results:
+	private volatile @Nullable String json = null;
+	private volatile byte @Nullable [] jsonLine = null;
+
+	private SerializedTrade(TradeRecord trade, boolean logItemMetadata) {
+		this.trade = trade;
+		this.logItemMetadata = logItemMetadata;
+	}
+
+	/**
+	 * Gets the serialized {@link TradeRecord}.
+	 * 
+	 * @return the trade record, not <code>null</code>
+	 */
+	public TradeRecord getTrade() {
+		return trade;
+	}
+
+	/**
+	 * Gets the trade serialized as a single line of Json, without a trailing line break.
+	 * 
+	 * @return the Json, not <code>null</code>
+	 */
+	public String getJson() {
+		String json = this.json;
+		if (json == null) {
+			json = toJson(trade, logItemMetadata);
+			this.json = json;
+		}
+		return json;
+	}
+
+	/**
+	 * Gets the UTF-8 encoding of the {@link #getJson() Json}, followed by a line break.
+	 * <p>
+	 * The returned array is shared and must not be modified.
+	 * 
+	 * @return the encoded Json line, not <code>null</code>
+	 */
+	public byte[] getJsonLine() {
+		byte[] jsonLine = this.jsonLine;
+		if (jsonLine == null) {
+			jsonLine = (this.getJson() + "\n").getBytes(StandardCharsets.UTF_8);
+			this.jsonLine = jsonLine;
+		}
+		return jsonLine;
+	}
+
+	@Override
+	public String toString() {
+		return this.getJson();
+	}
+
+	@Override
+	public int hashCode() {
+		return trade.hashCode();
+	}
+
+	@Override
+	public boolean equals(@Nullable Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof SerializedTrade)) return false;
+		SerializedTrade other = (SerializedTrade) obj;
+		return trade.equals(other.trade);
+	}
+}
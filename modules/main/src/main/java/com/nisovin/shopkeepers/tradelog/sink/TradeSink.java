@@ -0,0 +1,100 @@
+package com.nisovin.shopkeepers.tradelog.sink;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.tradelog.TradeLogMaintenance;
+
+/**
+ * A consumer of logged trades, such as a file, a database, or an analytics stream.
+ * <p>
+ * Trade sinks are registered with the {@link TradeSinkDispatcher}, which hands the same
+ * {@link SerializedTrade} of every logged trade to all sinks. Each sink is fed by its own bounded
+ * buffer and writer task, and is retried independently of the other sinks: A slow or failing sink
+ * does not delay the other sinks or the server's main thread. If the buffer of a sink is full,
+ * newly logged trades are either {@link #getSpillFile() spilled to disk}, or dropped for that sink.
+ * <p>
+ * The methods of a sink are invoked by a single writer at a time, but usually asynchronously.
+ */
+public interface TradeSink {
+
+	/**
+	 * Gets the name of this sink, used in log messages.
+	 * 
+	 * @return the name, not <code>null</code> or empty
+	 */
+	public String getName();
+
+	/**
+	 * Gets the file to which the trades are spilled if the buffer of this sink is full.
+	 * <p>
+	 * If a spill file is specified, no trades are dropped for this sink: Trades that do not fit
+	 * into the buffer are appended to the spill file, and then written to this sink in their
+	 * original order once it has caught up. Trades that are still pending during shutdown are
+	 * spilled as well, and written after the next startup.
+	 * 
+	 * @return the spill file, or <code>null</code> to drop trades if the buffer is full
+	 */
+	public default @Nullable Path getSpillFile() {
+		return null;
+	}
+
+	/**
+	 * This is invoked once, prior to the first {@link #write(List)}, to perform any required
+	 * setup, such as opening connections.
+	 * <p>
+	 * If the setup fails, it is attempted again prior to the next write.
+	 * 
+	 * @throws Exception
+	 *             if the setup fails
+	 */
+	public default void setup() throws Exception {
+	}
+
+	/**
+	 * Writes the given batch of trades.
+	 * <p>
+	 * The trades are passed in the order in which they were logged. If this method throws an
+	 * exception, the complete batch is written again later, possibly together with subsequently
+	 * logged trades. Implementations should therefore write the batch atomically, or tolerate
+	 * duplicates.
+	 * 
+	 * @param trades
+	 *            the trades, not <code>null</code> or empty, only valid during this invocation
+	 * @throws Exception
+	 *             if the writing fails
+	 */
+	public void write(List<? extends SerializedTrade> trades) throws Exception;
+
+	/**
+	 * Releases any resources held by this sink.
+	 * <p>
+	 * This is invoked during shutdown, after the final write. Any exceptions are logged.
+	 * 
+	 * @throws Exception
+	 *             if the closing fails
+	 */
+	public default void close() throws Exception {
+	}
+
+	/**
+	 * Performs maintenance of the written trades, such as compressing or archiving old trade logs.
+	 * <p>
+	 * This is invoked asynchronously by the {@link TradeLogMaintenance}, concurrently to the
+	 * writing of trades. Implementations must not block the writing of new trades for longer than
+	 * brief moments, and should regularly check the given cancellation state.
+	 * 
+	 * @param cancelled
+	 *            returns <code>true</code> if the maintenance has been cancelled, e.g. because the
+	 *            plugin is being disabled
+	 * @return the number of reclaimed bytes
+	 * @throws Exception
+	 *             if the maintenance fails
+	 */
+	public default long performMaintenance(BooleanSupplier cancelled) throws Exception {
+		return 0L;
+	}
+}
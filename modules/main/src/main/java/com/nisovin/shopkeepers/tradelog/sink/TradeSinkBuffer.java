@@ -0,0 +1,134 @@
+package com.nisovin.shopkeepers.tradelog.sink;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+
+/**
+ * A bounded, lock-free ring buffer with a single producer and a single consumer.
+ * <p>
+ * The producer (the server's main thread) {@link #offer(SerializedTrade) adds} trades to the tail
+ * of the buffer, and the consumer (the writer of a sink) {@link #peek(List, int) reads} trades from
+ * the head of the buffer and only {@link #remove(int) removes} them after they have been written
+ * successfully. Neither side ever blocks the other.
+ */
+final class TradeSinkBuffer {
+
+	private final AtomicReferenceArray<@Nullable SerializedTrade> slots;
+	private final int capacity;
+	// The absolute index of the next trade to read. Only advanced by the consumer.
+	private final AtomicLong head = new AtomicLong();
+	// The absolute index of the next trade to add. Only advanced by the producer.
+	private final AtomicLong tail = new AtomicLong();
+
+	TradeSinkBuffer(int capacity) {
+		assert capacity > 0;
+		this.capacity = capacity;
+		this.slots = new AtomicReferenceArray<>(capacity);
+	}
+
+	private int getSlotIndex(long index) {
+		return (int) (index % capacity);
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of buffered trades.
+	 * <p>
+	 * This may be called by any thread, but the result may be outdated once it is returned.
+	 * 
+	 * @return the number of buffered trades
+	 */
+	int size() {
+		// Read the head first, so that the size is never negative:
+		long currentHead = head.get();
+		return (int) (tail.get() - currentHead);
+	}
+
+	boolean isEmpty() {
+		return this.size() == 0;
+	}
+
+	/**
+	 * Gets the trade at the head of the buffer, i.e. the oldest buffered trade.
+	 * <p>
+	 * This may be called by any thread, but the result may be outdated once it is returned.
+	 * 
+	 * @return the oldest buffered trade, or <code>null</code> if the buffer is empty
+	 */
+	@Nullable SerializedTrade peekFirst() {
+		long currentHead = head.get();
+		if (tail.get() == currentHead) return null;
+		// Null if the consumer has removed the trade in the meantime:
+		return slots.get(this.getSlotIndex(currentHead));
+	}
+
+	/**
+	 * Adds the given trade to the tail of the buffer, if there is space left.
+	 * <p>
+	 * Only called by the producer.
+	 * 
+	 * @param trade
+	 *            the trade
+	 * @return <code>true</code> if the trade has been added, <code>false</code> if the buffer is
+	 *         full
+	 */
+	boolean offer(SerializedTrade trade) {
+		assert trade != null;
+		long currentTail = tail.get();
+		if (currentTail - head.get() >= capacity) return false; // Full
+
+		slots.lazySet(this.getSlotIndex(currentTail), trade);
+		// Publishes the trade to the consumer:
+		tail.lazySet(currentTail + 1);
+		return true;
+	}
+
+	/**
+	 * Copies up to the given number of trades from the head of the buffer into the given list,
+	 * without removing them.
+	 * <p>
+	 * Only called by the consumer.
+	 * 
+	 * @param out
+	 *            the list to add the trades to
+	 * @param maxTrades
+	 *            the maximum number of trades to copy
+	 * @return the number of copied trades
+	 */
+	int peek(List<SerializedTrade> out, int maxTrades) {
+		long currentHead = head.get();
+		int count = (int) Math.min(tail.get() - currentHead, maxTrades);
+		for (int i = 0; i < count; i++) {
+			out.add(Unsafe.assertNonNull(slots.get(this.getSlotIndex(currentHead + i))));
+		}
+		return count;
+	}
+
+	/**
+	 * Removes the given number of trades from the head of the buffer.
+	 * <p>
+	 * Only called by the consumer, for trades that it has previously {@link #peek(List, int)
+	 * read}.
+	 * 
+	 * @param count
+	 *            the number of trades to remove
+	 */
+	void remove(int count) {
+		long currentHead = head.get();
+		assert count >= 0 && count <= tail.get() - currentHead;
+		for (int i = 0; i < count; i++) {
+			// Release the trades for garbage collection:
+			slots.lazySet(this.getSlotIndex(currentHead + i), null);
+		}
+		// Frees the slots for the producer:
+		head.lazySet(currentHead + count);
+	}
+}
@@ -0,0 +1,542 @@
+package com.nisovin.shopkeepers.tradelog.sink;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
+import com.nisovin.shopkeepers.util.bukkit.PermissionUtils;
+import com.nisovin.shopkeepers.util.bukkit.SchedulerUtils;
+import com.nisovin.shopkeepers.util.bukkit.SingletonTask;
+import com.nisovin.shopkeepers.util.java.ThrowableUtils;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * Feeds the trades to a single {@link TradeSink}.
+ * <p>
+ * The trades are buffered in a {@link TradeSinkBuffer} and written in batches by a
+ * {@link SingletonTask}. If a write fails, the batch is kept in the buffer and the write is
+ * retried after an exponentially increasing delay. Meanwhile, newly logged trades are buffered
+ * until the buffer is full. Any further trades are then either dropped for this sink, or, if the
+ * sink specifies a {@link TradeSink#getSpillFile() spill file}, spilled to disk.
+ * <p>
+ * The spill file is only accessed by the writer. In order to preserve the order of the trades,
+ * the writer first appends all buffered trades to the spill file, and then the trades that did not
+ * fit into the buffer. The spilled trades are therefore always older than the buffered trades, and
+ * are written first.
+ * <p>
+ * All methods are meant to be called from the server's main thread.
+ */
+final class TradeSinkChannel {
+
+	private static final int WRITE_DELAY_TICKS = 100; // 5 seconds
+	private static final int WRITE_BATCH_SIZE = 1000;
+	private static final long RETRY_MIN_DELAY_TICKS = 20L; // 1 second
+	private static final long RETRY_MAX_DELAY_TICKS = 20L * 60 * 5; // 5 minutes
+	private static final long ERROR_MSG_THROTTLE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	// Limits how long the final write during shutdown writes spilled trades. Any remaining trades
+	// are kept on disk and written after the next startup.
+	private static final long FLUSH_TIME_LIMIT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+	private final Plugin plugin;
+	private final TradeSink sink;
+	private final String logPrefix;
+	private final TradeSinkBuffer buffer;
+	private final @Nullable TradeSpillFile spillFile;
+	// Trades that did not fit into the buffer, and that are appended to the spill file by the next
+	// write. These are newer than the buffered trades:
+	private List<SerializedTrade> overflow = new ArrayList<>();
+	private final WriteTask writeTask;
+	private @Nullable BukkitTask delayedWriteTask = null;
+	private @Nullable BukkitTask retryTask = null;
+	private int consecutiveFailures = 0;
+	private long lastFailureMsgMillis = 0L;
+
+	private long writtenTrades = 0L;
+	private long spilledTrades = 0L;
+	private long droppedTrades = 0L;
+	private long lastDropMsgMillis = 0L;
+	// The number of trades spilled since the sink fell behind, or 0 if it has caught up:
+	private long spillEpisodeTrades = 0L;
+
+	TradeSinkChannel(Plugin plugin, TradeSink sink, int bufferSize) {
+		assert plugin != null && sink != null;
+		this.plugin = plugin;
+		this.sink = sink;
+		this.logPrefix = "Trade sink '" + sink.getName() + "': ";
+		this.buffer = new TradeSinkBuffer(bufferSize);
+		Path spillFilePath = sink.getSpillFile();
+		if (spillFilePath != null) {
+			this.spillFile = new TradeSpillFile(spillFilePath, logPrefix);
+		} else {
+			this.spillFile = null;
+		}
+		this.writeTask = new WriteTask(plugin);
+	}
+
+	TradeSink getSink() {
+		return sink;
+	}
+
+	/**
+	 * Gets the number of trades that are pending to be written to the sink.
+	 * <p>
+	 * This includes the buffered trades, and the {@link #getSpilledTradeCount() spilled trades}.
+	 * 
+	 * @return the number of pending trades
+	 */
+	int getPendingTradeCount() {
+		return buffer.size() + this.getSpilledTradeCount();
+	}
+
+	/**
+	 * Gets the number of trades that are currently spilled to disk, or that are about to be
+	 * spilled to disk.
+	 * 
+	 * @return the number of spilled trades
+	 */
+	int getSpilledTradeCount() {
+		int count = overflow.size() + writeTask.unspilledTrades;
+		if (spillFile != null) {
+			count += spillFile.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the timestamp of the oldest trade that is still pending to be written to the sink.
+	 * 
+	 * @return the timestamp of the oldest pending trade, or <code>null</code> if there are no
+	 *         pending trades, or if the timestamp of the oldest spilled trade is not known
+	 */
+	@Nullable Instant getOldestPendingTradeTimestamp() {
+		if (spillFile != null && !spillFile.isEmpty()) {
+			return spillFile.getOldestTimestamp();
+		}
+		SerializedTrade oldestBuffered = buffer.peekFirst();
+		if (oldestBuffered != null) {
+			return oldestBuffered.getTrade().getTimestamp();
+		}
+		Instant oldestUnspilled = writeTask.oldestUnspilledTimestamp;
+		if (oldestUnspilled != null) {
+			return oldestUnspilled;
+		}
+		if (!overflow.isEmpty()) {
+			return overflow.get(0).getTrade().getTimestamp();
+		}
+		return null;
+	}
+
+	long getWrittenTradeCount() {
+		return writtenTrades;
+	}
+
+	/**
+	 * Gets the total number of trades that have been spilled to disk since this channel has been
+	 * created.
+	 * 
+	 * @return the total number of spilled trades
+	 */
+	long getTotalSpilledTradeCount() {
+		return spilledTrades;
+	}
+
+	long getDroppedTradeCount() {
+		return droppedTrades;
+	}
+
+	void offer(SerializedTrade trade) {
+		// While there are trades that are about to be spilled, subsequent trades are spilled as
+		// well, so that the order of the trades is preserved:
+		if (!overflow.isEmpty() || writeTask.isSpilling() || !buffer.offer(trade)) {
+			if (spillFile != null) {
+				overflow.add(trade);
+				this.write();
+				return;
+			}
+
+			droppedTrades++;
+			long nowMillis = System.currentTimeMillis();
+			if (Math.abs(nowMillis - lastDropMsgMillis) > ERROR_MSG_THROTTLE_MILLIS) {
+				lastDropMsgMillis = nowMillis;
+				Log.warning(logPrefix + "Buffer is full (" + buffer.getCapacity()
+						+ " trades)! Dropping trades for this sink (" + droppedTrades
+						+ " dropped in total).");
+			}
+			return;
+		}
+
+		if (buffer.size() >= WRITE_BATCH_SIZE) {
+			this.write();
+		} else {
+			// Buffer incoming trades over a short period of time, so that they are written in
+			// batches:
+			this.writeDelayed();
+		}
+	}
+
+	/**
+	 * Triggers the initial write, which sets up the sink and writes any trades that were spilled
+	 * during a previous session.
+	 */
+	void start() {
+		this.write();
+	}
+
+	private void write() {
+		// While a retry is pending, the trades are written once the retry delay has passed.
+		// However, trades that did not fit into the buffer are spilled right away:
+		if (retryTask != null && overflow.isEmpty()) return;
+
+		writeTask.run();
+	}
+
+	private void writeDelayed() {
+		if (delayedWriteTask != null || retryTask != null) return;
+
+		delayedWriteTask = SchedulerUtils.runTaskLaterOrOmit(
+				plugin,
+				new DelayedWriteTask(),
+				WRITE_DELAY_TICKS
+		);
+	}
+
+	private class DelayedWriteTask implements Runnable {
+		@Override
+		public void run() {
+			delayedWriteTask = null;
+			write();
+		}
+	}
+
+	private class RetryTask implements Runnable {
+		@Override
+		public void run() {
+			retryTask = null;
+			write();
+		}
+	}
+
+	private void cancelTasks() {
+		if (delayedWriteTask != null) {
+			delayedWriteTask.cancel();
+			delayedWriteTask = null;
+		}
+		if (retryTask != null) {
+			retryTask.cancel();
+			retryTask = null;
+		}
+	}
+
+	/**
+	 * Writes all pending trades and waits (blocking!) for the writes to complete.
+	 * <p>
+	 * Failed writes are not retried: Any trades that could not be written are spilled to disk if
+	 * the sink specifies a spill file, and otherwise lost. Writing previously spilled trades is
+	 * limited to {@link #FLUSH_TIME_LIMIT_MILLIS}, so that a large backlog does not delay the
+	 * shutdown: The remaining spilled trades are kept on disk.
+	 */
+	void flush() {
+		this.cancelTasks();
+		writeTask.awaitExecutions();
+		writeTask.flushing = true;
+		writeTask.runImmediately();
+		writeTask.flushing = false;
+		this.cancelTasks();
+
+		int remaining = buffer.size() + overflow.size();
+		if (remaining > 0) {
+			Log.severe(logPrefix + "Failed to write " + remaining + " trades! Data was lost! :(");
+		}
+		if (spillFile != null && !spillFile.isEmpty()) {
+			Log.info(logPrefix + spillFile.size() + " pending trades are kept on disk and written"
+					+ " after the next startup.");
+		}
+	}
+
+	void close() {
+		this.cancelTasks();
+		try {
+			sink.close();
+		} catch (Exception e) {
+			Log.severe(logPrefix + "Failed to close!", e);
+		}
+	}
+
+	private class WriteTask extends SingletonTask {
+
+		// Only accessed by the writer:
+		private boolean spillFileLoaded = false;
+		private boolean setupCompleted = false;
+		private final List<SerializedTrade> batch = new ArrayList<>();
+		private final List<TradeRecord> records = new ArrayList<>();
+
+		// Set while flushing: Keeps any unwritten trades on disk.
+		private boolean flushing = false;
+		// The trades to append to the spill file:
+		private List<SerializedTrade> spilling = new ArrayList<>();
+		// The number of trades that are not yet appended to the spill file:
+		private volatile int unspilledTrades = 0;
+		private volatile @Nullable Instant oldestUnspilledTimestamp = null;
+
+		// The outcome of the current execution:
+		private int writtenCount = 0;
+		private int spilledCount = 0;
+		private @Nullable Exception failure = null;
+
+		private WriteTask(Plugin plugin) {
+			super(plugin);
+		}
+
+		private class InternalAsyncTask extends SingletonTask.InternalAsyncTask {
+		}
+
+		private class InternalSyncCallbackTask extends SingletonTask.InternalSyncCallbackTask {
+		}
+
+		@Override
+		protected InternalAsyncTask createInternalAsyncTask() {
+			return new InternalAsyncTask();
+		}
+
+		@Override
+		protected InternalSyncCallbackTask createInternalSyncCallbackTask() {
+			return new InternalSyncCallbackTask();
+		}
+
+		private boolean isSpilling() {
+			return unspilledTrades > 0;
+		}
+
+		@Override
+		protected void prepare() {
+			// Any trades that have accumulated until now are written by this execution:
+			if (delayedWriteTask != null) {
+				delayedWriteTask.cancel();
+				delayedWriteTask = null;
+			}
+
+			assert spilling.isEmpty();
+			if (!overflow.isEmpty()) {
+				// Swap the overflow and the empty list of trades to spill:
+				List<SerializedTrade> temp = spilling;
+				spilling = overflow;
+				overflow = temp;
+				oldestUnspilledTimestamp = spilling.get(0).getTrade().getTimestamp();
+				unspilledTrades = spilling.size();
+			}
+		}
+
+		@Override
+		protected void execute() {
+			try {
+				if (spillFile != null && !spillFileLoaded) {
+					// Pick up any trades that were spilled during a previous session:
+					spillFile.load();
+					spillFileLoaded = true;
+				}
+				if (!spilling.isEmpty()) {
+					this.spill();
+				}
+
+				if (!setupCompleted) {
+					sink.setup();
+					setupCompleted = true;
+				}
+
+				// The spilled trades are older than the buffered trades:
+				if (this.writeSpilled()) {
+					this.writeBuffered();
+				} else {
+					// The time limit of the final write was reached: Keep the buffered trades on
+					// disk, after the remaining spilled trades.
+					this.spill();
+				}
+			} catch (Exception e) {
+				failure = e;
+			} finally {
+				batch.clear();
+				records.clear();
+			}
+
+			if (flushing && failure != null && spillFileLoaded) {
+				// Keep the remaining trades on disk, so that they are written after the next
+				// startup:
+				try {
+					this.spill();
+				} catch (IOException e) {
+					Log.severe(logPrefix + "Failed to spill the remaining trades to disk!", e);
+				}
+			}
+			if (flushing && spillFile != null) {
+				try {
+					spillFile.compact();
+				} catch (IOException e) {
+					Log.severe(logPrefix + "Failed to compact the spilled trades!", e);
+				}
+			}
+		}
+
+		// Appends the buffered trades, and then the trades to spill, to the spill file. If this
+		// fails, the trades that have not been spilled yet remain in the buffer and the list of
+		// trades to spill.
+		private void spill() throws IOException {
+			TradeSpillFile spillFile = Unsafe.assertNonNull(TradeSinkChannel.this.spillFile);
+			try {
+				while (buffer.peek(batch, WRITE_BATCH_SIZE) > 0) {
+					this.appendToSpillFile(spillFile, batch);
+					buffer.remove(batch.size());
+					batch.clear();
+				}
+				if (!spilling.isEmpty()) {
+					this.appendToSpillFile(spillFile, spilling);
+					spilling.clear();
+				}
+			} finally {
+				batch.clear();
+			}
+		}
+
+		private void appendToSpillFile(TradeSpillFile spillFile, List<SerializedTrade> trades)
+				throws IOException {
+			for (SerializedTrade trade : trades) {
+				records.add(trade.getTrade());
+			}
+			try {
+				spillFile.append(records);
+			} finally {
+				records.clear();
+			}
+			spilledCount += trades.size();
+		}
+
+		// Returns false if the time limit was reached while flushing, before all spilled trades
+		// were written.
+		private boolean writeSpilled() throws Exception {
+			TradeSpillFile spillFile = TradeSinkChannel.this.spillFile;
+			if (spillFile == null) return true;
+
+			long deadlineNanos = System.nanoTime()
+					+ TimeUnit.MILLISECONDS.toNanos(FLUSH_TIME_LIMIT_MILLIS);
+			while (!spillFile.isEmpty()) {
+				if (flushing && System.nanoTime() - deadlineNanos > 0) {
+					return false;
+				}
+
+
+				List<? extends TradeRecord> trades = spillFile.read(WRITE_BATCH_SIZE);
+				if (trades.isEmpty()) break; // The remaining spilled records were invalid
+
+				for (TradeRecord trade : trades) {
+					batch.add(SerializedTrade.of(trade));
+				}
+				sink.write(batch);
+				spillFile.commit(trades.size());
+				writtenCount += batch.size();
+				batch.clear();
+			}
+			return true;
+		}
+
+		private void writeBuffered() throws Exception {
+			while (buffer.peek(batch, WRITE_BATCH_SIZE) > 0) {
+				sink.write(batch);
+				buffer.remove(batch.size());
+				writtenCount += batch.size();
+				batch.clear();
+			}
+		}
+
+		@Override
+		protected void syncCallback() {
+			writtenTrades += writtenCount;
+			spilledTrades += spilledCount;
+			// Log once per spill episode, instead of for every spilled batch:
+			if (spilledCount > 0 && !flushing) {
+				if (spillEpisodeTrades == 0L) {
+					Log.warning(logPrefix + "Cannot keep up with the logged trades! Spilling"
+							+ " pending trades to disk until the sink has caught up.");
+				}
+				spillEpisodeTrades += spilledCount;
+			}
+
+			if (!spilling.isEmpty()) {
+				// We failed to spill these trades: Add them to the front of the overflow.
+				overflow.addAll(0, spilling);
+				spilling.clear();
+			}
+			unspilledTrades = 0;
+			oldestUnspilledTimestamp = null;
+
+			if (spillEpisodeTrades > 0L && getSpilledTradeCount() == 0) {
+				Log.info(logPrefix + "Caught up with the logged trades (" + spillEpisodeTrades
+						+ " trades were spilled to disk meanwhile).");
+				spillEpisodeTrades = 0L;
+			}
+
+			Exception failure = this.failure;
+			if (failure == null) {
+				if (consecutiveFailures > 0) {
+					Log.info(logPrefix + "Recovered after " + consecutiveFailures
+							+ " failed write attempts.");
+					consecutiveFailures = 0;
+				}
+			} else {
+				this.onFailure(failure);
+			}
+
+			// Reset:
+			writtenCount = 0;
+			spilledCount = 0;
+			this.failure = null;
+		}
+
+		private void onFailure(Exception failure) {
+			consecutiveFailures++;
+			// Don't spam with errors and stacktraces: Only print the stacktrace for the first
+			// failed attempt, and otherwise log a compact description of the issue.
+			String errorMsg = logPrefix + "Failed to write trades (attempt "
+					+ consecutiveFailures + ", " + getPendingTradeCount() + " pending trades)";
+			if (consecutiveFailures == 1) {
+				Log.severe(errorMsg, failure);
+			} else {
+				Log.severe(errorMsg + ": " + ThrowableUtils.getDescription(failure));
+			}
+
+			// Inform admins about the issue (throttled to once every x minutes):
+			long nowMillis = System.currentTimeMillis();
+			if (Math.abs(nowMillis - lastFailureMsgMillis) > ERROR_MSG_THROTTLE_MILLIS) {
+				lastFailureMsgMillis = nowMillis;
+				String adminMsg = ChatColor.DARK_RED + "[Shopkeepers] " + ChatColor.RED
+						+ logPrefix + "Failed to log trades!"
+						+ " Please check the server logs and look into the issue!";
+				for (Player player : Bukkit.getOnlinePlayers()) {
+					assert player != null;
+					if (PermissionUtils.hasPermission(player, ShopkeepersPlugin.ADMIN_PERMISSION)) {
+						player.sendMessage(adminMsg);
+					}
+				}
+			}
+
+			// Retry after an exponentially increasing delay. This is skipped during plugin
+			// disable.
+			int shift = Math.min(consecutiveFailures - 1, 16);
+			long delay = Math.min(RETRY_MIN_DELAY_TICKS << shift, RETRY_MAX_DELAY_TICKS);
+			if (retryTask == null) {
+				retryTask = SchedulerUtils.runTaskLaterOrOmit(plugin, new RetryTask(), delay);
+			}
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package com.nisovin.shopkeepers.tradelog.sink;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.plugin.Plugin;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.tradelog.TradeLogger;
+import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * A {@link TradeLogger} that fans out the logged trades to several {@link TradeSink}s.
+ * <p>
+ * Each trade is wrapped into a {@link SerializedTrade} once, and then added to the buffers of all
+ * sinks. The sinks are written independently of each other, each by its own writer task, with its
+ * own retries.
+ */
+public class TradeSinkDispatcher implements TradeLogger {
+
+	private final Plugin plugin;
+	private final List<TradeSinkChannel> channels = new ArrayList<>();
+	private boolean setup = false;
+
+	/**
+	 * Creates a new {@link TradeSinkDispatcher}.
+	 * 
+	 * @param plugin
+	 *            the plugin, not <code>null</code>
+	 */
+	public TradeSinkDispatcher(Plugin plugin) {
+		Validate.notNull(plugin, "plugin is null");
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Adds the given {@link TradeSink}.
+	 * <p>
+	 * The sink only receives the trades that are logged after it has been added.
+	 * 
+	 * @param sink
+	 *            the sink, not <code>null</code>
+	 * @param bufferSize
+	 *            the maximum number of trades that are buffered in memory for this sink, positive
+	 */
+	public void addSink(TradeSink sink, int bufferSize) {
+		Validate.notNull(sink, "sink is null");
+		Validate.isTrue(bufferSize > 0, "bufferSize has to be positive");
+		Validate.isTrue(this.getChannel(sink) == null, "sink has already been added");
+		TradeSinkChannel channel = new TradeSinkChannel(plugin, sink, bufferSize);
+		channels.add(channel);
+		Log.debug(() -> "Added trade sink '" + sink.getName() + "'.");
+		if (setup) {
+			channel.start();
+		}
+	}
+
+	/**
+	 * Removes the given {@link TradeSink}.
+	 * <p>
+	 * This writes any trades that are still pending for the sink, waits (blocking!) for the writes
+	 * to complete, and then closes the sink.
+	 * 
+	 * @param sink
+	 *            the sink
+	 */
+	public void removeSink(TradeSink sink) {
+		TradeSinkChannel channel = this.getChannel(sink);
+		if (channel == null) return;
+
+		channels.remove(channel);
+		channel.flush();
+		channel.close();
+		Log.debug(() -> "Removed trade sink '" + sink.getName() + "'.");
+	}
+
+	private @Nullable TradeSinkChannel getChannel(TradeSink sink) {
+		for (TradeSinkChannel channel : channels) {
+			if (channel.getSink() == sink) {
+				return channel;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the added {@link TradeSink}s.
+	 * 
+	 * @return a new list with the sinks, not <code>null</code>
+	 */
+	public List<TradeSink> getSinks() {
+		List<TradeSink> sinks = new ArrayList<>(channels.size());
+		for (TradeSinkChannel channel : channels) {
+			sinks.add(channel.getSink());
+		}
+		return sinks;
+	}
+
+	/**
+	 * Checks if there are any {@link TradeSink}s.
+	 * 
+	 * @return <code>true</code> if there are no sinks
+	 */
+	public boolean isEmpty() {
+		return channels.isEmpty();
+	}
+
+	/**
+	 * Gets the number of trades that are pending to be written to the given sink, either because
+	 * they are still buffered or because they have been spilled to disk.
+	 * 
+	 * @param sink
+	 *            the sink
+	 * @return the number of pending trades, or <code>0</code> if the sink is unknown
+	 */
+	public int getPendingTradeCount(TradeSink sink) {
+		TradeSinkChannel channel = this.getChannel(sink);
+		return (channel != null) ? channel.getPendingTradeCount() : 0;
+	}
+
+	/**
+	 * Gets the number of pending trades of the given sink that are currently spilled to disk.
+	 * 
+	 * @param sink
+	 *            the sink
+	 * @return the number of spilled trades, or <code>0</code> if the sink is unknown
+	 */
+	public int getSpilledTradeCount(TradeSink sink) {
+		TradeSinkChannel channel = this.getChannel(sink);
+		return (channel != null) ? channel.getSpilledTradeCount() : 0;
+	}
+
+	/**
+	 * Gets the timestamp of the oldest trade that is still pending to be written to the given
+	 * sink.
+	 * <p>
+	 * This indicates how far the sink lags behind.
+	 * 
+	 * @param sink
+	 *            the sink
+	 * @return the timestamp, or <code>null</code> if there are no pending trades, if the timestamp
+	 *         is not known, or if the sink is unknown
+	 */
+	public @Nullable Instant getOldestPendingTradeTimestamp(TradeSink sink) {
+		TradeSinkChannel channel = this.getChannel(sink);
+		return (channel != null) ? channel.getOldestPendingTradeTimestamp() : null;
+	}
+
+	/**
+	 * Gets the number of trades that have been written to the given sink.
+	 * 
+	 * @param sink
+	 *            the sink
+	 * @return the number of written trades, or <code>0</code> if the sink is unknown
+	 */
+	public long getWrittenTradeCount(TradeSink sink) {
+		TradeSinkChannel channel = this.getChannel(sink);
+		return (channel != null) ? channel.getWrittenTradeCount() : 0L;
+	}
+
+	/**
+	 * Gets the total number of trades that have been spilled to disk for the given sink.
+	 * 
+	 * @param sink
+	 *            the sink
+	 * @return the total number of spilled trades, or <code>0</code> if the sink is unknown
+	 */
+	public long getTotalSpilledTradeCount(TradeSink sink) {
+		TradeSinkChannel channel = this.getChannel(sink);
+		return (channel != null) ? channel.getTotalSpilledTradeCount() : 0L;
+	}
+
+	/**
+	 * Gets the number of trades that have been dropped for the given sink because its buffer was
+	 * full.
+	 * 
+	 * @param sink
+	 *            the sink
+	 * @return the number of dropped trades, or <code>0</code> if the sink is unknown
+	 */
+	public long getDroppedTradeCount(TradeSink sink) {
+		TradeSinkChannel channel = this.getChannel(sink);
+		return (channel != null) ? channel.getDroppedTradeCount() : 0L;
+	}
+
+	@Override
+	public void setup() {
+		if (setup) return;
+		setup = true;
+		// The sinks are set up by their writers, prior to their first write:
+		channels.forEach(TradeSinkChannel::start);
+	}
+
+	@Override
+	public void logTrade(TradeRecord trade) {
+		if (!setup || channels.isEmpty()) return;
+
+		SerializedTrade serializedTrade = SerializedTrade.of(trade);
+		for (TradeSinkChannel channel : channels) {
+			channel.offer(serializedTrade);
+		}
+	}
+
+	@Override
+	public void flush() {
+		channels.forEach(TradeSinkChannel::flush);
+	}
+
+	@Override
+	public void close() {
+		channels.forEach(TradeSinkChannel::close);
+		channels.clear();
+		setup = false;
+	}
+}
@@ -0,0 +1,463 @@
+package com.nisovin.shopkeepers.tradelog.sink;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+import com.nisovin.shopkeepers.tradelog.data.PlayerRecord;
+import com.nisovin.shopkeepers.tradelog.data.ShopRecord;
+import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
+import com.nisovin.shopkeepers.util.data.container.DataContainer;
+import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
+import com.nisovin.shopkeepers.util.data.serialization.bukkit.ItemStackSerializers;
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+import com.nisovin.shopkeepers.util.yaml.YamlUtils;
+
+/**
+ * A sequential on-disk overflow segment for trade records that cannot be kept in memory.
+ * <p>
+ * Trade records are appended to the end of the file, one compact Yaml record per line, and read
+ * again in the same order from the front of the file. Records that have been read are only
+ * removed once they have been {@link #commit(int) committed}, i.e. once they have been
+ * successfully logged. Once all records have been committed, the file is deleted.
+ * <p>
+ * The committed records at the front of the file are only physically removed when the file is
+ * {@link #compact() compacted}, e.g. during shutdown.
+ * <p>
+ * Not thread-safe: The file is only accessed by the writer of a {@link TradeSinkChannel}, i.e.
+ * from within the executions of its write task. The number of records and the oldest timestamp
+ * can also be queried from other threads, e.g. for the trade log status.
+ */
+final class TradeSpillFile {
+
+	private final Path file;
+	private final String logPrefix;
+
+	// The byte offset of the first uncommitted record:
+	private long readOffset = 0L;
+	// The number of uncommitted records:
+	private volatile int size = 0;
+	// The timestamp of the first uncommitted record, if known:
+	private volatile @Nullable Instant oldestTimestamp = null;
+	// The end offsets, and the number of lines up to and including each record, of the records
+	// returned by the last read:
+	private long[] readEndOffsets = new long[0];
+	private int[] readLineCounts = new int[0];
+	private List<? extends TradeRecord> lastRead = new ArrayList<>();
+
+	TradeSpillFile(Path file, String logPrefix) {
+		Validate.notNull(file, "file is null");
+		this.file = file;
+		this.logPrefix = logPrefix;
+	}
+
+	/**
+	 * Picks up the records of a previously existing spill file.
+	 * <p>
+	 * If the last record is incomplete, e.g. because the server crashed while it was being
+	 * appended, it is removed. Otherwise, the next appended record would be joined onto it and
+	 * become unreadable as well.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	void load() throws IOException {
+		this.reset();
+		this.clearLastRead();
+		if (!Files.exists(file)) return;
+
+		this.truncateIncompleteRecord();
+
+		int lines = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			while (reader.readLine() != null) {
+				lines++;
+			}
+		}
+		size = lines;
+		if (size == 0) {
+			Files.deleteIfExists(file);
+		} else {
+			Log.info(logPrefix + "Found " + size + " trades that were spilled to disk previously.");
+			oldestTimestamp = this.peekOldestTimestamp();
+		}
+	}
+
+	// Truncates the file after its last line break.
+	private void truncateIncompleteRecord() throws IOException {
+		try (FileChannel channel = FileChannel.open(
+				file,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE
+		)) {
+			long fileSize = channel.size();
+			long end = findEndOfLastLine(channel);
+			if (end == fileSize) return;
+
+			Log.warning(logPrefix + "Discarding an incomplete spilled trade record ("
+					+ (fileSize - end) + " bytes).");
+			channel.truncate(end);
+			channel.force(false);
+		}
+	}
+
+	// Returns the offset after the last line break, or 0 if there is none.
+	private static long findEndOfLastLine(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long position = channel.size();
+		while (position > 0L) {
+			int length = (int) Math.min(buffer.capacity(), position);
+			position -= length;
+			buffer.clear().limit(length);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					throw new EOFException("Unexpected end of file!");
+				}
+			}
+			for (int i = length - 1; i >= 0; i--) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+		}
+		return 0L;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the number of records that have not yet been committed.
+	 * 
+	 * @return the number of spilled records
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the timestamp of the oldest record that has not yet been committed.
+	 * 
+	 * @return the timestamp, or <code>null</code> if empty or unknown
+	 */
+	@Nullable Instant getOldestTimestamp() {
+		return oldestTimestamp;
+	}
+
+	/**
+	 * Appends the given trade records to the end of the file and syncs them to disk.
+	 * 
+	 * @param trades
+	 *            the trade records, not <code>null</code>
+	 * @throws IOException
+	 *             if the records cannot be written, in which case none of them are considered
+	 *             spilled
+	 */
+	void append(List<? extends TradeRecord> trades) throws IOException {
+		if (trades.isEmpty()) return;
+
+		StringBuilder records = new StringBuilder();
+		for (TradeRecord trade : trades) {
+			records.append(serialize(trade)).append('\n');
+		}
+		byte[] bytes = records.toString().getBytes(StandardCharsets.UTF_8);
+
+		Path parent = file.getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		try (FileChannel channel = FileChannel.open(
+				file,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND
+		)) {
+			long previousSize = channel.size();
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(bytes);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(false);
+			} catch (IOException e) {
+				// Remove any partially written records:
+				channel.truncate(previousSize);
+				throw e;
+			}
+		}
+
+		if (size == 0) {
+			oldestTimestamp = trades.get(0).getTimestamp();
+		}
+		size += trades.size();
+	}
+
+	/**
+	 * Reads up to the given number of uncommitted records from the front of the file.
+	 * <p>
+	 * Repeated reads return the same records until they are {@link #commit(int) committed}.
+	 * Records that cannot be parsed are logged and skipped: At the front of the file, they are
+	 * dropped right away. Otherwise, they are committed together with the next read record.
+	 * 
+	 * @param maxRecords
+	 *            the maximum number of records to read
+	 * @return the read trade records, not <code>null</code>
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	List<? extends TradeRecord> read(int maxRecords) throws IOException {
+		int limit = Math.min(maxRecords, size);
+		List<TradeRecord> trades = new ArrayList<>(limit);
+		long[] endOffsets = new long[limit];
+		int[] lineCounts = new int[limit];
+		long offset = readOffset;
+		int lines = 0;
+		try (InputStream in = Files.newInputStream(file)) {
+			in.skipNBytes(readOffset);
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(in, StandardCharsets.UTF_8)
+			);
+			String line;
+			while (trades.size() < limit && (line = reader.readLine()) != null) {
+				offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+				lines++;
+
+				TradeRecord trade;
+				try {
+					trade = deserialize(line);
+				} catch (InvalidDataException | RuntimeException e) {
+					Log.warning(logPrefix + "Skipping invalid spilled trade record: "
+							+ e.getMessage());
+					if (trades.isEmpty()) {
+						// Drop invalid records at the front right away:
+						readOffset = offset;
+						size--;
+						lines = 0;
+					}
+					// Otherwise, the invalid record is committed together with the next record.
+					continue;
+				}
+
+				endOffsets[trades.size()] = offset;
+				lineCounts[trades.size()] = lines;
+				trades.add(trade);
+			}
+		}
+		if (size <= 0) {
+			this.reset();
+			Files.deleteIfExists(file);
+		}
+
+		readEndOffsets = endOffsets;
+		readLineCounts = lineCounts;
+		lastRead = trades;
+		return trades;
+	}
+
+	/**
+	 * Commits the given number of records of the last {@link #read(int) read}, i.e. removes them
+	 * from this spill file.
+	 * 
+	 * @param count
+	 *            the number of records to commit, starting with the first read record
+	 * @throws IOException
+	 *             if the file cannot be deleted once empty
+	 */
+	void commit(int count) throws IOException {
+		Validate.isTrue(count >= 0 && count <= lastRead.size(), "count is out of bounds");
+		if (count == 0) return;
+
+		readOffset = readEndOffsets[count - 1];
+		size -= readLineCounts[count - 1];
+		if (size <= 0) {
+			this.reset();
+			Files.deleteIfExists(file);
+		} else if (count < lastRead.size()) {
+			oldestTimestamp = lastRead.get(count).getTimestamp();
+		} else {
+			oldestTimestamp = this.peekOldestTimestamp();
+		}
+		this.clearLastRead();
+	}
+
+	private void clearLastRead() {
+		lastRead = new ArrayList<>();
+		readEndOffsets = new long[0];
+		readLineCounts = new int[0];
+	}
+
+	private void reset() {
+		readOffset = 0L;
+		size = 0;
+		oldestTimestamp = null;
+	}
+
+	private @Nullable Instant peekOldestTimestamp() {
+		try {
+			if (size == 0) return null;
+			List<? extends TradeRecord> first = this.read(1);
+			this.clearLastRead();
+			return first.isEmpty() ? null : first.get(0).getTimestamp();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Physically removes the committed records from the front of the file.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be rewritten
+	 */
+	void compact() throws IOException {
+		if (readOffset == 0L) return;
+		if (size == 0) {
+			Files.deleteIfExists(file);
+			this.reset();
+			return;
+		}
+
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+				FileChannel target = FileChannel.open(
+						tempFile,
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING
+				)) {
+			long position = readOffset;
+			long end = source.size();
+			while (position < end) {
+				position += source.transferTo(position, end - position, target);
+			}
+			target.force(false);
+		}
+		Files.move(
+				tempFile,
+				file,
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE
+		);
+		readOffset = 0L;
+	}
+
+	// SERIALIZATION
+
+	private static String serialize(TradeRecord trade) {
+		DataContainer data = DataContainer.create();
+		// Full precision, so that the logged trades match the trades that are logged directly:
+		data.set("time", trade.getTimestamp().toString());
+		PlayerRecord player = trade.getPlayer();
+		data.set("player-uuid", player.getUniqueId().toString());
+		data.set("player-name", player.getName());
+
+		ShopRecord shop = trade.getShop();
+		data.set("shop-uuid", shop.getUniqueId().toString());
+		data.set("shop-type", shop.getTypeId());
+		data.set("shop-name", shop.getName());
+		data.set("shop-world", shop.getWorldName());
+		data.set("shop-x", shop.getX());
+		data.set("shop-y", shop.getY());
+		data.set("shop-z", shop.getZ());
+		PlayerRecord owner = shop.getOwner();
+		if (owner != null) {
+			data.set("owner-uuid", owner.getUniqueId().toString());
+			data.set("owner-name", owner.getName());
+		}
+
+		data.set("result-item", ItemStackSerializers.UNMODIFIABLE.serialize(trade.getResultItem()));
+		data.set("item1", ItemStackSerializers.UNMODIFIABLE.serialize(trade.getItem1()));
+		UnmodifiableItemStack item2 = trade.getItem2();
+		if (item2 != null) {
+			data.set("item2", ItemStackSerializers.UNMODIFIABLE.serialize(item2));
+		}
+		data.set("trade-count", trade.getTradeCount());
+		return YamlUtils.toCompactYaml(data.serialize());
+	}
+
+	private static TradeRecord deserialize(String line) throws InvalidDataException {
+		DataContainer data = DataContainer.of(YamlUtils.fromYaml(line));
+		if (data == null) {
+			throw new InvalidDataException("Not a data container: " + line);
+		}
+
+		Instant timestamp = getTimestamp(data, "time");
+		PlayerRecord player = PlayerRecord.of(
+				UUID.fromString(getRequiredString(data, "player-uuid")),
+				getRequiredString(data, "player-name")
+		);
+
+		PlayerRecord owner = null;
+		String ownerId = data.getString("owner-uuid");
+		if (ownerId != null) {
+			String ownerName = getRequiredString(data, "owner-name");
+			owner = PlayerRecord.of(UUID.fromString(ownerId), ownerName);
+		}
+		ShopRecord shop = new ShopRecord(
+				UUID.fromString(getRequiredString(data, "shop-uuid")),
+				getRequiredString(data, "shop-type"),
+				owner,
+				getRequiredString(data, "shop-name"),
+				data.getString("shop-world"),
+				data.getInt("shop-x"),
+				data.getInt("shop-y"),
+				data.getInt("shop-z")
+		);
+
+		UnmodifiableItemStack resultItem = getItem(data, "result-item");
+		UnmodifiableItemStack item1 = getItem(data, "item1");
+		UnmodifiableItemStack item2 = null;
+		if (data.contains("item2")) {
+			item2 = getItem(data, "item2");
+		}
+		int tradeCount = data.getInt("trade-count");
+		return TradeRecord.create(timestamp, player, shop, resultItem, item1, item2, tradeCount);
+	}
+
+	private static String getRequiredString(DataContainer data, String key)
+			throws InvalidDataException {
+		String value = data.getString(key);
+		if (value == null) {
+			throw new InvalidDataException("Missing '" + key + "'!");
+		}
+		return value;
+	}
+
+	private static Instant getTimestamp(DataContainer data, String key)
+			throws InvalidDataException {
+		String value = getRequiredString(data, key);
+		try {
+			return Instant.parse(value);
+		} catch (DateTimeParseException e) {
+			throw new InvalidDataException("Invalid '" + key + "': " + value, e);
+		}
+	}
+
+	private static UnmodifiableItemStack getItem(DataContainer data, String key)
+			throws InvalidDataException {
+		Object itemData = data.get(key);
+		if (itemData == null) {
+			throw new InvalidDataException("Missing '" + key + "'!");
+		}
+		return ItemStackSerializers.UNMODIFIABLE.deserialize(itemData);
+	}
+}
@@ -0,0 +1,158 @@
+package com.nisovin.shopkeepers.tradelog.sqlite;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Looks up, and inserts if missing, the ids of the entries of the item, player, and shop
+ * dictionary tables of the trade log database.
+ * <p>
+ * This does not cache any ids itself. The statements are bound to the connection they were
+ * prepared for, and are only used by a single thread at a time.
+ */
+final class SQLiteDictionaries implements AutoCloseable {
+
+	private static final String SELECT_ITEM = "SELECT id FROM "
+			+ SQLiteTradeLogSchema.ITEM_TABLE + " WHERE hash = ?";
+	private static final String INSERT_ITEM = "INSERT INTO "
+			+ SQLiteTradeLogSchema.ITEM_TABLE + " (hash, type, metadata) VALUES (?, ?, ?)";
+	private static final String SELECT_PLAYER = "SELECT id FROM "
+			+ SQLiteTradeLogSchema.PLAYER_TABLE + " WHERE uuid = ? AND name = ?";
+	private static final String INSERT_PLAYER = "INSERT INTO "
+			+ SQLiteTradeLogSchema.PLAYER_TABLE + " (uuid, name) VALUES (?, ?)";
+	// Note: The "IS" operator also matches null values.
+	private static final String SELECT_SHOP = "SELECT id FROM "
+			+ SQLiteTradeLogSchema.SHOP_TABLE + " WHERE uuid = ? AND type = ? AND world IS ? "
+			+ "AND x = ? AND y = ? AND z = ? AND owner_id IS ?";
+	private static final String INSERT_SHOP = "INSERT INTO "
+			+ SQLiteTradeLogSchema.SHOP_TABLE + " (uuid, type, world, x, y, z, owner_id) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	private static final long NO_ID = -1L;
+
+	private final List<PreparedStatement> statements = new ArrayList<>();
+	private final PreparedStatement selectItem;
+	private final PreparedStatement insertItem;
+	private final PreparedStatement selectPlayer;
+	private final PreparedStatement insertPlayer;
+	private final PreparedStatement selectShop;
+	private final PreparedStatement insertShop;
+
+	SQLiteDictionaries(Connection connection) throws SQLException {
+		assert connection != null;
+		try {
+			selectItem = this.prepare(connection, SELECT_ITEM);
+			insertItem = this.prepare(connection, INSERT_ITEM);
+			selectPlayer = this.prepare(connection, SELECT_PLAYER);
+			insertPlayer = this.prepare(connection, INSERT_PLAYER);
+			selectShop = this.prepare(connection, SELECT_SHOP);
+			insertShop = this.prepare(connection, INSERT_SHOP);
+		} catch (SQLException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+	private PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement(sql);
+		statements.add(statement);
+		return statement;
+	}
+
+	// Returns NO_ID if there is no matching row.
+	private static long queryId(PreparedStatement selectStatement) throws SQLException {
+		try (ResultSet resultSet = selectStatement.executeQuery()) {
+			if (!resultSet.next()) return NO_ID;
+			return resultSet.getLong(1);
+		}
+	}
+
+	// Queries the id of the just inserted row.
+	private static long queryInsertedId(PreparedStatement selectStatement) throws SQLException {
+		long id = queryId(selectStatement);
+		if (id == NO_ID) {
+			throw new SQLException("Could not find the inserted dictionary entry!");
+		}
+		return id;
+	}
+
+	long getItemId(String hash, String type, String metadata) throws SQLException {
+		selectItem.setString(1, hash);
+		long id = queryId(selectItem);
+		if (id != NO_ID) return id;
+
+		insertItem.setString(1, hash);
+		insertItem.setString(2, type);
+		insertItem.setString(3, metadata);
+		insertItem.executeUpdate();
+		return queryInsertedId(selectItem);
+	}
+
+	long getPlayerId(String uuid, String name) throws SQLException {
+		selectPlayer.setString(1, uuid);
+		selectPlayer.setString(2, name);
+		long id = queryId(selectPlayer);
+		if (id != NO_ID) return id;
+
+		insertPlayer.setString(1, uuid);
+		insertPlayer.setString(2, name);
+		insertPlayer.executeUpdate();
+		return queryInsertedId(selectPlayer);
+	}
+
+	long getShopId(
+			String uuid,
+			String type,
+			@Nullable String world,
+			int x,
+			int y,
+			int z,
+			@Nullable Long ownerId
+	) throws SQLException {
+		setShopParameters(selectShop, uuid, type, world, x, y, z, ownerId);
+		long id = queryId(selectShop);
+		if (id != NO_ID) return id;
+
+		setShopParameters(insertShop, uuid, type, world, x, y, z, ownerId);
+		insertShop.executeUpdate();
+		return queryInsertedId(selectShop);
+	}
+
+	private static void setShopParameters(
+			PreparedStatement statement,
+			String uuid,
+			String type,
+			@Nullable String world,
+			int x,
+			int y,
+			int z,
+			@Nullable Long ownerId
+	) throws SQLException {
+		statement.setString(1, uuid);
+		statement.setString(2, type);
+		statement.setString(3, world);
+		statement.setInt(4, x);
+		statement.setInt(5, y);
+		statement.setInt(6, z);
+		statement.setObject(7, ownerId, Types.INTEGER);
+	}
+
+	@Override
+	public void close() {
+		for (PreparedStatement statement : statements) {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				// Ignored: The statements are closed together with their connection anyway.
+			}
+		}
+		statements.clear();
+	}
+}
@@ -0,0 +1,17 @@
+package com.nisovin.shopkeepers.tradelog.sqlite;
+
+/**
+ * The available values of SQLite's <code>synchronous</code> setting.
+ * <p>
+ * This controls how often SQLite syncs the written data to disk, i.e. the trade-off between
+ * durability and write performance. In WAL journal mode, {@link #NORMAL} is safe against database
+ * corruption, but the most recently committed transactions might be lost on a power failure or
+ * operating system crash.
+ */
+public enum SQLiteSynchronousMode {
+
+	OFF,
+	NORMAL,
+	FULL,
+	EXTRA
+}
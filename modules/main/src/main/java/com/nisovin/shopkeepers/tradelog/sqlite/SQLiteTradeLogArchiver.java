@@ -0,0 +1,300 @@
+package com.nisovin.shopkeepers.tradelog.sqlite;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * Moves old trades from the trade log database into monthly archive databases, and then releases
+ * the freed space of the trade log database.
+ * <p>
+ * The archive databases use the same schema as the trade log database. The dictionary entries
+ * referenced by the archived trades are copied with their ids.
+ * <p>
+ * In order to not block the writer of the {@link SQLiteTradeLogger}, the trades are moved in small
+ * chunks, each within its own short transaction, and the freed pages are released via incremental
+ * vacuuming in small steps. Incremental vacuuming is only enabled for databases that have been
+ * created with it. Otherwise, the freed pages are reused for subsequently logged trades.
+ */
+final class SQLiteTradeLogArchiver {
+
+	private static final String ARCHIVE_FILE_PREFIX = "trades-archive-";
+	private static final String ARCHIVE_FILE_EXTENSION = ".db";
+	private static final String ARCHIVE_SCHEMA = "archive";
+	private static final String CHUNK_TABLE = "temp.archive_chunk";
+
+	private static final int CHUNK_SIZE = 500;
+	private static final int VACUUM_PAGES_PER_STEP = 256;
+	// The maximum duration to wait for the writer to release its lock on the database:
+	static final int BUSY_TIMEOUT_MILLIS = 5000;
+
+	private static final String CREATE_CHUNK_TABLE = "CREATE TEMP TABLE IF NOT EXISTS archive_chunk"
+			+ " (id INTEGER PRIMARY KEY);";
+	private static final String SELECT_CHUNK = "INSERT INTO " + CHUNK_TABLE + " (id) "
+			+ "SELECT rowid FROM main." + SQLiteTradeLogSchema.TRADE_TABLE
+			+ " WHERE timestamp >= ? AND timestamp < ? ORDER BY rowid LIMIT " + CHUNK_SIZE + ";";
+	private static final String CHUNK_TRADES = "(SELECT t.* FROM main."
+			+ SQLiteTradeLogSchema.TRADE_TABLE + " t JOIN " + CHUNK_TABLE + " c ON c.id = t.rowid)";
+	private static final String COPY_SHOPS = "INSERT OR IGNORE INTO " + ARCHIVE_SCHEMA + "."
+			+ SQLiteTradeLogSchema.SHOP_TABLE + " SELECT * FROM main."
+			+ SQLiteTradeLogSchema.SHOP_TABLE
+			+ " WHERE id IN (SELECT shop_id FROM " + CHUNK_TRADES + ");";
+	private static final String COPY_PLAYERS = "INSERT OR IGNORE INTO " + ARCHIVE_SCHEMA + "."
+			+ SQLiteTradeLogSchema.PLAYER_TABLE + " SELECT * FROM main."
+			+ SQLiteTradeLogSchema.PLAYER_TABLE
+			+ " WHERE id IN (SELECT player_id FROM " + CHUNK_TRADES + ")"
+			+ " OR id IN (SELECT owner_id FROM main." + SQLiteTradeLogSchema.SHOP_TABLE
+			+ " WHERE id IN (SELECT shop_id FROM " + CHUNK_TRADES + "));";
+	private static final String COPY_ITEMS = "INSERT OR IGNORE INTO " + ARCHIVE_SCHEMA + "."
+			+ SQLiteTradeLogSchema.ITEM_TABLE + " SELECT * FROM main."
+			+ SQLiteTradeLogSchema.ITEM_TABLE
+			+ " WHERE id IN (SELECT item_1_id FROM " + CHUNK_TRADES
+			+ " UNION SELECT item_2_id FROM " + CHUNK_TRADES
+			+ " UNION SELECT result_item_id FROM " + CHUNK_TRADES + ");";
+	private static final String COPY_TRADES = "INSERT INTO " + ARCHIVE_SCHEMA + "."
+			+ SQLiteTradeLogSchema.TRADE_TABLE + " SELECT t.* FROM main."
+			+ SQLiteTradeLogSchema.TRADE_TABLE + " t JOIN " + CHUNK_TABLE
+			+ " c ON c.id = t.rowid ORDER BY t.rowid;";
+	private static final String DELETE_TRADES = "DELETE FROM main."
+			+ SQLiteTradeLogSchema.TRADE_TABLE
+			+ " WHERE rowid IN (SELECT id FROM " + CHUNK_TABLE + ");";
+	private static final String CLEAR_CHUNK = "DELETE FROM " + CHUNK_TABLE + ";";
+
+	// Checks if the archive contains dictionary entries that differ from the entries with the same
+	// ids in the trade log database, e.g. because the trade log database has been recreated:
+	private static final String CHECK_ARCHIVE_CONSISTENCY = "SELECT "
+			+ "EXISTS (SELECT 1 FROM " + ARCHIVE_SCHEMA + "." + SQLiteTradeLogSchema.ITEM_TABLE
+			+ " a JOIN main." + SQLiteTradeLogSchema.ITEM_TABLE + " m ON m.id = a.id"
+			+ " WHERE m.hash <> a.hash) "
+			+ "OR EXISTS (SELECT 1 FROM " + ARCHIVE_SCHEMA + "." + SQLiteTradeLogSchema.PLAYER_TABLE
+			+ " a JOIN main." + SQLiteTradeLogSchema.PLAYER_TABLE + " m ON m.id = a.id"
+			+ " WHERE m.uuid <> a.uuid OR m.name <> a.name) "
+			+ "OR EXISTS (SELECT 1 FROM " + ARCHIVE_SCHEMA + "." + SQLiteTradeLogSchema.SHOP_TABLE
+			+ " a JOIN main." + SQLiteTradeLogSchema.SHOP_TABLE + " m ON m.id = a.id"
+			+ " WHERE m.uuid <> a.uuid);";
+
+	/**
+	 * Archives the trades that are older than the given number of days.
+	 * 
+	 * @param connection
+	 *            a dedicated connection to the trade log database, not <code>null</code>
+	 * @param tradeLogsFolder
+	 *            the folder to store the archive databases in, not <code>null</code>
+	 * @param archiveAfterDays
+	 *            the minimum age in days of the trades to archive, at least <code>1</code>
+	 * @param cancelled
+	 *            checked between the archiving of individual chunks of trades
+	 * @param logPrefix
+	 *            the log prefix, not <code>null</code>
+	 * @return the number of bytes that have been released in the trade log database
+	 * @throws SQLException
+	 *             if the archiving fails
+	 */
+	static long archive(
+			Connection connection,
+			Path tradeLogsFolder,
+			int archiveAfterDays,
+			BooleanSupplier cancelled,
+			String logPrefix
+	) throws SQLException {
+		assert archiveAfterDays >= 1;
+		// Skip if the schema has not yet been set up or migrated:
+		if (SQLiteTradeLogSchema.getUserVersion(connection) != SQLiteTradeLogSchema.VERSION) {
+			return 0L;
+		}
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS + ";");
+			statement.execute(CREATE_CHUNK_TABLE);
+		}
+
+		long sizeBefore = getDatabaseSize(connection);
+
+		// The timestamps are stored as ISO 8601 UTC date times, which we can compare as strings:
+		String cutoff = LocalDate.now(ZoneOffset.UTC)
+				.minusDays(archiveAfterDays)
+				.atStartOfDay(ZoneOffset.UTC)
+				.toInstant()
+				.toString();
+		int archivedTrades = 0;
+		for (YearMonth month : getMonthsToArchive(connection, cutoff)) {
+			if (cancelled.getAsBoolean()) break;
+			Path archiveFile = tradeLogsFolder.resolve(
+					ARCHIVE_FILE_PREFIX + month + ARCHIVE_FILE_EXTENSION
+			);
+			archivedTrades += archiveMonth(
+					connection,
+					archiveFile,
+					month,
+					cutoff,
+					cancelled,
+					logPrefix
+			);
+		}
+
+		if (archivedTrades > 0) {
+			Log.info(logPrefix + "Archived " + archivedTrades + " trades.");
+		}
+
+		releaseFreePages(connection, cancelled);
+
+		return Math.max(sizeBefore - getDatabaseSize(connection), 0L);
+	}
+
+	private static List<YearMonth> getMonthsToArchive(Connection connection, String cutoff)
+			throws SQLException {
+		List<YearMonth> months = new ArrayList<>();
+		try (PreparedStatement statement = connection.prepareStatement(
+				"SELECT DISTINCT substr(timestamp, 1, 7) FROM " + SQLiteTradeLogSchema.TRADE_TABLE
+						+ " WHERE timestamp < ? ORDER BY 1;"
+		)) {
+			statement.setString(1, cutoff);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					months.add(YearMonth.parse(resultSet.getString(1)));
+				}
+			}
+		}
+		return months;
+	}
+
+	// Returns the number of archived trades.
+	private static int archiveMonth(
+			Connection connection,
+			Path archiveFile,
+			YearMonth month,
+			String cutoff,
+			BooleanSupplier cancelled,
+			String logPrefix
+	) throws SQLException {
+		// Create the schema of the archive database, if it does not exist yet:
+		String archiveURL = "jdbc:sqlite:" + archiveFile;
+		try (Connection archiveConnection = DriverManager.getConnection(archiveURL)) {
+			SQLiteTradeLogSchema.setup(archiveConnection, logPrefix);
+		}
+
+		String monthStart = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toString();
+		String monthEnd = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant()
+				.toString();
+		String end = (monthEnd.compareTo(cutoff) < 0) ? monthEnd : cutoff;
+
+		try (PreparedStatement attach = connection.prepareStatement(
+				"ATTACH DATABASE ? AS " + ARCHIVE_SCHEMA + ";"
+		)) {
+			attach.setString(1, archiveFile.toString());
+			attach.execute();
+		}
+
+		int archivedTrades = 0;
+		try {
+			if (SQLiteTradeLogSchema.queryInt(connection, CHECK_ARCHIVE_CONSISTENCY) != 0) {
+				Log.warning(logPrefix + "Skipping the archiving of trades of " + month
+						+ ": The archive database '" + archiveFile.getFileName()
+						+ "' does not match the trade log database.");
+				return 0;
+			}
+
+			try (	PreparedStatement selectChunk = connection.prepareStatement(SELECT_CHUNK);
+					Statement statement = connection.createStatement()) {
+				while (!cancelled.getAsBoolean()) {
+					int chunkSize = archiveChunk(
+							connection,
+							selectChunk,
+							statement,
+							monthStart,
+							end
+					);
+					if (chunkSize == 0) break;
+					archivedTrades += chunkSize;
+				}
+			}
+		} finally {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("DETACH DATABASE " + ARCHIVE_SCHEMA + ";");
+			}
+		}
+		return archivedTrades;
+	}
+
+	// Moves the next chunk of trades within a single transaction. Returns the number of moved
+	// trades.
+	private static int archiveChunk(
+			Connection connection,
+			PreparedStatement selectChunk,
+			Statement statement,
+			String start,
+			String end
+	) throws SQLException {
+		connection.setAutoCommit(false);
+		try {
+			statement.execute(CLEAR_CHUNK);
+			selectChunk.setString(1, start);
+			selectChunk.setString(2, end);
+			int chunkSize = selectChunk.executeUpdate();
+			if (chunkSize > 0) {
+				statement.execute(COPY_PLAYERS);
+				statement.execute(COPY_SHOPS);
+				statement.execute(COPY_ITEMS);
+				statement.execute(COPY_TRADES);
+				statement.execute(DELETE_TRADES);
+			}
+			statement.execute(CLEAR_CHUNK);
+			connection.commit();
+			return chunkSize;
+		} catch (SQLException e) {
+			try {
+				connection.rollback();
+			} catch (SQLException e2) {
+				e.addSuppressed(e2);
+			}
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	private static void releaseFreePages(Connection connection, BooleanSupplier cancelled)
+			throws SQLException {
+		if (SQLiteTradeLogSchema.queryInt(connection, "PRAGMA auto_vacuum;")
+				!= SQLiteTradeLogSchema.AUTO_VACUUM_INCREMENTAL) {
+			return;
+		}
+
+		try (Statement statement = connection.createStatement()) {
+			while (!cancelled.getAsBoolean()
+					&& SQLiteTradeLogSchema.queryInt(connection, "PRAGMA freelist_count;") > 0) {
+				// Each step runs within its own short transaction. The pages are released while
+				// stepping through the results of the pragma:
+				String sql = "PRAGMA incremental_vacuum(" + VACUUM_PAGES_PER_STEP + ");";
+				if (statement.execute(sql)) {
+					try (ResultSet resultSet = statement.getResultSet()) {
+						while (resultSet.next()) {
+							// Continue.
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static long getDatabaseSize(Connection connection) throws SQLException {
+		long pageCount = SQLiteTradeLogSchema.queryInt(connection, "PRAGMA page_count;");
+		long pageSize = SQLiteTradeLogSchema.queryInt(connection, "PRAGMA page_size;");
+		return pageCount * pageSize;
+	}
+
+	private SQLiteTradeLogArchiver() {
+	}
+}
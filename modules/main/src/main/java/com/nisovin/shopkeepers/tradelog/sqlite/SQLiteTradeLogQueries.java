@@ -0,0 +1,226 @@
+package com.nisovin.shopkeepers.tradelog.sqlite;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.tradelog.TradeVolume;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumeGrouping;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumePage;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumeQuery;
+import com.nisovin.shopkeepers.tradelog.TradeLogQueryTimeoutException;
+import com.nisovin.shopkeepers.util.java.StringUtils;
+
+/**
+ * Answers trade history queries from the trade log database.
+ * <p>
+ * The matching trades are selected via the <code>trade_timestamp</code>,
+ * <code>trade_shop</code>, and <code>trade_player</code> indices, most recent trades first, and
+ * only up to the row limit. Only the requested page of the aggregated groups is returned.
+ */
+final class SQLiteTradeLogQueries {
+
+	// Stored timestamps are formatted via Instant#toString, which omits the fractional seconds if
+	// they are zero. Bounds without the trailing zone designator and fractional seconds compare
+	// correctly with both variants.
+	private static final DateTimeFormatter TIMESTAMP_BOUND_FORMAT = DateTimeFormatter
+			.ofPattern("yyyy-MM-dd'T'HH:mm:ss")
+			.withZone(ZoneOffset.UTC);
+
+	/**
+	 * Aggregates the trades that match the given query.
+	 * 
+	 * @param connection
+	 *            a dedicated, read-only database connection, not <code>null</code>
+	 * @param query
+	 *            the query, not <code>null</code>
+	 * @param maxRows
+	 *            the maximum number of trades to aggregate
+	 * @param deadlineNanos
+	 *            the {@link System#nanoTime()} by which the query has to complete
+	 * @return the requested page of results
+	 * @throws SQLException
+	 *             if the query fails
+	 * @throws TradeLogQueryTimeoutException
+	 *             if the query exceeds its deadline
+	 */
+	static TradeVolumePage queryVolume(
+			Connection connection,
+			TradeVolumeQuery query,
+			int maxRows,
+			long deadlineNanos
+	) throws SQLException, TradeLogQueryTimeoutException {
+		List<String> parameters = new ArrayList<>();
+		String sql = buildVolumeQuery(query, parameters);
+		int offset = (query.getPage() - 1) * query.getPageSize();
+
+		long remainingNanos = deadlineNanos - System.nanoTime();
+		if (remainingNanos <= 0L) {
+			throw new TradeLogQueryTimeoutException("The query timed out before it was started!");
+		}
+
+		List<TradeVolume> entries = new ArrayList<>();
+		long scannedTrades = 0L;
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			// Rounded up, so that the statement is only interrupted once the deadline has passed:
+			long timeoutSeconds = (remainingNanos + TimeUnit.SECONDS.toNanos(1L) - 1L)
+					/ TimeUnit.SECONDS.toNanos(1L);
+			statement.setQueryTimeout((int) Math.min(timeoutSeconds, Integer.MAX_VALUE));
+			int index = 1;
+			for (String parameter : parameters) {
+				statement.setString(index++, parameter);
+			}
+			statement.setInt(index++, maxRows);
+			// One additional entry to determine if there is a next page:
+			statement.setInt(index++, query.getPageSize() + 1);
+			statement.setInt(index++, offset);
+
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					String key = StringUtils.getOrEmpty(resultSet.getString(1));
+					String label = StringUtils.getOrEmpty(resultSet.getString(2));
+					entries.add(new TradeVolume(
+							key,
+							label.isEmpty() ? key : label,
+							resultSet.getLong(3),
+							resultSet.getLong(4)
+					));
+					scannedTrades = resultSet.getLong(5);
+				}
+			}
+		} catch (SQLException e) {
+			if (System.nanoTime() - deadlineNanos >= 0L) {
+				throw new TradeLogQueryTimeoutException("The query timed out!", e);
+			}
+			throw e;
+		}
+
+		boolean hasNextPage = (entries.size() > query.getPageSize());
+		if (hasNextPage) {
+			entries.remove(entries.size() - 1);
+		}
+		boolean truncated = (scannedTrades >= maxRows);
+		return new TradeVolumePage(
+				entries,
+				query.getPage(),
+				hasNextPage,
+				scannedTrades,
+				truncated
+		);
+	}
+
+	/**
+	 * Configures the given connection for read-only queries.
+	 * 
+	 * @param connection
+	 *            the connection, not <code>null</code>
+	 * @throws SQLException
+	 *             if the connection cannot be configured
+	 */
+	static void prepareConnection(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA query_only = true;");
+			statement.execute("PRAGMA busy_timeout=" + SQLiteTradeLogArchiver.BUSY_TIMEOUT_MILLIS);
+		}
+	}
+
+	private static String formatTimestampBound(Instant instant) {
+		return TIMESTAMP_BOUND_FORMAT.format(instant);
+	}
+
+	// Adds the parameters of the filters to the given list.
+	private static String buildVolumeQuery(TradeVolumeQuery query, List<String> parameters) {
+		List<String> filters = new ArrayList<>();
+		@Nullable UUID shopId = query.getShopId();
+		if (shopId != null) {
+			filters.add("shop_id IN (SELECT id FROM " + SQLiteTradeLogSchema.SHOP_TABLE
+					+ " WHERE uuid = ?)");
+			parameters.add(shopId.toString());
+		}
+		@Nullable UUID playerId = query.getPlayerId();
+		if (playerId != null) {
+			filters.add("player_id IN (SELECT id FROM " + SQLiteTradeLogSchema.PLAYER_TABLE
+					+ " WHERE uuid = ?)");
+			parameters.add(playerId.toString());
+		}
+		@Nullable Instant from = query.getFrom();
+		if (from != null) {
+			filters.add("timestamp >= ?");
+			parameters.add(formatTimestampBound(from));
+		}
+		@Nullable Instant to = query.getTo();
+		if (to != null) {
+			filters.add("timestamp < ?");
+			parameters.add(formatTimestampBound(to));
+		}
+		String where = filters.isEmpty() ? "" : " WHERE " + String.join(" AND ", filters);
+
+		// The matching trades, most recent first, limited to the maximum number of rows:
+		String trades = "(SELECT * FROM " + SQLiteTradeLogSchema.TRADE_TABLE + where
+				+ " ORDER BY timestamp DESC LIMIT ?) t";
+
+		TradeVolumeGrouping grouping = query.getGrouping();
+		String key;
+		String label;
+		String join;
+		switch (grouping) {
+		case SHOP:
+			key = "s.uuid";
+			label = "MAX(s.type || COALESCE(' ' || s.world || ' ' || s.x || ',' || s.y || ','"
+					+ " || s.z, ''))";
+			join = " JOIN " + SQLiteTradeLogSchema.SHOP_TABLE + " s ON s.id = t.shop_id";
+			break;
+		case PLAYER:
+			key = "p.uuid";
+			label = "MAX(p.name)";
+			join = " JOIN " + SQLiteTradeLogSchema.PLAYER_TABLE + " p ON p.id = t.player_id";
+			break;
+		case ITEM:
+			key = "i.type";
+			label = "i.type";
+			join = " JOIN " + SQLiteTradeLogSchema.ITEM_TABLE + " i ON i.id = t.result_item_id";
+			break;
+		case HOUR:
+			key = "substr(t.timestamp, 1, 13)";
+			label = key;
+			join = "";
+			break;
+		case DAY:
+			key = "substr(t.timestamp, 1, 10)";
+			label = key;
+			join = "";
+			break;
+		case MONTH:
+			key = "substr(t.timestamp, 1, 7)";
+			label = key;
+			join = "";
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported grouping: " + grouping);
+		}
+
+		String order = grouping.isTimeBucket() ? "1 ASC" : "3 DESC, 1 ASC";
+		return "SELECT " + key + ", " + label + ", "
+				+ "SUM(t.trade_count), "
+				+ "SUM(t.result_item_amount * t.trade_count), "
+				+ "SUM(COUNT(*)) OVER () " // The total number of aggregated trades
+				+ "FROM " + trades + join
+				+ " GROUP BY " + key
+				+ " ORDER BY " + order
+				+ " LIMIT ? OFFSET ?;";
+	}
+
+	private SQLiteTradeLogQueries() {
+	}
+}
@@ -0,0 +1,400 @@
+package com.nisovin.shopkeepers.tradelog.sqlite;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.tradelog.TradeLogUtils;
+import com.nisovin.shopkeepers.util.java.LRUCache;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * The schema of the trade log database.
+ * <p>
+ * Schema versions:
+ * <ul>
+ * <li>1: A single flat <code>trade</code> table that stores the complete player, shop, and item
+ * data for every trade.
+ * <li>2: Items, players, and shops are stored in separate dictionary tables, and the
+ * <code>trade</code> rows reference them by id. The <code>trade_flat</code> view provides the
+ * trades in the previous flat format.
+ * </ul>
+ * The schema version is stored as the database's <code>user_version</code>. Databases with the
+ * previous flat schema are migrated during the setup.
+ */
+final class SQLiteTradeLogSchema {
+
+	static final int VERSION = 2;
+
+	static final String TRADE_TABLE = "trade";
+	static final String ITEM_TABLE = "item";
+	static final String PLAYER_TABLE = "player";
+	static final String SHOP_TABLE = "shop";
+	static final String TRADE_FLAT_VIEW = "trade_flat";
+
+	private static final String LEGACY_TRADE_TABLE = "trade_v1";
+
+	// Note: SQLite does not have rigid data types, but storage classes and type affinity. The data
+	// types specified here are not enforced by SQLite or us, but only used to document the expected
+	// structure of the data.
+	private static final String CREATE_ITEM_TABLE = "CREATE TABLE IF NOT EXISTS " + ITEM_TABLE
+			+ " ("
+			+ "id INTEGER PRIMARY KEY, "
+			+ "hash CHARACTER(64) NOT NULL UNIQUE, " // SHA-256 of the item type and metadata
+			+ "type VARCHAR(64) NOT NULL, "
+			+ "metadata TEXT NOT NULL" // Empty string if the item has no metadata
+			+ ");";
+	private static final String CREATE_PLAYER_TABLE = "CREATE TABLE IF NOT EXISTS " + PLAYER_TABLE
+			+ " ("
+			+ "id INTEGER PRIMARY KEY, "
+			+ "uuid CHARACTER(36) NOT NULL, "
+			+ "name VARCHAR(16) NOT NULL, "
+			+ "UNIQUE (uuid, name)"
+			+ ");";
+	private static final String CREATE_SHOP_TABLE = "CREATE TABLE IF NOT EXISTS " + SHOP_TABLE
+			+ " ("
+			+ "id INTEGER PRIMARY KEY, "
+			+ "uuid CHARACTER(36) NOT NULL, "
+			+ "type VARCHAR(32) NOT NULL, "
+			+ "world VARCHAR(32), " // Null for virtual shops
+			+ "x INTEGER NOT NULL, " // 0 for virtual shops
+			+ "y INTEGER NOT NULL, "
+			+ "z INTEGER NOT NULL, "
+			+ "owner_id INTEGER REFERENCES " + PLAYER_TABLE + " (id)" // Null for admin shops
+			+ ");";
+	private static final String CREATE_SHOP_INDEX = "CREATE INDEX IF NOT EXISTS shop_uuid ON "
+			+ SHOP_TABLE + " (uuid);";
+	private static final String CREATE_TRADE_TABLE = "CREATE TABLE IF NOT EXISTS " + TRADE_TABLE
+			+ " ("
+			+ "timestamp VARCHAR(30) NOT NULL, " // ISO 8601 UTC date time with fractional seconds
+			+ "player_id INTEGER NOT NULL REFERENCES " + PLAYER_TABLE + " (id), "
+			+ "shop_id INTEGER NOT NULL REFERENCES " + SHOP_TABLE + " (id), "
+			+ "item_1_id INTEGER NOT NULL REFERENCES " + ITEM_TABLE + " (id), "
+			+ "item_1_amount TINYINT UNSIGNED NOT NULL, "
+			+ "item_2_id INTEGER REFERENCES " + ITEM_TABLE + " (id), " // Second item is optional
+			+ "item_2_amount TINYINT UNSIGNED, "
+			+ "result_item_id INTEGER NOT NULL REFERENCES " + ITEM_TABLE + " (id), "
+			+ "result_item_amount TINYINT UNSIGNED NOT NULL, "
+			+ "trade_count SMALLINT UNSIGNED NOT NULL"
+			+ ");";
+	private static final String CREATE_TRADE_TIMESTAMP_INDEX = "CREATE INDEX IF NOT EXISTS "
+			+ "trade_timestamp ON " + TRADE_TABLE + " (timestamp);";
+	// Used by the trade history queries that are restricted to a specific shop or player:
+	private static final String CREATE_TRADE_SHOP_INDEX = "CREATE INDEX IF NOT EXISTS "
+			+ "trade_shop ON " + TRADE_TABLE + " (shop_id, timestamp);";
+	private static final String CREATE_TRADE_PLAYER_INDEX = "CREATE INDEX IF NOT EXISTS "
+			+ "trade_player ON " + TRADE_TABLE + " (player_id, timestamp);";
+	private static final String CREATE_TRADE_FLAT_VIEW = "CREATE VIEW IF NOT EXISTS "
+			+ TRADE_FLAT_VIEW + " AS SELECT "
+			+ "t.timestamp AS timestamp, "
+			+ "p.uuid AS player_uuid, p.name AS player_name, "
+			+ "s.uuid AS shop_uuid, s.type AS shop_type, s.world AS shop_world, "
+			+ "s.x AS shop_x, s.y AS shop_y, s.z AS shop_z, "
+			+ "o.uuid AS shop_owner_uuid, o.name AS shop_owner_name, "
+			+ "i1.type AS item_1_type, t.item_1_amount AS item_1_amount, "
+			+ "i1.metadata AS item_1_metadata, "
+			+ "i2.type AS item_2_type, t.item_2_amount AS item_2_amount, "
+			+ "i2.metadata AS item_2_metadata, "
+			+ "r.type AS result_item_type, t.result_item_amount AS result_item_amount, "
+			+ "r.metadata AS result_item_metadata, "
+			+ "t.trade_count AS trade_count "
+			+ "FROM " + TRADE_TABLE + " t "
+			+ "JOIN " + PLAYER_TABLE + " p ON p.id = t.player_id "
+			+ "JOIN " + SHOP_TABLE + " s ON s.id = t.shop_id "
+			+ "LEFT JOIN " + PLAYER_TABLE + " o ON o.id = s.owner_id "
+			+ "JOIN " + ITEM_TABLE + " i1 ON i1.id = t.item_1_id "
+			+ "LEFT JOIN " + ITEM_TABLE + " i2 ON i2.id = t.item_2_id "
+			+ "JOIN " + ITEM_TABLE + " r ON r.id = t.result_item_id;";
+
+	static final String INSERT_TRADE = "INSERT INTO " + TRADE_TABLE
+			+ " (timestamp, player_id, shop_id, "
+			+ "item_1_id, item_1_amount, "
+			+ "item_2_id, item_2_amount, "
+			+ "result_item_id, result_item_amount, "
+			+ "trade_count) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+	private static final int MIGRATION_BATCH_SIZE = 1000;
+	private static final int MIGRATION_CACHE_SIZE = 1024;
+
+	/**
+	 * Creates the tables of the current schema version, and migrates the data of previous schema
+	 * versions.
+	 * <p>
+	 * The migration is performed within a single transaction.
+	 * 
+	 * @param connection
+	 *            the database connection, in auto-commit mode, not <code>null</code>
+	 * @param logPrefix
+	 *            the log prefix, not <code>null</code>
+	 * @throws SQLException
+	 *             if the setup fails
+	 */
+	static void setup(Connection connection, String logPrefix) throws SQLException {
+		enableIncrementalVacuum(connection, logPrefix);
+
+		int version = getUserVersion(connection);
+		if (version >= VERSION) {
+			createTables(connection);
+			return;
+		}
+
+		boolean migrate = hasFlatTradeTable(connection);
+		connection.setAutoCommit(false);
+		try {
+			if (migrate) {
+				Log.info(logPrefix + "Migrating the database to schema version " + VERSION
+						+ ". This might take a while ...");
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("ALTER TABLE " + TRADE_TABLE + " RENAME TO "
+							+ LEGACY_TRADE_TABLE + ";");
+				}
+			}
+
+			createTables(connection);
+
+			if (migrate) {
+				int migratedTrades = migrateFlatTrades(connection);
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("DROP TABLE " + LEGACY_TRADE_TABLE + ";");
+				}
+				Log.info(logPrefix + "Migrated " + migratedTrades + " trades.");
+			}
+
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("PRAGMA user_version = " + VERSION + ";");
+			}
+			connection.commit();
+		} catch (SQLException e) {
+			try {
+				connection.rollback();
+			} catch (SQLException e2) {
+				e.addSuppressed(e2);
+			}
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	private static void createTables(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(CREATE_ITEM_TABLE);
+			statement.execute(CREATE_PLAYER_TABLE);
+			statement.execute(CREATE_SHOP_TABLE);
+			statement.execute(CREATE_SHOP_INDEX);
+			statement.execute(CREATE_TRADE_TABLE);
+			statement.execute(CREATE_TRADE_TIMESTAMP_INDEX);
+			statement.execute(CREATE_TRADE_SHOP_INDEX);
+			statement.execute(CREATE_TRADE_PLAYER_INDEX);
+			statement.execute(CREATE_TRADE_FLAT_VIEW);
+		}
+	}
+
+	// Incremental vacuuming allows the trade log maintenance to release the space of archived
+	// trades in small steps, without blocking the writer for the duration of a full vacuum.
+	// Changing the auto-vacuum mode of an existing database requires a full vacuum, which blocks
+	// the database and rewrites the whole file. We therefore only enable incremental vacuuming for
+	// new databases. For existing databases, the space of archived trades is not released, but
+	// reused for subsequently logged trades.
+	private static void enableIncrementalVacuum(Connection connection, String logPrefix)
+			throws SQLException {
+		if (queryInt(connection, "PRAGMA auto_vacuum;") == AUTO_VACUUM_INCREMENTAL) return;
+
+		boolean isNew = (queryInt(connection, "PRAGMA page_count;") == 0);
+		if (!isNew) {
+			Log.debug(() -> logPrefix + "Incremental vacuuming is not enabled for the existing"
+					+ " database. The space of archived trades is reused for new trades.");
+			return;
+		}
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA auto_vacuum = INCREMENTAL;");
+		}
+	}
+
+	static int getUserVersion(Connection connection) throws SQLException {
+		return queryInt(connection, "PRAGMA user_version;");
+	}
+
+	static int queryInt(Connection connection, String sql) throws SQLException {
+		try (	Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery(sql)) {
+			return resultSet.next() ? resultSet.getInt(1) : 0;
+		}
+	}
+
+	// Checks if the trade table exists and uses the flat schema of version 1.
+	private static boolean hasFlatTradeTable(Connection connection) throws SQLException {
+		try (	Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery(
+						"PRAGMA table_info(" + TRADE_TABLE + ");"
+				)) {
+			while (resultSet.next()) {
+				if ("player_uuid".equals(resultSet.getString("name"))) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	// Returns the number of migrated trades.
+	private static int migrateFlatTrades(Connection connection) throws SQLException {
+		Map<String, Long> itemIds = new LRUCache<>(MIGRATION_CACHE_SIZE);
+		Map<String, Long> playerIds = new LRUCache<>(MIGRATION_CACHE_SIZE);
+		int migratedTrades = 0;
+		try (	SQLiteDictionaries dictionaries = new SQLiteDictionaries(connection);
+				PreparedStatement insertStatement = connection.prepareStatement(INSERT_TRADE);
+				Statement selectStatement = connection.createStatement();
+				ResultSet trades = selectStatement.executeQuery(
+						"SELECT * FROM " + LEGACY_TRADE_TABLE + " ORDER BY rowid;"
+				)) {
+			while (trades.next()) {
+				long playerId = getPlayerId(
+						dictionaries,
+						playerIds,
+						trades.getString("player_uuid"),
+						trades.getString("player_name")
+				);
+
+				@Nullable Long shopOwnerId = null;
+				String shopOwnerUUID = trades.getString("shop_owner_uuid");
+				if (shopOwnerUUID != null) {
+					shopOwnerId = getPlayerId(
+							dictionaries,
+							playerIds,
+							shopOwnerUUID,
+							trades.getString("shop_owner_name")
+					);
+				}
+				long shopId = dictionaries.getShopId(
+						trades.getString("shop_uuid"),
+						trades.getString("shop_type"),
+						trades.getString("shop_world"),
+						trades.getInt("shop_x"),
+						trades.getInt("shop_y"),
+						trades.getInt("shop_z"),
+						shopOwnerId
+				);
+
+				long item1Id = getItemId(
+						dictionaries,
+						itemIds,
+						trades.getString("item_1_type"),
+						trades.getString("item_1_metadata")
+				);
+				@Nullable Long item2Id = null;
+				@Nullable Integer item2Amount = null;
+				String item2Type = trades.getString("item_2_type");
+				if (item2Type != null) {
+					item2Id = getItemId(
+							dictionaries,
+							itemIds,
+							item2Type,
+							trades.getString("item_2_metadata")
+					);
+					item2Amount = trades.getInt("item_2_amount");
+				}
+				long resultItemId = getItemId(
+						dictionaries,
+						itemIds,
+						trades.getString("result_item_type"),
+						trades.getString("result_item_metadata")
+				);
+
+				setTradeParameters(
+						insertStatement,
+						trades.getString("timestamp"),
+						playerId,
+						shopId,
+						item1Id,
+						trades.getInt("item_1_amount"),
+						item2Id,
+						item2Amount,
+						resultItemId,
+						trades.getInt("result_item_amount"),
+						trades.getInt("trade_count")
+				);
+				insertStatement.addBatch();
+
+				migratedTrades++;
+				if (migratedTrades % MIGRATION_BATCH_SIZE == 0) {
+					insertStatement.executeBatch();
+				}
+			}
+			insertStatement.executeBatch();
+		}
+		return migratedTrades;
+	}
+
+	private static long getPlayerId(
+			SQLiteDictionaries dictionaries,
+			Map<String, Long> playerIds,
+			String uuid,
+			String name
+	) throws SQLException {
+		String key = uuid + "\n" + name;
+		Long playerId = playerIds.get(key);
+		if (playerId == null) {
+			playerId = dictionaries.getPlayerId(uuid, name);
+			playerIds.put(key, playerId);
+		}
+		return playerId;
+	}
+
+	private static long getItemId(
+			SQLiteDictionaries dictionaries,
+			Map<String, Long> itemIds,
+			String type,
+			@Nullable String metadata
+	) throws SQLException {
+		String nonNullMetadata = (metadata != null) ? metadata : "";
+		String hash = TradeLogUtils.getItemContentHash(type, nonNullMetadata);
+		Long itemId = itemIds.get(hash);
+		if (itemId == null) {
+			itemId = dictionaries.getItemId(hash, type, nonNullMetadata);
+			itemIds.put(hash, itemId);
+		}
+		return itemId;
+	}
+
+	/**
+	 * Sets the parameters of the {@link #INSERT_TRADE} statement.
+	 */
+	static void setTradeParameters(
+			PreparedStatement insertStatement,
+			String timestamp,
+			long playerId,
+			long shopId,
+			long item1Id,
+			int item1Amount,
+			@Nullable Long item2Id,
+			@Nullable Integer item2Amount,
+			long resultItemId,
+			int resultItemAmount,
+			int tradeCount
+	) throws SQLException {
+		insertStatement.setString(1, timestamp); // timestamp as ISO UTC
+		insertStatement.setLong(2, playerId); // player_id
+		insertStatement.setLong(3, shopId); // shop_id
+		insertStatement.setLong(4, item1Id); // item_1_id
+		insertStatement.setInt(5, item1Amount); // item_1_amount
+		insertStatement.setObject(6, item2Id, Types.INTEGER); // item_2_id
+		insertStatement.setObject(7, item2Amount, Types.TINYINT); // item_2_amount
+		insertStatement.setLong(8, resultItemId); // result_item_id
+		insertStatement.setInt(9, resultItemAmount); // result_item_amount
+		insertStatement.setInt(10, tradeCount); // trade_count
+	}
+
+	private SQLiteTradeLogSchema() {
+	}
+}
@@ -5,74 +5,69 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Types;
-import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import org.bukkit.plugin.Plugin;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumePage;
+import com.nisovin.shopkeepers.api.tradelog.TradeVolumeQuery;
 import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+import com.nisovin.shopkeepers.config.Settings;
+import com.nisovin.shopkeepers.tradelog.QueryableTradeLogger;
 import com.nisovin.shopkeepers.tradelog.TradeLogStorageType;
 import com.nisovin.shopkeepers.tradelog.base.AbstractFileTradeLogger;
+import com.nisovin.shopkeepers.tradelog.base.LoggedItem;
 import com.nisovin.shopkeepers.tradelog.data.PlayerRecord;
 import com.nisovin.shopkeepers.tradelog.data.ShopRecord;
 import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
+import com.nisovin.shopkeepers.util.java.LRUCache;
 import com.nisovin.shopkeepers.util.logging.Log;
 
 /**
  * Logs trades to an SQLite database.
+ * <p>
+ * The writer keeps a single database connection open in WAL journal mode, reuses the prepared
+ * insert statement, and inserts each batch of pending trades within a single transaction.
+ * <p>
+ * Items, players, and shops are stored in dictionary tables that are referenced by the trades (see
+ * {@link SQLiteTradeLogSchema}). The dictionary ids of recently logged items, players, and shops
+ * are cached.
+ * <p>
+ * Trade history queries are answered via a separate connection (see
+ * {@link SQLiteTradeLogQueries}).
  */
-public class SQLiteTradeLogger extends AbstractFileTradeLogger {
+public class SQLiteTradeLogger extends AbstractFileTradeLogger implements QueryableTradeLogger {
 
 	private static final String FILE_NAME = "trades.db";
-	private static final String TABLE_NAME = "trade";
-	// Note: SQLite does not have rigid data types, but storage classes and type affinity. The data
-	// types specified here are not enforced by SQLite or us, but only used to document the expected
-	// structure of the data.
-	private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
-			+ "timestamp VARCHAR(30) NOT NULL, " // ISO 8601 UTC date time with fractional seconds
-			+ "player_uuid CHARACTER(36) NOT NULL, "
-			+ "player_name VARCHAR(16) NOT NULL, "
-			+ "shop_uuid CHARACTER(36) NOT NULL, "
-			+ "shop_type VARCHAR(32) NOT NULL, "
-			+ "shop_world VARCHAR(32), " // Null for virtual shops
-			+ "shop_x INTEGER NOT NULL, " // 0 for virtual shops
-			+ "shop_y INTEGER NOT NULL, "
-			+ "shop_z INTEGER NOT NULL, "
-			+ "shop_owner_uuid CHARACTER(36), " // Shop owner, null for admin shops
-			+ "shop_owner_name VARCHAR(16), "
-			+ "item_1_type VARCHAR(64) NOT NULL, "
-			+ "item_1_amount TINYINT UNSIGNED NOT NULL, "
-			+ "item_1_metadata TEXT NOT NULL, " // Empty string if the item has no metadata
-			+ "item_2_type VARCHAR(64), " // Second item is optional and can thus be null
-			+ "item_2_amount TINYINT UNSIGNED, "
-			+ "item_2_metadata TEXT, "
-			+ "result_item_type VARCHAR(64) NOT NULL, "
-			+ "result_item_amount TINYINT UNSIGNED NOT NULL, "
-			+ "result_item_metadata TEXT NOT NULL, "
-			+ "trade_count SMALLINT UNSIGNED NOT NULL"
-			+ ");";
-	private static final String INSERT_TRADE = "INSERT INTO " + TABLE_NAME
-			+ "(timestamp, "
-			+ "player_uuid, player_name, "
-			+ "shop_uuid, shop_type, shop_world, shop_x, shop_y, shop_z, "
-			+ "shop_owner_uuid, shop_owner_name, "
-			+ "item_1_type, item_1_amount, item_1_metadata, "
-			+ "item_2_type, item_2_amount, item_2_metadata, "
-			+ "result_item_type, result_item_amount, result_item_metadata, "
-			+ "trade_count) "
-			+ "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final int DICTIONARY_CACHE_SIZE = 256;
 
 	private final String connectionURL;
+	private final SQLiteSynchronousMode synchronousMode;
+	private final int archiveAfterDays; // 0 to not archive old trades
 
-	private volatile @Nullable String setupFailureReason = null;
+	// Only accessed by the writer, i.e. the currently running write task, and during shutdown:
+	private @Nullable Connection connection = null;
+	private @Nullable PreparedStatement insertStatement = null;
+	private @Nullable SQLiteDictionaries dictionaries = null;
+	// The cached dictionary ids are only valid for committed transactions:
+	private final Map<PlayerRecord, Long> playerIds = new LRUCache<>(DICTIONARY_CACHE_SIZE);
+	private final Map<ShopRecord, Long> shopIds = new LRUCache<>(DICTIONARY_CACHE_SIZE);
+
+	// Throughput metrics, only accessed by the writer:
+	private long totalInsertedRows = 0L;
+	private long totalInsertNanos = 0L;
 
 	public SQLiteTradeLogger(Plugin plugin) {
 		super(plugin, TradeLogStorageType.SQLITE);
 
 		this.connectionURL = "jdbc:sqlite:" + tradeLogsFolder.resolve(FILE_NAME);
-
-		this.createTable();
+		this.synchronousMode = Settings.tradeLogSqliteSynchronous;
+		this.archiveAfterDays = Settings.tradeLogArchiveAfterDays;
 	}
 
 	private Connection getConnection() throws SQLException {
@@ -80,122 +75,239 @@ public class SQLiteTradeLogger extends AbstractFileTradeLogger {
 	}
 
 	@Override
-	protected void asyncSetup() {
-		super.asyncSetup();
+	public void setup() throws Exception {
+		// Note: This might migrate the data of a previous schema version, which can take a while.
+		// If this fails, the setup is attempted again prior to the next write. Meanwhile, the
+		// trades are kept pending.
+		try (Connection connection = getConnection()) {
+			SQLiteTradeLogSchema.setup(connection, logPrefix);
+		}
+	}
+
+	// Opens the connection and prepares the statements, if not already done.
+	private PreparedStatement getInsertStatement() throws SQLException {
+		PreparedStatement insertStatement = this.insertStatement;
+		if (insertStatement != null) return insertStatement;
+
+		Connection connection = this.getConnection();
+		SQLiteDictionaries dictionaries;
+		try {
+			try (Statement statement = connection.createStatement()) {
+				// The journal mode is persistent, but the synchronous setting is per connection:
+				statement.execute("PRAGMA journal_mode=WAL");
+				statement.execute("PRAGMA synchronous=" + synchronousMode.name());
+				// Wait for any concurrent trade log maintenance to release its lock:
+				statement.execute(
+						"PRAGMA busy_timeout=" + SQLiteTradeLogArchiver.BUSY_TIMEOUT_MILLIS
+				);
+			}
+			connection.setAutoCommit(false);
+			insertStatement = connection.prepareStatement(SQLiteTradeLogSchema.INSERT_TRADE);
+			dictionaries = new SQLiteDictionaries(connection);
+		} catch (SQLException e) {
+			this.closeConnection(connection);
+			throw e;
+		}
+
+		this.connection = connection;
+		this.insertStatement = insertStatement;
+		this.dictionaries = dictionaries;
+		return insertStatement;
+	}
+
+	private void closeConnection(@Nullable Connection connection) {
+		if (connection == null) return;
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			Log.severe(logPrefix + "Failed to close the database connection!", e);
+		}
+	}
 
-		this.createTable();
+	// Closes the connection and any prepared statements. The connection is re-opened on demand.
+	// Also discards all cached dictionary ids, since they might refer to rolled back inserts.
+	private void resetConnection() {
+		PreparedStatement insertStatement = this.insertStatement;
+		if (insertStatement != null) {
+			try {
+				insertStatement.close();
+			} catch (SQLException e) {
+				Log.debug(() -> logPrefix + "Failed to close the insert statement: " + e);
+			}
+		}
+		SQLiteDictionaries dictionaries = this.dictionaries;
+		if (dictionaries != null) {
+			dictionaries.close();
+		}
+		this.closeConnection(this.connection);
+		this.insertStatement = null;
+		this.dictionaries = null;
+		this.connection = null;
+
+		this.clearItemCache();
+		playerIds.clear();
+		shopIds.clear();
 	}
 
 	@Override
-	protected void postSetup() {
-		var setupFailureReason = this.setupFailureReason;
-		if (setupFailureReason != null) {
-			this.disable(setupFailureReason);
+	public void close() {
+		this.resetConnection();
+	}
+
+	@Override
+	public long performMaintenance(BooleanSupplier cancelled) throws Exception {
+		if (archiveAfterDays <= 0) return 0L; // Disabled
+
+		// Uses a dedicated connection, independent of the writer:
+		try (Connection connection = this.getConnection()) {
+			return SQLiteTradeLogArchiver.archive(
+					connection,
+					tradeLogsFolder,
+					archiveAfterDays,
+					cancelled,
+					logPrefix
+			);
 		}
 	}
 
-	private void createTable() {
-		try (	Connection connection = getConnection();
-				Statement statement = connection.createStatement()) {
-			statement.execute(CREATE_TABLE);
-		} catch (SQLException e) {
-			setupFailureReason = "Could not create table '" + TABLE_NAME + "'.";
-			Log.severe(logPrefix + setupFailureReason, e);
+	@Override
+	public TradeVolumePage queryVolume(TradeVolumeQuery query, int maxRows, long deadlineNanos)
+			throws Exception {
+		// Uses a dedicated connection, independent of the writer. In WAL journal mode, the query
+		// does not block the writer.
+		try (Connection connection = this.getConnection()) {
+			SQLiteTradeLogQueries.prepareConnection(connection);
+			return SQLiteTradeLogQueries.queryVolume(connection, query, maxRows, deadlineNanos);
 		}
 	}
 
 	@Override
 	protected void writeTrades(SaveContext saveContext) throws Exception {
-		TradeRecord trade = saveContext.getNextUnsavedTrade();
-		if (trade == null) return; // There are no unsaved trades
-
-		boolean done = false;
-		// TODO Keep the connection open? Cache the PreparedStatement?
-		try (	Connection connection = this.getConnection();
-				PreparedStatement insertStatement = connection.prepareStatement(INSERT_TRADE)) {
-			do {
-				this.insertTrade(insertStatement, trade);
-
-				// Trade successfully saved:
-				saveContext.onTradeSuccessfullySaved();
-
-				// Get the next trade to insert:
-				trade = saveContext.getNextUnsavedTrade();
-				if (trade == null) break; // There are no more trades to save
-			} while (true);
-
-			// We are about to close the connection:
-			done = true;
+		List<? extends TradeRecord> trades = saveContext.getUnsavedTrades();
+		if (trades.isEmpty()) return; // There are no unsaved trades
+
+		long startNanos = System.nanoTime();
+		PreparedStatement insertStatement = this.getInsertStatement();
+		SQLiteDictionaries dictionaries = Unsafe.assertNonNull(this.dictionaries);
+		Connection connection = insertStatement.getConnection();
+		try {
+			// All trades of the batch, and any new dictionary entries, are inserted within a
+			// single transaction:
+			for (TradeRecord trade : trades) {
+				this.insertTrade(insertStatement, dictionaries, trade);
+				insertStatement.addBatch();
+			}
+			insertStatement.executeBatch();
+			connection.commit();
 		} catch (SQLException e) {
-			if (!done) {
-				throw e;
-			} else {
-				// Since all inserts completed successfully, we assume that the trades have been
-				// successfully saved. We therefore ignore any exceptions raised during the closing
-				// of the connection: The exception is still logged, but it does not trigger a retry
-				// of the trade log attempt.
-				Log.severe("Failed to close the database connection!", e);
+			// The transaction is rolled back, so none of the trades of this batch have been saved.
+			// We also reset the connection, in case it is no longer usable, and then retry the
+			// complete batch:
+			try {
+				insertStatement.clearBatch();
+				connection.rollback();
+			} catch (SQLException e2) {
+				e.addSuppressed(e2);
+			}
+			this.resetConnection();
+			throw e;
+		}
+
+		// Trades successfully saved:
+		int rows = trades.size();
+		saveContext.onTradesSuccessfullySaved(rows);
+
+		long durationNanos = System.nanoTime() - startNanos;
+		totalInsertedRows += rows;
+		totalInsertNanos += durationNanos;
+		Log.debug(() -> logPrefix + "Inserted " + rows + " trades in "
+				+ TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms ("
+				+ getRowsPerSecond(rows, durationNanos) + " rows/s; total: " + totalInsertedRows
+				+ " trades, " + getRowsPerSecond(totalInsertedRows, totalInsertNanos) + " rows/s)");
+	}
+
+	private static long getRowsPerSecond(long rows, long nanos) {
+		if (nanos <= 0L) return 0L;
+		return rows * TimeUnit.SECONDS.toNanos(1L) / nanos;
+	}
+
+	private long getPlayerId(SQLiteDictionaries dictionaries, PlayerRecord player)
+			throws SQLException {
+		Long playerId = playerIds.get(player);
+		if (playerId == null) {
+			playerId = dictionaries.getPlayerId(player.getUniqueId().toString(), player.getName());
+			playerIds.put(player, playerId);
+		}
+		return playerId;
+	}
+
+	private long getShopId(SQLiteDictionaries dictionaries, ShopRecord shop) throws SQLException {
+		Long shopId = shopIds.get(shop);
+		if (shopId == null) {
+			PlayerRecord shopOwner = shop.getOwner();
+			@Nullable Long shopOwnerId = null;
+			if (shopOwner != null) {
+				shopOwnerId = this.getPlayerId(dictionaries, shopOwner);
 			}
+			shopId = dictionaries.getShopId(
+					shop.getUniqueId().toString(),
+					shop.getTypeId(),
+					shop.getWorldName(),
+					shop.getX(),
+					shop.getY(),
+					shop.getZ(),
+					shopOwnerId
+			);
+			shopIds.put(shop, shopId);
 		}
+		return shopId;
 	}
 
-	private void insertTrade(PreparedStatement insertStatement, TradeRecord trade)
+	private long getItemId(SQLiteDictionaries dictionaries, UnmodifiableItemStack itemStack)
 			throws SQLException {
-		Instant timestamp = trade.getTimestamp();
-		PlayerRecord player = trade.getPlayer();
-
-		ShopRecord shop = trade.getShop();
-		PlayerRecord shopOwner = shop.getOwner();
-		@Nullable String shopOwnerId = null;
-		@Nullable String shopOwnerName = null;
-		if (shopOwner != null) {
-			shopOwnerId = shopOwner.getUniqueId().toString();
-			shopOwnerName = shopOwner.getName();
+		LoggedItem loggedItem = this.getLoggedItem(itemStack);
+		long itemId = loggedItem.getDictionaryId();
+		if (itemId == LoggedItem.NO_DICTIONARY_ID) {
+			itemId = dictionaries.getItemId(
+					loggedItem.getContentHash(),
+					loggedItem.getType(),
+					loggedItem.getMetadata()
+			);
+			loggedItem.setDictionaryId(itemId);
 		}
+		return itemId;
+	}
+
+	private void insertTrade(
+			PreparedStatement insertStatement,
+			SQLiteDictionaries dictionaries,
+			TradeRecord trade
+	) throws SQLException {
+		long playerId = this.getPlayerId(dictionaries, trade.getPlayer());
+		long shopId = this.getShopId(dictionaries, trade.getShop());
 
 		UnmodifiableItemStack resultItem = trade.getResultItem();
 		UnmodifiableItemStack item1 = trade.getItem1();
 		UnmodifiableItemStack item2 = trade.getItem2(); // Can be null
-		@Nullable String item2Type = null;
+		@Nullable Long item2Id = null;
 		@Nullable Integer item2Amount = null;
-		@Nullable String item2Metadata = null;
 		if (item2 != null) {
-			item2Type = item2.getType().name(); // TODO Store the namespaced key instead
+			item2Id = this.getItemId(dictionaries, item2);
 			item2Amount = item2.getAmount();
-			item2Metadata = this.getItemMetadata(item2);
 		}
 
-		insertStatement.setString(1, timestamp.toString()); // timestamp as ISO UTC
-
-		insertStatement.setString(2, player.getUniqueId().toString()); // player_uuid
-		insertStatement.setString(3, player.getName()); // player_name
-
-		insertStatement.setString(4, shop.getUniqueId().toString()); // shop_uuid
-		insertStatement.setString(5, shop.getTypeId()); // shop_type
-		insertStatement.setString(6, shop.getWorldName()); // shop_world
-		insertStatement.setInt(7, shop.getX()); // shop_x
-		insertStatement.setInt(8, shop.getY()); // shop_y
-		insertStatement.setInt(9, shop.getZ()); // shop_z
-
-		insertStatement.setString(10, shopOwnerId); // shop_owner_uuid
-		insertStatement.setString(11, shopOwnerName); // shop_owner_name
-
-		// TODO Store the namespaced key instead
-		insertStatement.setString(12, item1.getType().name()); // item_1_type
-		insertStatement.setInt(13, item1.getAmount()); // item_1_amount
-		insertStatement.setString(14, this.getItemMetadata(item1)); // item_1_metadata
-
-		insertStatement.setString(15, item2Type); // item_2_type
-		insertStatement.setObject(16, item2Amount, Types.TINYINT); // item_2_amount
-		insertStatement.setString(17, item2Metadata); // item_2_metadata
-
-		// TODO Store the namespaced key instead
-		insertStatement.setString(18, resultItem.getType().name()); // result_item_type
-		insertStatement.setInt(19, resultItem.getAmount()); // result_item_amount
-		insertStatement.setString(20, this.getItemMetadata(resultItem)); // result_item_metadata
-
-		insertStatement.setInt(21, trade.getTradeCount()); // trade_count
-
-		insertStatement.executeUpdate();
+		SQLiteTradeLogSchema.setTradeParameters(
+				insertStatement,
+				trade.getTimestamp().toString(),
+				playerId,
+				shopId,
+				this.getItemId(dictionaries, item1),
+				item1.getAmount(),
+				item2Id,
+				item2Amount,
+				this.getItemId(dictionaries, resultItem),
+				resultItem.getAmount(),
+				trade.getTradeCount()
+		);
 	}
 }
@@ -0,0 +1,136 @@
+package com.nisovin.shopkeepers.tradenotifications;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+import com.nisovin.shopkeepers.util.bukkit.PermissionUtils;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Keeps track of the online players that have the permissions to receive trade notifications.
+ * <p>
+ * This avoids having to check the permissions of all online players for every notification. The
+ * permissions of a player are checked when the player joins or changes worlds (since permissions
+ * may be world specific). Since Bukkit does not provide an event for permission changes, the
+ * permissions of all online players are also periodically checked again.
+ * <p>
+ * Newly granted permissions may therefore take effect with a short delay. Revoked permissions take
+ * effect immediately, since the permissions of the recipients are checked again when a
+ * notification is sent.
+ */
+class NotificationRecipients implements Listener {
+
+	private static final long REFRESH_PERIOD_TICKS = 20L * 30; // 30 seconds
+
+	private final Plugin plugin;
+	// The iteration order matches the order in which the players joined:
+	private final Set<Player> adminShopRecipients = new LinkedHashSet<>();
+	private final Set<Player> playerShopRecipients = new LinkedHashSet<>();
+	private @Nullable BukkitTask refreshTask = null;
+
+	NotificationRecipients(Plugin plugin) {
+		Validate.notNull(plugin, "plugin is null");
+		this.plugin = plugin;
+	}
+
+	void onEnable() {
+		Bukkit.getPluginManager().registerEvents(this, plugin);
+		this.refreshAll();
+		refreshTask = Bukkit.getScheduler().runTaskTimer(
+				plugin,
+				this::refreshAll,
+				REFRESH_PERIOD_TICKS,
+				REFRESH_PERIOD_TICKS
+		);
+	}
+
+	void onDisable() {
+		if (refreshTask != null) {
+			refreshTask.cancel();
+			refreshTask = null;
+		}
+		HandlerList.unregisterAll(this);
+		adminShopRecipients.clear();
+		playerShopRecipients.clear();
+	}
+
+	/**
+	 * Gets the online players that have the permission to receive notifications about trades with
+	 * admin shops, or with player shops.
+	 * 
+	 * @param playerShop
+	 *            <code>true</code> to get the recipients for player shops
+	 * @return an unmodifiable view on the recipients
+	 */
+	Collection<? extends Player> getRecipients(boolean playerShop) {
+		if (playerShop) {
+			return Collections.unmodifiableSet(playerShopRecipients);
+		} else {
+			return Collections.unmodifiableSet(adminShopRecipients);
+		}
+	}
+
+	private void refreshAll() {
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			assert player != null;
+			this.refresh(player);
+		}
+	}
+
+	private void refresh(Player player) {
+		updateRecipient(
+				adminShopRecipients,
+				player,
+				ShopkeepersPlugin.TRADE_NOTIFICATIONS_ADMIN
+		);
+		updateRecipient(
+				playerShopRecipients,
+				player,
+				ShopkeepersPlugin.TRADE_NOTIFICATIONS_PLAYER
+		);
+	}
+
+	private static void updateRecipient(Set<Player> recipients, Player player, String permission) {
+		if (PermissionUtils.hasPermission(player, permission)) {
+			recipients.add(player);
+		} else {
+			recipients.remove(player);
+		}
+	}
+
+	private void remove(Player player) {
+		adminShopRecipients.remove(player);
+		playerShopRecipients.remove(player);
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerJoin(PlayerJoinEvent event) {
+		this.refresh(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+		this.refresh(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerQuit(PlayerQuitEvent event) {
+		this.remove(event.getPlayer());
+	}
+}
@@ -1,7 +1,13 @@
 package com.nisovin.shopkeepers.tradenotifications;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
 import java.util.function.Supplier;
 
 import org.bukkit.Bukkit;
@@ -11,6 +17,7 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
@@ -170,13 +177,29 @@ public class TradeNotifications implements Listener {
 		return msgArgs;
 	}
 
+	// The trades of a shop owner's shops since the last digest.
+	private static class OwnerDigest {
+
+		private int tradeCount = 0;
+		private final Set<UUID> shops = new HashSet<>();
+
+		void addTrades(Shopkeeper shopkeeper, int tradeCount) {
+			this.tradeCount += tradeCount;
+			shops.add(shopkeeper.getUniqueId());
+		}
+	}
+
 	// TODO Make these configurable
 	private static final long TRADE_MERGE_DURATION_TICKS = 300L; // 15 seconds
 	private static final long NEXT_MERGE_TIMEOUT_TICKS = 100L; // 5 seconds
 
 	private final Plugin plugin;
 	private final NotificationUserPreferences userPreferences;
+	private final NotificationRecipients recipients;
 	private final TradeMerger tradeMerger;
+	// Keyed by the shop owner's uuid:
+	private final Map<UUID, OwnerDigest> ownerDigests = new HashMap<>();
+	private @Nullable BukkitTask ownerDigestTask = null;
 
 	private boolean enabled;
 
@@ -184,6 +207,7 @@ public class TradeNotifications implements Listener {
 		Validate.notNull(plugin, "plugin is null");
 		this.plugin = plugin;
 		this.userPreferences = new NotificationUserPreferences(plugin);
+		this.recipients = new NotificationRecipients(plugin);
 		this.tradeMerger = new TradeMerger(
 				plugin,
 				MergeMode.DURATION,
@@ -197,7 +221,21 @@ public class TradeNotifications implements Listener {
 
 		Bukkit.getPluginManager().registerEvents(this, plugin);
 		userPreferences.onEnable();
+		if (Settings.notifyPlayersAboutTrades) {
+			recipients.onEnable();
+		}
 		tradeMerger.onEnable();
+
+		if (Settings.notifyShopOwnersAboutTrades
+				&& Settings.shopOwnerTradeNotificationDigestMinutes > 0) {
+			long digestPeriodTicks = Settings.shopOwnerTradeNotificationDigestMinutes * 20L * 60L;
+			ownerDigestTask = Bukkit.getScheduler().runTaskTimer(
+					plugin,
+					this::sendOwnerTradeDigests,
+					digestPeriodTicks,
+					digestPeriodTicks
+			);
+		}
 	}
 
 	public void onDisable() {
@@ -205,6 +243,13 @@ public class TradeNotifications implements Listener {
 		enabled = false;
 
 		tradeMerger.onDisable();
+		if (ownerDigestTask != null) {
+			ownerDigestTask.cancel();
+			ownerDigestTask = null;
+			// Any trades since the last digest are no longer reported:
+			ownerDigests.clear();
+		}
+		recipients.onDisable();
 		userPreferences.onDisable();
 		HandlerList.unregisterAll(this);
 	}
@@ -229,16 +274,17 @@ public class TradeNotifications implements Listener {
 		if (!Settings.notifyPlayersAboutTrades) return;
 
 		Player shopOwner = null;
+		boolean isPlayerShop = false;
 		String tradeNotificationPermission = ShopkeepersPlugin.TRADE_NOTIFICATIONS_ADMIN;
 		if (tradeContext.getShopkeeper() instanceof PlayerShopkeeper) {
+			isPlayerShop = true;
 			tradeNotificationPermission = ShopkeepersPlugin.TRADE_NOTIFICATIONS_PLAYER;
 			shopOwner = ((PlayerShopkeeper) tradeContext.getShopkeeper()).getOwner();
 		}
 
-		Lazy<Text> tradeNotification = new Lazy<>(
-				() -> this.getTradeNotificationMessage(tradeContext)
-		);
-		for (Player player : Bukkit.getOnlinePlayers()) {
+		// Only the players with the required permission are considered:
+		List<Player> notifiedPlayers = new ArrayList<>();
+		for (Player player : recipients.getRecipients(isPlayerShop)) {
 			assert player != null;
 			// Avoid notifying the shop owner twice.
 			// Note that the shop owner may have deactivated the trade notification for this
@@ -246,11 +292,19 @@ public class TradeNotifications implements Listener {
 			// notification.
 			if (player == shopOwner && Settings.notifyShopOwnersAboutTrades) continue;
 			if (!userPreferences.isNotifyOnTrades(player)) continue;
+			// The permission might have been revoked since the recipients were last updated:
 			if (!PermissionUtils.hasPermission(player, tradeNotificationPermission)) continue;
 
 			// Note: We also send trade notifications for own trades (i.e. when the trading player
 			// matches the recipient of the notification).
-			TextUtils.sendMessage(player, tradeNotification.get());
+			notifiedPlayers.add(player);
+		}
+		if (notifiedPlayers.isEmpty()) return;
+
+		// The message is prepared and converted only once for all recipients:
+		Text tradeNotification = this.getTradeNotificationMessage(tradeContext);
+		TextUtils.sendMessage(notifiedPlayers, tradeNotification);
+		for (Player player : notifiedPlayers) {
 			Settings.tradeNotificationSound.play(player);
 			this.sendDisableTradeNotificationsHint(player);
 		}
@@ -334,6 +388,13 @@ public class TradeNotifications implements Listener {
 		if (owner == null) return; // Owner is offline
 		if (!userPreferences.isNotifyOnTrades(owner)) return;
 
+		if (ownerDigestTask != null) {
+			// The owner is informed about the trades by the next periodic digest instead:
+			ownerDigests.computeIfAbsent(owner.getUniqueId(), ownerId -> new OwnerDigest())
+					.addTrades(playerShop, tradeContext.getTradeCount());
+			return;
+		}
+
 		// Note: We also send trade notifications for own trades (i.e. when the trading player
 		// matches the recipient of the notification).
 		Text message = this.getOwnerTradeNotificationMessage(tradeContext);
@@ -387,13 +448,35 @@ public class TradeNotifications implements Listener {
 		return this.getTradeNotificationMessage(tradeContext, message, shopText, tradeCountText);
 	}
 
-	private void sendDisableTradeNotificationsHint(Player player) {
-		if (!PermissionUtils.hasPermission(player, ShopkeepersPlugin.NOTIFY_TRADES_PERMISSION)) {
-			return;
+	private void sendOwnerTradeDigests() {
+		if (ownerDigests.isEmpty()) return;
+
+		Text message = Messages.ownerTradeNotificationDigest;
+		for (Entry<UUID, OwnerDigest> entry : ownerDigests.entrySet()) {
+			Player owner = Bukkit.getPlayer(entry.getKey());
+			// Skip if the owner went offline or disabled their trade notifications in the
+			// meantime:
+			if (owner == null || !userPreferences.isNotifyOnTrades(owner)) continue;
+
+			OwnerDigest digest = entry.getValue();
+			TextUtils.sendMessage(owner, message,
+					"trade_count", digest.tradeCount,
+					"shop_count", digest.shops.size(),
+					"minutes", Settings.shopOwnerTradeNotificationDigestMinutes
+			);
+			Settings.shopOwnerTradeNotificationSound.play(owner);
+			this.sendDisableTradeNotificationsHint(owner);
 		}
+		ownerDigests.clear();
+	}
 
+	private void sendDisableTradeNotificationsHint(Player player) {
 		// We only send this once per session:
 		if (userPreferences.hasReceivedDisableTradeNotificationsHint(player)) return;
+
+		if (!PermissionUtils.hasPermission(player, ShopkeepersPlugin.NOTIFY_TRADES_PERMISSION)) {
+			return;
+		}
 		userPreferences.setReceivedDisableTradeNotificationsHint(player, true);
 
 		Text command = Messages.disableTradeNotificationsHintCommand.copy(); // TODO Avoid copy
@@ -1,8 +1,11 @@
 package com.nisovin.shopkeepers.ui.editor;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
 import org.bukkit.entity.Player;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -19,12 +22,22 @@ import com.nisovin.shopkeepers.util.java.Validate;
  * By default, we reuse the merchant's previous offers and only replace those that changed. The
  * previous offers and the new offers derived from the trading recipe drafts are matched by their
  * index.
+ * <p>
+ * Subclasses can use {@link #getOfferTradingRecipes(List, int, Function)} to create the trading
+ * recipe drafts for their offers: The trading recipe drafts are then cached per offer and reused
+ * until the offer is replaced. When the trading recipes are updated, offers whose trading recipe
+ * draft has not been replaced by the editor are kept without comparing them with a newly created
+ * offer.
  *
  * @param <O>
  *            the type of offer the merchant uses to represent its trading recipes
  */
 public abstract class DefaultTradingRecipesAdapter<@NonNull O> implements TradingRecipesAdapter {
 
+	// The trading recipe drafts of the offers, by offer identity. Offers are assumed to be
+	// immutable. Only contains the offers of the last call to getOfferTradingRecipes.
+	private Map<@NonNull O, TradingRecipeDraft> offerTradingRecipes = new IdentityHashMap<>();
+
 	protected DefaultTradingRecipesAdapter() {
 	}
 
@@ -37,9 +50,56 @@ public abstract class DefaultTradingRecipesAdapter<@NonNull O> implements Tradin
 	@Override
 	public abstract List<TradingRecipeDraft> getTradingRecipes();
 
-	// TODO Maybe keep track of which TradingRecipeDrafts have actually been edited (i.e. clicked at
-	// in the editor or marked as 'dirty' by some other mean), and then avoid creating offers and
-	// comparing items for them.
+	/**
+	 * Gets the {@link TradingRecipeDraft}s for the given offers.
+	 * <p>
+	 * The trading recipe drafts are created via the given recipe factory and then cached:
+	 * Subsequent calls reuse the previously created trading recipe drafts for the same offer
+	 * instances. This requires that the offers are immutable.
+	 * <p>
+	 * If the trading recipe drafts returned by {@link #getTradingRecipes()} for the merchant's
+	 * offers are retrieved via this method, {@link #updateTradingRecipes(Player, List)} keeps any
+	 * offers whose trading recipe draft has not been replaced without creating and comparing a new
+	 * offer.
+	 * 
+	 * @param offers
+	 *            the offers, not <code>null</code>
+	 * @param additionalCapacity
+	 *            the number of additional trading recipe drafts that the caller intends to add to
+	 *            the returned list
+	 * @param recipeFactory
+	 *            creates the trading recipe draft for an offer, not <code>null</code>, and not
+	 *            returning <code>null</code>
+	 * @return the trading recipe drafts, in the order of the given offers, modifiable
+	 */
+	protected final List<TradingRecipeDraft> getOfferTradingRecipes(
+			List<? extends @NonNull O> offers,
+			int additionalCapacity,
+			Function<? super @NonNull O, ? extends TradingRecipeDraft> recipeFactory
+	) {
+		Validate.notNull(offers, "offers is null");
+		Validate.notNull(recipeFactory, "recipeFactory is null");
+		List<TradingRecipeDraft> recipes = new ArrayList<>(offers.size() + additionalCapacity);
+		Map<@NonNull O, TradingRecipeDraft> previousOfferTradingRecipes = offerTradingRecipes;
+		Map<@NonNull O, TradingRecipeDraft> newOfferTradingRecipes = new IdentityHashMap<>(
+				offers.size()
+		);
+		offers.forEach(offer -> {
+			TradingRecipeDraft recipe = previousOfferTradingRecipes.get(offer);
+			if (recipe == null) {
+				recipe = Validate.notNull(
+						recipeFactory.apply(offer),
+						"recipeFactory returned null"
+				);
+			}
+			newOfferTradingRecipes.put(offer, recipe);
+			recipes.add(recipe);
+		});
+		// Only retain the offers that are currently in use:
+		offerTradingRecipes = newOfferTradingRecipes;
+		return recipes;
+	}
+
 	// TODO When creating new offers, we can reuse the items of the trading recipe draft. Currently,
 	// these items are copied most of the time.
 	/**
@@ -62,6 +122,12 @@ public abstract class DefaultTradingRecipesAdapter<@NonNull O> implements Tradin
 		for (int index = 0; index < recipes.size(); index++) {
 			TradingRecipeDraft recipe = recipes.get(index);
 			Validate.notNull(recipe, "recipes contains null");
+			if (index < oldOffersSize) {
+				// Keep the old offer if the editor has not replaced its trading recipe draft:
+				@NonNull O oldOffer = Unsafe.assertNonNull(newOffers.get(index));
+				if (offerTradingRecipes.get(oldOffer) == recipe) continue;
+			}
+
 			// Null if invalid:
 			// The recipe is also considered invalid if the created offer is null.
 			@Nullable O newOffer = recipe.isValid() ? this.createOffer(recipe) : null;
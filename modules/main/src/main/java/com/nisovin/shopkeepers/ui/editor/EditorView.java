@@ -1,11 +1,13 @@
 package com.nisovin.shopkeepers.ui.editor;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
@@ -39,6 +41,9 @@ public abstract class EditorView extends View {
 	private @Nullable Inventory inventory;
 
 	private int currentPage = 1; // Starts at 1.
+	// The trade columns of the current page that might have been modified since the page was set
+	// up or last saved. Only these columns need to be saved.
+	private final boolean[] dirtyTradeColumns = new boolean[EditorLayout.TRADES_COLUMNS];
 
 	public EditorView(AbstractEditorViewProvider provider, Player player, UIState uiState) {
 		super(provider, player, uiState);
@@ -155,6 +160,8 @@ public abstract class EditorView extends View {
 				this.setTradeColumn(inventory, column, TradingRecipeDraft.EMPTY);
 			}
 		}
+		// The trade columns match the recipes again:
+		Arrays.fill(dirtyTradeColumns, false);
 	}
 
 	protected void setupTradesPageBar() {
@@ -286,6 +293,7 @@ public abstract class EditorView extends View {
 		assert inventory != null;
 		assert this.getLayout().isTradeColumn(column);
 		assert recipe != null;
+		this.markTradeColumnDirty(column);
 
 		TradingRecipeDraft emptySlotItems;
 		if (recipe.isEmpty()) {
@@ -334,6 +342,26 @@ public abstract class EditorView extends View {
 		this.setTradeColumn(inventory, column, recipe);
 	}
 
+	/**
+	 * Marks the specified trade column of the current page as potentially modified, so that it is
+	 * taken into account when the {@link #saveEditorPage() page is saved}.
+	 * <p>
+	 * Trade columns are automatically marked when they are {@link #setTradeColumn(Inventory, int,
+	 * TradingRecipeDraft) set}, or when players click or drag items inside them. Subclasses only
+	 * need to call this when they modify the items of a trade column by other means.
+	 * 
+	 * @param column
+	 *            the trade column
+	 */
+	protected final void markTradeColumnDirty(int column) {
+		assert this.getLayout().isTradeColumn(column);
+		dirtyTradeColumns[column] = true;
+	}
+
+	private void markAllTradeColumnsDirty() {
+		Arrays.fill(dirtyTradeColumns, true);
+	}
+
 	protected final boolean isEmptyTrade(Inventory inventory, int column) {
 		assert inventory != null;
 		assert this.getLayout().isTradeColumn(column);
@@ -437,6 +465,15 @@ public abstract class EditorView extends View {
 			event.setCancelled(true);
 			break;
 		}
+
+		if (!event.isCancelled()) {
+			for (Integer rawSlotInteger : slots) {
+				int rawSlot = rawSlotInteger;
+				if (this.getLayout().isTradesArea(rawSlot)) {
+					this.markTradeColumnDirty(this.getLayout().getTradeColumn(rawSlot));
+				}
+			}
+		}
 	}
 
 	@Override
@@ -448,6 +485,7 @@ public abstract class EditorView extends View {
 
 		var layout = this.getLayout();
 		int rawSlot = event.getRawSlot();
+		this.markClickedTradeColumns(event);
 		if (layout.isTradesArea(rawSlot)) {
 			// Trades area:
 			this.handleTradesClick(event);
@@ -463,6 +501,22 @@ public abstract class EditorView extends View {
 		}
 	}
 
+	// Marks the trade columns that might be affected by the given click.
+	private void markClickedTradeColumns(InventoryClickEvent event) {
+		InventoryAction action = event.getAction();
+		if (action == InventoryAction.MOVE_TO_OTHER_INVENTORY
+				|| action == InventoryAction.COLLECT_TO_CURSOR) {
+			// These actions can affect arbitrary slots of the editor inventory:
+			this.markAllTradeColumnsDirty();
+			return;
+		}
+
+		int rawSlot = event.getRawSlot();
+		if (this.getLayout().isTradesArea(rawSlot)) {
+			this.markTradeColumnDirty(this.getLayout().getTradeColumn(rawSlot));
+		}
+	}
+
 	protected void handleTradesClick(InventoryClickEvent event) {
 		assert this.getLayout().isTradesArea(event.getRawSlot());
 	}
@@ -545,6 +599,11 @@ public abstract class EditorView extends View {
 
 	/**
 	 * Saves the current page of the editor view to this session.
+	 * <p>
+	 * Only the trade columns that might have been modified since the page was set up or last saved
+	 * are read from the inventory. The recipes of the other trade columns are kept as they are,
+	 * which allows the {@link TradingRecipesAdapter} to quickly skip them when the recipes are
+	 * applied.
 	 */
 	protected void saveEditorPage() {
 		Inventory inventory = this.getInventory();
@@ -554,18 +613,21 @@ public abstract class EditorView extends View {
 
 		int recipesPerPage = EditorLayout.COLUMNS_PER_ROW;
 		int startIndex = (page - 1) * recipesPerPage;
-		int endIndex = startIndex + EditorLayout.TRADES_COLUMNS - 1;
-		// Add empty recipes to support the recipes of the current page:
-		for (int i = recipes.size(); i <= endIndex; ++i) {
-			recipes.add(TradingRecipeDraft.EMPTY);
-		}
 
-		// Replace recipes:
+		// Replace the recipes of the modified trade columns:
 		for (int column = 0; column < EditorLayout.TRADES_COLUMNS; column++) {
-			TradingRecipeDraft recipeDraft = this.getTradingRecipe(inventory, column);
+			if (!dirtyTradeColumns[column]) continue;
+
 			int recipeIndex = startIndex + column;
+			// Add empty recipes to support the recipes of the current page:
+			for (int i = recipes.size(); i <= recipeIndex; ++i) {
+				recipes.add(TradingRecipeDraft.EMPTY);
+			}
+
+			TradingRecipeDraft recipeDraft = this.getTradingRecipe(inventory, column);
 			recipes.set(recipeIndex, recipeDraft);
 		}
+		Arrays.fill(dirtyTradeColumns, false);
 	}
 
 	/**
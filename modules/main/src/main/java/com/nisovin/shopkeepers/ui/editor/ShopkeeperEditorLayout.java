@@ -11,6 +11,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.events.PlayerDeleteShopkeeperEvent;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopType;
+import com.nisovin.shopkeepers.api.shopkeeper.TradeStatisticsPeriod;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopType;
 import com.nisovin.shopkeepers.api.shopobjects.DefaultShopObjectTypes;
 import com.nisovin.shopkeepers.api.ui.DefaultUITypes;
@@ -62,6 +63,7 @@ public class ShopkeeperEditorLayout extends EditorLayout {
 		this.addButtonOrIgnore(this.createDeleteButton());
 		this.addButtonOrIgnore(this.createNamingButton());
 		this.addButtonOrIgnore(this.createMoveButton());
+		this.addButtonOrIgnore(this.createTradeStatisticsButton());
 	}
 
 	protected void setupShopObjectButtons() {
@@ -172,6 +174,33 @@ public class ShopkeeperEditorLayout extends EditorLayout {
 		};
 	}
 
+	protected @Nullable Button createTradeStatisticsButton() {
+		if (!Settings.enableTradeStatisticsButton) {
+			return null;
+		}
+
+		return new ActionButton() {
+			@Override
+			public @Nullable ItemStack getIcon(EditorView editorView) {
+				ItemStack iconItem = Settings.tradeStatisticsItem.createItemStack();
+				List<? extends String> lore = StringUtils.replaceArguments(
+						Messages.buttonTradeStatisticsLore,
+						"trades_hour", shopkeeper.getTradeCount(TradeStatisticsPeriod.HOUR),
+						"trades_day", shopkeeper.getTradeCount(TradeStatisticsPeriod.DAY),
+						"trades_week", shopkeeper.getTradeCount(TradeStatisticsPeriod.WEEK)
+				);
+				ItemUtils.setDisplayNameAndLore(iconItem, Messages.buttonTradeStatistics, lore);
+				return iconItem;
+			}
+
+			@Override
+			protected boolean runAction(EditorView editorView, InventoryClickEvent clickEvent) {
+				// Refreshes the displayed statistics:
+				return true;
+			}
+		};
+	}
+
 	protected @Nullable Button createMoveButton() {
 		if (shopkeeper.getType() instanceof PlayerShopType && !Settings.enableMovingOfPlayerShops) {
 			return null;
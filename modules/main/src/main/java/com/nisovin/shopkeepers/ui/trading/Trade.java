@@ -30,8 +30,13 @@ public final class Trade {
 	private final @Nullable ItemStack offeredItem2;
 	private final boolean swappedItemOrder;
 	private final KeyValueStore metadata = new MapBasedKeyValueStore();
-	private final ShopkeeperTradeEvent tradeEvent;
+	// The offered items for the trade event, with their stack sizes matching the trading recipe:
+	private final UnmodifiableItemStack eventOfferedItem1;
+	private final @Nullable UnmodifiableItemStack eventOfferedItem2;
 
+	private int tradeCount = 1;
+	// Lazily created, because the trade count is fixed once the trade event has been created:
+	private @Nullable ShopkeeperTradeEvent tradeEvent = null;
 	private boolean tradeEventCalled = false;
 
 	/**
@@ -83,16 +88,8 @@ public final class Trade {
 			UnmodifiableItemStack recipeItem2 = Unsafe.assertNonNull(tradingRecipe.getItem2());
 			eventOfferedItem2.setAmount(recipeItem2.getAmount());
 		}
-
-		this.tradeEvent = new ShopkeeperTradeEvent(
-				tradingContext.getShopkeeper(),
-				tradingContext.getTradingPlayer(),
-				tradingContext.getInventoryClickEvent(),
-				tradingRecipe,
-				UnmodifiableItemStack.ofNonNull(eventOfferedItem1),
-				UnmodifiableItemStack.of(eventOfferedItem2),
-				swappedItemOrder
-		);
+		this.eventOfferedItem1 = UnmodifiableItemStack.ofNonNull(eventOfferedItem1);
+		this.eventOfferedItem2 = UnmodifiableItemStack.of(eventOfferedItem2);
 	}
 
 	/**
@@ -228,6 +225,66 @@ public final class Trade {
 		return swappedItemOrder;
 	}
 
+	/**
+	 * Gets the number of times the {@link #getTradingRecipe() trading recipe} is applied by this
+	 * trade.
+	 * <p>
+	 * This is {@code 1}, unless several successive trades are aggregated into this single trade.
+	 * 
+	 * @return the trade count, at least {@code 1}
+	 * @see ShopkeeperTradeEvent#getTradeCount()
+	 */
+	public int getTradeCount() {
+		return tradeCount;
+	}
+
+	/**
+	 * Sets the number of times the {@link #getTradingRecipe() trading recipe} is applied by this
+	 * trade.
+	 * <p>
+	 * The trade count can only be changed until the {@link #getTradeEvent() trade event} has been
+	 * created.
+	 * 
+	 * @param tradeCount
+	 *            the trade count, has to be positive
+	 */
+	public void setTradeCount(int tradeCount) {
+		Validate.isTrue(tradeCount >= 1, "tradeCount is less than 1");
+		Validate.State.isTrue(tradeEvent == null,
+				"The trade count cannot be changed after the trade event has been created!");
+		this.tradeCount = tradeCount;
+	}
+
+	/**
+	 * Gets the first item that the shopkeeper receives for a single application of the
+	 * {@link #getTradingRecipe() trading recipe}.
+	 * <p>
+	 * If the {@link #getTradeEvent() trade event} has already been created, this returns the
+	 * {@link ShopkeeperTradeEvent#getReceivedItem1() received item} of the trade event, which
+	 * might have been altered by plugins. Otherwise, this returns the offered item with the stack
+	 * size of the trading recipe. Unlike {@link #getTradeEvent()}, this does not create the trade
+	 * event.
+	 * 
+	 * @return an unmodifiable view on the first received item, can be <code>null</code> or empty
+	 */
+	public @Nullable UnmodifiableItemStack getReceivedItem1() {
+		ShopkeeperTradeEvent tradeEvent = this.tradeEvent;
+		return (tradeEvent != null) ? tradeEvent.getReceivedItem1() : eventOfferedItem1;
+	}
+
+	/**
+	 * Gets the second item that the shopkeeper receives for a single application of the
+	 * {@link #getTradingRecipe() trading recipe}.
+	 * <p>
+	 * See {@link #getReceivedItem1()}.
+	 * 
+	 * @return an unmodifiable view on the second received item, can be <code>null</code> or empty
+	 */
+	public @Nullable UnmodifiableItemStack getReceivedItem2() {
+		ShopkeeperTradeEvent tradeEvent = this.tradeEvent;
+		return (tradeEvent != null) ? tradeEvent.getReceivedItem2() : eventOfferedItem2;
+	}
+
 	/**
 	 * Gets the {@link KeyValueStore} that stores additional arbitrary metadata related to this
 	 * {@link Trade}.
@@ -240,10 +297,27 @@ public final class Trade {
 
 	/**
 	 * Gets the corresponding {@link ShopkeeperTradeEvent}.
+	 * <p>
+	 * The trade event is created on first access. Afterwards, the {@link #getTradeCount() trade
+	 * count} can no longer be changed.
 	 * 
 	 * @return the trade event, not <code>null</code>
 	 */
 	public ShopkeeperTradeEvent getTradeEvent() {
+		ShopkeeperTradeEvent tradeEvent = this.tradeEvent;
+		if (tradeEvent == null) {
+			tradeEvent = new ShopkeeperTradeEvent(
+					tradingContext.getShopkeeper(),
+					tradingContext.getTradingPlayer(),
+					tradingContext.getInventoryClickEvent(),
+					tradingRecipe,
+					eventOfferedItem1,
+					eventOfferedItem2,
+					swappedItemOrder,
+					tradeCount
+			);
+			this.tradeEvent = tradeEvent;
+		}
 		return tradeEvent;
 	}
 
@@ -254,6 +328,7 @@ public final class Trade {
 	 * @return the trade event
 	 */
 	public ShopkeeperTradeEvent callTradeEvent() {
+		ShopkeeperTradeEvent tradeEvent = this.getTradeEvent();
 		tradeEventCalled = true;
 
 		Bukkit.getPluginManager().callEvent(tradeEvent);
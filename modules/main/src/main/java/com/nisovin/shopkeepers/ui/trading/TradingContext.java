@@ -25,6 +25,7 @@ public final class TradingContext {
 	private final KeyValueStore metadata = new MapBasedKeyValueStore();
 
 	private int tradeCount = 0;
+	private int appliedTradeCount = 0;
 	private @Nullable Trade currentTrade = null;
 
 	/**
@@ -120,6 +121,17 @@ public final class TradingContext {
 		return tradeCount;
 	}
 
+	/**
+	 * Gets the number of trades that were applied in this {@link TradingContext} so far.
+	 * <p>
+	 * Unlike {@link #getTradeCount()}, this does not take aborted trade attempts into account.
+	 * 
+	 * @return the number of applied trades
+	 */
+	public int getAppliedTradeCount() {
+		return appliedTradeCount;
+	}
+
 	/**
 	 * Gets the last {@link Trade} that was or is currently being processed.
 	 * <p>
@@ -144,6 +156,13 @@ public final class TradingContext {
 		currentTrade = null;
 	}
 
+	/**
+	 * Increments the {@link #getAppliedTradeCount() applied trade count}.
+	 */
+	void onTradeApplied() {
+		appliedTradeCount += 1;
+	}
+
 	/**
 	 * Sets the {@link Trade} that is currently being processed.
 	 * 
@@ -39,10 +39,10 @@ import com.nisovin.shopkeepers.lang.Messages;
 import com.nisovin.shopkeepers.ui.lib.UIState;
 import com.nisovin.shopkeepers.ui.lib.View;
 import com.nisovin.shopkeepers.util.annotations.ReadOnly;
-import com.nisovin.shopkeepers.util.annotations.ReadWrite;
 import com.nisovin.shopkeepers.util.bukkit.ConfigUtils;
 import com.nisovin.shopkeepers.util.bukkit.MerchantUtils;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
+import com.nisovin.shopkeepers.util.inventory.InventoryContentsDelta;
 import com.nisovin.shopkeepers.util.inventory.InventoryUtils;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 import com.nisovin.shopkeepers.util.java.Lazy;
@@ -59,6 +59,10 @@ public class TradingView extends View {
 	protected static final int BUY_ITEM_2_SLOT_ID = 1;
 	protected static final int RESULT_ITEM_SLOT_ID = 2;
 
+	// An immutable snapshot of the trading recipes that are currently displayed to the player, or
+	// null if not yet known:
+	private @Nullable List<? extends TradingRecipe> currentRecipes = null;
+
 	public TradingView(TradingViewProvider provider, Player player, UIState uiState) {
 		super(provider, player, uiState);
 	}
@@ -116,6 +120,9 @@ public class TradingView extends View {
 		List<MerchantRecipe> merchantRecipes = this.createMerchantRecipes(recipes);
 		// Set merchant's recipes:
 		merchant.setRecipes(merchantRecipes);
+		// Copied, since the given recipes might be a live view that changes later. This does not
+		// copy already immutable lists, such as the shared recipes of the view provider.
+		this.currentRecipes = List.copyOf(recipes);
 	}
 
 	protected List<MerchantRecipe> createMerchantRecipes(List<? extends TradingRecipe> recipes) {
@@ -147,16 +154,40 @@ public class TradingView extends View {
 		// Check if the currently open inventory still corresponds to this UI:
 		if (!this.isOpen()) return;
 
+		Shopkeeper shopkeeper = this.getShopkeeperNonNull();
+		this.updateTrades(shopkeeper.getTradingRecipes(this.getPlayer()));
+	}
+
+	/**
+	 * Updates the trades of this view to the given trading recipes.
+	 * <p>
+	 * The given trading recipes are expected to not contain <code>null</code>. If they are equal
+	 * to the trading recipes that are currently displayed to the player, this skips the creation
+	 * of the corresponding merchant recipes and does not send any updated trades to the player.
+	 * The view remembers an immutable snapshot of the given recipes, so they may be a live view.
+	 * 
+	 * @param recipes
+	 *            the trading recipes, not <code>null</code>
+	 */
+	protected void updateTrades(List<? extends TradingRecipe> recipes) {
+		// Check if the currently open inventory still corresponds to this UI:
+		if (!this.isOpen()) return;
+
 		Player player = this.getPlayer();
+		if (recipes == currentRecipes || recipes.equals(currentRecipes)) {
+			Log.debug(() -> this.getContext().getLogPrefix()
+					+ "Trades are still up-to-date for player " + player.getName());
+			return; // Recipes did not change
+		}
+
 		InventoryView openInventory = player.getOpenInventory();
 		assert openInventory.getType() == InventoryType.MERCHANT;
 		MerchantInventory merchantInventory = (MerchantInventory) openInventory.getTopInventory();
 		Merchant merchant = merchantInventory.getMerchant();
 		List<MerchantRecipe> oldMerchantRecipes = merchant.getRecipes();
 
-		Shopkeeper shopkeeper = this.getShopkeeperNonNull();
-		List<? extends TradingRecipe> recipes = shopkeeper.getTradingRecipes(player);
 		List<MerchantRecipe> newMerchantRecipes = this.createMerchantRecipes(recipes);
+		this.currentRecipes = List.copyOf(recipes);
 		if (MerchantUtils.MERCHANT_RECIPES_IGNORE_USES_EXCEPT_BLOCKED.equals(
 				oldMerchantRecipes,
 				newMerchantRecipes
@@ -179,6 +210,25 @@ public class TradingView extends View {
 		Compat.getProvider().updateTrades(player);
 	}
 
+	/**
+	 * Updates the trades after the handling of an inventory click that might have triggered
+	 * trades.
+	 * <p>
+	 * If trades were applied, the trades of all trading views of the shopkeeper are updated, since
+	 * the trades might have affected the stock of the shopkeeper. Otherwise, only the trades of
+	 * this view are updated.
+	 * 
+	 * @param tradingContext
+	 *            the trading context, not <code>null</code>
+	 */
+	protected void updateTradesAfterTrading(TradingContext tradingContext) {
+		if (tradingContext.getAppliedTradeCount() > 0) {
+			this.getTradingViewProvider().updateTradesInAllViews();
+		} else {
+			this.updateTrades();
+		}
+	}
+
 	// Dynamically modifying trades (e.g. their blocked state, or properties such as their items),
 	// or adding trades, is fine. But reducing the number of trades is not safe, because the index
 	// of the currently selected recipe can end up being out of bounds on the client. There is no
@@ -410,7 +460,7 @@ public class TradingView extends View {
 				this.commonApplyTrade(trade);
 			}
 
-			this.updateTrades();
+			this.updateTradesAfterTrading(tradingContext);
 		} else if (action == InventoryAction.DROP_ONE_SLOT || action == InventoryAction.DROP_ALL_SLOT) {
 			// Not supported for now, since this might be tricky to accurately reproduce.
 			// dropItemNaturally is not equivalent to the player themselves dropping the item and
@@ -472,18 +522,19 @@ public class TradingView extends View {
 			// If the current trading recipe is no longer fulfilled, and the currently selected
 			// recipe index is 0, it will switch to the next applicable trading recipe, and continue
 			// the trading if the new result item is equal to the previous result item.
-			// TODO Handling each trade individually, e.g. 64 times one item for one other item, can
-			// result in the trade to fail if the chest of a player shop is full, even though it
-			// would in principle be possible to trade one time 64 items for 64 items (because
-			// removing 64 items will clear a slot of the chest, whereas removing only one item at a
-			// time may not). However, determining up front how often the trade can be applied would
-			// be tricky, especially since the used trading recipe may change mid trading (at least
-			// in vanilla Minecraft). Also, usually the situation may dynamically change in-between
-			// the individual trades (especially if plugins or the shopkeepers themselves react to
-			// the individual trades), and each trade may have other side effects. So trading one
-			// time 64 for 64 items may not be equivalent to trading 64 times one item for one item.
+			// By default, we determine up front how often the active trading recipe can be applied
+			// and then aggregate these trades into a single trade: This results in a single trade
+			// event, a single update of the involved inventories, and a single trade log record.
+			// Since the used trading recipe may change mid trading, we still continue the trading
+			// afterwards, aggregating the trades for each of the subsequent trading recipes.
+			// If the aggregation of trades is disabled, each trade is handled individually. Note
+			// that this can result in the trade to fail if the chest of a player shop is full, even
+			// though it would in principle be possible to trade one time 64 items for 64 items
+			// (because removing 64 items will clear a slot of the chest, whereas removing only one
+			// item at a time may not).
+			boolean aggregateTrades = Settings.aggregateShiftClickTrades;
 			while (true) {
-				if (!this.handleTrade(trade)) {
+				if (!this.handleTrade(trade, aggregateTrades)) {
 					// Trade was aborted:
 					break;
 				}
@@ -509,7 +560,8 @@ public class TradingView extends View {
 					Collections.reverse(contentsView);
 
 					// No item copy required here:
-					if (InventoryUtils.addItems(newPlayerContents, resultItem) != 0) {
+					int resultAmount = resultItem.getAmount() * trade.getTradeCount();
+					if (InventoryUtils.addItems(newPlayerContents, resultItem, resultAmount) != 0) {
 						Log.debug(() -> this.getContext().getLogPrefix()
 								+ "Not handling trade: Not enough inventory space.");
 						this.onTradeAborted(tradingContext, false);
@@ -555,7 +607,7 @@ public class TradingView extends View {
 				}
 			}
 
-			this.updateTrades();
+			this.updateTradesAfterTrading(tradingContext);
 		} else {
 			// The inventory action involves the result slot, but does not usually trigger a trade,
 			// or is not supported yet.
@@ -792,6 +844,13 @@ public class TradingView extends View {
 
 	// Returns false if the trade was aborted.
 	private boolean handleTrade(Trade trade) {
+		return this.handleTrade(trade, false);
+	}
+
+	// Returns false if the trade was aborted.
+	// If aggregateTrades is true, the trade count of the given trade is set to the number of times
+	// the trade can be applied, prior to calling the trade event.
+	private boolean handleTrade(Trade trade, boolean aggregateTrades) {
 		assert trade != null;
 		// Shopkeeper-specific checks and preparation:
 		if (!this.prepareTrade(trade)) {
@@ -800,6 +859,18 @@ public class TradingView extends View {
 			return false;
 		}
 
+		if (aggregateTrades) {
+			int maxTradeCount = this.getMaxTradeCount(trade, this.getMaxCommonTradeCount(trade));
+			// If the trade cannot be applied at all, we still try to apply it once, so that the
+			// trade fails with the usual feedback:
+			int tradeCount = Math.max(1, maxTradeCount);
+			trade.setTradeCount(tradeCount);
+			if (tradeCount > 1) {
+				Log.debug(() -> this.getContext().getLogPrefix() + "Aggregating " + tradeCount
+						+ " trades.");
+			}
+		}
+
 		Player tradingPlayer = trade.getTradingPlayer();
 
 		// Call the trade event:
@@ -846,13 +917,14 @@ public class TradingView extends View {
 		merchantInventory.setItem(RESULT_ITEM_SLOT_ID, null); // Clear result slot, just in case
 
 		TradingRecipe tradingRecipe = trade.getTradingRecipe();
+		int tradeCount = trade.getTradeCount();
 		ItemStack newOfferedItem1 = ItemUtils.decreaseItemAmount(
 				trade.getOfferedItem1(),
-				ItemUtils.getItemStackAmount(tradingRecipe.getItem1())
+				ItemUtils.getItemStackAmount(tradingRecipe.getItem1()) * tradeCount
 		);
 		ItemStack newOfferedItem2 = ItemUtils.decreaseItemAmount(
 				trade.getOfferedItem2(),
-				ItemUtils.getItemStackAmount(tradingRecipe.getItem2())
+				ItemUtils.getItemStackAmount(tradingRecipe.getItem2()) * tradeCount
 		);
 		// Inform the merchant inventory about the change (updates the active trading recipe and
 		// result item):
@@ -872,15 +944,19 @@ public class TradingView extends View {
 
 		// Increment 'traded-with-villager' statistic for every trade:
 		if (Settings.incrementVillagerStatistics) {
-			player.incrementStatistic(Statistic.TRADED_WITH_VILLAGER);
+			player.incrementStatistic(Statistic.TRADED_WITH_VILLAGER, tradeCount);
 		}
 
 		// Shopkeeper-specific application of the trade:
 		this.onTradeApplied(trade);
+		trade.getTradingContext().onTradeApplied();
 
-		// Apply additional trade effects:
+		// Apply additional trade effects, once for each aggregated trade:
 		ShopkeeperTradeEvent tradeEvent = trade.getTradeEvent();
-		tradeEvent.getTradeEffects().forEach(tradeEffect -> tradeEffect.onTradeApplied(tradeEvent));
+		List<TradeEffect> tradeEffects = tradeEvent.getTradeEffects();
+		for (int i = 0; i < tradeCount; i++) {
+			tradeEffects.forEach(tradeEffect -> tradeEffect.onTradeApplied(tradeEvent));
+		}
 
 		// Call trade completed event:
 		ShopkeeperTradeCompletedEvent tradeCompletedEvent = new ShopkeeperTradeCompletedEvent(tradeEvent);
@@ -897,7 +973,8 @@ public class TradingView extends View {
 
 		// Log trade:
 		Log.debug(() -> trade.getShopkeeper().getLogPrefix() + "Trade (#" + trade.getTradeNumber()
-				+ ") by " + player.getName() + ": " + ItemUtils.getSimpleRecipeInfo(tradingRecipe));
+				+ (tradeCount > 1 ? ", " + tradeCount + "x" : "") + ") by " + player.getName()
+				+ ": " + ItemUtils.getSimpleRecipeInfo(tradingRecipe));
 
 		this.onTradeCompleted(trade);
 		this.onTradeOver(trade.getTradingContext());
@@ -929,6 +1006,68 @@ public class TradingView extends View {
 		return true;
 	}
 
+	// Determines how often the given trade can be applied based on the offered items and the
+	// available space inside the trading player's inventory. Returns a value >= 0.
+	private int getMaxCommonTradeCount(Trade trade) {
+		TradingRecipe tradingRecipe = trade.getTradingRecipe();
+		int maxTradeCount = Integer.MAX_VALUE;
+
+		// Offered items:
+		int requiredItem1Amount = ItemUtils.getItemStackAmount(tradingRecipe.getItem1());
+		if (requiredItem1Amount > 0) {
+			int offeredItem1Amount = trade.getOfferedItem1().getAmount();
+			maxTradeCount = Math.min(maxTradeCount, offeredItem1Amount / requiredItem1Amount);
+		}
+		int requiredItem2Amount = ItemUtils.getItemStackAmount(tradingRecipe.getItem2());
+		if (requiredItem2Amount > 0) {
+			int offeredItem2Amount = ItemUtils.getItemStackAmount(trade.getOfferedItem2());
+			maxTradeCount = Math.min(maxTradeCount, offeredItem2Amount / requiredItem2Amount);
+		}
+
+		// Space for the result items inside the player's inventory:
+		// This is based on the trading recipe's result item, since the trade event has not yet been
+		// called. If plugins alter the result item during the trade event, the inventory space is
+		// checked again before the trade is applied.
+		UnmodifiableItemStack resultItem = tradingRecipe.getResultItem();
+		int resultItemAmount = resultItem.getAmount();
+		int maxStackSize = resultItem.getMaxStackSize();
+		int freeSpace = 0;
+		for (ItemStack itemStack : trade.getPlayerInventory().getStorageContents()) {
+			if (ItemUtils.isEmpty(itemStack)) {
+				freeSpace += maxStackSize;
+			} else if (resultItem.isSimilar(itemStack)) {
+				freeSpace += Math.max(0, maxStackSize - itemStack.getAmount());
+			}
+		}
+		maxTradeCount = Math.min(maxTradeCount, freeSpace / resultItemAmount);
+
+		return maxTradeCount;
+	}
+
+	/**
+	 * Determines how often the given trade can be applied when several successive trades are
+	 * aggregated into a single trade.
+	 * <p>
+	 * This is called after {@link #prepareTrade(Trade)}, before the {@link ShopkeeperTradeEvent}
+	 * is called, and only if trades are aggregated. The given maximum trade count already takes
+	 * the offered items and the available space inside the trading player's inventory into
+	 * account. Sub-classes can further limit the trade count, for example based on the available
+	 * stock of the shop. This must not have any side effects and must not send any feedback to
+	 * the trading player.
+	 * <p>
+	 * If this returns {@code 0}, the trade is still attempted once, so that it can fail with the
+	 * usual feedback.
+	 * 
+	 * @param trade
+	 *            the trade, not <code>null</code>
+	 * @param maxTradeCount
+	 *            the maximum trade count, not negative
+	 * @return the trade count, not negative and not greater than the given maximum trade count
+	 */
+	protected int getMaxTradeCount(Trade trade, int maxTradeCount) {
+		return maxTradeCount;
+	}
+
 	/**
 	 * This is called after the {@link ShopkeeperTradeEvent} has been called, including for
 	 * cancelled trade events, before the outcome of the trade event is handled.
@@ -1111,7 +1250,7 @@ public class TradingView extends View {
 
 	// Returns the amount of items that couldn't be added, or 0 on success.
 	protected int addReceivedItem(
-			@ReadOnly @Nullable ItemStack @ReadWrite [] contents,
+			InventoryContentsDelta contents,
 			@Nullable UnmodifiableItemStack receivedItem
 	) {
 		if (ItemUtils.isEmpty(receivedItem)) return 0;
@@ -1123,7 +1262,7 @@ public class TradingView extends View {
 		return InventoryUtils.addItems(contents, receivedItem, amountAfterTaxes);
 	}
 
-	protected int addCurrencyItems(@ReadOnly @Nullable ItemStack @ReadWrite [] contents, int amount) {
+	protected int addCurrencyItems(InventoryContentsDelta contents, int amount) {
 		if (amount <= 0) return 0;
 
 		int remaining = amount;
@@ -7,11 +7,14 @@ import org.bukkit.entity.Player;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.lang.Messages;
 import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.ui.AbstractShopkeeperViewProvider;
 import com.nisovin.shopkeepers.ui.SKDefaultUITypes;
 import com.nisovin.shopkeepers.ui.lib.AbstractUIType;
+import com.nisovin.shopkeepers.ui.lib.UISessionManager;
 import com.nisovin.shopkeepers.ui.lib.UIState;
 import com.nisovin.shopkeepers.ui.lib.View;
 import com.nisovin.shopkeepers.util.bukkit.PermissionUtils;
@@ -21,6 +24,12 @@ import com.nisovin.shopkeepers.util.java.Validate;
 public class TradingViewProvider extends AbstractShopkeeperViewProvider {
 
 	private final List<TradingListener> tradingListeners = new ArrayList<>();
+	// An immutable snapshot of the latest trading recipes that were shared with all trading views
+	// of the shopkeeper. We reuse this list instance as long as the shopkeeper's trading recipes do
+	// not change, so that the trading views can quickly detect that their trades are still
+	// up-to-date. The list instance therefore acts as the version of the shopkeeper's trading
+	// recipes.
+	private @Nullable List<? extends TradingRecipe> sharedRecipes = null;
 
 	public TradingViewProvider(AbstractShopkeeper shopkeeper) {
 		this(SKDefaultUITypes.TRADING(), shopkeeper);
@@ -50,6 +59,44 @@ public class TradingViewProvider extends AbstractShopkeeperViewProvider {
 		return tradingListeners;
 	}
 
+	/**
+	 * Updates the trades of all {@link TradingView}s of this shopkeeper.
+	 * <p>
+	 * If the shopkeeper does not {@link AbstractShopkeeper#hasPlayerSpecificTradingRecipes()
+	 * support player-specific trading recipes}, the shopkeeper's trading recipes are only
+	 * determined and compared once and then shared with all trading views. Only the trading views
+	 * whose displayed trades actually changed send updated trades to their players.
+	 */
+	public void updateTradesInAllViews() {
+		AbstractShopkeeper shopkeeper = this.getShopkeeper();
+		List<TradingView> tradingViews = new ArrayList<>();
+		UISessionManager.getInstance()
+				.getUISessionsForContext(shopkeeper, this.getUIType())
+				.forEach(view -> {
+					if (view instanceof TradingView) {
+						tradingViews.add((TradingView) view);
+					}
+				});
+		if (tradingViews.isEmpty()) {
+			sharedRecipes = null;
+			return;
+		}
+
+		if (shopkeeper.hasPlayerSpecificTradingRecipes()) {
+			sharedRecipes = null;
+			tradingViews.forEach(TradingView::updateTrades);
+			return;
+		}
+
+		List<? extends TradingRecipe> recipes = shopkeeper.getTradingRecipes(null);
+		if (!recipes.equals(sharedRecipes)) {
+			// Copied, since the shopkeeper might return a live view on its recipes:
+			sharedRecipes = List.copyOf(recipes);
+		}
+		List<? extends TradingRecipe> currentRecipes = Unsafe.assertNonNull(sharedRecipes);
+		tradingViews.forEach(tradingView -> tradingView.updateTrades(currentRecipes));
+	}
+
 	@Override
 	public boolean canAccess(Player player, boolean silent) {
 		Validate.notNull(player, "player is null");
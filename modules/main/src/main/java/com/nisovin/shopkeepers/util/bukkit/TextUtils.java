@@ -3,6 +3,7 @@ package com.nisovin.shopkeepers.util.bukkit;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -533,6 +534,21 @@ public final class TextUtils {
 		SpigotText.sendMessage(recipient, message);
 	}
 
+	/**
+	 * Sends the given message to all given recipients.
+	 * <p>
+	 * Unlike sending the message to each recipient individually, this converts the message only
+	 * once.
+	 * 
+	 * @param recipients
+	 *            the recipients, not <code>null</code>
+	 * @param message
+	 *            the message, not <code>null</code>
+	 */
+	public static void sendMessage(Collection<? extends CommandSender> recipients, Text message) {
+		SpigotText.sendMessage(recipients, message);
+	}
+
 	public static void sendMessage(
 			CommandSender recipient,
 			Text message,
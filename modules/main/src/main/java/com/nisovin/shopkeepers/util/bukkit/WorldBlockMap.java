@@ -0,0 +1,180 @@
+package com.nisovin.shopkeepers.util.bukkit;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.block.Block;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.java.LongHashMap;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * A map from block locations to values.
+ * <p>
+ * The entries are stored per world, in {@link LongHashMap}s that are keyed by the
+ * {@link #getBlockKey(int, int, int) packed block coordinates}. Lookups therefore neither require
+ * a {@link BlockLocation} nor box their keys.
+ * <p>
+ * For lookups of many blocks of the same world, such as the blocks affected by an explosion, the
+ * map of the world can be {@link #getWorldMap(String) retrieved} once and then be queried directly.
+ * <p>
+ * <code>null</code> values are not supported. Not thread-safe.
+ * 
+ * @param <V>
+ *            the value type
+ */
+public final class WorldBlockMap<V> {
+
+	private static final int XZ_BITS = 26;
+	private static final int Y_BITS = 12;
+	private static final long XZ_MASK = (1L << XZ_BITS) - 1;
+	private static final long Y_MASK = (1L << Y_BITS) - 1;
+	private static final int X_SHIFT = XZ_BITS + Y_BITS;
+	private static final int Z_SHIFT = Y_BITS;
+
+	/**
+	 * Packs the given block coordinates into a single <code>long</code>.
+	 * <p>
+	 * This uses the same layout as Minecraft's packed block positions: 26 bits for the x and z
+	 * coordinates, and 12 bits for the y coordinate. This covers all coordinates within the world
+	 * border and world height limits of Minecraft.
+	 * 
+	 * @param x
+	 *            the block x coordinate
+	 * @param y
+	 *            the block y coordinate
+	 * @param z
+	 *            the block z coordinate
+	 * @return the block key
+	 */
+	public static long getBlockKey(int x, int y, int z) {
+		return ((x & XZ_MASK) << X_SHIFT) | ((z & XZ_MASK) << Z_SHIFT) | (y & Y_MASK);
+	}
+
+	/**
+	 * Gets the {@link #getBlockKey(int, int, int) block key} of the given block.
+	 * 
+	 * @param block
+	 *            the block, not <code>null</code>
+	 * @return the block key
+	 */
+	public static long getBlockKey(Block block) {
+		return getBlockKey(block.getX(), block.getY(), block.getZ());
+	}
+
+	// World name -> block key -> value
+	private final Map<String, LongHashMap<V>> worlds = new HashMap<>();
+	private int size = 0;
+
+	public WorldBlockMap() {
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		worlds.clear();
+		size = 0;
+	}
+
+	/**
+	 * Gets the map of the entries of the specified world, keyed by their
+	 * {@link #getBlockKey(int, int, int) block keys}.
+	 * <p>
+	 * The returned map must not be modified.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @return the map, or <code>null</code> if there are no entries for the world
+	 */
+	public @Nullable LongHashMap<V> getWorldMap(String worldName) {
+		return worlds.get(worldName);
+	}
+
+	public @Nullable V get(String worldName, int x, int y, int z) {
+		LongHashMap<V> worldMap = worlds.get(worldName);
+		if (worldMap == null) return null;
+		return worldMap.get(getBlockKey(x, y, z));
+	}
+
+	public @Nullable V get(BlockLocation blockLocation) {
+		String worldName = Validate.notNull(blockLocation.getWorldName(), "worldName is null");
+		return this.get(
+				worldName,
+				blockLocation.getX(),
+				blockLocation.getY(),
+				blockLocation.getZ()
+		);
+	}
+
+	public boolean containsKey(String worldName, int x, int y, int z) {
+		return this.get(worldName, x, y, z) != null;
+	}
+
+	/**
+	 * Associates the given value with the specified block.
+	 * 
+	 * @param worldName
+	 *            the world name, not <code>null</code>
+	 * @param x
+	 *            the block x coordinate
+	 * @param y
+	 *            the block y coordinate
+	 * @param z
+	 *            the block z coordinate
+	 * @param value
+	 *            the value, not <code>null</code>
+	 * @return the previous value, or <code>null</code>
+	 */
+	public @Nullable V put(String worldName, int x, int y, int z, V value) {
+		Validate.notNull(worldName, "worldName is null");
+		LongHashMap<V> worldMap = worlds.computeIfAbsent(worldName, key -> new LongHashMap<>());
+		assert worldMap != null;
+		V previous = worldMap.put(getBlockKey(x, y, z), value);
+		if (previous == null) {
+			size++;
+		}
+		return previous;
+	}
+
+	public @Nullable V put(BlockLocation blockLocation, V value) {
+		String worldName = Validate.notNull(blockLocation.getWorldName(), "worldName is null");
+		return this.put(
+				worldName,
+				blockLocation.getX(),
+				blockLocation.getY(),
+				blockLocation.getZ(),
+				value
+		);
+	}
+
+	public @Nullable V remove(String worldName, int x, int y, int z) {
+		LongHashMap<V> worldMap = worlds.get(worldName);
+		if (worldMap == null) return null;
+
+		V previous = worldMap.remove(getBlockKey(x, y, z));
+		if (previous != null) {
+			size--;
+			if (worldMap.isEmpty()) {
+				worlds.remove(worldName);
+			}
+		}
+		return previous;
+	}
+
+	public @Nullable V remove(BlockLocation blockLocation) {
+		String worldName = Validate.notNull(blockLocation.getWorldName(), "worldName is null");
+		return this.remove(
+				worldName,
+				blockLocation.getX(),
+				blockLocation.getY(),
+				blockLocation.getZ()
+		);
+	}
+}
@@ -0,0 +1,85 @@
+package com.nisovin.shopkeepers.util.csv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Parses single-line records of comma separated values (CSV), as produced by a
+ * {@link CsvFormatter} with its default field separator and quotes.
+ * <p>
+ * Fields can be quoted with double quotes. Within quoted fields, two double quotes represent a
+ * single double quote. Any escaping of newlines by the {@link CsvFormatter} is not reverted.
+ */
+public class CsvParser {
+
+	private static final char FIELD_SEPARATOR = ',';
+	private static final char QUOTE = '"';
+
+	/**
+	 * Creates a new {@link CsvParser}.
+	 */
+	public CsvParser() {
+	}
+
+	/**
+	 * Parses the fields of the given CSV record.
+	 * 
+	 * @param csvRecord
+	 *            the CSV record, without the record separator, not <code>null</code>
+	 * @return the unescaped fields, not <code>null</code>
+	 * @throws IllegalArgumentException
+	 *             if the record is malformed, e.g. because it contains an unterminated quoted
+	 *             field
+	 */
+	public List<String> parseRecord(String csvRecord) {
+		Validate.notNull(csvRecord, "csvRecord is null");
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		int length = csvRecord.length();
+		int index = 0;
+		while (true) {
+			field.setLength(0);
+			if (index < length && csvRecord.charAt(index) == QUOTE) {
+				// Quoted field:
+				index++;
+				while (true) {
+					if (index >= length) {
+						throw new IllegalArgumentException("Unterminated quoted field!");
+					}
+					char c = csvRecord.charAt(index++);
+					if (c == QUOTE) {
+						if (index < length && csvRecord.charAt(index) == QUOTE) {
+							// Escaped quote:
+							field.append(QUOTE);
+							index++;
+						} else {
+							break; // End of the quoted field
+						}
+					} else {
+						field.append(c);
+					}
+				}
+				if (index < length && csvRecord.charAt(index) != FIELD_SEPARATOR) {
+					throw new IllegalArgumentException("Unexpected character after quoted field at "
+							+ "index " + index + "!");
+				}
+			} else {
+				// Unquoted field:
+				int end = csvRecord.indexOf(FIELD_SEPARATOR, index);
+				if (end < 0) {
+					end = length;
+				}
+				field.append(csvRecord, index, end);
+				index = end;
+			}
+			fields.add(field.toString());
+
+			if (index >= length) break;
+			assert csvRecord.charAt(index) == FIELD_SEPARATOR;
+			index++; // Skip the field separator
+		}
+		return fields;
+	}
+}
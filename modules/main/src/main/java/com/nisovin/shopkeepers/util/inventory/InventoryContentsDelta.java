@@ -0,0 +1,128 @@
+package com.nisovin.shopkeepers.util.inventory;
+
+import java.util.BitSet;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * Records changes to the contents of an {@link Inventory} on a per-slot basis, without modifying
+ * the inventory until the changes are {@link #apply() applied}.
+ * <p>
+ * Unlike a copy of the {@link Inventory#getContents() inventory contents}, this only reads the
+ * slots that are actually accessed, and only keeps track of the slots that are changed. When the
+ * changes are applied, only the changed slots are written back to the inventory.
+ * <p>
+ * The item stacks returned by {@link #getItem(int)} may mirror the item stacks of the inventory
+ * and are therefore not meant to be modified. The content operations of {@link InventoryUtils}
+ * replace any item stacks they modify with copies.
+ */
+public final class InventoryContentsDelta implements ItemSlots {
+
+	private final Inventory inventory;
+	private final int size;
+	private final BitSet changedSlots;
+	// Lazily created on the first change:
+	private @Nullable ItemStack @Nullable [] changedItems = null;
+
+	/**
+	 * Creates a new {@link InventoryContentsDelta} without any changes.
+	 * 
+	 * @param inventory
+	 *            the inventory, not <code>null</code>
+	 */
+	public InventoryContentsDelta(Inventory inventory) {
+		Validate.notNull(inventory, "inventory is null");
+		this.inventory = inventory;
+		this.size = inventory.getSize();
+		this.changedSlots = new BitSet(size);
+	}
+
+	private InventoryContentsDelta(InventoryContentsDelta other) {
+		this.inventory = other.inventory;
+		this.size = other.size;
+		this.changedSlots = (BitSet) other.changedSlots.clone();
+		@Nullable ItemStack[] otherChangedItems = other.changedItems;
+		this.changedItems = (otherChangedItems != null) ? otherChangedItems.clone() : null;
+	}
+
+	/**
+	 * Gets the inventory.
+	 * 
+	 * @return the inventory, not <code>null</code>
+	 */
+	public Inventory getInventory() {
+		return inventory;
+	}
+
+	@Override
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public @Nullable ItemStack getItem(int slot) {
+		Validate.isTrue(slot >= 0 && slot < size, "slot is out of bounds");
+		@Nullable ItemStack[] changedItems = this.changedItems;
+		if (changedItems != null && changedSlots.get(slot)) {
+			return changedItems[slot];
+		}
+		return inventory.getItem(slot);
+	}
+
+	@Override
+	public void setItem(int slot, @Nullable ItemStack itemStack) {
+		Validate.isTrue(slot >= 0 && slot < size, "slot is out of bounds");
+		@Nullable ItemStack[] changedItems = this.changedItems;
+		if (changedItems == null) {
+			changedItems = new @Nullable ItemStack[size];
+			this.changedItems = changedItems;
+		}
+		changedItems[slot] = itemStack;
+		changedSlots.set(slot);
+	}
+
+	/**
+	 * Gets the number of changed slots.
+	 * 
+	 * @return the number of changed slots
+	 */
+	public int getChangedSlotCount() {
+		return changedSlots.cardinality();
+	}
+
+	/**
+	 * Creates a copy of this {@link InventoryContentsDelta}.
+	 * <p>
+	 * Subsequent changes of the copy do not affect this delta, and vice versa. This can for example
+	 * be used to simulate changes.
+	 * 
+	 * @return the copy, not <code>null</code>
+	 */
+	public InventoryContentsDelta copy() {
+		return new InventoryContentsDelta(this);
+	}
+
+	/**
+	 * Writes the changed slots to the inventory.
+	 * <p>
+	 * This does not reset the recorded changes.
+	 * 
+	 * @return the number of written slots
+	 */
+	public int apply() {
+		@Nullable ItemStack[] changedItems = this.changedItems;
+		if (changedItems == null) return 0;
+
+		int writtenSlots = 0;
+		for (int slot = changedSlots.nextSetBit(0); slot >= 0;
+				slot = changedSlots.nextSetBit(slot + 1)) {
+			inventory.setItem(slot, changedItems[slot]); // This copies the item internally
+			writtenSlots++;
+		}
+		return writtenSlots;
+	}
+}
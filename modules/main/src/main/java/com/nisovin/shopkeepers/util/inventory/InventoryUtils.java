@@ -36,6 +36,31 @@ public final class InventoryUtils {
 		return EMPTY_ITEMSTACK_ARRAY;
 	}
 
+	// Slot based access to the item stacks of an array.
+	private static final class ArrayItemSlots implements ItemSlots {
+
+		private final @Nullable ItemStack[] contents;
+
+		ArrayItemSlots(@Nullable ItemStack[] contents) {
+			this.contents = contents;
+		}
+
+		@Override
+		public int getSize() {
+			return contents.length;
+		}
+
+		@Override
+		public @Nullable ItemStack getItem(int slot) {
+			return contents[slot];
+		}
+
+		@Override
+		public void setItem(int slot, @Nullable ItemStack itemStack) {
+			contents[slot] = itemStack;
+		}
+	}
+
 	/**
 	 * Checks whether the given {@link Player} is currently viewing an inventory.
 	 * <p>
@@ -383,6 +408,56 @@ public final class InventoryUtils {
 			int amount
 	) {
 		Validate.notNull(contents, "contents is null");
+		return addItemsToSlots(new ArrayItemSlots(contents), item, amount);
+	}
+
+	/**
+	 * Adds the given {@link ItemStack} to the given {@link InventoryContentsDelta}.
+	 * <p>
+	 * See {@link #addItems(ItemStack[], UnmodifiableItemStack, int)}.
+	 * 
+	 * @param contents
+	 *            the contents to add the items to, not <code>null</code>
+	 * @param itemStack
+	 *            the item stack to add, not <code>null</code>
+	 * @return the amount of items that could not be added, <code>0</code> on complete success
+	 */
+	public static int addItems(InventoryContentsDelta contents, @ReadOnly ItemStack itemStack) {
+		return addItems(
+				contents,
+				UnmodifiableItemStack.ofNonNull(itemStack),
+				ItemUtils.getItemStackAmount(itemStack)
+		);
+	}
+
+	/**
+	 * Adds the specified amount of items of the given {@link UnmodifiableItemStack} to the given
+	 * {@link InventoryContentsDelta}.
+	 * <p>
+	 * See {@link #addItems(ItemStack[], UnmodifiableItemStack, int)}.
+	 * 
+	 * @param contents
+	 *            the contents to add the items to, not <code>null</code>
+	 * @param item
+	 *            the item to add, not <code>null</code>
+	 * @param amount
+	 *            the amount to add
+	 * @return the amount of items that could not be added, <code>0</code> on complete success
+	 */
+	public static int addItems(
+			InventoryContentsDelta contents,
+			UnmodifiableItemStack item,
+			int amount
+	) {
+		Validate.notNull(contents, "contents is null");
+		return addItemsToSlots(contents, item, amount);
+	}
+
+	private static int addItemsToSlots(
+			ItemSlots contents,
+			UnmodifiableItemStack item,
+			int amount
+	) {
 		Validate.notNull(item, "item is null");
 		Validate.isTrue(amount >= 0, "amount is negative");
 		if (amount == 0) return 0;
@@ -392,9 +467,9 @@ public final class InventoryUtils {
 		// Search for partially fitting item stacks:
 		// Note: We check for similar ItemStacks, so they all share the same max stack size.
 		int maxStackSize = item.getMaxStackSize();
-		int size = contents.length;
+		int size = contents.getSize();
 		for (int slot = 0; slot < size; slot++) {
-			ItemStack slotItem = contents[slot];
+			ItemStack slotItem = contents.getItem(slot);
 
 			// Slot empty? - Skip, because we are currently filling existing item stacks up.
 			if (slotItem == null) continue;
@@ -407,7 +482,7 @@ public final class InventoryUtils {
 			if (item.isSimilar(slotItem)) {
 				// Copy ItemStack, so we don't modify the original ItemStack:
 				slotItem = slotItem.clone();
-				contents[slot] = slotItem;
+				contents.setItem(slot, slotItem);
 
 				int newAmount = slotAmount + remaining;
 				if (newAmount <= maxStackSize) {
@@ -428,20 +503,20 @@ public final class InventoryUtils {
 
 		// Search for empty slots:
 		for (int slot = 0; slot < size; slot++) {
-			ItemStack slotItem = contents[slot];
+			ItemStack slotItem = contents.getItem(slot);
 			if (ItemUtils.isEmpty(slotItem)) {
 				// Found an empty slot:
 				if (remaining > maxStackSize) {
 					// Add full stack:
 					ItemStack stack = item.copy();
 					stack.setAmount(maxStackSize);
-					contents[slot] = stack;
+					contents.setItem(slot, stack);
 					remaining -= maxStackSize;
 				} else {
 					// The remaining amount completely fits as a single stack:
 					ItemStack stack = item.copy();
 					stack.setAmount(remaining);
-					contents[slot] = stack;
+					contents.setItem(slot, stack);
 					return 0;
 				}
 			}
@@ -537,32 +612,82 @@ public final class InventoryUtils {
 			int amount
 	) {
 		Validate.notNull(contents, "contents is null");
+		return removeItemsFromSlots(new ArrayItemSlots(contents), itemMatcher, amount);
+	}
+
+	/**
+	 * Removes the given {@link UnmodifiableItemStack} from the given
+	 * {@link InventoryContentsDelta}.
+	 * 
+	 * @param contents
+	 *            the contents to remove the items from, not <code>null</code>
+	 * @param itemStack
+	 *            the item stack to remove, not <code>null</code>
+	 * @return the amount of items that could not be removed, or <code>0</code> if all items were
+	 *         removed
+	 * @see #removeItems(ItemStack[], Predicate, int)
+	 */
+	public static int removeItems(
+			InventoryContentsDelta contents,
+			UnmodifiableItemStack itemStack
+	) {
+		return removeItems(contents, ItemUtils.similarItems(itemStack), itemStack.getAmount());
+	}
+
+	/**
+	 * Removes the specified amount of items accepted by the given {@link Predicate} from the given
+	 * {@link InventoryContentsDelta}.
+	 * 
+	 * @param contents
+	 *            the contents to remove the items from, not <code>null</code>
+	 * @param itemMatcher
+	 *            the item matcher, not <code>null</code>
+	 * @param amount
+	 *            the amount of items to remove
+	 * @return the amount of items that could not be removed, or <code>0</code> if all items were
+	 *         removed
+	 * @see #removeItems(ItemStack[], Predicate, int)
+	 */
+	public static int removeItems(
+			InventoryContentsDelta contents,
+			Predicate<@ReadOnly ? super ItemStack> itemMatcher,
+			int amount
+	) {
+		Validate.notNull(contents, "contents is null");
+		return removeItemsFromSlots(contents, itemMatcher, amount);
+	}
+
+	private static int removeItemsFromSlots(
+			ItemSlots contents,
+			Predicate<@ReadOnly ? super ItemStack> itemMatcher,
+			int amount
+	) {
 		Validate.notNull(itemMatcher, "itemMatcher is null");
 		Validate.isTrue(amount >= 0, "amount is negative");
 		if (amount == 0) return 0;
 
 		boolean removeAll = (amount == Integer.MAX_VALUE);
 		int remaining = amount;
-		for (int slot = 0; slot < contents.length; slot++) {
-			ItemStack slotItem = contents[slot];
+		for (int slot = 0; slot < contents.getSize(); slot++) {
+			ItemStack slotItem = contents.getItem(slot);
 			if (slotItem == null) continue;
 			if (ItemUtils.isEmpty(slotItem)) continue;
 			if (!itemMatcher.test(slotItem)) continue;
 
 			if (removeAll) {
-				contents[slot] = null;
+				contents.setItem(slot, null);
 			} else {
 				int newAmount = slotItem.getAmount() - remaining;
 				if (newAmount > 0) {
 					// Copy the ItemStack, so that we do not modify the original ItemStack (in case
 					// that we do not want to apply the changed inventory contents afterwards):
 					slotItem = slotItem.clone();
-					contents[slot] = slotItem;
+					contents.setItem(slot, slotItem);
 					slotItem.setAmount(newAmount);
 					// All items were removed:
 					return 0;
 				} else {
-					contents[slot] = null;
+					contents.setItem(slot, null);
 					remaining = -newAmount;
 					if (remaining == 0) {
 						// All items were removed:
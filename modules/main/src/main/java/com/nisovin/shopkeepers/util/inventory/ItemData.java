@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Predicate;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -14,6 +15,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+import com.nisovin.shopkeepers.compat.Compat;
 import com.nisovin.shopkeepers.util.annotations.ReadOnly;
 import com.nisovin.shopkeepers.util.bukkit.ConfigUtils;
 import com.nisovin.shopkeepers.util.bukkit.TextUtils;
@@ -313,6 +315,9 @@ public final class ItemData {
 	// Cache serialized item metadata, to avoid serializing it again for every comparison:
 	// Gets lazily initialized when needed.
 	private @ReadOnly @Nullable Map<? extends String, @ReadOnly @NonNull ?> serializedMetaData = null;
+	// Reusable matcher that compares the data item's components with those of other items, without
+	// having to serialize their item metadata. Gets lazily initialized when needed.
+	private @Nullable Predicate<@ReadOnly @Nullable ItemStack> componentsMatcher = null;
 
 	public ItemData(Material type) {
 		// Unmodifiable wrapper: Avoids creating another item copy during construction.
@@ -397,6 +402,17 @@ public final class ItemData {
 		return serializedMetaData;
 	}
 
+	// Null if there is no compat provider available (e.g. during tests).
+	private @Nullable Predicate<@ReadOnly @Nullable ItemStack> getComponentsMatcher() {
+		// Lazily compile the matcher:
+		if (componentsMatcher == null && Compat.hasProvider()) {
+			componentsMatcher = Compat.getProvider().createItemMatcher(
+					ItemUtils.asItemStack(dataItem)
+			);
+		}
+		return componentsMatcher;
+	}
+
 	public boolean hasItemMeta() {
 		return !this.getSerializedMetaData().isEmpty(); // Equivalent to dataItem.hasItemMeta()
 	}
@@ -437,12 +453,28 @@ public final class ItemData {
 
 	public boolean matches(@ReadOnly @Nullable ItemStack item, boolean matchPartialLists) {
 		// Same type and matching data:
-		return ItemUtils.matchesData(
-				item,
-				this.getType(),
-				this.getSerializedMetaData(),
-				matchPartialLists
-		);
+		if (item == null) return false;
+		if (item.getType() != this.getType()) return false;
+		Map<? extends String, @NonNull ?> serializedMetaData = this.getSerializedMetaData();
+		if (serializedMetaData.isEmpty()) return true;
+		// If the item has no metadata, it cannot contain our non-empty metadata:
+		if (!item.hasItemMeta()) return false;
+
+		// Fast path: If the item contains all of our item components, it also contains our item
+		// metadata. Otherwise, it can only match our metadata if lists are allowed to match
+		// partially. This avoids serializing the item's metadata, both for matching and for
+		// mismatching items.
+		Predicate<@ReadOnly @Nullable ItemStack> componentsMatcher = this.getComponentsMatcher();
+		if (componentsMatcher != null) {
+			if (componentsMatcher.test(item)) return true;
+			if (!matchPartialLists) return false;
+		} else if (dataItem.isSimilar(item)) {
+			// Without a components matcher, we can still skip the serialization for similar items:
+			return true;
+		}
+
+		// Compare the serialized item metadata:
+		return ItemUtils.matchesData(item.getItemMeta(), serializedMetaData, matchPartialLists);
 	}
 
 	public boolean matches(@Nullable UnmodifiableItemStack item, boolean matchPartialLists) {
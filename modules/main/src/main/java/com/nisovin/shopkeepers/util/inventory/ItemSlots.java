@@ -0,0 +1,42 @@
+package com.nisovin.shopkeepers.util.inventory;
+
+import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Slot based access to item contents, such as an item stack array or an
+ * {@link InventoryContentsDelta}.
+ * <p>
+ * This allows the content operations of {@link InventoryUtils} to be shared between the different
+ * representations of item contents.
+ */
+interface ItemSlots {
+
+	/**
+	 * Gets the number of slots.
+	 * 
+	 * @return the number of slots
+	 */
+	public int getSize();
+
+	/**
+	 * Gets the item stack in the specified slot.
+	 * <p>
+	 * The returned item stack is not meant to be modified.
+	 * 
+	 * @param slot
+	 *            the slot
+	 * @return the item stack, can be <code>null</code> or empty
+	 */
+	public @Nullable ItemStack getItem(int slot);
+
+	/**
+	 * Sets the item stack in the specified slot.
+	 * 
+	 * @param slot
+	 *            the slot
+	 * @param itemStack
+	 *            the item stack, can be <code>null</code>
+	 */
+	public void setItem(int slot, @Nullable ItemStack itemStack);
+}
@@ -870,6 +870,30 @@ public final class ItemUtils {
 		return isSimilar(asItemStackOrNull(item1), item2);
 	}
 
+	/**
+	 * Gets a hash code for the given item stack that ignores the stack size.
+	 * <p>
+	 * {@link ItemStack#isSimilar(ItemStack) Similar} item stacks have the same hash code. Unlike
+	 * {@link ItemStack#hashCode()}, this hash code is derived from the name of the item type and
+	 * the item's {@link ItemStackComponentsData}, and therefore remains the same across server
+	 * restarts.
+	 * <p>
+	 * Since this serializes the item's component data, consider caching the result.
+	 * 
+	 * @param itemStack
+	 *            the item stack, not <code>null</code>
+	 * @return the hash code
+	 */
+	public static int getSimilarityHash(@ReadOnly ItemStack itemStack) {
+		Validate.notNull(itemStack, "itemStack is null");
+		int hash = itemStack.getType().name().hashCode();
+		ItemStackComponentsData componentsData = ItemStackComponentsData.of(itemStack);
+		if (componentsData != null) {
+			hash = 31 * hash + componentsData.hashCode();
+		}
+		return hash;
+	}
+
 	/**
 	 * Checks if the given item matches the specified attributes.
 	 * 
@@ -0,0 +1,164 @@
+package com.nisovin.shopkeepers.util.inventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.util.annotations.ReadOnly;
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * An index of elements, such as shop offers, that allows to quickly find the elements whose item is
+ * {@link ItemStack#isSimilar(ItemStack) similar} to a given item.
+ * <p>
+ * The elements are grouped by the {@link ItemUtils#getSimilarityHash(ItemStack) similarity hash}
+ * of their item. Since similar items always have the same similarity hash, a lookup only needs to
+ * compare the given item with the elements of the same group, instead of with all elements. Unlike
+ * a grouping by item type only, this also keeps the lookups fast if there are many elements with
+ * items of the same type that only differ in their item data, such as differently named or
+ * enchanted items. Within each group, the elements are kept in the order in which they have been
+ * added.
+ * <p>
+ * The similarity hash of an element's item is computed once when the element is added. A lookup
+ * computes the similarity hash of the given item once. The items of the elements are assumed to
+ * not change while the elements are indexed.
+ * 
+ * @param <T>
+ *            the element type
+ */
+public final class SimilarItemIndex<T> {
+
+	private final Function<? super T, ? extends @ReadOnly ItemStack> itemGetter;
+	private final Map<Integer, List<T>> elementsByGroup = new HashMap<>();
+	// The similarity hashes of the indexed elements, so that we only need to compute them once:
+	private final Map<T, Integer> groupsByElement = new IdentityHashMap<>();
+
+	/**
+	 * Creates a new {@link SimilarItemIndex}.
+	 * 
+	 * @param itemGetter
+	 *            gets the item of an element, not <code>null</code>
+	 */
+	public SimilarItemIndex(Function<? super T, ? extends @ReadOnly ItemStack> itemGetter) {
+		Validate.notNull(itemGetter, "itemGetter is null");
+		this.itemGetter = itemGetter;
+	}
+
+	/**
+	 * Adds the given element.
+	 * 
+	 * @param element
+	 *            the element, not <code>null</code>
+	 */
+	public void add(T element) {
+		Validate.notNull(element, "element is null");
+		Integer groupKey = groupsByElement.computeIfAbsent(
+				element,
+				e -> ItemUtils.getSimilarityHash(itemGetter.apply(e))
+		);
+		elementsByGroup.computeIfAbsent(groupKey, key -> new ArrayList<>(1)).add(element);
+	}
+
+	/**
+	 * Removes the given element.
+	 * <p>
+	 * Elements are compared by identity.
+	 * 
+	 * @param element
+	 *            the element, not <code>null</code>
+	 * @return <code>true</code> if the element was found and removed
+	 */
+	public boolean remove(T element) {
+		Validate.notNull(element, "element is null");
+		Integer groupKey = groupsByElement.get(element);
+		if (groupKey == null) return false;
+		List<T> elements = Unsafe.assertNonNull(elementsByGroup.get(groupKey));
+
+		Iterator<T> iterator = elements.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() == element) {
+				iterator.remove();
+				break;
+			}
+		}
+		if (elements.isEmpty()) {
+			elementsByGroup.remove(groupKey);
+			groupsByElement.remove(element);
+		} else if (!this.containsElement(elements, element)) {
+			groupsByElement.remove(element);
+		}
+		return true;
+	}
+
+	private boolean containsElement(List<T> elements, T element) {
+		for (T otherElement : elements) {
+			if (otherElement == element) return true;
+		}
+		return false;
+	}
+
+	public void clear() {
+		elementsByGroup.clear();
+		groupsByElement.clear();
+	}
+
+	/**
+	 * Gets the elements whose item might be {@link ItemStack#isSimilar(ItemStack) similar} to the
+	 * given item.
+	 * <p>
+	 * This includes all elements with a similar item, but may also include elements whose item is
+	 * not similar to the given item.
+	 * 
+	 * @param item
+	 *            the item, not <code>null</code>
+	 * @return an unmodifiable view on the elements, not <code>null</code>
+	 */
+	public List<? extends T> getCandidates(@ReadOnly ItemStack item) {
+		Validate.notNull(item, "item is null");
+		List<T> elements = elementsByGroup.get(ItemUtils.getSimilarityHash(item));
+		if (elements == null) return Collections.emptyList();
+		return Collections.unmodifiableList(elements);
+	}
+
+	/**
+	 * Gets the first element whose item is {@link ItemStack#isSimilar(ItemStack) similar} to the
+	 * given item.
+	 * 
+	 * @param item
+	 *            the item, not <code>null</code>
+	 * @return the element, or <code>null</code> if no element with a similar item is found
+	 */
+	public @Nullable T get(@ReadOnly ItemStack item) {
+		Validate.notNull(item, "item is null");
+		List<T> elements = elementsByGroup.get(ItemUtils.getSimilarityHash(item));
+		if (elements == null) return null;
+
+		for (T element : elements) {
+			if (itemGetter.apply(element).isSimilar(item)) {
+				return element;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if there is an element whose item is {@link ItemStack#isSimilar(ItemStack) similar}
+	 * to the given item.
+	 * 
+	 * @param item
+	 *            the item, not <code>null</code>
+	 * @return <code>true</code> if an element with a similar item is found
+	 */
+	public boolean contains(@ReadOnly ItemStack item) {
+		return this.get(item) != null;
+	}
+}
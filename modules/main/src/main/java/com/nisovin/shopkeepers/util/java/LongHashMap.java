@@ -0,0 +1,200 @@
+package com.nisovin.shopkeepers.util.java;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A hash map with primitive <code>long</code> keys.
+ * <p>
+ * Unlike a {@link java.util.HashMap} with {@link Long} keys, this does not box the keys, neither
+ * when storing nor when looking up entries. The entries are stored in parallel arrays using open
+ * addressing with linear probing.
+ * <p>
+ * <code>null</code> values are not supported. Not thread-safe.
+ * 
+ * @param <V>
+ *            the value type
+ */
+public final class LongHashMap<V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private static int mix(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private long[] keys;
+	// Null marks an empty slot:
+	private @Nullable Object[] values;
+	private int mask;
+	private int size = 0;
+	private int resizeThreshold;
+
+	public LongHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new {@link LongHashMap}.
+	 * 
+	 * @param expectedSize
+	 *            the expected number of entries
+	 */
+	public LongHashMap(int expectedSize) {
+		Validate.isTrue(expectedSize >= 0, "expectedSize cannot be negative");
+		int minCapacity = Math.max(4, (int) (expectedSize / LOAD_FACTOR));
+		int capacity = Integer.highestOneBit(minCapacity * 2 - 1); // Power of two
+		this.keys = new long[capacity];
+		this.values = new @Nullable Object[capacity];
+		this.mask = capacity - 1;
+		this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	// Returns the slot of the given key, or the empty slot at which the key would be inserted.
+	private int findSlot(long key) {
+		int slot = mix(key) & mask;
+		while (values[slot] != null && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	public boolean containsKey(long key) {
+		return values[this.findSlot(key)] != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public @Nullable V get(long key) {
+		return (V) values[this.findSlot(key)];
+	}
+
+	/**
+	 * Associates the given value with the given key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value, not <code>null</code>
+	 * @return the previous value, or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public @Nullable V put(long key, V value) {
+		Validate.notNull(value, "value is null");
+		int slot = this.findSlot(key);
+		Object previous = values[slot];
+		if (previous != null) {
+			values[slot] = value;
+			return (V) previous;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		if (size > resizeThreshold) {
+			this.resize(keys.length * 2);
+		}
+		return null;
+	}
+
+	/**
+	 * Associates the given value with the given key, if the key is not yet associated with a
+	 * value.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value, not <code>null</code>
+	 * @return the current value, or <code>null</code> if the given value has been inserted
+	 */
+	public @Nullable V putIfAbsent(long key, V value) {
+		V current = this.get(key);
+		if (current != null) return current;
+
+		this.put(key, value);
+		return null;
+	}
+
+	/**
+	 * Removes the value for the given key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the removed value, or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public @Nullable V remove(long key) {
+		int slot = this.findSlot(key);
+		Object previous = values[slot];
+		if (previous == null) return null;
+
+		// Shift back the subsequent entries of the same probe sequence, so that lookups do not
+		// stop at the freed slot:
+		int freeSlot = slot;
+		int nextSlot = (slot + 1) & mask;
+		while (values[nextSlot] != null) {
+			int idealSlot = mix(keys[nextSlot]) & mask;
+			// Move the entry if its ideal slot is not within (freeSlot, nextSlot] (cyclically):
+			if (((nextSlot - idealSlot) & mask) >= ((nextSlot - freeSlot) & mask)) {
+				keys[freeSlot] = keys[nextSlot];
+				values[freeSlot] = values[nextSlot];
+				freeSlot = nextSlot;
+			}
+			nextSlot = (nextSlot + 1) & mask;
+		}
+		values[freeSlot] = null;
+		size--;
+		return (V) previous;
+	}
+
+	public void clear() {
+		if (size == 0) return;
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Performs the given action for each value.
+	 * <p>
+	 * The map must not be modified during the iteration.
+	 * 
+	 * @param action
+	 *            the action
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachValue(Consumer<? super V> action) {
+		for (Object value : values) {
+			if (value != null) {
+				action.accept((V) value);
+			}
+		}
+	}
+
+	private void resize(int newCapacity) {
+		long[] oldKeys = keys;
+		@Nullable Object[] oldValues = values;
+		keys = new long[newCapacity];
+		values = new @Nullable Object[newCapacity];
+		mask = newCapacity - 1;
+		resizeThreshold = (int) (newCapacity * LOAD_FACTOR);
+		for (int i = 0; i < oldValues.length; i++) {
+			Object value = oldValues[i];
+			if (value == null) continue;
+
+			int slot = this.findSlot(oldKeys[i]);
+			keys[slot] = oldKeys[i];
+			values[slot] = value;
+		}
+	}
+}
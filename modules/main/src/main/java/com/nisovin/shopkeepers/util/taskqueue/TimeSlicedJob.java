@@ -0,0 +1,178 @@
+package com.nisovin.shopkeepers.util.taskqueue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
+
+/**
+ * A job that processes a fixed list of elements, distributed over several ticks by a
+ * {@link TimeSlicedJobRunner}.
+ * <p>
+ * Each tick, the job processes as many elements as fit into the time budget of the runner. The
+ * elements are captured when the job is created: Elements that become invalid in the meantime,
+ * such as shopkeepers that have been deleted, need to be skipped by {@link #process(Object)}.
+ * <p>
+ * Exactly one of {@link #onCompleted()} and {@link #onCancelled()} is invoked once the job ends.
+ * These are the place for any work that only needs to be done once at the end of the job, such as
+ * saving.
+ * 
+ * @param <T>
+ *            the element type
+ */
+public abstract class TimeSlicedJob<@NonNull T> {
+
+	private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+	private final String name;
+	private final List<? extends @NonNull T> elements;
+	private int processedCount = 0;
+	private boolean cancelled = false;
+	private boolean ended = false;
+	private long lastProgressNanos;
+
+	/**
+	 * Creates a new {@link TimeSlicedJob}.
+	 * 
+	 * @param name
+	 *            the name of the job, used for logging, not <code>null</code>
+	 * @param elements
+	 *            the elements to process, not <code>null</code>, copied
+	 */
+	protected TimeSlicedJob(String name, Collection<? extends @NonNull T> elements) {
+		Validate.notNull(name, "name is null");
+		Validate.notNull(elements, "elements is null");
+		this.name = name;
+		this.elements = new ArrayList<>(elements);
+		this.lastProgressNanos = System.nanoTime();
+	}
+
+	public final String getName() {
+		return name;
+	}
+
+	public final int getTotalCount() {
+		return elements.size();
+	}
+
+	public final int getProcessedCount() {
+		return processedCount;
+	}
+
+	public final boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Checks if this job has ended, either because all elements have been processed, or because it
+	 * has been cancelled.
+	 * 
+	 * @return <code>true</code> if the job has ended
+	 */
+	public final boolean hasEnded() {
+		return ended;
+	}
+
+	/**
+	 * Requests the cancellation of this job.
+	 * <p>
+	 * The job stops before it processes its next element. {@link #onCancelled()} is invoked once
+	 * the runner reaches the job again.
+	 */
+	public final void cancel() {
+		cancelled = true;
+	}
+
+	// Returns true if the job has ended.
+	final boolean run(long deadlineNanos) {
+		if (ended) return true;
+		if (!cancelled && !this.isReady()) {
+			// Retry in a later tick:
+			return false;
+		}
+
+		int total = elements.size();
+		while (!cancelled && processedCount < total) {
+			@NonNull T element = elements.get(processedCount);
+			processedCount++;
+			try {
+				this.process(element);
+			} catch (Exception e) {
+				Log.severe("Job '" + name + "': Failed to process element " + element + "!", e);
+			}
+
+			if (System.nanoTime() - deadlineNanos >= 0) break;
+		}
+
+		if (cancelled || processedCount >= total) {
+			this.end();
+			return true;
+		}
+
+		long nowNanos = System.nanoTime();
+		if (nowNanos - lastProgressNanos >= PROGRESS_INTERVAL_NANOS) {
+			lastProgressNanos = nowNanos;
+			this.onProgress();
+		}
+		return false;
+	}
+
+	// Also invoked by the runner if the job is removed without being run to its end.
+	final void end() {
+		if (ended) return;
+		ended = true;
+		if (cancelled || processedCount < elements.size()) {
+			cancelled = true;
+			Log.debug(() -> "Job '" + name + "' cancelled after processing " + processedCount
+					+ " of " + elements.size() + " elements.");
+			this.onCancelled();
+		} else {
+			Log.debug(() -> "Job '" + name + "' completed: Processed " + processedCount
+					+ " elements.");
+			this.onCompleted();
+		}
+	}
+
+	/**
+	 * Processes the given element.
+	 * 
+	 * @param element
+	 *            the element, not <code>null</code>
+	 */
+	protected abstract void process(@NonNull T element);
+
+	/**
+	 * Checks if this job can currently process elements.
+	 * <p>
+	 * If not, the job is skipped for the current tick, and checked again in a later tick. This can
+	 * be used to wait for other operations to complete, such as a save.
+	 * 
+	 * @return <code>true</code> if the job can process elements
+	 */
+	protected boolean isReady() {
+		return true;
+	}
+
+	/**
+	 * This is invoked periodically while the job is running, so that it can report its progress.
+	 */
+	protected void onProgress() {
+	}
+
+	/**
+	 * This is invoked once all elements have been processed.
+	 */
+	protected void onCompleted() {
+	}
+
+	/**
+	 * This is invoked when the job has been cancelled before it processed all of its elements.
+	 */
+	protected void onCancelled() {
+	}
+}
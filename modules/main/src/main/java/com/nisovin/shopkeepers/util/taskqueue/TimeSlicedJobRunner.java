@@ -0,0 +1,104 @@
+package com.nisovin.shopkeepers.util.taskqueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.bukkit.plugin.Plugin;
+
+import com.nisovin.shopkeepers.util.java.Validate;
+
+/**
+ * A {@link TaskQueue} that runs {@link TimeSlicedJob}s within a time budget per tick.
+ * <p>
+ * Each tick, the job at the head of the queue is run until either all of its elements have been
+ * processed or the time budget has been used up. Jobs that have not ended yet are moved to the end
+ * of the queue, so that concurrent jobs take turns.
+ * <p>
+ * When the runner is {@link #shutdown() shut down}, all pending jobs are cancelled.
+ */
+public class TimeSlicedJobRunner extends TaskQueue<TimeSlicedJob<?>> {
+
+	private static final int TASK_PERIOD_TICKS = 1;
+	private static final int JOBS_PER_EXECUTION = 1;
+
+	private final IntSupplier timeBudgetMillis;
+	// Jobs that are currently pending, in the order in which they were submitted:
+	private final List<TimeSlicedJob<?>> jobs = new ArrayList<>();
+
+	/**
+	 * Creates a new {@link TimeSlicedJobRunner}.
+	 * 
+	 * @param plugin
+	 *            the plugin, not <code>null</code>
+	 * @param timeBudgetMillis
+	 *            provides the time budget in milliseconds per tick, not <code>null</code>
+	 */
+	public TimeSlicedJobRunner(Plugin plugin, IntSupplier timeBudgetMillis) {
+		super(plugin, TASK_PERIOD_TICKS, JOBS_PER_EXECUTION);
+		Validate.notNull(timeBudgetMillis, "timeBudgetMillis is null");
+		this.timeBudgetMillis = timeBudgetMillis;
+	}
+
+	/**
+	 * Submits the given job.
+	 * <p>
+	 * The job starts running with the next tick.
+	 * 
+	 * @param job
+	 *            the job, not <code>null</code>
+	 */
+	public void submit(TimeSlicedJob<?> job) {
+		Validate.notNull(job, "job is null");
+		Validate.isTrue(!job.hasEnded(), "job has already ended");
+		Validate.isTrue(!jobs.contains(job), "job has already been submitted");
+		jobs.add(job);
+		this.add(job);
+	}
+
+	/**
+	 * Gets the jobs that are currently pending.
+	 * 
+	 * @return a copy of the pending jobs
+	 */
+	public List<? extends TimeSlicedJob<?>> getJobs() {
+		return new ArrayList<>(jobs);
+	}
+
+	/**
+	 * Cancels all pending jobs.
+	 */
+	public void cancelAll() {
+		this.getJobs().forEach(job -> {
+			job.cancel();
+			this.remove(job); // Ends the job
+		});
+	}
+
+	@Override
+	public void shutdown() {
+		super.shutdown(); // Invokes onRemoval for all pending jobs
+		jobs.clear();
+	}
+
+	@Override
+	protected void onRemoval(TimeSlicedJob<?> job) {
+		super.onRemoval(job);
+		jobs.remove(job);
+		job.cancel();
+		job.end();
+	}
+
+	@Override
+	protected void process(TimeSlicedJob<?> job) {
+		long budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, timeBudgetMillis.getAsInt()));
+		boolean ended = job.run(System.nanoTime() + budgetNanos);
+		if (ended) {
+			jobs.remove(job);
+		} else {
+			// Continue with the job in a later tick:
+			this.add(job);
+		}
+	}
+}
@@ -12,18 +12,19 @@ import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 import com.nisovin.shopkeepers.util.java.Validate;
 
 /**
- * Represents a number of consecutive trades that involved the same player, the same shopkeeper, and
- * the same traded items.
+ * Represents a number of trades that involved the same player, the same shopkeeper, and the same
+ * traded items.
  */
 public class MergedTrades {
 
 	private final ShopkeeperTradeEvent initialTrade;
 	private final Instant timestamp = Instant.now();
-	private int tradeCount = 1;
+	private int tradeCount;
 
 	/**
 	 * Creates a new {@link MergedTrades} for the given {@link ShopkeeperTradeEvent trade} with a
-	 * {@link #getTradeCount() trade count} of one.
+	 * {@link #getTradeCount() trade count} that matches the
+	 * {@link ShopkeeperTradeEvent#getTradeCount() trade count} of the given trade.
 	 * 
 	 * @param initialTrade
 	 *            the initial trade, not <code>null</code>
@@ -31,6 +32,7 @@ public class MergedTrades {
 	public MergedTrades(ShopkeeperTradeEvent initialTrade) {
 		Validate.notNull(initialTrade, "initialTrade is null");
 		this.initialTrade = initialTrade;
+		this.tradeCount = initialTrade.getTradeCount();
 	}
 
 	/**
@@ -1,9 +1,16 @@
 package com.nisovin.shopkeepers.util.trading;
 
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
@@ -11,26 +18,37 @@ import org.checkerframework.checker.initialization.qual.UnknownInitialization;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.nisovin.shopkeepers.api.events.ShopkeeperTradeEvent;
-import com.nisovin.shopkeepers.api.internal.util.Unsafe;
-import com.nisovin.shopkeepers.util.bukkit.Ticks;
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
 import com.nisovin.shopkeepers.util.java.Validate;
+import com.nisovin.shopkeepers.util.logging.Log;
 
 /**
- * Merges sequentially triggered shopkeeper trades that involve the same player, shopkeeper, and
- * items.
+ * Merges shopkeeper trades that involve the same player, shopkeeper, and items.
  * <p>
- * Once a trade is encountered that cannot be merged with the previous trades, or once a certain
- * maximum duration has passed, or the {@link TradeMerger} is {@link #onDisable() disabled}, an
- * initially provided {@link Consumer} is informed about the merged trades so that they can be
- * further processed.
+ * Trades are merged into merge buckets that are keyed by the player, the shopkeeper, and the item
+ * types of the trading recipe. Trades of different players or at different shopkeepers can
+ * therefore be interleaved without ending each other's trade merging. If a trade cannot be merged
+ * with the pending trades of its bucket (e.g. because the offered items differ), only the trades
+ * of that bucket are processed.
+ * <p>
+ * Once a certain maximum duration has passed, or the {@link TradeMerger} is
+ * {@link #onDisable() disabled}, an initially provided {@link Consumer} is informed about the
+ * merged trades so that they can be further processed.
+ * <p>
+ * The merge timeouts of all buckets are tracked by a single timer wheel that is advanced by a
+ * task that runs every tick while there are pending trades. Merging a trade only updates the
+ * bucket's timestamps; the bucket's expiration is lazily re-evaluated once its timer wheel slot is
+ * reached.
  */
 public class TradeMerger {
 
 	/**
 	 * Different trade merging behaviors.
 	 * <p>
-	 * Regardless of the chosen {@link MergeMode}, trades are always only merged if they take place
-	 * sequentially and involve the same player, shopkeeper, and items.
+	 * Regardless of the chosen {@link MergeMode}, trades are always only merged if they involve the
+	 * same player, shopkeeper, and items.
 	 */
 	public enum MergeMode {
 		/**
@@ -48,36 +66,92 @@ public class TradeMerger {
 
 	private static final long DEFAULT_MERGE_DURATION_TICKS = 300L; // 15 seconds
 	private static final long DEFAULT_NEXT_MERGE_TIMEOUT_TICKS = 100L; // 5 seconds
-	// In order to avoid restarting the next merge timeout task too often (i.e. for performance
-	// reasons), the actual next merge timeout duration may dynamically vary by this amount. Since
-	// the primary purpose of this task is to detect the absence of trades that are manually
-	// triggered by players, it does not make much of a noticeable difference whether the trade
-	// merging is aborted slightly earlier or later.
-	private static final long NEXT_MERGE_TIMEOUT_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(500L);
+	// Buckets that expire further in the future than covered by the wheel stay in their slot for
+	// additional rounds:
+	private static final int TIMER_WHEEL_SLOTS = 64;
+
+	private static final class MergeKey {
+
+		private final Player player;
+		private final Shopkeeper shopkeeper;
+		private final Material resultItemType;
+		private final Material item1Type;
+		private final @Nullable Material item2Type;
+		private final int hashCode;
+
+		MergeKey(ShopkeeperTradeEvent tradeEvent) {
+			this.player = tradeEvent.getPlayer();
+			this.shopkeeper = tradeEvent.getShopkeeper();
+			TradingRecipe tradingRecipe = tradeEvent.getTradingRecipe();
+			this.resultItemType = tradingRecipe.getResultItem().getType();
+			this.item1Type = tradingRecipe.getItem1().getType();
+			UnmodifiableItemStack item2 = tradingRecipe.getItem2();
+			this.item2Type = (item2 != null) ? item2.getType() : null;
+			this.hashCode = Objects.hash(player, shopkeeper, resultItemType, item1Type, item2Type);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof MergeKey)) return false;
+			MergeKey other = (MergeKey) obj;
+			if (hashCode != other.hashCode) return false;
+			// Players and shopkeepers are compared by identity, like in MergedTrades:
+			if (player != other.player) return false;
+			if (shopkeeper != other.shopkeeper) return false;
+			if (resultItemType != other.resultItemType) return false;
+			if (item1Type != other.item1Type) return false;
+			if (item2Type != other.item2Type) return false;
+			return true;
+		}
+	}
+
+	private static final class MergeBucket {
+
+		private final MergeKey key;
+		private final MergedTrades trades;
+		private final long startTick;
+		private long lastTradeTick;
+		// Set once the bucket's trades have been processed:
+		private boolean processed = false;
+		// The next bucket in the same timer wheel slot:
+		private @Nullable MergeBucket nextInSlot = null;
+
+		MergeBucket(MergeKey key, MergedTrades trades, long startTick) {
+			this.key = key;
+			this.trades = trades;
+			this.startTick = startTick;
+			this.lastTradeTick = startTick;
+		}
+	}
 
 	private final Plugin plugin;
 	private final Consumer<MergedTrades> mergedTradesConsumer;
 	private final MergeMode mergeMode;
 	// The maximum time span between the first and the last merged trade:
 	private long mergeDurationTicks; // Can be 0 to disable the trade merging
-	private long mergeDurationNanos;
 	// The maximum time span between successive merged trades:
 	private long nextMergeTimeoutTicks;
-	private long nextMergeTimeoutNanos;
-
-	private @Nullable MergedTrades previousTrades = null;
-	// The expected maximum nano time by which this merge will end. If the server lags, the actual
-	// end time can be later. This is used to estimate whether it makes sense to start or skip a new
-	// timeout task for the next merge.
-	// TODO In order to account for server lag, check more frequently whether one of the trade
-	// merging timeouts has already been reached?
-	private long mergeEndNanos;
-	private long lastMergedTradeNanos;
-
-	private @Nullable BukkitTask mergeDurationTask = null;
-	private @Nullable BukkitTask nextMergeTimeoutTask = null;
-	// This is set to the lastMergedTradeNanos at the time the nextMergeTimeoutTask is started.
-	private long nextMergeTimeoutStartNanos;
+
+	// In insertion order, so that the pending trades are processed in order during shutdown:
+	private final Map<MergeKey, MergeBucket> buckets = new LinkedHashMap<>();
+	// The buckets of each slot are kept in the order in which they were scheduled, so that buckets
+	// that expire during the same tick are processed in order:
+	private final @Nullable MergeBucket[] timerWheel = new @Nullable MergeBucket[TIMER_WHEEL_SLOTS];
+	private final @Nullable MergeBucket[] timerWheelTails
+			= new @Nullable MergeBucket[TIMER_WHEEL_SLOTS];
+	// Only advanced while the timer task is running:
+	private long currentTick = 0L;
+	private @Nullable BukkitTask timerTask = null;
+
+	// Merge statistics:
+	private long mergedTradeEvents = 0L;
+	private long processedMergedTrades = 0L;
 
 	public TradeMerger(
 			Plugin plugin,
@@ -114,7 +188,7 @@ public class TradeMerger {
 	 * @return this {@link TradeMerger}
 	 */
 	public TradeMerger withMergeDurations(long mergeDurationTicks, long nextMergeTimeoutTicks) {
-		Validate.State.isTrue(previousTrades == null,
+		Validate.State.isTrue(buckets.isEmpty(),
 				"This TradeMerger cannot be reconfigured while it is already merging trades.");
 		Validate.State.isTrue(mergeMode == MergeMode.DURATION,
 				"Calling this method is only valid when using MergeMode DURATION.");
@@ -130,169 +204,169 @@ public class TradeMerger {
 		Validate.isTrue(mergeDurationTicks >= 0, "mergeDurationTicks cannot be negative");
 		Validate.isTrue(nextMergeTimeoutTicks >= 0, "nextMergeTimeoutTicks cannot be negative");
 		this.mergeDurationTicks = mergeDurationTicks;
-		this.mergeDurationNanos = Ticks.toNanos(mergeDurationTicks);
 		this.nextMergeTimeoutTicks = nextMergeTimeoutTicks;
-		this.nextMergeTimeoutNanos = Ticks.toNanos(nextMergeTimeoutTicks);
 	}
 
 	public void onEnable() {
 	}
 
 	public void onDisable() {
-		// Process the previous trades, if there are any:
-		// This also stops the delayed tasks.
+		// Process the pending trades, if there are any:
+		// This also stops the timer task.
 		this.processPreviousTrades();
+
+		if (mergedTradeEvents > 0) {
+			Log.debug(() -> "Trade merging: Merged " + mergedTradeEvents + " trade events into "
+					+ processedMergedTrades + " merged trades (merge ratio: "
+					+ String.format("%.2f", this.getMergeRatio()) + ").");
+		}
+	}
+
+	/**
+	 * Gets the number of trade events that have been passed to this {@link TradeMerger} so far.
+	 * 
+	 * @return the number of trade events
+	 */
+	public long getMergedTradeEvents() {
+		return mergedTradeEvents;
+	}
+
+	/**
+	 * Gets the number of {@link MergedTrades} that have been processed so far.
+	 * 
+	 * @return the number of processed merged trades
+	 */
+	public long getProcessedMergedTrades() {
+		return processedMergedTrades;
 	}
 
 	/**
-	 * Tries to merge the given trade with the previous trades, and triggers the processing of the
-	 * previous trades if they could not be merged.
+	 * Gets the average number of trade events per processed {@link MergedTrades}.
+	 * 
+	 * @return the merge ratio, or <code>1.0</code> if no merged trades have been processed yet
+	 */
+	public double getMergeRatio() {
+		if (processedMergedTrades == 0) return 1.0D;
+		return (double) mergedTradeEvents / processedMergedTrades;
+	}
+
+	/**
+	 * Tries to merge the given trade with the pending trades of its merge bucket, and triggers the
+	 * processing of the pending trades of that bucket if they could not be merged.
 	 * 
 	 * @param tradeEvent
 	 *            the trade event
 	 */
 	public void mergeTrade(ShopkeeperTradeEvent tradeEvent) {
 		Validate.notNull(tradeEvent, "tradeEvent is null");
-		long nowNanos = System.nanoTime();
-		MergedTrades previousTrades = this.previousTrades;
-		if (previousTrades == null) {
-			// There are no previous trades to merge with.
-			this.previousTrades = new MergedTrades(tradeEvent);
-			mergeEndNanos = nowNanos + mergeDurationNanos;
-			lastMergedTradeNanos = nowNanos;
-			this.startDelayedTasks();
-		} else if (previousTrades.canMerge(tradeEvent, mergeMode == MergeMode.SAME_CLICK_EVENT)) {
-			// Merge the trade with the previous trades:
-			previousTrades.addTrades(1);
-			lastMergedTradeNanos = nowNanos;
-		} else {
-			// The trade could not be merged with the previous trades.
-			this.processPreviousTrades();
-			assert this.previousTrades == null;
-			this.previousTrades = new MergedTrades(tradeEvent);
-			mergeEndNanos = nowNanos + mergeDurationNanos;
-			lastMergedTradeNanos = nowNanos;
-			this.startDelayedTasks();
+		mergedTradeEvents++;
+
+		// A merge duration of 0 effectively disables the trade merging:
+		if (mergeDurationTicks == 0) {
+			this.processMergedTrades(new MergedTrades(tradeEvent));
+			return;
 		}
-	}
 
-	private void endDelayedTasks() {
-		this.endMergeDurationTask();
-		this.endNextMergeTimeoutTask();
-	}
+		MergeKey key = new MergeKey(tradeEvent);
+		MergeBucket bucket = buckets.get(key);
+		if (bucket != null) {
+			if (bucket.trades.canMerge(tradeEvent, mergeMode == MergeMode.SAME_CLICK_EVENT)) {
+				// Merge the trade with the pending trades:
+				// The bucket's expiration is re-evaluated once its timer wheel slot is reached.
+				bucket.trades.addTrades(tradeEvent.getTradeCount());
+				bucket.lastTradeTick = currentTick;
+				return;
+			}
 
-	private void endMergeDurationTask() {
-		if (mergeDurationTask != null) {
-			mergeDurationTask.cancel();
-			mergeDurationTask = null;
+			// The trade could not be merged with the pending trades of its bucket:
+			this.processBucket(bucket);
 		}
+
+		MergeBucket newBucket = new MergeBucket(key, new MergedTrades(tradeEvent), currentTick);
+		buckets.put(key, newBucket);
+		this.schedule(newBucket, this.getExpirationTick(newBucket));
+		this.startTimerTask();
 	}
 
-	private void endNextMergeTimeoutTask() {
-		if (nextMergeTimeoutTask != null) {
-			nextMergeTimeoutTask.cancel();
-			nextMergeTimeoutTask = null;
+	private long getExpirationTick(MergeBucket bucket) {
+		long expirationTick = bucket.startTick + mergeDurationTicks;
+		// The next merge timeout is not used if its duration is 0, or if its duration is greater
+		// than or equal to the merge duration. This also excludes the case where the merge mode is
+		// SAME_CLICK_EVENT (i.e. when the merge duration is 1).
+		if (nextMergeTimeoutTicks > 0 && nextMergeTimeoutTicks < mergeDurationTicks) {
+			expirationTick = Math.min(expirationTick, bucket.lastTradeTick + nextMergeTimeoutTicks);
 		}
+		return expirationTick;
 	}
 
-	private void startDelayedTasks() {
-		// End the previous tasks, if they are active:
-		this.endDelayedTasks();
-
-		// A merge duration of 0 effectively disables the trade merging:
-		if (mergeDurationTicks == 0) {
-			this.processPreviousTrades();
-			return;
+	private void schedule(MergeBucket bucket, long tick) {
+		int slot = (int) Math.floorMod(tick, (long) TIMER_WHEEL_SLOTS);
+		MergeBucket tail = timerWheelTails[slot];
+		if (tail == null) {
+			timerWheel[slot] = bucket;
+		} else {
+			tail.nextInSlot = bucket;
 		}
-
-		// Start the delayed tasks that end the trade merging after certain maximum durations:
-		this.startMergeDurationTask();
-		this.startNextMergeTimeoutTask();
+		timerWheelTails[slot] = bucket;
 	}
 
-	private void startMergeDurationTask() {
-		// End the previous task, if there is one:
-		this.endMergeDurationTask();
+	private void startTimerTask() {
+		if (timerTask != null) return;
+		timerTask = Bukkit.getScheduler().runTaskTimer(plugin, new TimerTask(), 1L, 1L);
+	}
 
-		// Start a new delayed task that ends the trade merging after a certain maximum duration:
-		mergeDurationTask = Bukkit.getScheduler().runTaskLater(
-				plugin,
-				new MaxMergeDurationTimeoutTask(),
-				mergeDurationTicks
-		);
+	private void stopTimerTask() {
+		if (timerTask != null) {
+			timerTask.cancel();
+			timerTask = null;
+		}
 	}
 
-	private class MaxMergeDurationTimeoutTask implements Runnable {
+	private class TimerTask implements Runnable {
 		@Override
 		public void run() {
-			assert previousTrades != null; // Otherwise this task would have already been cancelled
-			mergeDurationTask = null;
-			processPreviousTrades();
+			advanceTimerWheel();
 		}
 	}
 
-	private void startNextMergeTimeoutTask() {
-		// This timeout is not used if its duration is 0, or if its duration is greater than or
-		// equal to the merge duration. This also excludes the cases where the trade merging is
-		// disabled (i.e. when the merge duration is 0), or where the merge mode is SAME_CLICK_EVENT
-		// (i.e. when the merge duration is 1).
-		if (nextMergeTimeoutTicks == 0 || nextMergeTimeoutTicks >= mergeDurationTicks) return;
-		assert mergeMode == MergeMode.DURATION;
-
-		// End the previous task, if there is one:
-		this.endNextMergeTimeoutTask();
-
-		// In order to avoid restarting this task very frequently (e.g. after every merged trade),
-		// we instead only start this task once and then check afterwards whether there have been
-		// any trades in the meantime. If there has been another trade, a new next merge timeout
-		// task is started with a delay according to the remaining timeout duration for the last
-		// merged trade.
-		long nowNanos = System.nanoTime();
-		long nanosSinceLastMergedTrade = nowNanos - lastMergedTradeNanos;
-		assert nanosSinceLastMergedTrade >= 0;
-		// If the server lagged, this may end up being negative:
-		long remainingTimeoutNanos = nextMergeTimeoutNanos - nanosSinceLastMergedTrade;
-
-		// We avoid starting a new task if the remaining timeout duration is below a certain
-		// threshold. This threshold also captures the case where the remainingTimeoutNanos is less
-		// than 0, or the resulting task delay ticks is less than 1.
-		if (remainingTimeoutNanos <= NEXT_MERGE_TIMEOUT_THRESHOLD_NANOS) {
-			this.processPreviousTrades();
-			return;
+	// Visible for testing:
+	void advanceTimerWheel() {
+		currentTick++;
+		int slot = (int) Math.floorMod(currentTick, (long) TIMER_WHEEL_SLOTS);
+		MergeBucket bucket = timerWheel[slot];
+		timerWheel[slot] = null;
+		timerWheelTails[slot] = null;
+		while (bucket != null) {
+			MergeBucket next = bucket.nextInSlot;
+			bucket.nextInSlot = null;
+			if (!bucket.processed) {
+				long expirationTick = this.getExpirationTick(bucket);
+				if (expirationTick <= currentTick) {
+					this.processBucket(bucket);
+				} else {
+					// Not yet expired: Either further trades have been merged in the meantime, or
+					// the expiration lies beyond the current round of the timer wheel.
+					this.schedule(bucket, expirationTick);
+				}
+			}
+			bucket = next;
 		}
 
-		// We avoid starting a new task if the trade merging is expected to end earlier, or roughly
-		// at the same time (by up to NEXT_MERGE_TIMEOUT_THRESHOLD_NANOS) as the task anyway:
-		if (mergeEndNanos <= nowNanos + remainingTimeoutNanos + NEXT_MERGE_TIMEOUT_THRESHOLD_NANOS) {
-			return;
+		if (buckets.isEmpty()) {
+			this.stopTimerTask();
 		}
+	}
 
-		// Start a new delayed task that ends the trade merging after a certain maximum duration:
-		long taskDelayTicks = Ticks.fromNanos(remainingTimeoutNanos);
-		assert taskDelayTicks >= 1; // Due to the threshold checked above
-		// Keep track of the timestamp of the last merged trade:
-		nextMergeTimeoutStartNanos = lastMergedTradeNanos;
-		nextMergeTimeoutTask = Bukkit.getScheduler().runTaskLater(
-				plugin,
-				new NextMergeTimeoutTask(),
-				taskDelayTicks
-		);
+	private void processBucket(MergeBucket bucket) {
+		assert !bucket.processed;
+		bucket.processed = true;
+		buckets.remove(bucket.key);
+		this.processMergedTrades(bucket.trades);
 	}
 
-	private class NextMergeTimeoutTask implements Runnable {
-		@Override
-		public void run() {
-			assert previousTrades != null; // Otherwise this task would have already been cancelled
-			nextMergeTimeoutTask = null;
-
-			// If there has been another trade in the meantime, restart this timeout task:
-			if (lastMergedTradeNanos != nextMergeTimeoutStartNanos) {
-				startNextMergeTimeoutTask();
-			} else {
-				// Otherwise, abort the trade merging:
-				processPreviousTrades();
-			}
-		}
+	private void processMergedTrades(MergedTrades mergedTrades) {
+		processedMergedTrades++;
+		mergedTradesConsumer.accept(mergedTrades);
 	}
 
 	/**
@@ -302,9 +376,17 @@ public class TradeMerger {
 	 * Calling this method has no effect if there are no pending trades to process.
 	 */
 	public void processPreviousTrades() {
-		if (previousTrades == null) return;
-		this.endDelayedTasks();
-		mergedTradesConsumer.accept(Unsafe.assertNonNull(previousTrades));
-		previousTrades = null;
+		this.stopTimerTask();
+		Arrays.fill(timerWheel, null);
+		Arrays.fill(timerWheelTails, null);
+		if (buckets.isEmpty()) return;
+
+		// Copy the buckets, since the consumer might trigger further trades:
+		List<MergeBucket> pendingBuckets = new ArrayList<>(buckets.values());
+		pendingBuckets.forEach(bucket -> {
+			if (!bucket.processed) {
+				this.processBucket(bucket);
+			}
+		});
 	}
 }
@@ -14,9 +14,12 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.junit.Test;
 
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.compat.Compat;
+import com.nisovin.shopkeepers.compat.CompatProvider;
 import com.nisovin.shopkeepers.testutil.AbstractBukkitTest;
 import com.nisovin.shopkeepers.util.TestItemStacks;
 import com.nisovin.shopkeepers.util.inventory.ItemData;
+import com.nisovin.shopkeepers.util.inventory.ItemSerialization;
 import com.nisovin.shopkeepers.util.inventory.ItemUtils;
 import com.nisovin.shopkeepers.util.java.MutableLong;
 import com.nisovin.shopkeepers.util.java.TimeUtils;
@@ -277,6 +280,109 @@ public class PerformanceTests extends AbstractBukkitTest {
 		);
 	}
 
+	@Test
+	public void testCompiledMatcherPerformance() {
+		LOGGER.info("Testing compiled item matcher performance:");
+		int warmupCount = 10000;
+		int testCount = 1000000;
+		ItemStack itemStack = TestItemStacks.createItemStackComplete();
+		ItemData itemData = new ItemData(itemStack);
+		Material type = itemStack.getType();
+		var serializedMetaData = ItemSerialization.serializeItemMetaOrEmpty(
+				itemStack.getItemMeta()
+		);
+		CraftItemStack craftItemStack = CraftItemStack.asCraftCopy(itemStack);
+		CraftItemStack otherTypeItemStack = CraftItemStack.asCraftCopy(
+				TestItemStacks.createItemStackBasic()
+		);
+		CraftItemStack otherMetaItemStack = CraftItemStack.asCraftCopy(itemStack);
+		ItemMeta otherItemMeta = Unsafe.assertNonNull(otherMetaItemStack.getItemMeta());
+		otherItemMeta.setDisplayName("other");
+		otherMetaItemStack.setItemMeta(otherItemMeta);
+		CompatProvider compatProvider = Compat.getProvider();
+		var itemMatcher = compatProvider.createItemMatcher(itemStack);
+
+		testPerformance(
+				"  ",
+				"matching serialized metadata (legacy)",
+				warmupCount,
+				testCount,
+				() -> {
+					ItemUtils.matchesData(craftItemStack, type, serializedMetaData, false);
+				}
+		);
+
+		testPerformance(
+				"  ",
+				"ItemData#matches(CraftItemStack)",
+				warmupCount,
+				testCount,
+				() -> {
+					itemData.matches(craftItemStack);
+				}
+		);
+
+		testPerformance(
+				"  ",
+				"CompatProvider#matches(CraftItemStack, ItemStack)",
+				warmupCount,
+				testCount,
+				() -> {
+					compatProvider.matches(craftItemStack, itemStack);
+				}
+		);
+
+		testPerformance(
+				"  ",
+				"compiled CompatProvider matcher",
+				warmupCount,
+				testCount,
+				() -> {
+					itemMatcher.test(craftItemStack);
+				}
+		);
+
+		testPerformance(
+				"  ",
+				"matching serialized metadata, other type (legacy)",
+				warmupCount,
+				testCount,
+				() -> {
+					ItemUtils.matchesData(otherTypeItemStack, type, serializedMetaData, false);
+				}
+		);
+
+		testPerformance(
+				"  ",
+				"ItemData#matches(CraftItemStack), other type",
+				warmupCount,
+				testCount,
+				() -> {
+					itemData.matches(otherTypeItemStack);
+				}
+		);
+
+		testPerformance(
+				"  ",
+				"matching serialized metadata, other metadata (legacy)",
+				warmupCount,
+				testCount,
+				() -> {
+					ItemUtils.matchesData(otherMetaItemStack, type, serializedMetaData, false);
+				}
+		);
+
+		testPerformance(
+				"  ",
+				"ItemData#matches(CraftItemStack), other metadata",
+				warmupCount,
+				testCount,
+				() -> {
+					itemData.matches(otherMetaItemStack);
+				}
+		);
+	}
+
 	@Test
 	public void testCraftItemStackReflectiveHandleVsCopyPerformance() throws Exception {
 		LOGGER.info("Testing reflective CraftItemStack.handle access vs asNMSCopy performance:");
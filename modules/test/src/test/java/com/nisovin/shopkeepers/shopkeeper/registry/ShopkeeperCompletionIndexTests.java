@@ -0,0 +1,188 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.testutil.AbstractBukkitTest;
+
+public class ShopkeeperCompletionIndexTests extends AbstractBukkitTest {
+
+	private final ShopkeeperIdList<Shopkeeper> shopkeepersById = new ShopkeeperIdList<>();
+	private final ShopkeeperCompletionIndex<Shopkeeper> index = new ShopkeeperCompletionIndex<>(
+			shopkeepersById
+	);
+
+	// Registers the shopkeeper the same way as the shopkeeper registry:
+	private Shopkeeper add(Shopkeeper shopkeeper) {
+		shopkeepersById.addShopkeeper(shopkeeper);
+		index.add(shopkeeper);
+		return shopkeeper;
+	}
+
+	private void remove(Shopkeeper shopkeeper) {
+		shopkeepersById.removeShopkeeper(shopkeeper);
+		index.remove(shopkeeper);
+	}
+
+	private void addIds(int... ids) {
+		for (int id : ids) {
+			this.add(TestShopkeeper.create(id, ""));
+		}
+	}
+
+	private static List<Integer> ids(Stream<Shopkeeper> shopkeepers) {
+		return shopkeepers.map(Shopkeeper::getId).collect(Collectors.toList());
+	}
+
+	private static List<String> names(Stream<Shopkeeper> shopkeepers) {
+		return shopkeepers.map(Shopkeeper::getName).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testIdPrefixRanges() {
+		this.addIds(1, 2, 12, 13, 21, 120, 125, 129, 130, 1200, 1299, 1300, 12000);
+
+		// Shorter ids first:
+		assertEquals(
+				Arrays.asList(12, 120, 125, 129, 1200, 1299, 12000),
+				ids(index.getShopkeepersByIdPrefix("12"))
+		);
+		assertEquals(
+				Arrays.asList(1, 12, 13, 120, 125, 129, 130, 1200, 1299, 1300, 12000),
+				ids(index.getShopkeepersByIdPrefix("1"))
+		);
+		assertEquals(Arrays.asList(2, 21), ids(index.getShopkeepersByIdPrefix("2")));
+		assertEquals(Arrays.asList(130, 1300), ids(index.getShopkeepersByIdPrefix("130")));
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByIdPrefix("3")));
+	}
+
+	@Test
+	public void testEmptyIdPrefix() {
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByIdPrefix("")));
+
+		this.addIds(7, 3, 100, 42);
+		assertEquals(Arrays.asList(3, 7, 42, 100), ids(index.getShopkeepersByIdPrefix("")));
+	}
+
+	@Test
+	public void testInvalidIdPrefixes() {
+		this.addIds(0, 1, 10, 100);
+
+		assertEquals(Arrays.asList(0), ids(index.getShopkeepersByIdPrefix("0")));
+		// No leading zeros:
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByIdPrefix("01")));
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByIdPrefix("00")));
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByIdPrefix("-1")));
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByIdPrefix("1a")));
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByIdPrefix("12345678901")));
+	}
+
+	@Test
+	public void testLargeIdPrefix() {
+		// The next prefix ranges of large prefixes exceed the int range:
+		this.addIds(2147483647, 214748364, 21474836);
+		assertEquals(
+				Arrays.asList(21474836, 214748364, 2147483647),
+				ids(index.getShopkeepersByIdPrefix("2147483"))
+		);
+		assertEquals(Arrays.asList(2147483647), ids(index.getShopkeepersByIdPrefix("2147483647")));
+	}
+
+	@Test
+	public void testIdPrefixAfterRemoval() {
+		List<Shopkeeper> shopkeepers = new ArrayList<>();
+		for (int id : new int[] { 5, 50, 51, 500 }) {
+			shopkeepers.add(this.add(TestShopkeeper.create(id, "")));
+		}
+		this.remove(shopkeepers.get(1));
+		assertEquals(Arrays.asList(5, 51, 500), ids(index.getShopkeepersByIdPrefix("5")));
+	}
+
+	@Test
+	public void testUUIDPrefix() {
+		UUID uuid1 = UUID.fromString("12345678-0000-0000-0000-000000000001");
+		UUID uuid2 = UUID.fromString("12345678-0000-0000-0000-000000000002");
+		UUID uuid3 = UUID.fromString("abcdef00-0000-0000-0000-000000000003");
+		// Added out of order:
+		Shopkeeper shopkeeper2 = this.add(TestShopkeeper.create(2, uuid2, ""));
+		this.add(TestShopkeeper.create(1, uuid1, ""));
+		this.add(TestShopkeeper.create(3, uuid3, ""));
+
+		assertEquals(Arrays.asList(1, 2), ids(index.getShopkeepersByUUIDPrefix("1234")));
+		assertEquals(Arrays.asList(3), ids(index.getShopkeepersByUUIDPrefix("abc")));
+		assertEquals(Arrays.asList(1, 2, 3), ids(index.getShopkeepersByUUIDPrefix("")));
+		assertEquals(
+				Arrays.asList(2),
+				ids(index.getShopkeepersByUUIDPrefix(uuid2.toString()))
+		);
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByUUIDPrefix("f")));
+
+		this.remove(shopkeeper2);
+		assertEquals(Arrays.asList(1), ids(index.getShopkeepersByUUIDPrefix("1234")));
+	}
+
+	@Test
+	public void testNamePrefix() {
+		this.add(TestShopkeeper.create(1, "Weapon Shop"));
+		this.add(TestShopkeeper.create(2, "Armor Shop"));
+		this.add(TestShopkeeper.create(3, "weapon_shop"));
+		this.add(TestShopkeeper.create(4, "Wool Trader"));
+		// Not indexed:
+		this.add(TestShopkeeper.create(5, ""));
+
+		// Ordered by the normalized names, and shopkeepers with the same normalized name in the
+		// order in which they have been added:
+		assertEquals(
+				Arrays.asList(1, 3, 4),
+				ids(index.getShopkeepersByNamePrefix(ShopkeeperCompletionIndex.normalizeName("W")))
+		);
+		assertEquals(
+				Arrays.asList(1, 3),
+				ids(index.getShopkeepersByNamePrefix("weapon-"))
+		);
+		assertEquals(Arrays.asList(2, 1, 3, 4), ids(index.getShopkeepersByNamePrefix("")));
+		assertEquals(Arrays.asList(1, 3), ids(index.getShopkeepersByName("weapon-shop")));
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByName("weapon")));
+	}
+
+	@Test
+	public void testNameChanged() {
+		Shopkeeper shopkeeper = this.add(TestShopkeeper.create(1, "Old Name"));
+		this.add(TestShopkeeper.create(2, "Other"));
+
+		shopkeeper.setName("New Name");
+		index.onNameChanged(shopkeeper);
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByNamePrefix("old")));
+		assertEquals(Arrays.asList(1), ids(index.getShopkeepersByNamePrefix("new")));
+		assertEquals(Arrays.asList("New Name"), names(index.getShopkeepersByName("new-name")));
+
+		// Same normalized name:
+		shopkeeper.setName("NEW_NAME");
+		index.onNameChanged(shopkeeper);
+		assertEquals(Arrays.asList(1), ids(index.getShopkeepersByName("new-name")));
+
+		// Removing the name removes the shopkeeper from the index:
+		shopkeeper.setName("");
+		index.onNameChanged(shopkeeper);
+		assertEquals(Arrays.asList(2), ids(index.getShopkeepersByNamePrefix("")));
+
+		// Adding a name again:
+		shopkeeper.setName("Named again");
+		index.onNameChanged(shopkeeper);
+		assertEquals(Arrays.asList(1), ids(index.getShopkeepersByNamePrefix("named")));
+
+		this.remove(shopkeeper);
+		assertEquals(Collections.emptyList(), ids(index.getShopkeepersByNamePrefix("named")));
+		assertEquals(Arrays.asList(2), ids(index.getShopkeepersByNamePrefix("")));
+	}
+}
@@ -0,0 +1,122 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+
+public class ShopkeeperIdListTests {
+
+	private static void assertSortedIds(ShopkeeperIdList<Shopkeeper> list, int... expectedIds) {
+		assertEquals(expectedIds.length, list.size());
+		for (int i = 0; i < expectedIds.length; i++) {
+			assertEquals(expectedIds[i], list.getId(i));
+			assertEquals(expectedIds[i], list.get(i).getId());
+		}
+	}
+
+	@Test
+	public void testSortedInsert() {
+		ShopkeeperIdList<Shopkeeper> list = new ShopkeeperIdList<>();
+		assertTrue(list.isEmpty());
+		// More shopkeepers than the initial capacity, in mixed order:
+		int[] ids = { 5, 1, 9, 3, 7, 2, 8, 4, 6 };
+		for (int id : ids) {
+			list.addShopkeeper(TestShopkeeper.create(id, ""));
+		}
+		assertSortedIds(list, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+	}
+
+	@Test
+	public void testAddReplacesShopkeeperWithSameId() {
+		ShopkeeperIdList<Shopkeeper> list = new ShopkeeperIdList<>();
+		Shopkeeper first = TestShopkeeper.create(1, "");
+		Shopkeeper second = TestShopkeeper.create(1, "");
+		list.addShopkeeper(first);
+		list.addShopkeeper(second);
+		assertEquals(1, list.size());
+		assertSame(second, list.get(0));
+		assertFalse(list.contains(first));
+		assertTrue(list.contains(second));
+	}
+
+	@Test
+	public void testRemove() {
+		ShopkeeperIdList<Shopkeeper> list = new ShopkeeperIdList<>();
+		List<Shopkeeper> shopkeepers = new ArrayList<>();
+		for (int id = 1; id <= 5; id++) {
+			Shopkeeper shopkeeper = TestShopkeeper.create(id, "");
+			shopkeepers.add(shopkeeper);
+			list.addShopkeeper(shopkeeper);
+		}
+
+		// Middle, first, last:
+		assertTrue(list.removeShopkeeper(shopkeepers.get(2)));
+		assertSortedIds(list, 1, 2, 4, 5);
+		assertTrue(list.removeShopkeeper(shopkeepers.get(0)));
+		assertSortedIds(list, 2, 4, 5);
+		assertTrue(list.removeShopkeeper(shopkeepers.get(4)));
+		assertSortedIds(list, 2, 4);
+
+		// Already removed:
+		assertFalse(list.removeShopkeeper(shopkeepers.get(2)));
+		assertFalse(list.contains(shopkeepers.get(2)));
+		// A different shopkeeper with the same id is not removed:
+		assertFalse(list.removeShopkeeper(TestShopkeeper.create(2, "")));
+		assertSortedIds(list, 2, 4);
+
+		list.clearShopkeepers();
+		assertTrue(list.isEmpty());
+		assertFalse(list.contains(shopkeepers.get(1)));
+	}
+
+	@Test
+	public void testLowerBound() {
+		ShopkeeperIdList<Shopkeeper> list = new ShopkeeperIdList<>();
+		for (int id : new int[] { 10, 20, 30 }) {
+			list.addShopkeeper(TestShopkeeper.create(id, ""));
+		}
+		assertEquals(0, list.lowerBound(0));
+		assertEquals(0, list.lowerBound(10));
+		assertEquals(1, list.lowerBound(11));
+		assertEquals(1, list.lowerBound(20));
+		assertEquals(2, list.lowerBound(30));
+		assertEquals(3, list.lowerBound(31));
+		assertEquals(3, list.lowerBound(Integer.MAX_VALUE + 1L));
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(1L);
+		List<Shopkeeper> shopkeepers = new ArrayList<>();
+		for (int id = 0; id < 200; id++) {
+			shopkeepers.add(TestShopkeeper.create(id, ""));
+		}
+		Collections.shuffle(shopkeepers, random);
+
+		ShopkeeperIdList<Shopkeeper> list = new ShopkeeperIdList<>();
+		List<Integer> expectedIds = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			Shopkeeper shopkeeper = shopkeepers.get(random.nextInt(shopkeepers.size()));
+			Integer id = shopkeeper.getId();
+			if (random.nextBoolean()) {
+				list.addShopkeeper(shopkeeper);
+				if (!expectedIds.contains(id)) expectedIds.add(id);
+			} else {
+				assertEquals(expectedIds.remove(id), list.removeShopkeeper(shopkeeper));
+			}
+		}
+
+		Collections.sort(expectedIds);
+		assertSortedIds(list, expectedIds.stream().mapToInt(Integer::intValue).toArray());
+	}
+}
@@ -0,0 +1,71 @@
+package com.nisovin.shopkeepers.shopkeeper.registry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+
+/**
+ * Creates {@link Shopkeeper} proxies that only provide an id, a unique id, and a mutable name.
+ * <p>
+ * The methods of {@link Object} are implemented based on the identity of the proxy.
+ */
+class TestShopkeeper implements InvocationHandler {
+
+	static Shopkeeper create(int id, String name) {
+		return create(id, UUID.randomUUID(), name);
+	}
+
+	static Shopkeeper create(int id, UUID uniqueId, String name) {
+		Shopkeeper shopkeeper = Unsafe.castNonNull(Proxy.newProxyInstance(
+				Shopkeeper.class.getClassLoader(),
+				new Class<?>[] { Shopkeeper.class },
+				new TestShopkeeper(id, uniqueId)
+		));
+		shopkeeper.setName(name);
+		return shopkeeper;
+	}
+
+	private final int id;
+	private final UUID uniqueId;
+	private String name = "";
+
+	private TestShopkeeper(int id, UUID uniqueId) {
+		this.id = id;
+		this.uniqueId = uniqueId;
+	}
+
+	@Override
+	public @Nullable Object invoke(
+			Object proxy,
+			Method method,
+			@Nullable Object @Nullable [] args
+	) {
+		switch (method.getName()) {
+		case "getId":
+			return id;
+		case "getUniqueId":
+			return uniqueId;
+		case "getName":
+			return name;
+		case "setName":
+			assert args != null;
+			String newName = (String) args[0];
+			name = (newName != null) ? newName : "";
+			return null;
+		case "equals":
+			return (args != null && proxy == args[0]);
+		case "hashCode":
+			return System.identityHashCode(proxy);
+		case "toString":
+			return "TestShopkeeper#" + id;
+		default:
+			throw new UnsupportedOperationException(String.valueOf(method));
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package com.nisovin.shopkeepers.shopkeeper.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.nisovin.shopkeepers.api.shopkeeper.TradeStatisticsPeriod;
+import com.nisovin.shopkeepers.util.data.serialization.InvalidDataException;
+
+public class TradeCounterTests {
+
+	// The start of a day, and therefore also the start of an hour and of a 5 minute time slot:
+	private static final long START_MILLIS = TimeUnit.DAYS.toMillis(20000);
+
+	private static long minutes(long minutes) {
+		return START_MILLIS + TimeUnit.MINUTES.toMillis(minutes);
+	}
+
+	private static void assertCounts(TradeCounter counter, int hour, int day, int week) {
+		assertEquals(hour, counter.getCount(TradeStatisticsPeriod.HOUR));
+		assertEquals(day, counter.getCount(TradeStatisticsPeriod.DAY));
+		assertEquals(week, counter.getCount(TradeStatisticsPeriod.WEEK));
+	}
+
+	private static void assertInvalid(String serialized) {
+		try {
+			TradeCounter.deserialize(serialized);
+			fail("Expected invalid trade counter: " + serialized);
+		} catch (InvalidDataException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		TradeCounter counter = new TradeCounter();
+		counter.advance(START_MILLIS);
+		assertTrue(counter.isEmpty());
+		assertCounts(counter, 0, 0, 0);
+	}
+
+	@Test
+	public void testAdd() {
+		TradeCounter counter = new TradeCounter();
+		counter.add(minutes(0), 2);
+		counter.add(minutes(3), 1);
+		counter.add(minutes(30), 4);
+		assertFalse(counter.isEmpty());
+		assertCounts(counter, 7, 7, 7);
+	}
+
+	@Test
+	public void testTimeSlotsExpire() {
+		TradeCounter counter = new TradeCounter();
+		counter.add(minutes(0), 2);
+		counter.add(minutes(30), 1);
+
+		// The time slot of the first trades drops out of the hour:
+		counter.advance(minutes(61));
+		assertCounts(counter, 1, 3, 3);
+
+		// All trades drop out of the hour:
+		counter.advance(minutes(95));
+		assertCounts(counter, 0, 3, 3);
+
+		// All trades drop out of the day:
+		counter.advance(minutes(25 * 60));
+		assertCounts(counter, 0, 0, 3);
+		assertFalse(counter.isEmpty());
+
+		// All trades drop out of the week:
+		counter.advance(minutes(8 * 24 * 60));
+		assertCounts(counter, 0, 0, 0);
+		assertTrue(counter.isEmpty());
+	}
+
+	@Test
+	public void testLongGapClearsAllTimeSlots() {
+		TradeCounter counter = new TradeCounter();
+		for (int minute = 0; minute < 60; minute += 5) {
+			counter.add(minutes(minute), 1);
+		}
+		assertCounts(counter, 12, 12, 12);
+
+		counter.add(minutes(365 * 24 * 60), 1);
+		assertCounts(counter, 1, 1, 1);
+	}
+
+	@Test
+	public void testClockMovesBackwards() {
+		TradeCounter counter = new TradeCounter();
+		counter.add(minutes(120), 1);
+		// Counted towards the most recent time slot:
+		counter.add(minutes(0), 1);
+		assertCounts(counter, 2, 2, 2);
+
+		counter.advance(minutes(0));
+		assertCounts(counter, 2, 2, 2);
+	}
+
+	@Test
+	public void testSerialization() throws InvalidDataException {
+		TradeCounter counter = new TradeCounter();
+		counter.add(minutes(0), 2);
+		counter.add(minutes(2 * 60), 3);
+		counter.add(minutes(2 * 24 * 60 + 10), 5);
+
+		String serialized = counter.serialize();
+		TradeCounter deserialized = TradeCounter.deserialize(serialized);
+		assertEquals(serialized, deserialized.serialize());
+		assertCounts(deserialized, 5, 5, 10);
+
+		// The deserialized counter continues to advance from the saved time:
+		deserialized.advance(minutes(2 * 24 * 60 + 12 * 60));
+		assertCounts(deserialized, 0, 5, 10);
+	}
+
+	@Test
+	public void testSerializationOfEmptyCounter() throws InvalidDataException {
+		TradeCounter counter = new TradeCounter();
+		TradeCounter deserialized = TradeCounter.deserialize(counter.serialize());
+		assertTrue(deserialized.isEmpty());
+		assertCounts(deserialized, 0, 0, 0);
+	}
+
+	@Test
+	public void testDeserializeInvalid() {
+		assertInvalid("");
+		assertInvalid("0;;");
+		assertInvalid("abc;;;");
+		assertInvalid("0;1;;");
+		assertInvalid("0;12:1;;");
+		assertInvalid("0;-1:1;;");
+		assertInvalid("0;0:-1;;");
+		assertInvalid("0;0:x;;");
+	}
+}
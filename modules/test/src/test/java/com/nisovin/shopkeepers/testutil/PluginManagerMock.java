@@ -0,0 +1,36 @@
+package com.nisovin.shopkeepers.testutil;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
+
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+
+/**
+ * Mocks the PluginManager of the {@link ServerMock}.
+ * <p>
+ * Events are called for the listeners that are registered with the handler list of the event.
+ */
+class PluginManagerMock extends ProxyHandler<PluginManager> {
+
+	PluginManagerMock() {
+		super(PluginManager.class);
+	}
+
+	@Override
+	protected void setupMethodHandlers() throws Exception {
+		this.addHandler(PluginManager.class.getMethod("callEvent", Event.class), (proxy, args) -> {
+			assert args != null;
+			Event event = Unsafe.castNonNull(args[0]);
+			for (RegisteredListener listener : event.getHandlers().getRegisteredListeners()) {
+				try {
+					listener.callEvent(event);
+				} catch (EventException e) {
+					throw new RuntimeException("Failed to call event " + event.getEventName(), e);
+				}
+			}
+			return null;
+		});
+	}
+}
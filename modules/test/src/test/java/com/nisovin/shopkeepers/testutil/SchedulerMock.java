@@ -0,0 +1,63 @@
+package com.nisovin.shopkeepers.testutil;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Mocks the BukkitScheduler of the {@link ServerMock}.
+ * <p>
+ * There is no server tick loop during tests: Scheduled tasks are accepted but never run. Tests
+ * that depend on repeating tasks need to trigger the task's work themselves.
+ */
+class SchedulerMock extends ProxyHandler<BukkitScheduler> {
+
+	/**
+	 * Mocks the {@link BukkitTask} of a scheduled task.
+	 */
+	private static class TaskMock extends ProxyHandler<BukkitTask> {
+
+		private boolean cancelled = false;
+
+		TaskMock() {
+			super(BukkitTask.class);
+		}
+
+		@Override
+		protected void setupMethodHandlers() throws Exception {
+			this.addHandler(BukkitTask.class.getMethod("cancel"), (proxy, args) -> {
+				cancelled = true;
+				return null;
+			});
+			this.addHandler(BukkitTask.class.getMethod("isCancelled"), (proxy, args) -> {
+				return cancelled;
+			});
+		}
+	}
+
+	SchedulerMock() {
+		super(BukkitScheduler.class);
+	}
+
+	@Override
+	protected void setupMethodHandlers() throws Exception {
+		this.addHandler(
+				BukkitScheduler.class.getMethod("runTask", Plugin.class, Runnable.class),
+				(proxy, args) -> {
+					return null;
+				}
+		);
+		this.addHandler(
+				BukkitScheduler.class.getMethod(
+						"runTaskTimer",
+						Plugin.class,
+						Runnable.class,
+						long.class,
+						long.class
+				),
+				(proxy, args) -> {
+					return new TaskMock().newProxy();
+				}
+		);
+	}
+}
@@ -14,6 +14,8 @@ import org.bukkit.craftbukkit.v1_20_R4.block.data.CraftBlockData;
 import org.bukkit.craftbukkit.v1_20_R4.inventory.CraftItemFactory;
 import org.bukkit.craftbukkit.v1_20_R4.util.CraftMagicNumbers;
 import org.bukkit.craftbukkit.v1_20_R4.util.Versioning;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
 
 import com.nisovin.shopkeepers.api.internal.util.Unsafe;
 import com.nisovin.shopkeepers.util.java.Validate;
@@ -124,5 +126,15 @@ class ServerMock extends ProxyHandler<Server> {
 					return CraftBlockData.newData(material.asBlockType(), Unsafe.uncheckedNull());
 				}
 		);
+
+		final PluginManager pluginManager = new PluginManagerMock().newProxy();
+		this.addHandler(Server.class.getMethod("getPluginManager"), (proxy, args) -> {
+			return pluginManager;
+		});
+
+		final BukkitScheduler scheduler = new SchedulerMock().newProxy();
+		this.addHandler(Server.class.getMethod("getScheduler"), (proxy, args) -> {
+			return scheduler;
+		});
 	}
 }
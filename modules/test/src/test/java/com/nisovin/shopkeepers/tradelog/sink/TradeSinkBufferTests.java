@@ -0,0 +1,112 @@
+package com.nisovin.shopkeepers.tradelog.sink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Test;
+
+import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+import com.nisovin.shopkeepers.testutil.AbstractBukkitTest;
+import com.nisovin.shopkeepers.tradelog.data.PlayerRecord;
+import com.nisovin.shopkeepers.tradelog.data.ShopRecord;
+import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
+
+public class TradeSinkBufferTests extends AbstractBukkitTest {
+
+	private static final PlayerRecord PLAYER = PlayerRecord.of(UUID.randomUUID(), "Player");
+	private static final ShopRecord SHOP = new ShopRecord(
+			UUID.randomUUID(),
+			"admin",
+			null,
+			"Shop",
+			null,
+			0,
+			0,
+			0
+	);
+	private static final UnmodifiableItemStack ITEM = UnmodifiableItemStack.ofNonNull(
+			new ItemStack(Material.EMERALD)
+	);
+
+	private static SerializedTrade createTrade(int index) {
+		return SerializedTrade.of(TradeRecord.create(
+				Instant.ofEpochMilli(index),
+				PLAYER,
+				SHOP,
+				ITEM,
+				ITEM,
+				null,
+				1
+		));
+	}
+
+	private static List<SerializedTrade> peek(TradeSinkBuffer buffer, int maxTrades) {
+		List<SerializedTrade> trades = new ArrayList<>();
+		int count = buffer.peek(trades, maxTrades);
+		assertEquals(trades.size(), count);
+		return trades;
+	}
+
+	@Test
+	public void testOverflow() {
+		TradeSinkBuffer buffer = new TradeSinkBuffer(3);
+		SerializedTrade trade1 = createTrade(1);
+		SerializedTrade trade2 = createTrade(2);
+		SerializedTrade trade3 = createTrade(3);
+		SerializedTrade trade4 = createTrade(4);
+		assertTrue(buffer.offer(trade1));
+		assertTrue(buffer.offer(trade2));
+		assertTrue(buffer.offer(trade3));
+		assertEquals(3, buffer.size());
+
+		// Full: The trade is rejected and the buffered trades are not affected.
+		assertFalse(buffer.offer(trade4));
+		assertEquals(3, buffer.size());
+		assertEquals(Arrays.asList(trade1, trade2, trade3), peek(buffer, 10));
+
+		// Peeking does not free any space:
+		assertEquals(Arrays.asList(trade1, trade2), peek(buffer, 2));
+		assertFalse(buffer.offer(trade4));
+
+		// Removing trades frees space for new trades:
+		buffer.remove(1);
+		assertTrue(buffer.offer(trade4));
+		assertFalse(buffer.offer(createTrade(5)));
+		assertEquals(Arrays.asList(trade2, trade3, trade4), peek(buffer, 10));
+	}
+
+	@Test
+	public void testWrapAround() {
+		TradeSinkBuffer buffer = new TradeSinkBuffer(4);
+		List<SerializedTrade> expected = new ArrayList<>();
+		int next = 0;
+		// Repeatedly fill and partially drain the buffer, so that it wraps around several times:
+		for (int round = 0; round < 10; round++) {
+			SerializedTrade trade = createTrade(next);
+			while (buffer.offer(trade)) {
+				expected.add(trade);
+				trade = createTrade(++next);
+			}
+			assertEquals(buffer.getCapacity(), buffer.size());
+
+			List<SerializedTrade> trades = peek(buffer, 3);
+			assertEquals(expected.subList(0, trades.size()), trades);
+			buffer.remove(trades.size());
+			expected.subList(0, trades.size()).clear();
+			assertEquals(expected.size(), buffer.size());
+		}
+
+		buffer.remove(buffer.size());
+		assertTrue(buffer.isEmpty());
+		assertTrue(peek(buffer, 10).isEmpty());
+	}
+}
@@ -0,0 +1,192 @@
+package com.nisovin.shopkeepers.tradelog.sink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.nisovin.shopkeepers.api.util.UnmodifiableItemStack;
+import com.nisovin.shopkeepers.testutil.AbstractBukkitTest;
+import com.nisovin.shopkeepers.tradelog.data.PlayerRecord;
+import com.nisovin.shopkeepers.tradelog.data.ShopRecord;
+import com.nisovin.shopkeepers.tradelog.data.TradeRecord;
+
+public class TradeSpillFileTests extends AbstractBukkitTest {
+
+	private static final PlayerRecord PLAYER = PlayerRecord.of(UUID.randomUUID(), "Player");
+	private static final PlayerRecord OWNER = PlayerRecord.of(UUID.randomUUID(), "Owner");
+
+	private static TradeRecord createTrade(
+			long timestamp,
+			@Nullable PlayerRecord owner,
+			@Nullable UnmodifiableItemStack item2
+	) {
+		return createTrade(Instant.ofEpochMilli(timestamp), owner, item2);
+	}
+
+	private static TradeRecord createTrade(
+			Instant timestamp,
+			@Nullable PlayerRecord owner,
+			@Nullable UnmodifiableItemStack item2
+	) {
+		ShopRecord shop;
+		if (owner != null) {
+			shop = new ShopRecord(UUID.randomUUID(), "buy", owner, "Shop", "world", 1, -2, 3);
+		} else {
+			// Virtual admin shop:
+			shop = new ShopRecord(UUID.randomUUID(), "admin", null, "", null, 0, 0, 0);
+		}
+		return TradeRecord.create(
+				timestamp,
+				PLAYER,
+				shop,
+				item(Material.EMERALD, 3),
+				item(Material.DIAMOND, 1),
+				item2,
+				2
+		);
+	}
+
+	private static UnmodifiableItemStack item(Material type, int amount) {
+		return UnmodifiableItemStack.ofNonNull(new ItemStack(type, amount));
+	}
+
+	private static List<TradeRecord> createTrades() {
+		return Arrays.asList(
+				createTrade(1000L, OWNER, null),
+				createTrade(2000L, null, item(Material.GOLD_INGOT, 64)),
+				createTrade(3000L, OWNER, item(Material.IRON_INGOT, 5))
+		);
+	}
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private Path getSpillFilePath() {
+		return tempFolder.getRoot().toPath().resolve("spill").resolve("trades.spill");
+	}
+
+	private TradeSpillFile loadSpillFile() throws IOException {
+		TradeSpillFile spillFile = new TradeSpillFile(this.getSpillFilePath(), "");
+		spillFile.load();
+		return spillFile;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		TradeSpillFile spillFile = this.loadSpillFile();
+		assertTrue(spillFile.isEmpty());
+		assertNull(spillFile.getOldestTimestamp());
+
+		List<TradeRecord> trades = createTrades();
+		spillFile.append(trades);
+		assertEquals(trades.size(), spillFile.size());
+		assertEquals(Instant.ofEpochMilli(1000L), spillFile.getOldestTimestamp());
+		assertTrue(Files.exists(this.getSpillFilePath()));
+
+		assertEquals(trades, spillFile.read(10));
+		// Repeated reads return the same records until they are committed:
+		assertEquals(trades.subList(0, 2), spillFile.read(2));
+		spillFile.commit(1);
+		assertEquals(trades.size() - 1, spillFile.size());
+		assertEquals(Instant.ofEpochMilli(2000L), spillFile.getOldestTimestamp());
+
+		assertEquals(trades.subList(1, 3), spillFile.read(10));
+		spillFile.commit(2);
+		assertTrue(spillFile.isEmpty());
+		assertNull(spillFile.getOldestTimestamp());
+		assertFalse(Files.exists(this.getSpillFilePath()));
+	}
+
+	@Test
+	public void testReload() throws IOException {
+		List<TradeRecord> trades = createTrades();
+		this.loadSpillFile().append(trades);
+
+		TradeSpillFile spillFile = this.loadSpillFile();
+		assertEquals(trades.size(), spillFile.size());
+		assertEquals(Instant.ofEpochMilli(1000L), spillFile.getOldestTimestamp());
+		assertEquals(trades, spillFile.read(10));
+	}
+
+	@Test
+	public void testTimestampPrecision() throws IOException {
+		Instant timestamp = Instant.ofEpochSecond(1000L, 123456789L);
+		TradeRecord trade = createTrade(timestamp, OWNER, null);
+		this.loadSpillFile().append(Arrays.asList(trade));
+
+		TradeSpillFile spillFile = this.loadSpillFile();
+		assertEquals(timestamp, spillFile.getOldestTimestamp());
+		assertEquals(timestamp, spillFile.read(1).get(0).getTimestamp());
+	}
+
+	@Test
+	public void testTruncatedLastRecord() throws IOException {
+		List<TradeRecord> trades = createTrades();
+		this.loadSpillFile().append(trades.subList(0, 2));
+
+		// Simulate a crash while the next record was being appended:
+		Path path = this.getSpillFilePath();
+		long completeSize = Files.size(path);
+		Files.write(
+				path,
+				"{time: '1970-01-01T00:00:03Z', player-uuid: ".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND
+		);
+
+		TradeSpillFile spillFile = this.loadSpillFile();
+		// The incomplete record is discarded:
+		assertEquals(completeSize, Files.size(path));
+		assertEquals(2, spillFile.size());
+		assertEquals(trades.subList(0, 2), spillFile.read(10));
+
+		// Subsequently appended records are not joined onto the incomplete record:
+		spillFile.append(trades.subList(2, 3));
+		assertEquals(trades, spillFile.read(10));
+	}
+
+	@Test
+	public void testTruncatedOnlyRecord() throws IOException {
+		Path path = this.getSpillFilePath();
+		Files.createDirectories(path.getParent());
+		Files.write(path, "{time: 1000".getBytes(StandardCharsets.UTF_8));
+
+		TradeSpillFile spillFile = this.loadSpillFile();
+		assertTrue(spillFile.isEmpty());
+		assertFalse(Files.exists(path));
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		List<TradeRecord> trades = createTrades();
+		TradeSpillFile spillFile = this.loadSpillFile();
+		spillFile.append(trades);
+		spillFile.read(2);
+		spillFile.commit(2);
+
+		spillFile.compact();
+		Path path = this.getSpillFilePath();
+		assertEquals(1, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+		assertEquals(trades.subList(2, 3), spillFile.read(10));
+
+		// The compacted file can be loaded again:
+		assertEquals(trades.subList(2, 3), this.loadSpillFile().read(10));
+	}
+}
@@ -275,5 +275,13 @@ public class ItemDataTest extends AbstractItemStackSerializationTest<@Nullable S
 				"!ItemData#matches(different item data)",
 				itemData.matches(new ItemData(differentItemData))
 		);
+		Assert.assertFalse(
+				"!ItemData#matches(ItemStack with different item data)",
+				itemData.matches(differentItemData)
+		);
+		Assert.assertFalse(
+				"!ItemData#matches(ItemStack with different item data, partial lists)",
+				itemData.matches(differentItemData, true)
+		);
 	}
 }
@@ -0,0 +1,128 @@
+package com.nisovin.shopkeepers.util.bukkit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class WorldBlockMapTests {
+
+	private static final String WORLD = "world";
+	private static final String OTHER_WORLD = "world_nether";
+
+	// Beyond the world border:
+	private static final int MAX_XZ = 30_000_000;
+	private static final int MIN_Y = -2048;
+	private static final int MAX_Y = 2047;
+
+	@Test
+	public void testBlockKeysAreDistinct() {
+		Set<Long> keys = new HashSet<>();
+		int[] xzValues = { -MAX_XZ, -2, -1, 0, 1, 2, MAX_XZ };
+		int[] yValues = { MIN_Y, -64, -1, 0, 1, 319, MAX_Y };
+		int count = 0;
+		for (int x : xzValues) {
+			for (int y : yValues) {
+				for (int z : xzValues) {
+					keys.add(WorldBlockMap.getBlockKey(x, y, z));
+					count++;
+				}
+			}
+		}
+		assertEquals(count, keys.size());
+
+		// The coordinates do not overlap:
+		assertNotEquals(WorldBlockMap.getBlockKey(1, 0, 0), WorldBlockMap.getBlockKey(0, 0, 1));
+		assertNotEquals(WorldBlockMap.getBlockKey(0, -1, 0), WorldBlockMap.getBlockKey(0, 0, -1));
+		assertNotEquals(WorldBlockMap.getBlockKey(0, 0, 0), WorldBlockMap.getBlockKey(-1, -1, -1));
+	}
+
+	@Test
+	public void testPutGetRemove() {
+		WorldBlockMap<String> map = new WorldBlockMap<>();
+		assertNull(map.put(WORLD, 10, 64, -20, "a"));
+		assertNull(map.put(WORLD, -10, -64, 20, "b"));
+		assertEquals(2, map.size());
+
+		assertEquals("a", map.get(WORLD, 10, 64, -20));
+		assertEquals("b", map.get(new BlockLocation(WORLD, -10, -64, 20)));
+		assertNull(map.get(WORLD, -10, 64, -20));
+		assertNull(map.get(WORLD, 10, 64, 20));
+
+		assertEquals("a", map.put(new BlockLocation(WORLD, 10, 64, -20), "c"));
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(WORLD, 10, 64, -20));
+
+		assertEquals("c", map.remove(WORLD, 10, 64, -20));
+		assertNull(map.remove(WORLD, 10, 64, -20));
+		assertEquals(1, map.size());
+		assertEquals("b", map.remove(new BlockLocation(WORLD, -10, -64, 20)));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testWorldsAreSeparate() {
+		WorldBlockMap<String> map = new WorldBlockMap<>();
+		map.put(WORLD, 0, 0, 0, "a");
+		map.put(OTHER_WORLD, 0, 0, 0, "b");
+		assertEquals(2, map.size());
+		assertEquals("a", map.get(WORLD, 0, 0, 0));
+		assertEquals("b", map.get(OTHER_WORLD, 0, 0, 0));
+		assertNull(map.get("unknown", 0, 0, 0));
+
+		// The map of a world is removed once it is empty:
+		map.remove(OTHER_WORLD, 0, 0, 0);
+		assertNull(map.getWorldMap(OTHER_WORLD));
+		assertNotNull(map.getWorldMap(WORLD));
+		assertEquals("a", map.getWorldMap(WORLD).get(WorldBlockMap.getBlockKey(0, 0, 0)));
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.getWorldMap(WORLD));
+	}
+
+	@Test
+	public void testManyBlocks() {
+		WorldBlockMap<Integer> map = new WorldBlockMap<>();
+		int index = 0;
+		for (int x = -20; x < 20; x++) {
+			for (int y = -64; y < 320; y += 16) {
+				for (int z = -20; z < 20; z++) {
+					map.put(WORLD, x, y, z, index++);
+				}
+			}
+		}
+		assertEquals(index, map.size());
+
+		// Remove every other block:
+		index = 0;
+		for (int x = -20; x < 20; x++) {
+			for (int y = -64; y < 320; y += 16) {
+				for (int z = -20; z < 20; z++) {
+					if (index % 2 == 0) {
+						assertEquals(Integer.valueOf(index), map.remove(WORLD, x, y, z));
+					}
+					index++;
+				}
+			}
+		}
+
+		index = 0;
+		for (int x = -20; x < 20; x++) {
+			for (int y = -64; y < 320; y += 16) {
+				for (int z = -20; z < 20; z++) {
+					Integer expected = (index % 2 == 0) ? null : index;
+					assertEquals(expected, map.get(WORLD, x, y, z));
+					index++;
+				}
+			}
+		}
+		assertEquals(index / 2, map.size());
+	}
+}
@@ -0,0 +1,72 @@
+package com.nisovin.shopkeepers.util.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CsvParserTests {
+
+	private static final CsvParser PARSER = new CsvParser();
+
+	private static void testParsing(String csvRecord, String... expectedFields) {
+		assertEquals(Arrays.asList(expectedFields), PARSER.parseRecord(csvRecord));
+	}
+
+	private static void testMalformed(String csvRecord) {
+		try {
+			PARSER.parseRecord(csvRecord);
+		} catch (IllegalArgumentException e) {
+			return;
+		}
+		throw new AssertionError("Expected the record to be rejected: " + csvRecord);
+	}
+
+	@Test
+	public void testUnquotedFields() {
+		testParsing("", "");
+		testParsing("a", "a");
+		testParsing("a,b,c", "a", "b", "c");
+		testParsing(" a , b ", " a ", " b ");
+		testParsing("a,,c", "a", "", "c");
+		testParsing(",", "", "");
+		testParsing("a,", "a", "");
+	}
+
+	@Test
+	public void testQuotedFields() {
+		testParsing("\"a\"", "a");
+		testParsing("\"\"", "");
+		testParsing("\"a,b\",c", "a,b", "c");
+		testParsing("a,\"b\",\"\"", "a", "b", "");
+		testParsing("\" a \"", " a ");
+	}
+
+	@Test
+	public void testEscapedQuotes() {
+		testParsing("\"a\"\"b\"", "a\"b");
+		testParsing("\"\"\"\"", "\"");
+		testParsing("\"\"\"a\"\"\",b", "\"a\"", "b");
+		testParsing("\"a,\"\"b,\"\"\",c", "a,\"b,\"", "c");
+	}
+
+	@Test
+	public void testMalformedRecords() {
+		testMalformed("\"a");
+		testMalformed("\"a\"\"");
+		testMalformed("\"a\"b");
+		testMalformed("a,\"b");
+	}
+
+	@Test
+	public void testFormatterRoundTrip() {
+		List<String> fields = Arrays.asList("plain", "with,comma", "with\"quote", "", " spaced ");
+		assertEquals(fields, PARSER.parseRecord(new CsvFormatter().formatFields(fields)));
+		assertEquals(
+				fields,
+				PARSER.parseRecord(new CsvFormatter().quoteAllFields(false).formatFields(fields))
+		);
+	}
+}
@@ -0,0 +1,180 @@
+package com.nisovin.shopkeepers.util.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongHashMapTests {
+
+	// The capacity of a LongHashMap that is created with the default expected size:
+	private static final int DEFAULT_CAPACITY = 32;
+
+	// Same as the hash function of LongHashMap.
+	private static int mix(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	// Finds keys that have the given ideal slot in a map with the default capacity.
+	private static List<Long> findCollidingKeys(int slot, int count) {
+		List<Long> keys = new ArrayList<>(count);
+		for (long key = 0; keys.size() < count; key++) {
+			if ((mix(key) & (DEFAULT_CAPACITY - 1)) == slot) {
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+
+	@Test
+	public void testPutGetRemove() {
+		LongHashMap<String> map = new LongHashMap<>();
+		assertTrue(map.isEmpty());
+		assertNull(map.put(1L, "a"));
+		assertNull(map.put(2L, "b"));
+		assertEquals(2, map.size());
+		assertEquals("a", map.get(1L));
+		assertEquals("b", map.get(2L));
+		assertNull(map.get(3L));
+
+		assertEquals("a", map.put(1L, "c"));
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(1L));
+
+		assertEquals("c", map.putIfAbsent(1L, "d"));
+		assertEquals("c", map.get(1L));
+
+		assertEquals("c", map.remove(1L));
+		assertNull(map.remove(1L));
+		assertFalse(map.containsKey(1L));
+		assertEquals(1, map.size());
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(2L));
+	}
+
+	@Test
+	public void testZeroAndNegativeKeys() {
+		long[] keys = { 0L, -1L, 1L, Long.MIN_VALUE, Long.MAX_VALUE, -123456789L };
+		LongHashMap<Long> map = new LongHashMap<>();
+		// The key 0 is not confused with the initial keys of the empty slots:
+		assertFalse(map.containsKey(0L));
+		for (long key : keys) {
+			map.put(key, key);
+		}
+		assertEquals(keys.length, map.size());
+		for (long key : keys) {
+			assertEquals(Long.valueOf(key), map.get(key));
+		}
+
+		assertEquals(Long.valueOf(0L), map.remove(0L));
+		assertFalse(map.containsKey(0L));
+		assertEquals(Long.valueOf(-1L), map.get(-1L));
+		assertEquals(Long.valueOf(Long.MIN_VALUE), map.get(Long.MIN_VALUE));
+	}
+
+	@Test
+	public void testCollisions() {
+		List<Long> keys = findCollidingKeys(3, 4);
+		LongHashMap<Long> map = new LongHashMap<>();
+		keys.forEach(key -> map.put(key, key));
+		keys.forEach(key -> assertEquals(key, map.get(key)));
+		assertEquals(keys.size(), map.size());
+	}
+
+	@Test
+	public void testRemoveShiftsBackCollidingEntries() {
+		List<Long> keys = findCollidingKeys(3, 4);
+		LongHashMap<Long> map = new LongHashMap<>();
+		keys.forEach(key -> map.put(key, key));
+
+		// Removing the first entry of the probe sequence must not hide the subsequent entries:
+		assertEquals(keys.get(0), map.remove(keys.get(0)));
+		assertNull(map.get(keys.get(0)));
+		for (int i = 1; i < keys.size(); i++) {
+			assertEquals(keys.get(i), map.get(keys.get(i)));
+		}
+
+		// Remove an entry in the middle of the probe sequence:
+		assertEquals(keys.get(2), map.remove(keys.get(2)));
+		assertEquals(keys.get(1), map.get(keys.get(1)));
+		assertEquals(keys.get(3), map.get(keys.get(3)));
+		assertEquals(2, map.size());
+
+		// Re-inserting the removed keys does not create duplicates:
+		map.put(keys.get(0), keys.get(0));
+		map.put(keys.get(1), keys.get(1));
+		assertEquals(3, map.size());
+		map.remove(keys.get(1));
+		assertNull(map.get(keys.get(1)));
+		assertEquals(keys.get(0), map.get(keys.get(0)));
+		assertEquals(keys.get(3), map.get(keys.get(3)));
+	}
+
+	@Test
+	public void testRemoveWithWrapAround() {
+		// The probe sequence of these keys wraps around from the last to the first slot:
+		List<Long> lastSlotKeys = findCollidingKeys(DEFAULT_CAPACITY - 1, 3);
+		List<Long> firstSlotKeys = findCollidingKeys(0, 1);
+		LongHashMap<Long> map = new LongHashMap<>();
+		lastSlotKeys.forEach(key -> map.put(key, key));
+		firstSlotKeys.forEach(key -> map.put(key, key));
+
+		map.remove(lastSlotKeys.get(0));
+		assertEquals(lastSlotKeys.get(1), map.get(lastSlotKeys.get(1)));
+		assertEquals(lastSlotKeys.get(2), map.get(lastSlotKeys.get(2)));
+		assertEquals(firstSlotKeys.get(0), map.get(firstSlotKeys.get(0)));
+
+		map.remove(lastSlotKeys.get(1));
+		assertEquals(lastSlotKeys.get(2), map.get(lastSlotKeys.get(2)));
+		assertEquals(firstSlotKeys.get(0), map.get(firstSlotKeys.get(0)));
+		assertEquals(2, map.size());
+	}
+
+	@Test
+	public void testResize() {
+		LongHashMap<Integer> map = new LongHashMap<>(0);
+		int count = 10000;
+		for (int i = 0; i < count; i++) {
+			map.put(i * 31L - 5000L, i);
+		}
+		assertEquals(count, map.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(Integer.valueOf(i), map.get(i * 31L - 5000L));
+		}
+
+		int[] valueCount = { 0 };
+		map.forEachValue(value -> valueCount[0]++);
+		assertEquals(count, valueCount[0]);
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(1L);
+		LongHashMap<Long> map = new LongHashMap<>(0);
+		Map<Long, Long> expected = new HashMap<>();
+		for (int i = 0; i < 100000; i++) {
+			// A small key range, so that keys are frequently removed and re-inserted:
+			long key = random.nextInt(2000) - 1000;
+			if (random.nextBoolean()) {
+				assertEquals(expected.put(key, key), map.put(key, key));
+			} else {
+				assertEquals(expected.remove(key), map.remove(key));
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for (long key = -1000; key < 1000; key++) {
+			assertEquals(expected.get(key), map.get(key));
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package com.nisovin.shopkeepers.util.trading;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Material;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.inventory.InventoryType.SlotType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Test;
+
+import com.nisovin.shopkeepers.api.ShopkeepersAPI;
+import com.nisovin.shopkeepers.api.events.ShopkeeperTradeEvent;
+import com.nisovin.shopkeepers.api.internal.util.Unsafe;
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
+import com.nisovin.shopkeepers.testutil.AbstractBukkitTest;
+import com.nisovin.shopkeepers.util.trading.TradeMerger.MergeMode;
+
+public class TradeMergerTests extends AbstractBukkitTest {
+
+	// Only provides the identity based methods of Object:
+	private static <T> T newProxy(Class<T> type) {
+		return Unsafe.castNonNull(Proxy.newProxyInstance(
+				type.getClassLoader(),
+				new Class<?>[] { type },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "equals":
+						return (args != null && proxy == args[0]);
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "toString":
+						return type.getSimpleName() + "Proxy";
+					default:
+						throw new UnsupportedOperationException(String.valueOf(method));
+					}
+				}
+		));
+	}
+
+	// The click event is only used to differentiate trades:
+	private static class InventoryViewMock extends InventoryView {
+
+		@Override
+		public Inventory getTopInventory() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Inventory getBottomInventory() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public HumanEntity getPlayer() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public InventoryType getType() {
+			return InventoryType.MERCHANT;
+		}
+
+		@Override
+		public String getTitle() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String getOriginalTitle() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setTitle(String title) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int convertSlot(int rawSlot) {
+			return rawSlot;
+		}
+	}
+
+	private static InventoryClickEvent newClickEvent() {
+		return new InventoryClickEvent(
+				new InventoryViewMock(),
+				SlotType.OUTSIDE,
+				InventoryView.OUTSIDE,
+				ClickType.LEFT,
+				InventoryAction.NOTHING
+		);
+	}
+
+	private static TradingRecipe newTradingRecipe(int item1Amount) {
+		return new SKTradingRecipe(
+				new ItemStack(Material.DIAMOND),
+				new ItemStack(Material.EMERALD, item1Amount),
+				null
+		);
+	}
+
+	private final Player player = newProxy(Player.class);
+	private final Player otherPlayer = newProxy(Player.class);
+	private final Shopkeeper shopkeeper = newProxy(Shopkeeper.class);
+	private final Shopkeeper otherShopkeeper = newProxy(Shopkeeper.class);
+	private final TradingRecipe tradingRecipe = newTradingRecipe(2);
+	// Same item types, but different offered items:
+	private final TradingRecipe otherTradingRecipe = newTradingRecipe(3);
+
+	private final List<MergedTrades> processedTrades = new ArrayList<>();
+
+	private TradeMerger newTradeMerger(long mergeDurationTicks, long nextMergeTimeoutTicks) {
+		return new TradeMerger(ShopkeepersAPI.getPlugin(), MergeMode.DURATION, processedTrades::add)
+				.withMergeDurations(mergeDurationTicks, nextMergeTimeoutTicks);
+	}
+
+	private static ShopkeeperTradeEvent newTrade(
+			Player player,
+			Shopkeeper shopkeeper,
+			TradingRecipe tradingRecipe,
+			InventoryClickEvent clickEvent
+	) {
+		return new ShopkeeperTradeEvent(
+				shopkeeper,
+				player,
+				clickEvent,
+				tradingRecipe,
+				tradingRecipe.getItem1(),
+				tradingRecipe.getItem2(),
+				false
+		);
+	}
+
+	private static ShopkeeperTradeEvent newTrade(
+			Player player,
+			Shopkeeper shopkeeper,
+			TradingRecipe tradingRecipe
+	) {
+		return newTrade(player, shopkeeper, tradingRecipe, newClickEvent());
+	}
+
+	private ShopkeeperTradeEvent newTrade() {
+		return newTrade(player, shopkeeper, tradingRecipe);
+	}
+
+	private static void advanceTicks(TradeMerger tradeMerger, int ticks) {
+		for (int i = 0; i < ticks; i++) {
+			tradeMerger.advanceTimerWheel();
+		}
+	}
+
+	private void assertProcessedTrades(int... tradeCounts) {
+		assertEquals(tradeCounts.length, processedTrades.size());
+		for (int i = 0; i < tradeCounts.length; i++) {
+			assertEquals(tradeCounts[i], processedTrades.get(i).getTradeCount());
+		}
+	}
+
+	@Test
+	public void testNextMergeTimeout() {
+		TradeMerger tradeMerger = newTradeMerger(10L, 4L);
+		tradeMerger.mergeTrade(this.newTrade());
+
+		advanceTicks(tradeMerger, 3);
+		assertProcessedTrades();
+
+		advanceTicks(tradeMerger, 1);
+		assertProcessedTrades(1);
+	}
+
+	@Test
+	public void testMergeDuration() {
+		TradeMerger tradeMerger = newTradeMerger(10L, 4L);
+		tradeMerger.mergeTrade(this.newTrade());
+		// Each merged trade extends the merge window, but not beyond the merge duration:
+		for (int i = 0; i < 3; i++) {
+			advanceTicks(tradeMerger, 3);
+			tradeMerger.mergeTrade(this.newTrade());
+		}
+		assertProcessedTrades();
+
+		advanceTicks(tradeMerger, 1);
+		assertProcessedTrades(4);
+	}
+
+	@Test
+	public void testMergeDurationBeyondTimerWheel() {
+		TradeMerger tradeMerger = newTradeMerger(200L, 0L);
+		tradeMerger.mergeTrade(this.newTrade());
+		advanceTicks(tradeMerger, 150);
+		tradeMerger.mergeTrade(this.newTrade());
+
+		advanceTicks(tradeMerger, 49);
+		assertProcessedTrades();
+
+		advanceTicks(tradeMerger, 1);
+		assertProcessedTrades(2);
+	}
+
+	@Test
+	public void testInterleavedTrades() {
+		TradeMerger tradeMerger = newTradeMerger(10L, 0L);
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(otherPlayer, shopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(player, otherShopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(otherPlayer, shopkeeper, tradingRecipe));
+		assertProcessedTrades();
+
+		advanceTicks(tradeMerger, 10);
+		// In the order in which the merged trades were started:
+		assertProcessedTrades(2, 2, 1);
+		assertSame(player, processedTrades.get(0).getInitialTrade().getPlayer());
+		assertSame(otherPlayer, processedTrades.get(1).getInitialTrade().getPlayer());
+		assertSame(otherShopkeeper, processedTrades.get(2).getInitialTrade().getShopkeeper());
+	}
+
+	@Test
+	public void testUnmergeableTradeOnlyProcessesItsBucket() {
+		TradeMerger tradeMerger = newTradeMerger(10L, 0L);
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(otherPlayer, shopkeeper, tradingRecipe));
+
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, otherTradingRecipe));
+		assertProcessedTrades(2);
+
+		advanceTicks(tradeMerger, 10);
+		assertProcessedTrades(2, 1, 1);
+		assertSame(otherPlayer, processedTrades.get(1).getInitialTrade().getPlayer());
+		assertSame(otherTradingRecipe, processedTrades.get(2).getInitialTrade().getTradingRecipe());
+	}
+
+	@Test
+	public void testSameClickEvent() {
+		TradeMerger tradeMerger = new TradeMerger(
+				ShopkeepersAPI.getPlugin(),
+				MergeMode.SAME_CLICK_EVENT,
+				processedTrades::add
+		);
+		InventoryClickEvent clickEvent = newClickEvent();
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe, clickEvent));
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe, clickEvent));
+		assertProcessedTrades();
+
+		// A trade of another click event is not merged:
+		tradeMerger.mergeTrade(this.newTrade());
+		assertProcessedTrades(2);
+
+		advanceTicks(tradeMerger, 1);
+		assertProcessedTrades(2, 1);
+	}
+
+	@Test
+	public void testProcessPreviousTrades() {
+		TradeMerger tradeMerger = newTradeMerger(10L, 0L);
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(otherPlayer, shopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe));
+
+		tradeMerger.processPreviousTrades();
+		assertProcessedTrades(2, 1);
+
+		// The processed trades are not processed again:
+		advanceTicks(tradeMerger, 10);
+		assertProcessedTrades(2, 1);
+	}
+
+	@Test
+	public void testMergingDisabled() {
+		TradeMerger tradeMerger = newTradeMerger(0L, 0L);
+		tradeMerger.mergeTrade(this.newTrade());
+		tradeMerger.mergeTrade(this.newTrade());
+		assertProcessedTrades(1, 1);
+	}
+
+	@Test
+	public void testMergeStatistics() {
+		TradeMerger tradeMerger = newTradeMerger(10L, 0L);
+		assertEquals(1.0D, tradeMerger.getMergeRatio(), 0.0D);
+
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(player, shopkeeper, tradingRecipe));
+		tradeMerger.mergeTrade(newTrade(otherPlayer, shopkeeper, tradingRecipe));
+		tradeMerger.processPreviousTrades();
+
+		assertEquals(4L, tradeMerger.getMergedTradeEvents());
+		assertEquals(2L, tradeMerger.getProcessedMergedTrades());
+		assertEquals(2.0D, tradeMerger.getMergeRatio(), 0.0D);
+	}
+}
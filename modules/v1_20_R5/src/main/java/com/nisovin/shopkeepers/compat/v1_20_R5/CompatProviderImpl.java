@@ -1,6 +1,7 @@
 package com.nisovin.shopkeepers.compat.v1_20_R5;
 
 import java.lang.reflect.Field;
+import java.util.function.Predicate;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -197,6 +198,32 @@ public final class CompatProviderImpl implements CompatProvider {
 		return DataComponentPredicate.allOf(requiredComponents).test(nmsProvided);
 	}
 
+	@Override
+	public Predicate<@ReadOnly @Nullable ItemStack> createItemMatcher(
+			@ReadOnly ItemStack required
+	) {
+		Validate.notNull(required, "required is null!");
+		if (ItemUtils.isEmpty(required)) {
+			return provided -> ItemUtils.isEmpty(provided);
+		}
+
+		// Prepare the components predicate only once:
+		Material requiredType = required.getType();
+		DataComponentMap requiredComponents = PatchedDataComponentMap.fromPatch(
+				DataComponentMap.EMPTY,
+				this.asNMSItemStack(required).getComponentsPatch()
+		);
+		DataComponentPredicate componentsPredicate = DataComponentPredicate.allOf(
+				requiredComponents
+		);
+		return provided -> {
+			if (ItemUtils.isEmpty(provided)) return false;
+			assert provided != null;
+			if (provided.getType() != requiredType) return false;
+			return componentsPredicate.test(this.asNMSItemStack(provided));
+		};
+	}
+
 	@Override
 	public void updateTrades(Player player) {
 		Inventory openInventory = player.getOpenInventory().getTopInventory();